@@ -6,19 +6,32 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public abstract class AbstractDocComConverter implements DocComConverter {
-    private static final Semaphore COM_LOCK = new Semaphore(1, true);
+    // 拆批时每批的最少文件数，见 batchFiles()
+    private static final int BATCH_FILES = 4;
     private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(10);
-    private static final Duration CONVERT_TIMEOUT = Duration.ofMinutes(10);
-    private static final Duration PDF_CONVERT_TIMEOUT = Duration.ofMinutes(15);
+    // 脚本模板与引擎无关，引擎差异通过参数传入；按内容哈希缓存在 ScriptStore 中
+    private static final String PROBE_SCRIPT = buildProbeScript();
+    private static final String WORKER_SCRIPT = buildWorkerScript();
 
     private final PowerShellRunner powerShellRunner;
-    private DocComProbeResult lastProbe;
+    private final EngineHealth health = new EngineHealth(ProbeCacheStore.DEFAULT_TTL_MILLIS);
+    private final Object probeLock = new Object();
+    private volatile ComRegistryLookup registryLookup = new ComRegistryLookup();
+    private final ConversionTimeoutPolicy timeoutPolicy = new ConversionTimeoutPolicy();
+    private volatile UiLogger logger;
+    private volatile QuarantineStore quarantine;
+    private ComWorkerPool workerPool;
+    private int poolSize = ComWorkerPool.DEFAULT_SIZE;
 
     protected AbstractDocComConverter(PowerShellRunner powerShellRunner) {
         this.powerShellRunner = powerShellRunner;
@@ -28,78 +41,289 @@ public abstract class AbstractDocComConverter implements DocComConverter {
 
     protected abstract int[] saveFormatPriority();
 
+    /**
+     * Office 主进程的映像名（不含 .exe），用于识别工作进程启动的实例。
+     */
+    protected abstract String officeProcessName();
+
+    /**
+     * 超时决策等诊断信息输出到界面日志，可为 null。
+     */
+    public void setLogger(UiLogger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * 毒文件隔离索引：已隔离的文件不再提交给本引擎，工作进程故障计入索引。可为 null（不隔离）。
+     */
+    public void setQuarantine(QuarantineStore quarantine) {
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * 快速探测：先查注册表，注册信息完整即视为可用，无法判断时才启动 COM 实例。
+     */
     public DocComProbeResult probe() {
+        return probe(false);
+    }
+
+    /**
+     * @param full true 时跳过注册表查询，直接创建 COM 实例验证
+     */
+    public DocComProbeResult probe(boolean full) {
+        synchronized (probeLock) {
+            DocComProbeResult result = runProbe(full);
+            health.recordProbe(result, System.currentTimeMillis(), true);
+            return result;
+        }
+    }
+
+    public void setRegistryLookup(ComRegistryLookup registryLookup) {
+        this.registryLookup = registryLookup;
+    }
+
+    private DocComProbeResult runProbe(boolean full) {
         if (!isWindows()) {
-            lastProbe = DocComProbeResult.unavailable(engineName(), "仅支持 Windows 环境");
-            return lastProbe;
+            return DocComProbeResult.unavailable(engineName(), "仅支持 Windows 环境");
+        }
+        if (!full) {
+            ComRegistryLookup.Registration registration = registryLookup.lookup(progId());
+            switch (registration.status()) {
+                case REGISTERED -> {
+                    return new DocComProbeResult(engineName(), true, "可用（" + registration.message() + "）",
+                            "CLSID=" + registration.clsid(), "", 0, DocComProbeResult.Method.REGISTRY);
+                }
+                case NOT_REGISTERED -> {
+                    return new DocComProbeResult(engineName(), false, registration.message(),
+                            "", registration.message(), -1, DocComProbeResult.Method.REGISTRY);
+                }
+                default -> {
+                    // 服务程序缺失或注册表不可读：结论不确定，回退到完整探测
+                }
+            }
         }
         if (powerShellRunner.getExecutable().isEmpty()) {
-            lastProbe = DocComProbeResult.unavailable(engineName(), "未检测到 PowerShell");
-            return lastProbe;
+            return DocComProbeResult.unavailable(engineName(), "未检测到 PowerShell");
         }
         try {
-            PowerShellRunner.Result result = powerShellRunner.runScript(buildProbeScript(), PROBE_TIMEOUT);
-            lastProbe = new DocComProbeResult(engineName(), true, "可用", result.stdout(), result.stderr(), result.exitCode());
+            PowerShellRunner.Result result = powerShellRunner.runScript("com-probe", PROBE_SCRIPT,
+                    List.of("-ProgId", progId(), "-OfficeProcess", officeProcessName()), PROBE_TIMEOUT);
+            return new DocComProbeResult(engineName(), true, "可用", result.stdout(), result.stderr(), result.exitCode());
         } catch (PowerShellRunner.PowerShellExecutionException e) {
             PowerShellRunner.Result result = e.getResult();
-            lastProbe = new DocComProbeResult(engineName(), false, "COM 探测失败", result.stdout(), result.stderr(), result.exitCode());
+            return new DocComProbeResult(engineName(), false, "COM 探测失败", result.stdout(), result.stderr(), result.exitCode());
         }
-        return lastProbe;
     }
 
+    /**
+     * 采用缓存的探测结果，之后的转换不再重新探测（TTL 内）。
+     */
+    public void restoreProbe(DocComProbeResult probe, long probedAtMillis) {
+        health.recordProbe(probe, probedAtMillis, false);
+    }
+
+    /**
+     * 最近一次探测结果；从未探测过时先探测。
+     */
     public DocComProbeResult getLastProbe() {
-        if (lastProbe == null) {
-            return probe();
-        }
-        return lastProbe;
+        DocComProbeResult last = health.lastProbe();
+        return last == null ? probe() : last;
+    }
+
+    public EngineHealth health() {
+        return health;
     }
 
     @Override
     public boolean isAvailable() {
-        return probe().available();
+        ensureProbed();
+        return health.isUsable();
+    }
+
+    /**
+     * 转换前检查引擎状态：只在从未探测、熔断冷却结束或结果过期时重新探测，否则直接使用已有状态。
+     */
+    private void ensureUsable(Path input, String action) throws DocComConversionException {
+        DocComProbeResult probe = ensureProbed();
+        if (!probe.available()) {
+            throw new DocComConversionException("当前环境无法使用" + engineName() + "进行" + action + "：" + probe.message(),
+                    input.toString(), probe.stdout(), probe.stderr(), probe.exitCode());
+        }
+        if (!health.isUsable()) {
+            long seconds = EngineHealth.COOLDOWN_MILLIS / 1000;
+            throw new DocComConversionException(engineName() + " 工作进程连续故障，已暂停使用，约 " + seconds + " 秒后自动重新检测",
+                    input.toString(), "", "", -1);
+        }
+    }
+
+    private DocComProbeResult ensureProbed() {
+        synchronized (probeLock) {
+            if (health.needsProbe()) {
+                // 熔断后的半开探测必须实际启动 COM，注册表信息无法说明引擎是否恢复
+                return probe(health.isCircuitOpen());
+            }
+            return health.lastProbe();
+        }
     }
 
     @Override
     public List<Path> convertBatch(List<Path> docFiles, Path tempDir) throws IOException, DocComConversionException {
+        List<Path> outputs = new ArrayList<>();
+        for (FileOutcome outcome : convertEach(docFiles, tempDir)) {
+            if (outcome.failure() != null) {
+                // 按输入顺序抛出第一个失败文件的异常
+                throw outcome.failure();
+            }
+            outputs.add(outcome.output());
+        }
+        return outputs;
+    }
+
+    @Override
+    public List<FileOutcome> convertEach(List<Path> docFiles, Path tempDir) throws IOException {
         if (docFiles == null || docFiles.isEmpty()) {
             return List.of();
         }
-        DocComProbeResult probe = probe();
-        if (!probe.available()) {
-            throw new DocComConversionException("当前环境无法使用" + engineName() + "进行 .doc 转换：" + probe.message(),
-                    docFiles.get(0).toString(), probe.stdout(), probe.stderr(), probe.exitCode());
-        }
+        ensureUsable(docFiles.get(0), " .doc 转换");
         if (tempDir == null) {
             throw new IOException("临时目录不能为空");
         }
         Files.createDirectories(tempDir);
 
+        // 已隔离的文件直接判为失败，不提交给工作进程；其余文件的结果按原下标回填
+        FileOutcome[] results = new FileOutcome[docFiles.size()];
+        List<Integer> indexes = new ArrayList<>();
+        List<Path> inputs = new ArrayList<>();
         List<Path> outputs = new ArrayList<>();
-        try {
-            COM_LOCK.acquire();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("转换锁获取失败", e);
+        List<String> hashes = new ArrayList<>();
+        for (int i = 0; i < docFiles.size(); i++) {
+            Path input = docFiles.get(i);
+            String hash = quarantineHash(input);
+            DocComConversionException skipped = checkQuarantine(input, hash);
+            if (skipped != null) {
+                results[i] = new FileOutcome(null, skipped);
+                continue;
+            }
+            indexes.add(i);
+            inputs.add(input);
+            outputs.add(tempDir.resolve(buildOutputName(i, input)));
+            hashes.add(hash);
         }
+        List<FileOutcome> converted = convertAll(inputs, outputs, hashes);
+        for (int i = 0; i < converted.size(); i++) {
+            results[indexes.get(i)] = converted.get(i);
+        }
+        return new ArrayList<>(Arrays.asList(results));
+    }
 
+    private List<FileOutcome> convertAll(List<Path> docFiles, List<Path> outputs, List<String> hashes)
+            throws IOException {
+        if (docFiles.isEmpty()) {
+            return List.of();
+        }
+        // 按工作进程数切成若干批（每个进程约两批，兼顾负载均衡，每批至少 BATCH_FILES 个），哪个工作进程先空闲
+        // 就领取下一批；结果按输入下标回填，顺序不变
+        int workers = Math.max(1, parallelism());
+        int chunkSize = Math.max(BATCH_FILES, (docFiles.size() + workers * 2 - 1) / (workers * 2));
+        int threads = Math.min(workers, (docFiles.size() + chunkSize - 1) / chunkSize);
+        if (threads <= 1) {
+            return convertChunk(docFiles, outputs, hashes);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "com-convert");
+            thread.setDaemon(true);
+            return thread;
+        });
         try {
-            for (int i = 0; i < docFiles.size(); i++) {
-                Path input = docFiles.get(i);
-                String outputName = buildOutputName(i, input);
-                Path output = tempDir.resolve(outputName);
+            List<Future<List<FileOutcome>>> futures = new ArrayList<>();
+            for (int from = 0; from < docFiles.size(); from += chunkSize) {
+                int to = Math.min(docFiles.size(), from + chunkSize);
+                List<Path> inputs = docFiles.subList(from, to);
+                List<Path> chunkOutputs = outputs.subList(from, to);
+                List<String> chunkHashes = hashes.subList(from, to);
+                futures.add(executor.submit(() -> convertChunk(inputs, chunkOutputs, chunkHashes)));
+            }
+            List<FileOutcome> outcomes = new ArrayList<>();
+            for (Future<List<FileOutcome>> future : futures) {
+                outcomes.addAll(awaitConversion(future));
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-                runConversion(input, output);
+    /**
+     * 一批文件交给同一个工作进程连续转换，按文件返回结果。
+     */
+    private List<FileOutcome> convertChunk(List<Path> inputs, List<Path> outputs, List<String> hashes)
+            throws DocComConversionException {
+        List<ComWorkerSession.BatchItem> items = new ArrayList<>();
+        List<ConversionTimeoutPolicy.Decision> decisions = new ArrayList<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            ConversionTimeoutPolicy.Decision decision = decideTimeout("DOC", inputs.get(i));
+            decisions.add(decision);
+            items.add(new ComWorkerSession.BatchItem(inputs.get(i), outputs.get(i), decision.timeout()));
+        }
+        List<ComWorkerSession.BatchOutcome> outcomes = workerPool().convertBatch("DOC", items);
+        List<FileOutcome> results = new ArrayList<>();
+        for (int i = 0; i < outcomes.size(); i++) {
+            ComWorkerSession.BatchOutcome outcome = outcomes.get(i);
+            DocComConversionException failure = outcome.failure();
+            if (failure == null && !Files.exists(outputs.get(i))) {
+                failure = new DocComConversionException("转换失败，未生成输出文件",
+                        inputs.get(i).toString(), "", "未生成输出文件：" + outputs.get(i), -1);
+            }
+            if (failure == null) {
+                timeoutPolicy.record("DOC", inputs.get(i), decisions.get(i).pages(), outcome.elapsedMillis());
+            }
+            // 超时、崩溃的文件没有实测耗时，按超时时长计
+            long elapsed = outcome.elapsedMillis() >= 0 ? outcome.elapsedMillis() : decisions.get(i).timeout().toMillis();
+            recordQuarantine(inputs.get(i), hashes.get(i), failure, elapsed);
+            results.add(new FileOutcome(failure == null ? outputs.get(i) : null, failure));
+        }
+        return results;
+    }
 
-                if (!Files.exists(output)) {
-                    throw new DocComConversionException("转换失败，未生成输出文件",
-                            input.toString(), "", "未生成输出文件：" + output, -1);
-                }
-                outputs.add(output);
+    /**
+     * 同一引擎可同时进行的转换数（工作进程池大小）。
+     */
+    @Override
+    public int parallelism() {
+        return workerPool().size();
+    }
+
+    @Override
+    public int batchFiles() {
+        return BATCH_FILES;
+    }
+
+    @Override
+    public String cacheProfile() {
+        int[] priority = saveFormatPriority();
+        return progId() + "|" + priority[0] + "," + priority[1];
+    }
+
+    public void setPoolSize(int requestedSize) {
+        synchronized (this) {
+            poolSize = requestedSize;
+        }
+        workerPool().resize(requestedSize);
+    }
+
+    private <T> T awaitConversion(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("转换被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
             }
-        } finally {
-            COM_LOCK.release();
+            throw new IOException("转换失败：" + cause.getMessage(), cause);
         }
-        return outputs;
     }
 
     @Override
@@ -109,14 +333,16 @@ public abstract class AbstractDocComConverter implements DocComConverter {
 
     @Override
     public Path convertPdfToDocx(Path pdfFile, Path tempDir) throws IOException, DocComConversionException {
+        return convertPdfToDocx(pdfFile, tempDir, null);
+    }
+
+    @Override
+    public Path convertPdfToDocx(Path pdfFile, Path tempDir, PowerShellRunner.ProgressListener listener)
+            throws IOException, DocComConversionException {
         if (pdfFile == null) {
             throw new IOException("PDF 文件为空");
         }
-        DocComProbeResult probe = probe();
-        if (!probe.available()) {
-            throw new DocComConversionException("当前环境无法使用" + engineName() + "进行 PDF 转换：" + probe.message(),
-                    pdfFile.toString(), probe.stdout(), probe.stderr(), probe.exitCode());
-        }
+        ensureUsable(pdfFile, " PDF 转换");
         if (!supportsPdfConversion()) {
             throw new DocComConversionException("当前引擎不支持 PDF 转 DOCX",
                     pdfFile.toString(), "", "当前引擎不支持 PDF 转 DOCX", -1);
@@ -126,275 +352,366 @@ public abstract class AbstractDocComConverter implements DocComConverter {
         }
         Files.createDirectories(tempDir);
 
-        try {
-            COM_LOCK.acquire();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("转换锁获取失败", e);
+        String hash = quarantineHash(pdfFile);
+        DocComConversionException skipped = checkQuarantine(pdfFile, hash);
+        if (skipped != null) {
+            throw skipped;
         }
-
+        String outputName = buildOutputName(0, pdfFile);
+        Path output = tempDir.resolve(outputName);
+        long start = System.nanoTime();
         try {
-            String outputName = buildOutputName(0, pdfFile);
-            Path output = tempDir.resolve(outputName);
-            runPdfConversion(pdfFile, output);
-
+            runPdfConversion(pdfFile, output, listener);
+            // 回报成功但没有输出同样算失败，不能因此解除隔离
             if (!Files.exists(output)) {
                 throw new DocComConversionException("转换失败，未生成输出文件",
                         pdfFile.toString(), "", "未生成输出文件：" + output, -1);
             }
-            return output;
-        } finally {
-            COM_LOCK.release();
+        } catch (DocComConversionException e) {
+            recordQuarantine(pdfFile, hash, e, (System.nanoTime() - start) / 1_000_000);
+            throw e;
         }
+        recordQuarantine(pdfFile, hash, null, 0);
+        return output;
+    }
+
+    protected void runPdfConversion(Path input, Path output, PowerShellRunner.ProgressListener listener)
+            throws DocComConversionException {
+        runWithAdaptiveTimeout("PDF", input, output, listener);
     }
 
-    protected void runConversion(Path input, Path output) throws DocComConversionException {
-        String script = buildConversionScript(input, output);
+    private void runWithAdaptiveTimeout(String kind, Path input, Path output, PowerShellRunner.ProgressListener listener)
+            throws DocComConversionException {
+        ConversionTimeoutPolicy.Decision decision = decideTimeout(kind, input);
+        long start = System.nanoTime();
+        workerPool().convert(kind, input, output, decision.timeout(), listener);
+        timeoutPolicy.record(kind, input, decision.pages(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 隔离索引使用的内容哈希；未启用隔离或文件无法读取时返回 null（由转换本身报告错误）。
+     */
+    private String quarantineHash(Path input) {
+        QuarantineStore current = quarantine;
+        if (current == null) {
+            return null;
+        }
         try {
-            powerShellRunner.runScript(script, CONVERT_TIMEOUT);
-        } catch (PowerShellRunner.PowerShellExecutionException e) {
-            PowerShellRunner.Result result = e.getResult();
-            throw new DocComConversionException(engineName() + " 转换失败",
-                    input.toString(), result.stdout(), result.stderr(), result.exitCode());
+            return current.hash(input);
+        } catch (IOException e) {
+            return null;
         }
     }
 
-    protected void runPdfConversion(Path input, Path output) throws DocComConversionException {
-        String script = buildPdfConversionScript(input, output);
-        try {
-            powerShellRunner.runScript(script, PDF_CONVERT_TIMEOUT);
-        } catch (PowerShellRunner.PowerShellExecutionException e) {
-            PowerShellRunner.Result result = e.getResult();
-            throw new DocComConversionException(engineName() + " PDF 转换失败",
-                    input.toString(), result.stdout(), result.stderr(), result.exitCode());
+    /**
+     * 文件已在本引擎上隔离时返回快速失败的异常（不标记为工作进程故障，调用方不会在本引擎重试，而是直接改用另一个引擎）。
+     */
+    private DocComConversionException checkQuarantine(Path input, String hash) {
+        QuarantineStore current = quarantine;
+        if (current == null || hash == null) {
+            return null;
+        }
+        QuarantineStore.EngineRecord record = current.poisoned(hash, engineName());
+        if (record == null) {
+            return null;
         }
+        String message = engineName() + " 已隔离该文件：此前 " + record.failures() + " 次卡死或崩溃，最近一次耗时 "
+                + record.lastDurationMillis() / 1000 + " 秒";
+        UiLogger log = logger;
+        if (log != null) {
+            log.warn("跳过已隔离文件：" + input.getFileName() + "（" + message + "）");
+        }
+        return new DocComConversionException(message, input.toString(), "",
+                record.lastError() == null ? "" : record.lastError(), -1);
     }
 
-    private String buildProbeScript() {
-        String ls = System.lineSeparator();
-        StringBuilder b = new StringBuilder();
-        b.append("$ErrorActionPreference = 'Stop'").append(ls);
-        b.append("[Console]::OutputEncoding = [System.Text.Encoding]::UTF8").append(ls);
-        b.append("$OutputEncoding = [System.Text.Encoding]::UTF8").append(ls);
-        b.append("function _err([string]$m) { try { [Console]::Error.WriteLine($m) } catch { } }").append(ls);
+    /**
+     * 成功转换清除本引擎的故障记录；工作进程故障（卡死、超时、崩溃）计入隔离索引，文档本身的错误不计。
+     */
+    private void recordQuarantine(Path input, String hash, DocComConversionException failure, long elapsedMillis) {
+        QuarantineStore current = quarantine;
+        if (current == null || hash == null) {
+            return;
+        }
+        if (failure == null) {
+            current.recordSuccess(hash, engineName());
+            return;
+        }
+        if (!failure.isWorkerFault()) {
+            return;
+        }
+        boolean poisoned = current.recordFailure(hash, input.getFileName().toString(), engineName(), elapsedMillis,
+                failure.getMessage());
+        UiLogger log = logger;
+        if (poisoned && log != null) {
+            log.warn(input.getFileName() + " 在 " + engineName() + " 上已累计 " + QuarantineStore.POISON_THRESHOLD
+                    + " 次以上卡死或崩溃，已隔离，之后不再提交给该引擎");
+        }
+    }
 
-        b.append("try {").append(ls);
-        b.append("  $app = $null").append(ls);
-        b.append("  $app = New-Object -ComObject ").append(progId()).append(ls);
+    private ConversionTimeoutPolicy.Decision decideTimeout(String kind, Path input) {
+        ConversionTimeoutPolicy.Decision decision = timeoutPolicy.decide(kind, input);
+        UiLogger current = logger;
+        if (current != null) {
+            current.info(engineName() + " 转换超时 " + decision.timeout().toSeconds() + " 秒：" + input.getFileName()
+                    + "（" + decision.reason() + "）");
+        }
+        return decision;
+    }
+
+    private synchronized ComWorkerPool workerPool() {
+        if (workerPool == null) {
+            int[] priority = saveFormatPriority();
+            List<String> arguments = List.of("-ProgId", progId(), "-OfficeProcess", officeProcessName(),
+                    "-Formats", priority[0] + "," + priority[1]);
+            workerPool = new ComWorkerPool(engineName(),
+                    () -> powerShellRunner.startScript("com-worker", WORKER_SCRIPT, arguments), poolSize, health);
+        }
+        return workerPool;
+    }
+
+    /**
+     * 脚本函数 {@code _officePid $app $before}：返回 COM 对象所在 Office 进程的进程号，无法确定时返回 0。
+     * 优先用 GetWindowThreadProcessId 查应用主窗口句柄的归属进程：先取 {@code Application.Hwnd}，
+     * Word 没有该属性时临时把 Caption 设为唯一标题再按标题查找窗口（隐藏窗口同样能找到）。
+     * 取不到窗口时才退回进程差集，且只接受命令行带 /Automation 或 -Embedding（由 COM 启动）的唯一新进程，
+     * 避免把用户同时手动打开的 Office 当成自己的实例而在清理时结束掉。
+     */
+    private static void appendOfficePidFunction(StringBuilder b, String ls) {
+        b.append("function _officePid($app, $before) {").append(ls);
         b.append("  try {").append(ls);
-        b.append("    try { $app.Visible = $false } catch { }").append(ls);
-        b.append("    try { $app.DisplayAlerts = 0 } catch { }").append(ls);
-        b.append("  } finally {").append(ls);
-        b.append("    if ($app -ne $null) {").append(ls);
-        b.append("      try { $app.Quit() | Out-Null } catch { }").append(ls);
-        b.append("      try { [System.Runtime.Interopservices.Marshal]::FinalReleaseComObject($app) | Out-Null } catch { }").append(ls);
+        b.append("    Add-Type -Namespace DocMerge -Name Win32 -ErrorAction Stop -MemberDefinition '")
+                .append("[DllImport(\"user32.dll\")] public static extern uint GetWindowThreadProcessId(IntPtr hWnd, out uint processId); ")
+                .append("[DllImport(\"user32.dll\", CharSet = CharSet.Unicode)] public static extern IntPtr FindWindow(string className, string windowName);'")
+                .append(ls);
+        b.append("  } catch { }").append(ls);
+        b.append("  $hwnd = [IntPtr]::Zero").append(ls);
+        b.append("  try { $hwnd = [IntPtr][long]$app.Hwnd } catch { $hwnd = [IntPtr]::Zero }").append(ls);
+        b.append("  if ($hwnd -eq [IntPtr]::Zero) {").append(ls);
+        b.append("    $caption = $null").append(ls);
+        b.append("    try {").append(ls);
+        b.append("      $caption = $app.Caption").append(ls);
+        b.append("      $tag = 'doc-merge-' + [Guid]::NewGuid().ToString('N')").append(ls);
+        b.append("      $app.Caption = $tag").append(ls);
+        // 传 $null 给 string 参数会被转换成空串，窗口类名必须用 NullString 才表示“不限”
+        b.append("      $hwnd = [DocMerge.Win32]::FindWindow([NullString]::Value, $tag)").append(ls);
+        b.append("    } catch {").append(ls);
+        b.append("      $hwnd = [IntPtr]::Zero").append(ls);
+        b.append("    } finally {").append(ls);
+        b.append("      if ($caption -ne $null) { try { $app.Caption = $caption } catch { } }").append(ls);
         b.append("    }").append(ls);
         b.append("  }").append(ls);
-        b.append("  exit 0").append(ls);
-        b.append("} catch {").append(ls);
-        // 关键：禁止 Write-Error（Stop 下会二次抛异常），用 Console.Error 输出
-        b.append("  _err ('[COM探测异常] ' + $_.Exception.ToString())").append(ls);
-        b.append("  try { _err ('[ErrorRecord] ' + ($_ | Format-List -Force * | Out-String)) } catch { }").append(ls);
-        b.append("  exit 1").append(ls);
+        b.append("  if ($hwnd -ne [IntPtr]::Zero) {").append(ls);
+        b.append("    try {").append(ls);
+        b.append("      $owner = [uint32]0").append(ls);
+        b.append("      [void][DocMerge.Win32]::GetWindowThreadProcessId($hwnd, [ref]$owner)").append(ls);
+        b.append("      if ($owner -ne 0) { return [int]$owner }").append(ls);
+        b.append("    } catch { }").append(ls);
+        b.append("  }").append(ls);
+        b.append("  try {").append(ls);
+        b.append("    $new = @(Get-CimInstance Win32_Process -Filter (\"Name='\" + $OfficeProcess + \".exe'\") -ErrorAction Stop | Where-Object { $before -notcontains $_.ProcessId -and $_.CommandLine -match '(?i)(/Automation|-Embedding)' })").append(ls);
+        b.append("    if ($new.Count -eq 1) { return [int]$new[0].ProcessId }").append(ls);
+        b.append("  } catch { }").append(ls);
+        b.append("  return 0").append(ls);
         b.append("}").append(ls);
-        return b.toString();
     }
 
-    private String buildConversionScript(Path input, Path output) {
-        int[] priority = saveFormatPriority();
+    /**
+     * 探测脚本模板，参数：-ProgId COM 组件，-OfficeProcess Office 主进程映像名。
+     */
+    private static String buildProbeScript() {
         String ls = System.lineSeparator();
-
         StringBuilder b = new StringBuilder();
+        b.append("param([string]$ProgId, [string]$OfficeProcess)").append(ls);
         b.append("$ErrorActionPreference = 'Stop'").append(ls);
         b.append("[Console]::OutputEncoding = [System.Text.Encoding]::UTF8").append(ls);
         b.append("$OutputEncoding = [System.Text.Encoding]::UTF8").append(ls);
         b.append("function _err([string]$m) { try { [Console]::Error.WriteLine($m) } catch { } }").append(ls);
 
-        b.append("$inputPath = '").append(escapePowerShell(input.toString())).append("'").append(ls);
-        b.append("$outputPath = '").append(escapePowerShell(output.toString())).append("'").append(ls);
+        appendOfficePidFunction(b, ls);
 
+        // 报告本次创建的 Office 进程，脚本超时被结束时一并清理
+        b.append("$officeBefore = @(Get-Process -Name $OfficeProcess -ErrorAction SilentlyContinue | ForEach-Object { $_.Id })").append(ls);
         b.append("try {").append(ls);
-        b.append("  if (Test-Path -LiteralPath $outputPath) { Remove-Item -LiteralPath $outputPath -Force }").append(ls);
-
         b.append("  $app = $null").append(ls);
-        b.append("  $doc = $null").append(ls);
-        b.append("  $pv  = $null").append(ls);
-
-        b.append("  $app = New-Object -ComObject ").append(progId()).append(ls);
+        b.append("  $app = New-Object -ComObject $ProgId").append(ls);
+        b.append("  $officePid = _officePid $app $officeBefore").append(ls);
+        b.append("  if ($officePid -gt 0) { [Console]::Out.WriteLine('##pid ' + $officePid); [Console]::Out.Flush() }").append(ls);
         b.append("  try {").append(ls);
         b.append("    try { $app.Visible = $false } catch { }").append(ls);
         b.append("    try { $app.DisplayAlerts = 0 } catch { }").append(ls);
-        b.append("    try { $app.AutomationSecurity = 3 } catch { }").append(ls);
-        b.append("    try { $app.Options.ConfirmConversions = $false } catch { }").append(ls);
-
-        // Open：参数签名回退 + ProtectedView 回退（兼容 Word/WPS）
-        b.append("    try {").append(ls);
-        b.append("      $doc = $app.Documents.Open($inputPath, $false, $true, $false)").append(ls);
-        b.append("    } catch {").append(ls);
-        b.append("      try {").append(ls);
-        b.append("        $pv = $app.ProtectedViewWindows.Open($inputPath)").append(ls);
-        b.append("        $doc = $pv.Edit()").append(ls);
-        b.append("      } catch {").append(ls);
-        b.append("        $doc = $app.Documents.Open($inputPath)").append(ls);
-        b.append("      }").append(ls);
-        b.append("    }").append(ls);
-
-        b.append("    if ($doc -eq $null) { throw '无法打开文档：' + $inputPath }").append(ls);
-
-        // Save：SaveAs2/SaveAs + 多格式优先级 + 最后不带格式
-        b.append("    $saved = $false").append(ls);
-        b.append("    $fmts = @(").append(priority[0]).append(", ").append(priority[1]).append(")").append(ls);
-        b.append("    foreach ($fmt in $fmts) {").append(ls);
-        b.append("      if ($saved) { break }").append(ls);
-        b.append("      try { $doc.SaveAs2($outputPath, [int]$fmt); $saved = $true } catch { }").append(ls);
-        b.append("      if (-not $saved) { try { $doc.SaveAs($outputPath, [int]$fmt); $saved = $true } catch { } }").append(ls);
-        b.append("    }").append(ls);
-        b.append("    if (-not $saved) {").append(ls);
-        b.append("      try { $doc.SaveAs($outputPath); $saved = $true } catch { }").append(ls);
-        b.append("    }").append(ls);
-        b.append("    if (-not $saved) { throw '保存失败' }").append(ls);
-
         b.append("  } finally {").append(ls);
-        b.append("    if ($doc -ne $null) {").append(ls);
-        b.append("      try { $doc.Close($false) | Out-Null } catch { }").append(ls);
-        b.append("      try { [System.Runtime.Interopservices.Marshal]::FinalReleaseComObject($doc) | Out-Null } catch { }").append(ls);
-        b.append("    }").append(ls);
-        b.append("    if ($pv -ne $null) { try { $pv.Close() | Out-Null } catch { } }").append(ls);
         b.append("    if ($app -ne $null) {").append(ls);
         b.append("      try { $app.Quit() | Out-Null } catch { }").append(ls);
         b.append("      try { [System.Runtime.Interopservices.Marshal]::FinalReleaseComObject($app) | Out-Null } catch { }").append(ls);
         b.append("    }").append(ls);
-        b.append("    [GC]::Collect()").append(ls);
-        b.append("    [GC]::WaitForPendingFinalizers()").append(ls);
         b.append("  }").append(ls);
-
         b.append("  exit 0").append(ls);
         b.append("} catch {").append(ls);
-        b.append("  _err ('[DOC转DOCX异常] ' + $_.Exception.ToString())").append(ls);
+        // 关键：禁止 Write-Error（Stop 下会二次抛异常），用 Console.Error 输出
+        b.append("  _err ('[COM探测异常] ' + $_.Exception.ToString())").append(ls);
         b.append("  try { _err ('[ErrorRecord] ' + ($_ | Format-List -Force * | Out-String)) } catch { }").append(ls);
         b.append("  exit 1").append(ls);
         b.append("}").append(ls);
-
         return b.toString();
     }
 
     /**
-     * PDF 转 DOCX（Word）增强版：
-     * - 关键修复：catch 内不用 Write-Error（Stop 下会二次终止 -> exitCode 常见变成 -1），改 Console.Error 输出
+     * 常驻工作进程脚本：启动一次 Office，按 {@link ComWorkerSession} 的行协议逐个转换。
+     * 参数：-ProgId、-OfficeProcess 同探测脚本，-Formats 保存格式优先级；文件路径经 UTF-8 stdin 传入，不走命令行。
      * - Open 回退：Documents.Open(参数) -> ProtectedView -> Documents.Open(单参)
-     * - SaveAs2 重试 + 多格式（优先 16，再 12）+ SaveAs 回退
+     * - Save：SaveAs2/SaveAs + 多格式优先级 + 最后不带格式；PDF 的 SaveAs2 重试三次
      * - PDF 场景下临时 Visible=true（部分环境 PDF Reflow 需要可见 UI 才稳定）
+     * - catch 内不用 Write-Error（Stop 下会二次终止），用 Console.Error 输出
+     * - COM 服务端失联（RPC 错误）时退出进程，由会话重启新的 Office 实例
      */
-    private String buildPdfConversionScript(Path input, Path output) {
-        int[] priority = saveFormatPriority();
+    private static String buildWorkerScript() {
         String ls = System.lineSeparator();
         StringBuilder b = new StringBuilder();
+        // -Formats 为逗号分隔的保存格式优先级（-File 传入的参数都是字符串，不能直接绑定到 int[]）
+        b.append("param([string]$ProgId, [string]$OfficeProcess, [string]$Formats)").append(ls);
 
         b.append("$ErrorActionPreference = 'Stop'").append(ls);
         b.append("[Console]::OutputEncoding = [System.Text.Encoding]::UTF8").append(ls);
+        b.append("try { [Console]::InputEncoding = [System.Text.Encoding]::UTF8 } catch { }").append(ls);
         b.append("$OutputEncoding = [System.Text.Encoding]::UTF8").append(ls);
         b.append("function _err([string]$m) { try { [Console]::Error.WriteLine($m) } catch { } }").append(ls);
+        b.append("function _reply([string]$m) { [Console]::Out.WriteLine($m); [Console]::Out.Flush() }").append(ls);
+        // 进度行格式见 PowerShellRunner.parseProgress
+        b.append("function _progress([int]$k, [int]$n, [string]$m) { _reply (\"##progress step=$k/$n $m\") }").append(ls);
+        b.append("$script:app = $null").append(ls);
+        b.append("$script:pv = $null").append(ls);
 
-        b.append("$inputPath = '").append(escapePowerShell(input.toString())).append("'").append(ls);
-        b.append("$outputPath = '").append(escapePowerShell(output.toString())).append("'").append(ls);
-
-        b.append("try {").append(ls);
-        b.append("  if (Test-Path -LiteralPath $outputPath) { Remove-Item -LiteralPath $outputPath -Force }").append(ls);
-
-        b.append("  $app = $null").append(ls);
+        b.append("function Open-Document([string]$inputPath) {").append(ls);
         b.append("  $doc = $null").append(ls);
-        b.append("  $pv  = $null").append(ls);
-
-        b.append("  $app = New-Object -ComObject ").append(progId()).append(ls);
-        b.append("  try {").append(ls);
-        // PDF Reflow 在部分环境需要可见窗口更稳定
-        b.append("    try { $app.Visible = $true } catch { }").append(ls);
-        b.append("    try { $app.DisplayAlerts = 0 } catch { }").append(ls);
-        b.append("    try { $app.AutomationSecurity = 3 } catch { }").append(ls);
-        b.append("    try { $app.Options.ConfirmConversions = $false } catch { }").append(ls);
-
-        // Open 回退链
+        b.append("  try { $doc = $script:app.Documents.Open($inputPath, $false, $true, $false) } catch { $doc = $null }").append(ls);
+        b.append("  if ($doc -eq $null) {").append(ls);
         b.append("    try {").append(ls);
-        b.append("      $doc = $app.Documents.Open($inputPath, $false, $true, $false)").append(ls);
+        b.append("      $script:pv = $script:app.ProtectedViewWindows.Open($inputPath)").append(ls);
+        b.append("      $doc = $script:pv.Edit()").append(ls);
         b.append("    } catch {").append(ls);
         b.append("      $doc = $null").append(ls);
         b.append("    }").append(ls);
-
-        b.append("    if ($doc -eq $null) {").append(ls);
-        b.append("      try {").append(ls);
-        b.append("        $pv = $app.ProtectedViewWindows.Open($inputPath)").append(ls);
-        b.append("        $doc = $pv.Edit()").append(ls);
-        b.append("      } catch {").append(ls);
-        b.append("        $doc = $null").append(ls);
-        b.append("      }").append(ls);
-        b.append("    }").append(ls);
-
-        b.append("    if ($doc -eq $null) {").append(ls);
-        b.append("      $doc = $app.Documents.Open($inputPath)").append(ls);
-        b.append("    }").append(ls);
-
+        b.append("  }").append(ls);
+        b.append("  if ($doc -eq $null) { $doc = $script:app.Documents.Open($inputPath) }").append(ls);
         // 兜底：某些版本 Edit() 返回 null，但 ActiveDocument 已经有值
-        b.append("    if ($doc -eq $null) { try { $doc = $app.ActiveDocument } catch { } }").append(ls);
-        b.append("    if ($doc -eq $null) { throw '无法打开 PDF：' + $inputPath }").append(ls);
-
-        // 给 PDF Reflow 一点缓冲，并尝试重排版
-        b.append("    try { $doc.Activate() | Out-Null } catch { }").append(ls);
-        b.append("    Start-Sleep -Milliseconds 800").append(ls);
-        b.append("    try { $doc.Repaginate() | Out-Null } catch { }").append(ls);
-
-        // Save 多格式 + 重试
-        b.append("    $saved = $false").append(ls);
-
-        // PDF 场景：优先 16，再 12（兼容部分 Word/WPS/兼容模式行为差异）
-        b.append("    $fmts = @(").append(priority[0]).append(", ").append(priority[1]).append(")").append(ls);
-
-        b.append("    foreach ($fmt in $fmts) {").append(ls);
-        b.append("      if ($saved) { break }").append(ls);
-
-        // SaveAs2 重试三次（2/4/6 秒）
-        b.append("      for ($i = 1; $i -le 3; $i++) {").append(ls);
-        b.append("        try {").append(ls);
-        b.append("          $doc.SaveAs2($outputPath, [int]$fmt)").append(ls);
-        b.append("          $saved = $true").append(ls);
-        b.append("          break").append(ls);
-        b.append("        } catch {").append(ls);
-        b.append("          Start-Sleep -Seconds (2 * $i)").append(ls);
-        b.append("        }").append(ls);
-        b.append("      }").append(ls);
+        b.append("  if ($doc -eq $null) { try { $doc = $script:app.ActiveDocument } catch { } }").append(ls);
+        b.append("  if ($doc -eq $null) { throw '无法打开文档：' + $inputPath }").append(ls);
+        b.append("  return $doc").append(ls);
+        b.append("}").append(ls);
 
-        b.append("      if (-not $saved) {").append(ls);
-        b.append("        try { $doc.SaveAs($outputPath, [int]$fmt); $saved = $true } catch { }").append(ls);
-        b.append("      }").append(ls);
+        b.append("function Save-Document($doc, [string]$outputPath, [int]$retries) {").append(ls);
+        b.append("  $saved = $false").append(ls);
+        b.append("  $fmts = @($Formats.Split(',') | ForEach-Object { [int]$_ })").append(ls);
+        b.append("  foreach ($fmt in $fmts) {").append(ls);
+        b.append("    if ($saved) { break }").append(ls);
+        b.append("    for ($i = 1; $i -le $retries; $i++) {").append(ls);
+        b.append("      try { $doc.SaveAs2($outputPath, [int]$fmt); $saved = $true; break } catch { }").append(ls);
+        b.append("      if ($i -lt $retries) { Start-Sleep -Seconds (2 * $i) }").append(ls);
         b.append("    }").append(ls);
+        b.append("    if (-not $saved) { try { $doc.SaveAs($outputPath, [int]$fmt); $saved = $true } catch { } }").append(ls);
+        b.append("  }").append(ls);
+        b.append("  if (-not $saved) { try { $doc.SaveAs($outputPath); $saved = $true } catch { } }").append(ls);
+        b.append("  if (-not $saved) { throw '保存失败：未成功执行 SaveAs/SaveAs2' }").append(ls);
+        b.append("}").append(ls);
 
-        b.append("    if (-not $saved) {").append(ls);
-        b.append("      try { $doc.SaveAs($outputPath); $saved = $true } catch { }").append(ls);
+        b.append("function Convert-One([string]$kind, [string]$inputPath, [string]$outputPath) {").append(ls);
+        b.append("  if (Test-Path -LiteralPath $outputPath) { Remove-Item -LiteralPath $outputPath -Force }").append(ls);
+        b.append("  $isPdf = ($kind -eq 'PDF')").append(ls);
+        b.append("  $doc = $null").append(ls);
+        b.append("  $script:pv = $null").append(ls);
+        b.append("  try {").append(ls);
+        b.append("    if ($isPdf) { try { $script:app.Visible = $true } catch { } }").append(ls);
+        b.append("    if ($isPdf) { _progress 1 3 '打开' }").append(ls);
+        b.append("    $doc = Open-Document $inputPath").append(ls);
+        b.append("    if ($isPdf) {").append(ls);
+        // 给 PDF Reflow 一点缓冲，并尝试重排版
+        b.append("      try { $doc.Activate() | Out-Null } catch { }").append(ls);
+        b.append("      _progress 2 3 '重排版'").append(ls);
+        b.append("      Start-Sleep -Milliseconds 800").append(ls);
+        b.append("      try { $doc.Repaginate() | Out-Null } catch { }").append(ls);
+        b.append("      _progress 3 3 '保存'").append(ls);
+        b.append("      Save-Document $doc $outputPath 3").append(ls);
+        b.append("    } else {").append(ls);
+        b.append("      Save-Document $doc $outputPath 1").append(ls);
         b.append("    }").append(ls);
-
-        b.append("    if (-not $saved) { throw '保存失败：PDF 转 DOCX 未成功执行 SaveAs/SaveAs2' }").append(ls);
-
         b.append("  } finally {").append(ls);
         b.append("    if ($doc -ne $null) {").append(ls);
         b.append("      try { $doc.Close($false) | Out-Null } catch { }").append(ls);
         b.append("      try { [System.Runtime.Interopservices.Marshal]::FinalReleaseComObject($doc) | Out-Null } catch { }").append(ls);
         b.append("    }").append(ls);
-        b.append("    if ($pv -ne $null) { try { $pv.Close() | Out-Null } catch { } }").append(ls);
-        b.append("    if ($app -ne $null) {").append(ls);
-        b.append("      try { $app.Quit() | Out-Null } catch { }").append(ls);
-        b.append("      try { [System.Runtime.Interopservices.Marshal]::FinalReleaseComObject($app) | Out-Null } catch { }").append(ls);
-        b.append("    }").append(ls);
-        b.append("    [GC]::Collect()").append(ls);
-        b.append("    [GC]::WaitForPendingFinalizers()").append(ls);
+        b.append("    if ($script:pv -ne $null) { try { $script:pv.Close() | Out-Null } catch { } }").append(ls);
+        b.append("    if ($isPdf) { try { $script:app.Visible = $false } catch { } }").append(ls);
         b.append("  }").append(ls);
+        b.append("}").append(ls);
 
-        b.append("  exit 0").append(ls);
+        appendOfficePidFunction(b, ls);
+
+        // 记录启动前已有的 Office 进程，取不到窗口句柄时用于找出本工作进程创建的实例（看门狗结束卡死实例时使用）
+        b.append("$officeBefore = @(Get-Process -Name $OfficeProcess -ErrorAction SilentlyContinue | ForEach-Object { $_.Id })").append(ls);
+        b.append("try {").append(ls);
+        b.append("  $script:app = New-Object -ComObject $ProgId").append(ls);
+        b.append("  try { $script:app.Visible = $false } catch { }").append(ls);
+        b.append("  try { $script:app.DisplayAlerts = 0 } catch { }").append(ls);
+        b.append("  try { $script:app.AutomationSecurity = 3 } catch { }").append(ls);
+        b.append("  try { $script:app.Options.ConfirmConversions = $false } catch { }").append(ls);
         b.append("} catch {").append(ls);
-        b.append("  _err ('[PDF转DOCX异常] ' + $_.Exception.ToString())").append(ls);
-        b.append("  try { _err ('[ErrorRecord] ' + ($_ | Format-List -Force * | Out-String)) } catch { }").append(ls);
-        // 明确 exit 1，避免出现 0xFFFFFFFF -> Java 显示 -1
+        b.append("  _err ('[COM启动异常] ' + $_.Exception.ToString())").append(ls);
         b.append("  exit 1").append(ls);
         b.append("}").append(ls);
 
+        b.append("$exitCode = 0").append(ls);
+        b.append("try {").append(ls);
+        // 无法确定归属（例如多个工作进程并发启动）时不报告
+        b.append("  $officePid = _officePid $script:app $officeBefore").append(ls);
+        b.append("  if ($officePid -gt 0) { _reply (\"READY`t\" + $officePid) } else { _reply 'READY' }").append(ls);
+        b.append("  while ($true) {").append(ls);
+        b.append("    $line = [Console]::In.ReadLine()").append(ls);
+        b.append("    if ($line -eq $null -or $line -eq 'QUIT') { break }").append(ls);
+        b.append("    if ($line -eq 'PING') {").append(ls);
+        b.append("      try { $null = $script:app.Version; _reply 'PONG' } catch { _err ('[健康检查失败] ' + $_.Exception.ToString()); $exitCode = 3; break }").append(ls);
+        b.append("      continue").append(ls);
+        b.append("    }").append(ls);
+        b.append("    $parts = $line.Split(\"`t\")").append(ls);
+        b.append("    if ($parts.Length -ne 3) { _reply (\"ERR`t无效请求\"); continue }").append(ls);
+        // 批量请求：先读完整批路径，逐个转换并逐个回报；COM 服务端失联时退出，由会话从未完成的文件继续
+        b.append("    if ($parts[0] -eq 'BATCH') {").append(ls);
+        b.append("      $count = [int]$parts[2]").append(ls);
+        b.append("      $jobs = New-Object System.Collections.Generic.List[string[]]").append(ls);
+        b.append("      for ($j = 0; $j -lt $count; $j++) { $jobs.Add([Console]::In.ReadLine().Split(\"`t\")) }").append(ls);
+        b.append("      $fatal = $false").append(ls);
+        b.append("      for ($j = 0; $j -lt $count; $j++) {").append(ls);
+        b.append("        try {").append(ls);
+        b.append("          Convert-One $parts[1] $jobs[$j][0] $jobs[$j][1]").append(ls);
+        b.append("          _reply (\"FILE`t$j`tOK\")").append(ls);
+        b.append("        } catch {").append(ls);
+        b.append("          _err ('[转换异常] ' + $jobs[$j][0] + ' ' + $_.Exception.ToString())").append(ls);
+        b.append("          _reply (\"FILE`t$j`tERR`t\" + ($_.Exception.Message -replace '[\\r\\n\\t]+', ' '))").append(ls);
+        b.append("          if ($_.Exception.ToString() -match '0x800706BA|0x800706BE|0x80010108|RPC') { $fatal = $true; break }").append(ls);
+        b.append("        }").append(ls);
+        b.append("      }").append(ls);
+        b.append("      if ($fatal) { $exitCode = 3; break }").append(ls);
+        b.append("      continue").append(ls);
+        b.append("    }").append(ls);
+        b.append("    try {").append(ls);
+        b.append("      Convert-One $parts[0] $parts[1] $parts[2]").append(ls);
+        b.append("      _reply 'OK'").append(ls);
+        b.append("    } catch {").append(ls);
+        b.append("      _err ('[转换异常] ' + $parts[1] + ' ' + $_.Exception.ToString())").append(ls);
+        b.append("      try { _err ('[ErrorRecord] ' + ($_ | Format-List -Force * | Out-String)) } catch { }").append(ls);
+        b.append("      _reply (\"ERR`t\" + ($_.Exception.Message -replace '[\\r\\n\\t]+', ' '))").append(ls);
+        b.append("      if ($_.Exception.ToString() -match '0x800706BA|0x800706BE|0x80010108|RPC') { $exitCode = 3; break }").append(ls);
+        b.append("    }").append(ls);
+        b.append("  }").append(ls);
+        b.append("} finally {").append(ls);
+        b.append("  if ($script:app -ne $null) {").append(ls);
+        b.append("    try { $script:app.Quit() | Out-Null } catch { }").append(ls);
+        b.append("    try { [System.Runtime.Interopservices.Marshal]::FinalReleaseComObject($script:app) | Out-Null } catch { }").append(ls);
+        b.append("  }").append(ls);
+        b.append("  [GC]::Collect()").append(ls);
+        b.append("  [GC]::WaitForPendingFinalizers()").append(ls);
+        b.append("}").append(ls);
+        b.append("exit $exitCode").append(ls);
         return b.toString();
     }
 
@@ -408,10 +725,6 @@ public abstract class AbstractDocComConverter implements DocComConverter {
         return idx > 0 ? name.substring(0, idx) : name;
     }
 
-    private String escapePowerShell(String value) {
-        return value.replace("'", "''");
-    }
-
     private boolean isWindows() {
         return System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("win");
     }
@@ -0,0 +1,149 @@
+package app.docmerge;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackagePartName;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.openxml4j.opc.TargetMode;
+import org.apache.poi.xwpf.usermodel.BreakType;
+import org.apache.poi.xwpf.usermodel.ParagraphAlignment;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTAltChunk;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPageMar;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPageSz;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSectPr;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 内存模式：整个输出包由 POI XWPFDocument 持有，每个输入作为 altChunk 嵌入。
+ */
+public class AltChunkMergeWriter implements MergeWriter {
+    static final String ALT_CHUNK_REL = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/aFChunk";
+    static final String DOCX_MAIN_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.wordprocessingml.document.main";
+
+    protected final XWPFDocument document = new XWPFDocument();
+    private final Path target;
+    private int chunkIndex;
+
+    public AltChunkMergeWriter(Path target) {
+        this.target = target;
+    }
+
+    @Override
+    public void appendDocx(Path docxPath) throws IOException {
+        try (InputStream in = Files.newInputStream(docxPath)) {
+            appendChunk(docxPath, in);
+        }
+    }
+
+    /**
+     * 准备线程中读入文件内容，写入线程只做内存复制。
+     */
+    @Override
+    public StagedDocx stageDocx(Path docxPath) throws IOException {
+        return new StagedDocx(docxPath, Files.readAllBytes(docxPath), null);
+    }
+
+    @Override
+    public void appendDocx(StagedDocx staged) throws IOException {
+        if (staged.content() == null) {
+            appendDocx(staged.path());
+            return;
+        }
+        appendChunk(staged.path(), new ByteArrayInputStream(staged.content()));
+    }
+
+    private void appendChunk(Path docxPath, InputStream in) throws IOException {
+        chunkIndex++;
+        try {
+            PackagePartName partName = PackagingURIHelper.createPartName("/word/altChunk" + chunkIndex + ".docx");
+            PackagePart part = document.getPackage().createPart(partName, DOCX_MAIN_CONTENT_TYPE);
+            try (OutputStream partOut = part.getOutputStream()) {
+                in.transferTo(partOut);
+            }
+            String relId = document.getPackagePart().addRelationship(partName, TargetMode.INTERNAL, ALT_CHUNK_REL).getId();
+            CTAltChunk chunk = document.getDocument().getBody().addNewAltChunk();
+            chunk.setId(relId);
+        } catch (InvalidFormatException e) {
+            throw new IOException("插入 altChunk 失败：" + docxPath.getFileName(), e);
+        }
+    }
+
+    @Override
+    public void appendImage(Path imagePath, int widthPx, int heightPx) throws IOException {
+        long[] extent = MergeWriter.fitImageExtent(widthPx, heightPx, resolveUsablePageWidthEmu());
+        XWPFParagraph imagePara = document.createParagraph();
+        imagePara.setAlignment(ParagraphAlignment.CENTER);
+        XWPFRun run = imagePara.createRun();
+        try (InputStream in = Files.newInputStream(imagePath)) {
+            run.addPicture(in, pictureType(imagePath), "",
+                    MergeWriter.safeEmu(extent[0]), MergeWriter.safeEmu(extent[1]));
+        } catch (Exception e) {
+            throw new IOException("插入图片失败：" + imagePath.getFileName(), e);
+        }
+    }
+
+    @Override
+    public void addPageBreak() {
+        XWPFParagraph para = document.createParagraph();
+        para.createRun().addBreak(BreakType.PAGE);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        try (OutputStream out = Files.newOutputStream(target)) {
+            document.write(out);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        document.close();
+    }
+
+    private int pictureType(Path imagePath) throws IOException {
+        return switch (MergeWriter.imageExtension(imagePath)) {
+            case "png" -> XWPFDocument.PICTURE_TYPE_PNG;
+            case "jpeg" -> XWPFDocument.PICTURE_TYPE_JPEG;
+            case "bmp" -> XWPFDocument.PICTURE_TYPE_BMP;
+            default -> XWPFDocument.PICTURE_TYPE_GIF;
+        };
+    }
+
+    private long resolveUsablePageWidthEmu() {
+        CTSectPr sectPr = document.getDocument().getBody().getSectPr();
+        long pageWidthTwips = 12240L;
+        long marginLeftTwips = 1440L;
+        long marginRightTwips = 1440L;
+        if (sectPr != null) {
+            if (sectPr.isSetPgSz()) {
+                CTPageSz pageSz = sectPr.getPgSz();
+                Object widthValue = pageSz.getW();
+                if (widthValue instanceof Number number) {
+                    pageWidthTwips = number.longValue();
+                }
+            }
+            if (sectPr.isSetPgMar()) {
+                CTPageMar pageMar = sectPr.getPgMar();
+                Object leftValue = pageMar.getLeft();
+                if (leftValue instanceof Number number) {
+                    marginLeftTwips = number.longValue();
+                }
+                Object rightValue = pageMar.getRight();
+                if (rightValue instanceof Number number) {
+                    marginRightTwips = number.longValue();
+                }
+            }
+        }
+        long widthTwips = Math.max(1, pageWidthTwips - marginLeftTwips - marginRightTwips);
+        return widthTwips * TWIP_TO_EMU;
+    }
+}
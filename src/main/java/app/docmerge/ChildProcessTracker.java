@@ -0,0 +1,394 @@
+package app.docmerge;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 跟踪转换用到的子进程（PowerShell 及其子进程树，外加由系统 COM 服务启动、不在进程树中的 Office 进程），
+ * 在超时、取消、崩溃或退出时整体结束，避免 WINWORD.EXE / wps.exe 残留。
+ * <p>
+ * 跟踪中的进程（进程号 + 启动时间）写入 ~/.doc-merge-app/child-processes.json，
+ * 程序异常退出后下次启动由 {@link #sweepLeftovers()} 清理；同时统计当前/峰值进程数与内存占用。
+ */
+public class ChildProcessTracker {
+    private static final long SAMPLE_INTERVAL_SECONDS = 10L;
+    // 正常退出后等待 Office 自行关闭的时间
+    private static final long EXIT_GRACE_MILLIS = 5000L;
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "child-process-tracker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final ChildProcessTracker GLOBAL = new ChildProcessTracker(
+            Path.of(System.getProperty("user.home"), ".doc-merge-app", "child-processes.json"), defaultRssReader());
+
+    private final Path stateFile;
+    private final RssReader rssReader;
+    // 根进程 -> 属于它的所有已知进程（子进程树 + 附加的 Office 进程）
+    private final Map<ProcessHandle, Set<ProcessHandle>> trees = new LinkedHashMap<>();
+    private ObjectMapper mapper;
+    private int peakProcesses;
+    private long lastRssBytes;
+    private long peakRssBytes;
+    private int reapedCount;
+    private boolean swept;
+    private boolean sampling;
+
+    public ChildProcessTracker(Path stateFile, RssReader rssReader) {
+        this.stateFile = stateFile;
+        this.rssReader = rssReader;
+    }
+
+    public static ChildProcessTracker global() {
+        return GLOBAL;
+    }
+
+    /**
+     * 开始跟踪一个根进程及其子进程树。
+     */
+    public void track(ProcessHandle root) {
+        synchronized (this) {
+            trees.computeIfAbsent(root, key -> new LinkedHashSet<>());
+            refreshTree(root);
+            startSampling();
+        }
+        persist();
+    }
+
+    /**
+     * 记录根进程当前的子进程；根进程退出后子进程会脱离进程树，需在存活期间定期刷新。
+     */
+    public void refresh(ProcessHandle root) {
+        boolean changed;
+        synchronized (this) {
+            changed = refreshTree(root);
+        }
+        if (changed) {
+            persist();
+        }
+    }
+
+    /**
+     * 把不在进程树中的进程（例如 COM 服务启动的 Office）归属到根进程，随它一起结束。
+     */
+    public void attach(ProcessHandle root, long pid) {
+        Optional<ProcessHandle> handle = ProcessHandle.of(pid);
+        if (handle.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            trees.computeIfAbsent(root, key -> new LinkedHashSet<>()).add(handle.get());
+            updatePeak();
+            startSampling();
+        }
+        persist();
+    }
+
+    /**
+     * 立即结束根进程、子进程树与附加进程（超时、取消、崩溃时使用）。
+     */
+    public void reap(ProcessHandle root) {
+        List<ProcessHandle> members;
+        synchronized (this) {
+            refreshTree(root);
+            Set<ProcessHandle> tree = trees.remove(root);
+            members = tree == null ? new ArrayList<>() : new ArrayList<>(tree);
+        }
+        // 先结束子进程再结束根进程，避免子进程被重新挂到其它父进程下而漏掉；
+        // 子进程结束后根进程常会自行退出，按结束前的状态计数
+        boolean rootAlive = root.isAlive();
+        int killed = 0;
+        for (ProcessHandle member : members) {
+            if (member.isAlive() && member.destroyForcibly()) {
+                killed++;
+            }
+        }
+        if (rootAlive) {
+            root.destroyForcibly();
+            killed++;
+        }
+        synchronized (this) {
+            reapedCount += killed;
+        }
+        persist();
+    }
+
+    /**
+     * 根进程正常结束：附加进程与子进程在宽限期后仍存活则视为孤儿并结束。
+     */
+    public void release(ProcessHandle root) {
+        List<ProcessHandle> members;
+        synchronized (this) {
+            Set<ProcessHandle> tree = trees.get(root);
+            members = tree == null ? List.of() : new ArrayList<>(tree);
+        }
+        boolean anyAlive = members.stream().anyMatch(ProcessHandle::isAlive);
+        if (!anyAlive && !root.isAlive()) {
+            synchronized (this) {
+                trees.remove(root);
+            }
+            persist();
+            return;
+        }
+        TIMER.schedule(() -> reap(root), EXIT_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 清理上次运行遗留的进程（按进程号与启动时间匹配，避免误杀复用了进程号的其它程序）。
+     * 只执行一次；首次写入状态文件前会自动执行，以免覆盖上次的记录。
+     *
+     * @return 结束的进程数
+     */
+    public int sweepLeftovers() {
+        synchronized (this) {
+            if (swept) {
+                return 0;
+            }
+            swept = true;
+        }
+        State state = readState();
+        if (state == null || isRunning(state.ownerPid(), state.ownerStartMillis())) {
+            // 记录属于仍在运行的另一个实例，不能清理
+            return 0;
+        }
+        int killed = 0;
+        for (Entry entry : state.processes()) {
+            if (isRunning(entry.pid(), entry.startMillis())
+                    && ProcessHandle.of(entry.pid()).map(ProcessHandle::destroyForcibly).orElse(false)) {
+                killed++;
+            }
+        }
+        synchronized (this) {
+            reapedCount += killed;
+        }
+        persist();
+        return killed;
+    }
+
+    /**
+     * 刷新子进程树并统计当前进程数与内存。
+     */
+    public Stats sample() {
+        List<ProcessHandle> live = new ArrayList<>();
+        synchronized (this) {
+            trees.keySet().removeIf(root -> !root.isAlive()
+                    && trees.get(root).stream().noneMatch(ProcessHandle::isAlive));
+            for (ProcessHandle root : trees.keySet()) {
+                refreshTree(root);
+            }
+            live.addAll(liveProcesses());
+            updatePeak();
+        }
+        long rss = 0;
+        Map<Long, Long> sizes = live.isEmpty() ? Map.of() : rssReader.read(live.stream().map(ProcessHandle::pid).toList());
+        for (long size : sizes.values()) {
+            rss += size;
+        }
+        synchronized (this) {
+            lastRssBytes = rss;
+            peakRssBytes = Math.max(peakRssBytes, rss);
+        }
+        persist();
+        return stats();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(liveProcesses().size(), peakProcesses, lastRssBytes, peakRssBytes, reapedCount);
+    }
+
+    /**
+     * 首次跟踪进程时才开始定期采样，未使用的实例不占用定时器。
+     */
+    private synchronized void startSampling() {
+        if (!sampling) {
+            sampling = true;
+            TIMER.scheduleWithFixedDelay(this::sampleQuietly, SAMPLE_INTERVAL_SECONDS, SAMPLE_INTERVAL_SECONDS,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    private void sampleQuietly() {
+        boolean empty;
+        synchronized (this) {
+            empty = trees.isEmpty();
+        }
+        if (empty) {
+            return;
+        }
+        try {
+            sample();
+        } catch (RuntimeException ignored) {
+            // 统计失败不影响转换
+        }
+    }
+
+    private boolean refreshTree(ProcessHandle root) {
+        Set<ProcessHandle> tree = trees.get(root);
+        if (tree == null) {
+            return false;
+        }
+        int before = tree.size();
+        root.descendants().forEach(tree::add);
+        updatePeak();
+        return tree.size() != before;
+    }
+
+    private Set<ProcessHandle> liveProcesses() {
+        Set<ProcessHandle> live = new LinkedHashSet<>();
+        for (Map.Entry<ProcessHandle, Set<ProcessHandle>> entry : trees.entrySet()) {
+            if (entry.getKey().isAlive()) {
+                live.add(entry.getKey());
+            }
+            for (ProcessHandle member : entry.getValue()) {
+                if (member.isAlive()) {
+                    live.add(member);
+                }
+            }
+        }
+        return live;
+    }
+
+    private void updatePeak() {
+        peakProcesses = Math.max(peakProcesses, liveProcesses().size());
+    }
+
+    private static boolean isRunning(long pid, long startMillis) {
+        Optional<ProcessHandle> handle = ProcessHandle.of(pid);
+        if (handle.isEmpty() || !handle.get().isAlive()) {
+            return false;
+        }
+        Optional<Instant> start = handle.get().info().startInstant();
+        return start.isPresent() && start.get().toEpochMilli() == startMillis;
+    }
+
+    private void persist() {
+        sweepLeftovers();
+        List<Entry> entries = new ArrayList<>();
+        synchronized (this) {
+            for (ProcessHandle handle : liveProcesses()) {
+                handle.info().startInstant().ifPresent(start -> entries.add(
+                        new Entry(handle.pid(), start.toEpochMilli(), handle.info().command().orElse(""))));
+            }
+            ProcessHandle self = ProcessHandle.current();
+            long selfStart = self.info().startInstant().map(Instant::toEpochMilli).orElse(-1L);
+            try {
+                Files.createDirectories(stateFile.getParent());
+                mapper().writeValue(stateFile.toFile(), new State(self.pid(), selfStart, entries));
+            } catch (IOException ignored) {
+                // 写入失败只影响下次启动的清理
+            }
+        }
+    }
+
+    private synchronized State readState() {
+        if (!Files.isRegularFile(stateFile)) {
+            return null;
+        }
+        try {
+            State state = mapper().readValue(stateFile.toFile(), State.class);
+            return state.processes() == null ? null : state;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private ObjectMapper mapper() {
+        if (mapper == null) {
+            mapper = new ObjectMapper();
+        }
+        return mapper;
+    }
+
+    /**
+     * Windows 使用一次 tasklist 读取全部进程的内存，其它系统读取 /proc/&lt;pid&gt;/status。
+     */
+    public static RssReader defaultRssReader() {
+        boolean windows = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("win");
+        return windows ? ChildProcessTracker::readTasklistRss : ChildProcessTracker::readProcRss;
+    }
+
+    private static Map<Long, Long> readProcRss(Collection<Long> pids) {
+        Map<Long, Long> sizes = new HashMap<>();
+        for (long pid : pids) {
+            try {
+                for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"), StandardCharsets.UTF_8)) {
+                    if (line.startsWith("VmRSS:")) {
+                        sizes.put(pid, Long.parseLong(line.replaceAll("\\D", "")) * 1024);
+                        break;
+                    }
+                }
+            } catch (IOException | NumberFormatException ignored) {
+                // 进程已退出
+            }
+        }
+        return sizes;
+    }
+
+    private static Map<Long, Long> readTasklistRss(Collection<Long> pids) {
+        Map<Long, Long> sizes = new HashMap<>();
+        try {
+            Charset charset = Charset.forName(System.getProperty("native.encoding", "UTF-8"), Charset.defaultCharset());
+            PowerShellRunner.Result result = PowerShellRunner.runCommandAsync(
+                    List.of("tasklist", "/FO", "CSV", "/NH"), Duration.ofSeconds(10), null, charset).get();
+            for (String line : result.stdout().split("\\R")) {
+                // "映像名称","PID","会话名","会话#","内存使用"，内存形如 "123,456 K"
+                String[] columns = line.split("\",\"");
+                if (columns.length < 5) {
+                    continue;
+                }
+                try {
+                    long pid = Long.parseLong(columns[1].replaceAll("\\D", ""));
+                    if (pids.contains(pid)) {
+                        sizes.put(pid, Long.parseLong(columns[4].replaceAll("\\D", "")) * 1024);
+                    }
+                } catch (NumberFormatException ignored) {
+                    // 跳过无法解析的行
+                }
+            }
+        } catch (Exception ignored) {
+            // tasklist 不可用时不统计内存
+        }
+        return sizes;
+    }
+
+    @FunctionalInterface
+    public interface RssReader {
+        Map<Long, Long> read(Collection<Long> pids);
+    }
+
+    public record Entry(long pid, long startMillis, String command) {
+    }
+
+    /**
+     * 持久化内容：写入时的本程序进程（用于判断记录是否属于仍在运行的实例）与其跟踪的进程。
+     */
+    public record State(long ownerPid, long ownerStartMillis, List<Entry> processes) {
+    }
+
+    public record Stats(int liveProcesses, int peakProcesses, long rssBytes, long peakRssBytes, int reaped) {
+        public String summary() {
+            return "当前 " + liveProcesses + " 个（峰值 " + peakProcesses + "），内存 " + rssBytes / (1024 * 1024)
+                    + " MB（峰值 " + peakRssBytes / (1024 * 1024) + " MB），已清理残留 " + reaped + " 个";
+        }
+    }
+}
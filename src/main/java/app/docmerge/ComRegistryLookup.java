@@ -0,0 +1,170 @@
+package app.docmerge;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 轻量的 COM 注册信息查询：通过 {@code reg query} 读取 ProgID → CLSID → LocalServer32，
+ * 几十毫秒即可判断 Word/WPS 是否安装，无需启动 Office 实例。
+ * <p>
+ * 命令执行由 {@link CommandRunner} 提供，可替换为返回固定输出的实现以便在非 Windows 环境验证解析逻辑。
+ */
+public class ComRegistryLookup {
+    private static final Duration QUERY_TIMEOUT = Duration.ofSeconds(5);
+    // reg query 的值行：名称（"(Default)"/"(默认)"）、类型、数据
+    private static final Pattern VALUE_LINE = Pattern.compile("^\\s+\\S.*?\\s+REG_(?:SZ|EXPAND_SZ)\\s+(.*)$");
+    private static final Pattern CLSID = Pattern.compile("\\{[0-9A-Fa-f-]{36}}");
+    private static final Pattern ENV_VARIABLE = Pattern.compile("%([^%]+)%");
+
+    private final CommandRunner runner;
+
+    public ComRegistryLookup() {
+        this(ComRegistryLookup::runReg);
+    }
+
+    public ComRegistryLookup(CommandRunner runner) {
+        this.runner = runner;
+    }
+
+    /**
+     * 查询 ProgID 的注册信息。reg 命令本身无法执行时返回 {@link Status#UNKNOWN}，调用方应回退到完整的 COM 探测。
+     */
+    public Registration lookup(String progId) {
+        String clsid;
+        try {
+            clsid = readDefault("HKCR\\" + progId + "\\CLSID", false);
+        } catch (IOException e) {
+            return new Registration(progId, null, null, Status.UNKNOWN, "注册表查询失败：" + e.getMessage());
+        }
+        if (clsid == null || !CLSID.matcher(clsid).matches()) {
+            return new Registration(progId, null, null, Status.NOT_REGISTERED, "未注册 COM 组件 " + progId);
+        }
+        String server = null;
+        try {
+            // 32 位 Office/WPS 的 CLSID 位于 32 位注册表视图
+            server = readDefault("HKCR\\CLSID\\" + clsid + "\\LocalServer32", false);
+            if (server == null) {
+                server = readDefault("HKCR\\CLSID\\" + clsid + "\\LocalServer32", true);
+            }
+        } catch (IOException e) {
+            return new Registration(progId, clsid, null, Status.UNKNOWN, "注册表查询失败：" + e.getMessage());
+        }
+        if (server == null) {
+            return new Registration(progId, clsid, null, Status.SERVER_MISSING, "CLSID " + clsid + " 未登记本地服务程序");
+        }
+        Path executable = parseServerExecutable(server);
+        if (executable == null || !Files.isRegularFile(executable)) {
+            return new Registration(progId, clsid, server, Status.SERVER_MISSING, "本地服务程序不存在：" + server);
+        }
+        return new Registration(progId, clsid, executable.toString(), Status.REGISTERED, "已注册：" + executable);
+    }
+
+    private String readDefault(String key, boolean view32) throws IOException {
+        List<String> command = new ArrayList<>(List.of("reg", "query", key, "/ve"));
+        if (view32) {
+            command.add("/reg:32");
+        }
+        PowerShellRunner.Result result = runner.run(command);
+        if (result.exitCode() != 0) {
+            // 键不存在时 reg 返回 1
+            return null;
+        }
+        return parseDefaultValue(result.stdout());
+    }
+
+    /**
+     * 从 {@code reg query ... /ve} 的输出中取默认值，没有值行时返回 null。
+     */
+    public static String parseDefaultValue(String output) {
+        if (output == null) {
+            return null;
+        }
+        for (String line : output.split("\\R")) {
+            Matcher matcher = VALUE_LINE.matcher(line);
+            if (matcher.matches()) {
+                String value = matcher.group(1).strip();
+                return value.isEmpty() ? null : value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 从 LocalServer32 命令行（可能带引号、参数与 %环境变量%）中取出可执行文件路径。
+     */
+    public static Path parseServerExecutable(String commandLine) {
+        String expanded = expandEnvironment(commandLine.strip());
+        String path;
+        if (expanded.startsWith("\"")) {
+            int end = expanded.indexOf('"', 1);
+            path = end > 0 ? expanded.substring(1, end) : expanded.substring(1);
+        } else {
+            int exe = expanded.toLowerCase(Locale.ROOT).indexOf(".exe");
+            if (exe >= 0) {
+                path = expanded.substring(0, exe + 4);
+            } else {
+                int space = expanded.indexOf(' ');
+                path = space > 0 ? expanded.substring(0, space) : expanded;
+            }
+        }
+        try {
+            return path.isBlank() ? null : Path.of(path);
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private static String expandEnvironment(String value) {
+        Matcher matcher = ENV_VARIABLE.matcher(value);
+        StringBuilder builder = new StringBuilder();
+        while (matcher.find()) {
+            String replacement = System.getenv(matcher.group(1));
+            matcher.appendReplacement(builder, Matcher.quoteReplacement(replacement == null ? matcher.group() : replacement));
+        }
+        matcher.appendTail(builder);
+        return builder.toString();
+    }
+
+    private static PowerShellRunner.Result runReg(List<String> command) throws IOException {
+        // reg.exe 按控制台代码页输出（中文系统为 GBK）
+        Charset charset = Charset.forName(System.getProperty("native.encoding", "UTF-8"), Charset.defaultCharset());
+        try {
+            return PowerShellRunner.runCommandAsync(command, QUERY_TIMEOUT, null, charset).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("注册表查询被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PowerShellRunner.PowerShellExecutionException failure
+                    && failure.getResult().exitCode() > 0) {
+                // 非零退出码（键不存在）交给调用方判断
+                return failure.getResult();
+            }
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @FunctionalInterface
+    public interface CommandRunner {
+        PowerShellRunner.Result run(List<String> command) throws IOException;
+    }
+
+    public enum Status {
+        REGISTERED,
+        NOT_REGISTERED,
+        SERVER_MISSING,
+        UNKNOWN
+    }
+
+    public record Registration(String progId, String clsid, String server, Status status, String message) {
+    }
+}
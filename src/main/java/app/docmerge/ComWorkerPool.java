@@ -0,0 +1,237 @@
+package app.docmerge;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 同一引擎的工作进程池：最多 size 个相互独立的 {@link ComWorkerSession}（各自持有一个 Office 实例）。
+ * <p>
+ * 调用方线程借出空闲实例完成一次转换后归还；空闲较久的实例在借出前先做健康检查，连续失败的实例被替换。
+ * 池大小受 CPU 核数与可用物理内存限制。
+ */
+public class ComWorkerPool implements Closeable {
+    public static final int DEFAULT_SIZE = 4;
+    // Word/WPS 单实例常驻内存的保守估计
+    private static final long INSTANCE_MEMORY_BYTES = 512L * 1024 * 1024;
+    private static final long HEALTH_CHECK_IDLE_MILLIS = 30_000L;
+    private static final Duration HEALTH_CHECK_TIMEOUT = Duration.ofSeconds(15);
+    private static final int MAX_CONSECUTIVE_FAILURES = 3;
+
+    private final String name;
+    private final ComWorkerSession.ProcessLauncher launcher;
+    private final EngineHealth health;
+    private final boolean capped;
+    private final Object lock = new Object();
+    private final ArrayDeque<Instance> idle = new ArrayDeque<>();
+    private final List<Instance> all = new ArrayList<>();
+    private int size;
+    private boolean closed;
+
+    public ComWorkerPool(String name, ComWorkerSession.ProcessLauncher launcher, int requestedSize) {
+        this(name, launcher, requestedSize, null);
+    }
+
+    /**
+     * @param health 接收每次请求结果的引擎健康状态，可为 null
+     */
+    public ComWorkerPool(String name, ComWorkerSession.ProcessLauncher launcher, int requestedSize, EngineHealth health) {
+        this(name, launcher, requestedSize, health, true);
+    }
+
+    /**
+     * @param capped 是否按 {@link #capacityLimit()} 限制实例数；模拟引擎（不启动 Office）的测量可以不限制
+     */
+    ComWorkerPool(String name, ComWorkerSession.ProcessLauncher launcher, int requestedSize, EngineHealth health,
+                  boolean capped) {
+        this.name = name;
+        this.launcher = launcher;
+        this.capped = capped;
+        this.size = sizeFor(requestedSize);
+        this.health = health;
+    }
+
+    /**
+     * 按 CPU 核数（一半）与可用物理内存估算的实例上限，至少为 1。
+     */
+    public static int capacityLimit() {
+        int byCores = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        long freeMemory = freePhysicalMemory();
+        if (freeMemory <= 0) {
+            return byCores;
+        }
+        int byMemory = (int) Math.max(1L, Math.min(Integer.MAX_VALUE, freeMemory / INSTANCE_MEMORY_BYTES));
+        return Math.min(byCores, byMemory);
+    }
+
+    public static int effectiveSize(int requestedSize) {
+        return Math.max(1, Math.min(requestedSize, capacityLimit()));
+    }
+
+    private int sizeFor(int requestedSize) {
+        return capped ? effectiveSize(requestedSize) : Math.max(1, requestedSize);
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    /**
+     * 调整池大小；缩小时多余实例在空闲或归还时关闭。
+     */
+    public void resize(int requestedSize) {
+        List<Instance> retired = new ArrayList<>();
+        synchronized (lock) {
+            size = sizeFor(requestedSize);
+            while (all.size() > size && !idle.isEmpty()) {
+                Instance instance = idle.pollLast();
+                all.remove(instance);
+                retired.add(instance);
+            }
+            lock.notifyAll();
+        }
+        retired.forEach(instance -> instance.session.close());
+    }
+
+    public void convert(String kind, Path input, Path output, Duration timeout) throws DocComConversionException {
+        convert(kind, input, output, timeout, null);
+    }
+
+    public void convert(String kind, Path input, Path output, Duration timeout,
+                        PowerShellRunner.ProgressListener listener) throws DocComConversionException {
+        Instance instance = borrow(input);
+        boolean healthy = false;
+        try {
+            instance.session.convert(kind, input, output, timeout, listener);
+            healthy = true;
+        } catch (DocComConversionException e) {
+            // 文档本身转换失败时工作进程仍在运行；进程已退出（超时、崩溃、启动失败）才计为实例故障
+            healthy = instance.session.isRunning();
+            throw e;
+        } finally {
+            giveBack(instance, healthy);
+            if (health != null) {
+                if (healthy) {
+                    health.recordSuccess();
+                } else {
+                    health.recordFailure();
+                }
+            }
+        }
+    }
+
+    /**
+     * 借出一个实例完成整批转换，见 {@link ComWorkerSession#convertBatch}。
+     */
+    public List<ComWorkerSession.BatchOutcome> convertBatch(String kind, List<ComWorkerSession.BatchItem> items)
+            throws DocComConversionException {
+        Instance instance = borrow(items.get(0).input());
+        boolean healthy = false;
+        try {
+            List<ComWorkerSession.BatchOutcome> outcomes = instance.session.convertBatch(kind, items);
+            // 中途崩溃已在会话内恢复；最终进程仍在运行（或已按文档数正常回收）即视为健康
+            healthy = instance.session.isRunning()
+                    || outcomes.stream().allMatch(outcome -> outcome.elapsedMillis() >= 0);
+            return outcomes;
+        } finally {
+            giveBack(instance, healthy);
+            if (health != null) {
+                if (healthy) {
+                    health.recordSuccess();
+                } else {
+                    health.recordFailure();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        List<Instance> instances;
+        synchronized (lock) {
+            closed = true;
+            instances = new ArrayList<>(all);
+            all.clear();
+            idle.clear();
+            lock.notifyAll();
+        }
+        instances.forEach(instance -> instance.session.close());
+    }
+
+    private Instance borrow(Path input) throws DocComConversionException {
+        while (true) {
+            Instance instance;
+            synchronized (lock) {
+                while (true) {
+                    if (closed) {
+                        throw new DocComConversionException(name + " 工作进程池已关闭", input.toString(), "", "", -1);
+                    }
+                    instance = idle.pollFirst();
+                    if (instance != null) {
+                        break;
+                    }
+                    if (all.size() < size) {
+                        instance = new Instance(new ComWorkerSession(name + "#" + (all.size() + 1), launcher));
+                        all.add(instance);
+                        break;
+                    }
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new DocComConversionException(name + " 等待工作进程被中断", input.toString(), "", "", -1);
+                    }
+                }
+            }
+            if (System.currentTimeMillis() - instance.lastReturnedMillis < HEALTH_CHECK_IDLE_MILLIS
+                    || instance.session.ping(HEALTH_CHECK_TIMEOUT)) {
+                return instance;
+            }
+            // 健康检查失败：进程已被结束，计一次故障后重新挑选
+            giveBack(instance, false);
+        }
+    }
+
+    private void giveBack(Instance instance, boolean healthy) {
+        instance.lastReturnedMillis = System.currentTimeMillis();
+        instance.consecutiveFailures = healthy ? 0 : instance.consecutiveFailures + 1;
+        boolean retire;
+        synchronized (lock) {
+            retire = closed
+                    || all.size() > size
+                    || instance.consecutiveFailures >= MAX_CONSECUTIVE_FAILURES;
+            if (retire) {
+                all.remove(instance);
+            } else {
+                idle.addFirst(instance);
+            }
+            lock.notifyAll();
+        }
+        if (retire) {
+            instance.session.close();
+        }
+    }
+
+    private static long freePhysicalMemory() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getFreeMemorySize();
+        }
+        return -1L;
+    }
+
+    private static class Instance {
+        private final ComWorkerSession session;
+        private long lastReturnedMillis = System.currentTimeMillis();
+        private int consecutiveFailures;
+
+        private Instance(ComWorkerSession session) {
+            this.session = session;
+        }
+    }
+}
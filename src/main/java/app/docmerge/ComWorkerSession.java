@@ -0,0 +1,639 @@
+package app.docmerge;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 常驻转换进程会话：一个工作进程持有一个 Office 实例，按行协议逐个处理转换请求。
+ * <p>
+ * 协议（UTF-8，每行一条）：
+ * <pre>
+ * 工作进程启动后输出  READY [\t Office 进程号]
+ * 请求              DOC|PDF \t 输入路径 \t 输出路径
+ * 响应              OK  或  ERR \t 原因
+ * 批量请求          BATCH \t DOC|PDF \t 个数，随后每行  输入路径 \t 输出路径
+ * 批量响应          每个文件一行  FILE \t 序号 \t OK  或  FILE \t 序号 \t ERR \t 原因
+ * 进度（可选）      ##progress 单位=当前/总数 [说明]
+ * 健康检查          PING  ->  PONG
+ * 结束              QUIT
+ * </pre>
+ * 进程崩溃后自动重启并重试当前请求一次（批量请求从第一个未完成的文件继续）；处理满 maxDocuments 个文档后回收；
+ * 空闲超过 idleTimeout 自动关闭。
+ * <p>
+ * 看门狗：等待响应期间每 {@link #WATCHDOG_INTERVAL} 采样一次工作进程树与 Office 进程的 CPU 时间及输出文件大小，
+ * 连续 {@link #STALL_TIMEOUT} 既无 CPU 活动、输出文件也无变化、也没有任何输出行时（例如 Office 弹出模态对话框），
+ * 判定为卡死并结束整个进程树，不必等到超时。
+ */
+public class ComWorkerSession implements Closeable {
+    public static final int DEFAULT_MAX_DOCUMENTS = 50;
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration QUIT_TIMEOUT = Duration.ofSeconds(10);
+    private static final int STDERR_TAIL_CHARS = 8192;
+    private static final Duration WATCHDOG_INTERVAL = Duration.ofSeconds(5);
+    private static final Duration STALL_TIMEOUT = Duration.ofSeconds(90);
+    // 每个采样周期内 CPU 时间增长低于该值视为空闲（PowerShell/.NET 后台线程的零星开销）
+    private static final long CPU_ACTIVITY_NANOS = 50_000_000L;
+    private static final String EOF = "\u0000EOF";
+    // 所有持有工作进程的会话，由一个共享的关闭钩子统一处理；会话关闭时移除
+    private static final Set<ComWorkerSession> LIVE_SESSIONS = ConcurrentHashMap.newKeySet();
+    private static final AtomicBoolean SHUTDOWN_HOOK_REGISTERED = new AtomicBoolean();
+    private static final ScheduledExecutorService IDLE_TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "com-worker-idle");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final ProcessLauncher launcher;
+    private final int maxDocuments;
+    private final Duration idleTimeout;
+    private final ChildProcessTracker tracker;
+
+    private volatile Process process;
+    private volatile long officePid = -1;
+    private volatile boolean busy;
+    private BufferedWriter stdin;
+    private BlockingQueue<String> stdout;
+    private PowerShellRunner.TailBuffer stderrTail;
+    private PowerShellRunner.ProgressListener progressListener;
+    private int documentsInProcess;
+    private int restartCount;
+    private long lastUsedMillis;
+    private ScheduledFuture<?> idleCheck;
+
+    public ComWorkerSession(String name, ProcessLauncher launcher) {
+        this(name, launcher, DEFAULT_MAX_DOCUMENTS, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    public ComWorkerSession(String name, ProcessLauncher launcher, int maxDocuments, Duration idleTimeout) {
+        this(name, launcher, maxDocuments, idleTimeout, ChildProcessTracker.global());
+    }
+
+    public ComWorkerSession(String name, ProcessLauncher launcher, int maxDocuments, Duration idleTimeout,
+                            ChildProcessTracker tracker) {
+        this.name = name;
+        this.launcher = launcher;
+        this.maxDocuments = Math.max(1, maxDocuments);
+        this.idleTimeout = idleTimeout;
+        this.tracker = tracker;
+    }
+
+    /**
+     * 提交一个转换请求并等待响应。工作进程报告的转换失败直接抛出；进程意外退出则重启后重试一次。
+     */
+    public void convert(String kind, Path input, Path output, Duration timeout)
+            throws DocComConversionException {
+        convert(kind, input, output, timeout, null);
+    }
+
+    /**
+     * 同上；转换期间工作进程输出的 {@code ##progress} 行转发给 listener（可为 null）。
+     */
+    public synchronized void convert(String kind, Path input, Path output, Duration timeout,
+                                     PowerShellRunner.ProgressListener listener)
+            throws DocComConversionException {
+        String request = kind + "\t" + input + "\t" + output;
+        busy = true;
+        progressListener = listener;
+        try {
+            convertWithRestart(request, input, output, timeout);
+        } finally {
+            Process current = process;
+            if (current != null) {
+                // 子进程在工作进程退出后会脱离进程树，趁工作进程存活时记录下来
+                tracker.refresh(current.toHandle());
+            }
+            progressListener = null;
+            busy = false;
+        }
+    }
+
+    private void convertWithRestart(String request, Path input, Path output, Duration timeout)
+            throws DocComConversionException {
+        WorkerCrashedException lastCrash = null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                ensureStarted(input);
+                send(request);
+                String response = awaitResponse(timeout, input, output);
+                documentsInProcess++;
+                if (response.startsWith("ERR")) {
+                    String reason = response.length() > 4 ? response.substring(4) : "未知原因";
+                    throw new DocComConversionException(name + " 转换失败：" + reason,
+                            input.toString(), "", stderrTail(), -1);
+                }
+                return;
+            } catch (WorkerCrashedException e) {
+                lastCrash = e;
+                stopProcess(false);
+                restartCount++;
+            } finally {
+                lastUsedMillis = System.currentTimeMillis();
+                if (process != null && documentsInProcess >= maxDocuments) {
+                    stopProcess(true);
+                }
+                scheduleIdleCheck();
+            }
+        }
+        throw new DocComConversionException(name + " 工作进程异常退出：" + lastCrash.getMessage(),
+                input.toString(), "", lastCrash.stderr, lastCrash.exitCode, true);
+    }
+
+    /**
+     * 批量转换：整批请求一次发给工作进程，逐个文件回报结果，文档本身的失败不影响后续文件。
+     * 工作进程崩溃、超时或卡死时在新进程中从第一个未完成的文件继续；同一文件连续两次导致进程退出则记为失败并跳过。
+     * 工作进程无法启动或等待被中断时直接抛出。
+     *
+     * @return 与 items 一一对应的结果
+     */
+    public synchronized List<BatchOutcome> convertBatch(String kind, List<BatchItem> items)
+            throws DocComConversionException {
+        List<BatchOutcome> outcomes = new ArrayList<>();
+        busy = true;
+        try {
+            int crashesOnCurrent = 0;
+            while (outcomes.size() < items.size()) {
+                int first = outcomes.size();
+                Path firstInput = items.get(first).input();
+                try {
+                    ensureStarted(firstInput);
+                } catch (WorkerCrashedException e) {
+                    throw new DocComConversionException(name + " 工作进程启动失败：" + e.getMessage(),
+                            firstInput.toString(), "", e.stderr, e.exitCode, true);
+                }
+                int count = Math.min(items.size() - first, Math.max(1, maxDocuments - documentsInProcess));
+                boolean crashed = false;
+                try {
+                    sendBatch(kind, items.subList(first, first + count));
+                    for (int i = first; i < first + count; i++) {
+                        BatchItem item = items.get(i);
+                        long start = System.nanoTime();
+                        String response = awaitBatchResponse(item, i - first);
+                        documentsInProcess++;
+                        crashesOnCurrent = 0;
+                        DocComConversionException failure = null;
+                        if (response.startsWith("ERR")) {
+                            String reason = response.length() > 4 ? response.substring(4) : "未知原因";
+                            failure = new DocComConversionException(name + " 转换失败：" + reason,
+                                    item.input().toString(), "", stderrTail(), -1);
+                        }
+                        outcomes.add(new BatchOutcome((System.nanoTime() - start) / 1_000_000, failure));
+                    }
+                } catch (WorkerCrashedException e) {
+                    crashed = true;
+                    stopProcess(false);
+                    restartCount++;
+                    if (++crashesOnCurrent >= 2) {
+                        outcomes.add(new BatchOutcome(-1, new DocComConversionException(
+                                name + " 工作进程异常退出：" + e.getMessage(),
+                                items.get(outcomes.size()).input().toString(), "", e.stderr, e.exitCode, true)));
+                        crashesOnCurrent = 0;
+                    }
+                } catch (DocComConversionException e) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw e;
+                    }
+                    // 超时或卡死：进程已被结束，记为该文件失败后在新进程中继续
+                    outcomes.add(new BatchOutcome(-1, e));
+                    restartCount++;
+                } finally {
+                    lastUsedMillis = System.currentTimeMillis();
+                    if (!crashed && process != null && documentsInProcess >= maxDocuments) {
+                        stopProcess(true);
+                    }
+                }
+            }
+            return outcomes;
+        } finally {
+            Process current = process;
+            if (current != null) {
+                tracker.refresh(current.toHandle());
+            }
+            busy = false;
+            scheduleIdleCheck();
+        }
+    }
+
+    private void sendBatch(String kind, List<BatchItem> items) throws WorkerCrashedException {
+        StringBuilder request = new StringBuilder()
+                .append("BATCH\t").append(kind).append('\t').append(items.size());
+        for (BatchItem item : items) {
+            request.append(System.lineSeparator()).append(item.input()).append('\t').append(item.output());
+        }
+        send(request.toString());
+    }
+
+    private String awaitBatchResponse(BatchItem item, int index) throws WorkerCrashedException, DocComConversionException {
+        String response = awaitResponse(item.timeout(), item.input(), item.output());
+        String prefix = "FILE\t" + index + "\t";
+        if (!response.startsWith(prefix)) {
+            // 序号对不上说明协议已错乱，按崩溃处理重新启动
+            throw new WorkerCrashedException("批量响应序号错误：" + response, stderrTail(), -1);
+        }
+        return response.substring(prefix.length());
+    }
+
+    /**
+     * 健康检查：向运行中的工作进程发送 PING，未按时收到 PONG 则结束该进程。未运行时视为健康（下次转换会重新启动）。
+     */
+    public synchronized boolean ping(Duration timeout) {
+        if (process == null || !process.isAlive()) {
+            return true;
+        }
+        try {
+            send("PING");
+            String response = awaitResponse(timeout, Path.of("PING"), null);
+            if ("PONG".equals(response)) {
+                return true;
+            }
+        } catch (WorkerCrashedException | DocComConversionException ignored) {
+            // 视为不健康
+        }
+        stopProcess(false);
+        return false;
+    }
+
+    public synchronized int getRestartCount() {
+        return restartCount;
+    }
+
+    public synchronized boolean isRunning() {
+        return process != null && process.isAlive();
+    }
+
+    /**
+     * 当前工作进程创建的 Office 进程号；未知时为 -1。
+     */
+    public long getOfficePid() {
+        return officePid;
+    }
+
+    @Override
+    public synchronized void close() {
+        LIVE_SESSIONS.remove(this);
+        if (idleCheck != null) {
+            idleCheck.cancel(false);
+            idleCheck = null;
+        }
+        stopProcess(true);
+    }
+
+    private void ensureStarted(Path input) throws WorkerCrashedException, DocComConversionException {
+        if (process != null && process.isAlive()) {
+            return;
+        }
+        if (process != null) {
+            // 空闲期间退出（例如 Office 崩溃），直接换新进程
+            stopProcess(false);
+        }
+        Process started;
+        try {
+            started = launcher.launch();
+        } catch (IOException e) {
+            throw new DocComConversionException(name + " 工作进程启动失败：" + e.getMessage(),
+                    input.toString(), "", e.toString(), -1, true);
+        }
+        process = started;
+        officePid = -1;
+        tracker.track(started.toHandle());
+        documentsInProcess = 0;
+        stdin = new BufferedWriter(new OutputStreamWriter(started.getOutputStream(), StandardCharsets.UTF_8));
+        stdout = new LinkedBlockingQueue<>();
+        stderrTail = new PowerShellRunner.TailBuffer(STDERR_TAIL_CHARS);
+        startPump(started.getInputStream(), stdout, "com-worker-out");
+        startStderrPump(started.getErrorStream(), stderrTail);
+        register(this);
+        String line = pollLine(STARTUP_TIMEOUT);
+        while (line != null && !EOF.equals(line) && !isReady(line)) {
+            line = pollLine(STARTUP_TIMEOUT);
+        }
+        if (line != null && line.startsWith("READY\t")) {
+            try {
+                officePid = Long.parseLong(line.substring(6).strip());
+                tracker.attach(started.toHandle(), officePid);
+            } catch (NumberFormatException ignored) {
+                // 未报告进程号
+            }
+        }
+        tracker.refresh(started.toHandle());
+        if (line == null || !isReady(line)) {
+            String stderr = stderrTail();
+            int exitCode = exitCodeOrDefault();
+            stopProcess(false);
+            throw new DocComConversionException(name + " 工作进程未就绪",
+                    input.toString(), "", stderr, exitCode, true);
+        }
+    }
+
+    private void send(String request) throws WorkerCrashedException {
+        try {
+            stdin.write(request);
+            stdin.newLine();
+            stdin.flush();
+        } catch (IOException e) {
+            throw new WorkerCrashedException("写入请求失败：" + e.getMessage(), stderrTail(), exitCodeOrDefault());
+        }
+    }
+
+    private static boolean isReady(String line) {
+        return line.equals("READY") || line.startsWith("READY\t");
+    }
+
+    /**
+     * @param output 转换输出文件，供看门狗观察；null 表示不启用看门狗
+     */
+    private String awaitResponse(Duration timeout, Path input, Path output)
+            throws WorkerCrashedException, DocComConversionException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Watchdog watchdog = output == null ? null : new Watchdog(output);
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                String stderr = stderrTail();
+                stopProcess(false);
+                throw new DocComConversionException(name + " 转换超时（" + timeout.toSeconds() + " 秒）",
+                        input.toString(), "", stderr, -1, true);
+            }
+            String line = pollLine(Duration.ofNanos(Math.min(remaining, WATCHDOG_INTERVAL.toNanos())));
+            if (line == null) {
+                if (watchdog != null && watchdog.isStalled()) {
+                    String stderr = stderrTail();
+                    stopProcess(false);
+                    throw new DocComConversionException(name + " 转换无响应：" + watchdog.idleSeconds()
+                            + " 秒内 Office 无 CPU 活动且输出文件无变化（可能卡在对话框），已结束进程",
+                            input.toString(), "", stderr, -1, true);
+                }
+                continue;
+            }
+            if (watchdog != null) {
+                watchdog.markActive();
+            }
+            if (EOF.equals(line)) {
+                waitForExit();
+                throw new WorkerCrashedException("进程已退出", stderrTail(), exitCodeOrDefault());
+            }
+            if (line.equals("OK") || line.equals("PONG") || line.startsWith("ERR") || line.startsWith("FILE\t")) {
+                return line;
+            }
+            PowerShellRunner.Progress progress = PowerShellRunner.parseProgress(line);
+            if (progress != null && progressListener != null) {
+                try {
+                    progressListener.onProgress(progress);
+                } catch (RuntimeException ignored) {
+                    // 进度回调失败不影响转换
+                }
+                continue;
+            }
+            // 其它输出（Office/脚本杂项）忽略
+        }
+    }
+
+    private String pollLine(Duration timeout) throws DocComConversionException {
+        try {
+            return stdout.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopProcess(false);
+            throw new DocComConversionException(name + " 转换被中断", "", "", stderrTail(), -1);
+        }
+    }
+
+    private void stopProcess(boolean graceful) {
+        Process current = process;
+        process = null;
+        if (current == null) {
+            return;
+        }
+        if (graceful && current.isAlive()) {
+            try {
+                stdin.write("QUIT");
+                stdin.newLine();
+                stdin.flush();
+                current.waitFor(QUIT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (IOException ignored) {
+                // 进程可能已退出
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        officePid = -1;
+        // COM 服务器由系统启动，不在工作进程的子进程中，由跟踪器按 READY 报告的进程号一并结束；
+        // 正常退出时给 Office 留出自行关闭的时间，之后仍存活则视为残留
+        if (graceful && !current.isAlive()) {
+            tracker.release(current.toHandle());
+        } else {
+            tracker.reap(current.toHandle());
+        }
+    }
+
+    private void scheduleIdleCheck() {
+        if (idleCheck != null) {
+            idleCheck.cancel(false);
+        }
+        if (process == null) {
+            idleCheck = null;
+            return;
+        }
+        idleCheck = IDLE_TIMER.schedule(this::closeIfIdle, idleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void closeIfIdle() {
+        if (process != null && System.currentTimeMillis() - lastUsedMillis >= idleTimeout.toMillis()) {
+            stopProcess(true);
+        }
+    }
+
+    private static void register(ComWorkerSession session) {
+        LIVE_SESSIONS.add(session);
+        if (SHUTDOWN_HOOK_REGISTERED.compareAndSet(false, true)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(ComWorkerSession::shutdownAll, "com-worker-shutdown"));
+        }
+    }
+
+    /**
+     * 应用退出时让各工作进程关闭 Office，避免残留后台实例；正在转换的会话无法等待，直接结束进程树。
+     */
+    private static void shutdownAll() {
+        for (ComWorkerSession session : List.copyOf(LIVE_SESSIONS)) {
+            if (!session.busy) {
+                session.close();
+                continue;
+            }
+            Process current = session.process;
+            if (current != null) {
+                session.tracker.reap(current.toHandle());
+            }
+        }
+    }
+
+    private void waitForExit() {
+        try {
+            process.waitFor(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int exitCodeOrDefault() {
+        Process current = process;
+        if (current == null || current.isAlive()) {
+            return -1;
+        }
+        return current.exitValue();
+    }
+
+    private String stderrTail() {
+        PowerShellRunner.TailBuffer tail = stderrTail;
+        return tail == null ? "" : tail.toString();
+    }
+
+    private static void startPump(InputStream stream, BlockingQueue<String> lines, String threadName) {
+        Thread thread = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line.strip());
+                }
+            } catch (IOException ignored) {
+                // 进程结束
+            } finally {
+                lines.add(EOF);
+            }
+        }, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void startStderrPump(InputStream stream, PowerShellRunner.TailBuffer tail) {
+        Thread thread = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    tail.appendLine(line);
+                }
+            } catch (IOException ignored) {
+                // 进程结束
+            }
+        }, "com-worker-err");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 卡死检测：任何 CPU 活动、输出文件变化或输出行都会重置空闲计时。
+     */
+    private class Watchdog {
+        private final Path output;
+        private long lastActivityNanos = System.nanoTime();
+        private long lastCpuNanos = -1;
+        private long lastOutputSize = -1;
+
+        private Watchdog(Path output) {
+            this.output = output;
+        }
+
+        private void markActive() {
+            lastActivityNanos = System.nanoTime();
+        }
+
+        private boolean isStalled() {
+            long cpu = cpuNanos();
+            long size = outputSize();
+            if (cpu < 0) {
+                // 取不到 CPU 时间时无法区分“忙”与“卡死”，只依赖超时
+                markActive();
+                return false;
+            }
+            if ((lastCpuNanos >= 0 && cpu - lastCpuNanos > CPU_ACTIVITY_NANOS) || size != lastOutputSize) {
+                markActive();
+            }
+            lastCpuNanos = cpu;
+            lastOutputSize = size;
+            return System.nanoTime() - lastActivityNanos >= STALL_TIMEOUT.toNanos();
+        }
+
+        private long idleSeconds() {
+            return (System.nanoTime() - lastActivityNanos) / 1_000_000_000L;
+        }
+
+        private long cpuNanos() {
+            Process current = process;
+            if (current == null) {
+                return -1;
+            }
+            // 顺便刷新跟踪的进程树，转换中途退出的子进程也能在结束时被找到
+            tracker.refresh(current.toHandle());
+            List<ProcessHandle> handles = new ArrayList<>();
+            handles.add(current.toHandle());
+            current.descendants().forEach(handles::add);
+            long office = officePid;
+            if (office > 0) {
+                ProcessHandle.of(office).ifPresent(handles::add);
+            }
+            long total = -1;
+            for (ProcessHandle handle : handles) {
+                Optional<Duration> cpu = handle.info().totalCpuDuration();
+                if (cpu.isPresent()) {
+                    total = Math.max(total, 0) + cpu.get().toNanos();
+                }
+            }
+            return total;
+        }
+
+        private long outputSize() {
+            try {
+                return Files.size(output);
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+    }
+
+    public record BatchItem(Path input, Path output, Duration timeout) {
+    }
+
+    /**
+     * @param elapsedMillis 该文件的转换耗时，未完成（超时、崩溃）时为 -1
+     * @param failure       失败原因，成功时为 null
+     */
+    public record BatchOutcome(long elapsedMillis, DocComConversionException failure) {
+    }
+
+    @FunctionalInterface
+    public interface ProcessLauncher {
+        Process launch() throws IOException;
+    }
+
+    private static class WorkerCrashedException extends Exception {
+        private final String stderr;
+        private final int exitCode;
+
+        private WorkerCrashedException(String message, String stderr, int exitCode) {
+            super(message);
+            this.stderr = stderr;
+            this.exitCode = exitCode;
+        }
+    }
+}
@@ -35,6 +35,9 @@ public class ConfigStore {
             if (data.docConverterMode == null || data.docConverterMode.isBlank()) {
                 data.docConverterMode = DocConverterMode.AUTO.name();
             }
+            if (data.mergeEngine == null || data.mergeEngine.isBlank()) {
+                data.mergeEngine = MergeEngine.ALT_CHUNK.name();
+            }
             return data;
         } catch (IOException e) {
             return new ConfigData();
@@ -55,6 +58,17 @@ public class ConfigStore {
         private String lastOutputDir;
         private String lastOutputFileName;
         private String docConverterMode = DocConverterMode.AUTO.name();
+        private String mergeEngine = MergeEngine.ALT_CHUNK.name();
+        private Integer prepareThreads;
+        private Integer prepareLookAhead;
+        private Integer comPoolSize;
+        private String pdfImportMode = PdfImportMode.COM.name();
+        private Integer pdfRenderDpi;
+        private Integer pdfRenderThreads;
+        private Integer pdfRenderPagesInFlight;
+        private Integer pdfChunkThresholdPages;
+        private Integer pdfChunkPages;
+        private Integer conversionCacheMaxMb;
         private Integer windowWidth;
         private Integer windowHeight;
         private Integer dividerLocation;
@@ -93,6 +107,94 @@ public class ConfigStore {
             this.docConverterMode = docConverterMode;
         }
 
+        public String getMergeEngine() {
+            return mergeEngine;
+        }
+
+        public void setMergeEngine(String mergeEngine) {
+            this.mergeEngine = mergeEngine;
+        }
+
+        public Integer getPrepareThreads() {
+            return prepareThreads;
+        }
+
+        public void setPrepareThreads(Integer prepareThreads) {
+            this.prepareThreads = prepareThreads;
+        }
+
+        public Integer getPrepareLookAhead() {
+            return prepareLookAhead;
+        }
+
+        public void setPrepareLookAhead(Integer prepareLookAhead) {
+            this.prepareLookAhead = prepareLookAhead;
+        }
+
+        public Integer getComPoolSize() {
+            return comPoolSize;
+        }
+
+        public void setComPoolSize(Integer comPoolSize) {
+            this.comPoolSize = comPoolSize;
+        }
+
+        public String getPdfImportMode() {
+            return pdfImportMode;
+        }
+
+        public void setPdfImportMode(String pdfImportMode) {
+            this.pdfImportMode = pdfImportMode;
+        }
+
+        public Integer getPdfRenderDpi() {
+            return pdfRenderDpi;
+        }
+
+        public void setPdfRenderDpi(Integer pdfRenderDpi) {
+            this.pdfRenderDpi = pdfRenderDpi;
+        }
+
+        public Integer getPdfRenderThreads() {
+            return pdfRenderThreads;
+        }
+
+        public void setPdfRenderThreads(Integer pdfRenderThreads) {
+            this.pdfRenderThreads = pdfRenderThreads;
+        }
+
+        public Integer getPdfRenderPagesInFlight() {
+            return pdfRenderPagesInFlight;
+        }
+
+        public void setPdfRenderPagesInFlight(Integer pdfRenderPagesInFlight) {
+            this.pdfRenderPagesInFlight = pdfRenderPagesInFlight;
+        }
+
+        public Integer getPdfChunkThresholdPages() {
+            return pdfChunkThresholdPages;
+        }
+
+        public void setPdfChunkThresholdPages(Integer pdfChunkThresholdPages) {
+            this.pdfChunkThresholdPages = pdfChunkThresholdPages;
+        }
+
+        public Integer getPdfChunkPages() {
+            return pdfChunkPages;
+        }
+
+        public void setPdfChunkPages(Integer pdfChunkPages) {
+            this.pdfChunkPages = pdfChunkPages;
+        }
+
+        public Integer getConversionCacheMaxMb() {
+            return conversionCacheMaxMb;
+        }
+
+        public void setConversionCacheMaxMb(Integer conversionCacheMaxMb) {
+            this.conversionCacheMaxMb = conversionCacheMaxMb;
+        }
+
         public Integer getWindowWidth() {
             return windowWidth;
         }
@@ -142,6 +244,7 @@ public class ConfigStore {
         private Long size;
         private Long lastModified;
         private String sourceDir;
+        private String pdfImportMode;
 
         public String getAbsolutePath() {
             return absolutePath;
@@ -198,5 +301,13 @@ public class ConfigStore {
         public void setSourceDir(String sourceDir) {
             this.sourceDir = sourceDir;
         }
+
+        public String getPdfImportMode() {
+            return pdfImportMode;
+        }
+
+        public void setPdfImportMode(String pdfImportMode) {
+            this.pdfImportMode = pdfImportMode;
+        }
     }
 }
@@ -0,0 +1,45 @@
+package app.docmerge;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 文件内容哈希的备忘：按绝对路径记录大小、修改时间与 {@link ConversionCache#contentHash} 的结果，
+ * 文件未变化时不再读取。隔离索引与 PDF 类型识别共用同一个实例，同一文件在合并、预览与界面标记之间只读取一次。
+ */
+final class ContentHashMemo {
+    private static final int MAX_ENTRIES = 1000;
+    private static final ContentHashMemo SHARED = new ContentHashMemo();
+
+    private final Map<String, Memo> memo = new HashMap<>();
+
+    static ContentHashMemo shared() {
+        return SHARED;
+    }
+
+    String hash(Path input) throws IOException {
+        String path = input.toAbsolutePath().toString();
+        long size = Files.size(input);
+        long modified = Files.getLastModifiedTime(input).toMillis();
+        synchronized (memo) {
+            Memo known = memo.get(path);
+            if (known != null && known.size() == size && known.modifiedMillis() == modified) {
+                return known.hash();
+            }
+        }
+        String hash = ConversionCache.contentHash(input);
+        synchronized (memo) {
+            if (memo.size() >= MAX_ENTRIES) {
+                memo.clear();
+            }
+            memo.put(path, new Memo(size, modified, hash));
+        }
+        return hash;
+    }
+
+    private record Memo(long size, long modifiedMillis, String hash) {
+    }
+}
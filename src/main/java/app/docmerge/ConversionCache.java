@@ -0,0 +1,215 @@
+package app.docmerge;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * DOC/PDF 转换结果的磁盘缓存（~/.doc-merge-app/conversion-cache），合并与预览共用。
+ * <p>
+ * 键 = 输入内容 SHA-256 + 转换类型 + 引擎与保存格式；文件先写入 .partial 再原子改名，进程崩溃不会留下半个条目。
+ * 总大小超过上限时按最近使用时间淘汰（命中时刷新修改时间）。
+ */
+public class ConversionCache {
+    public static final long DEFAULT_MAX_BYTES = 2L * 1024 * 1024 * 1024;
+    private static final String ENTRY_SUFFIX = ".docx";
+    private static final String PARTIAL_SUFFIX = ".partial";
+    // 超过该时长的 .partial 视为崩溃残留
+    private static final long STALE_PARTIAL_MILLIS = 60L * 60 * 1000;
+
+    private final Path directory;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Map<String, CompletableFuture<Void>> inProgress = new HashMap<>();
+    private volatile long maxBytes;
+    private boolean staleCleaned;
+
+    public ConversionCache() {
+        this(Path.of(System.getProperty("user.home"), ".doc-merge-app", "conversion-cache"), DEFAULT_MAX_BYTES);
+    }
+
+    public ConversionCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes > 0 ? maxBytes : DEFAULT_MAX_BYTES;
+    }
+
+    /**
+     * 计算缓存键（需读取整个输入文件）。
+     *
+     * @param kind    转换类型（DOC / PDF）
+     * @param profile 引擎与保存格式，见 {@link DocComConverter#cacheProfile()}
+     */
+    public String key(Path input, String kind, String profile) throws IOException {
+        byte[] variant = sha256().digest((kind + "|" + profile).getBytes(StandardCharsets.UTF_8));
+        return contentHash(input) + "_" + HexFormat.of().formatHex(variant, 0, 8);
+    }
+
+    /**
+     * 输入内容的 SHA-256（十六进制），与引擎无关；{@link QuarantineStore} 以此识别同一文档。
+     */
+    public static String contentHash(Path input) throws IOException {
+        MessageDigest content = sha256();
+        try (InputStream in = Files.newInputStream(input)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                content.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(content.digest());
+    }
+
+    /**
+     * 查找缓存条目；命中时刷新最近使用时间。返回的文件归缓存所有，调用方不得删除。
+     */
+    public Path lookup(String key) {
+        Path entry = directory.resolve(key + ENTRY_SUFFIX);
+        if (!Files.isRegularFile(entry)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+            // 刷新失败只影响淘汰顺序
+        }
+        hits.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * 是否已有条目（不计入命中统计）。
+     */
+    public boolean contains(String key) {
+        return Files.isRegularFile(directory.resolve(key + ENTRY_SUFFIX));
+    }
+
+    /**
+     * 登记“正在转换”。返回 null 表示由调用方负责转换，完成后必须调用 {@link #release(String)}；
+     * 否则返回其它调用方的完成信号，等待后再查缓存即可，避免同一文件被后台预转换与合并重复转换。
+     */
+    public synchronized CompletableFuture<Void> claim(String key) {
+        CompletableFuture<Void> existing = inProgress.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        inProgress.put(key, new CompletableFuture<>());
+        return null;
+    }
+
+    public synchronized void release(String key) {
+        CompletableFuture<Void> done = inProgress.remove(key);
+        if (done != null) {
+            done.complete(null);
+        }
+    }
+
+    /**
+     * 把转换结果复制进缓存；converted 仍归调用方所有。
+     */
+    public void publish(String key, Path converted) throws IOException {
+        Files.createDirectories(directory);
+        Path partial = directory.resolve(key + "." + UUID.randomUUID() + PARTIAL_SUFFIX);
+        try {
+            Files.copy(converted, partial, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(partial, directory.resolve(key + ENTRY_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+        evict();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public String summary() {
+        return "命中 " + hits.get() + "，未命中 " + misses.get();
+    }
+
+    private synchronized void evict() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        try (Stream<Path> stream = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) stream::iterator) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(ENTRY_SUFFIX)) {
+                    entries.add(path);
+                } else if (!staleCleaned && name.endsWith(PARTIAL_SUFFIX)
+                        && now - lastModifiedMillis(path) > STALE_PARTIAL_MILLIS) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+        staleCleaned = true;
+        long total = 0;
+        for (Path entry : entries) {
+            total += sizeOf(entry);
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        entries.sort(Comparator.comparingLong(ConversionCache::lastModifiedMillis));
+        for (Path entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long size = sizeOf(entry);
+            try {
+                Files.deleteIfExists(entry);
+                total -= size;
+            } catch (IOException ignored) {
+                // 正在被读取（Windows 上无法删除），下次再淘汰
+            }
+        }
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static long lastModifiedMillis(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
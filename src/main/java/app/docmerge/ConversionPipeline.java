@@ -0,0 +1,392 @@
+package app.docmerge;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DOC/PDF 转换流水线：后台线程按列表顺序领取并转换（并发数取转换器的 {@link DocComConverter#parallelism()}），
+ * 合并线程在轮到某项时只需等待该项完成。转换器支持成批提交时（{@link DocComConverter#batchFiles()}），
+ * 相邻的 DOC 一次领取并整批交给 {@link DocComConverter#convertEach}，由同一个转换进程连续转换。
+ * <p>
+ * 已转换但尚未被合并取用的文件最多 maxAhead 个（背压），合并取用后由 {@link #release(FileItem)}
+ * 删除临时文件并放行下一次转换，避免临时文件堆积。
+ * <p>
+ * 提供 {@link ConversionCache} 时先按内容查缓存，命中则不调用转换器；新的转换结果写回缓存。
+ * 提供 {@link ConversionScheduler} 时以合并优先级排队，按列表顺序先于预转换与预览取得转换名额。
+ */
+public class ConversionPipeline implements AutoCloseable {
+    private static final long POLL_MILLIS = 200L;
+
+    private final List<FileItem> items;
+    private final DocComConverter converter;
+    private final ConversionCache cache;
+    private final ConversionScheduler scheduler;
+    private final Path tempDir;
+    private final Semaphore permits;
+    private final UiLogger logger;
+    private final ProgressListener listener;
+    private final MergeService.CancelSignal cancelSignal;
+    private final Map<FileItem, CompletableFuture<Path>> results = new IdentityHashMap<>();
+    private final int runLimit;
+    private int nextIndex;
+    private final AtomicInteger convertedCount = new AtomicInteger();
+    private final List<Thread> workers = new ArrayList<>();
+    private final long startMillis = System.currentTimeMillis();
+    private volatile IOException failure;
+
+    /**
+     * @param items    需要转换的 DOC/PDF 项（按合并顺序）
+     * @param scheduler 转换调度器，可为 null（不排队）
+     * @param maxAhead 已转换但尚未取用的最大数量
+     */
+    public ConversionPipeline(List<FileItem> items,
+                              DocComConverter converter,
+                              ConversionCache cache,
+                              ConversionScheduler scheduler,
+                              Path tempDir,
+                              int maxAhead,
+                              UiLogger logger,
+                              ProgressListener listener,
+                              MergeService.CancelSignal cancelSignal) {
+        this.items = items;
+        this.converter = converter;
+        this.cache = cache;
+        this.scheduler = scheduler;
+        this.tempDir = tempDir;
+        this.permits = new Semaphore(Math.max(1, maxAhead));
+        this.logger = logger;
+        this.listener = listener;
+        this.cancelSignal = cancelSignal;
+        for (FileItem item : items) {
+            results.put(item, new CompletableFuture<>());
+        }
+        int threads = Math.max(1, Math.min(converter.parallelism(), items.size()));
+        // 每个转换线程一次领取的相邻 DOC 数：不超过转换器的单批上限，且背压名额在各线程间平分
+        this.runLimit = Math.max(1, Math.min(converter.batchFiles(), Math.max(1, maxAhead) / threads));
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::runConversions, "merge-convert-" + (i + 1));
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+    }
+
+    public void start() {
+        workers.forEach(Thread::start);
+    }
+
+    /**
+     * 若后台转换已失败则立即抛出，便于合并线程尽早终止。
+     */
+    public void checkFailure() throws IOException {
+        IOException current = failure;
+        if (current != null) {
+            throw current;
+        }
+    }
+
+    /**
+     * 等待指定项转换完成，返回 DOCX 路径；等待期间轮询取消信号。
+     */
+    public Path await(FileItem item) throws IOException {
+        CompletableFuture<Path> future = results.get(item);
+        if (future == null) {
+            throw new IOException("未找到转换任务：" + item.getPath());
+        }
+        while (true) {
+            if (cancelSignal.isCancelled()) {
+                throw new MergeService.MergeCancelledException("用户已取消合并");
+            }
+            try {
+                return future.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ignored) {
+                // 继续等待
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MergeService.MergeCancelledException("用户已取消合并");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException io) {
+                    throw io;
+                }
+                throw new IOException("转换失败：" + cause.getMessage(), cause);
+            }
+        }
+    }
+
+    /**
+     * 合并线程已取用该项：删除临时文件（缓存条目除外）并放行下一次转换。
+     */
+    public void release(FileItem item) {
+        CompletableFuture<Path> future = results.get(item);
+        if (future != null && future.isDone() && !future.isCompletedExceptionally()
+                && future.join().startsWith(tempDir)) {
+            try {
+                Files.deleteIfExists(future.join());
+            } catch (IOException ignored) {
+                // 由 MergeService 统一清理临时目录
+            }
+        }
+        permits.release();
+    }
+
+    @Override
+    public void close() {
+        workers.forEach(Thread::interrupt);
+        for (CompletableFuture<Path> future : results.values()) {
+            future.cancel(false);
+        }
+    }
+
+    private void runConversions() {
+        while (failure == null) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            int[] run = claimRun();
+            if (run.length == 0 || failure != null || cancelSignal.isCancelled()) {
+                permits.release(Math.max(1, run.length));
+                return;
+            }
+            try {
+                if (run.length == 1) {
+                    complete(run[0], convert(items.get(run[0]), run[0]));
+                } else {
+                    convertRun(run);
+                }
+            } catch (IOException e) {
+                fail(run, e);
+                return;
+            } catch (RuntimeException e) {
+                fail(run, new IOException("转换失败：" + items.get(run[0]).getName(), e));
+                return;
+            }
+        }
+    }
+
+    /**
+     * 领取下一项；是 DOC 时连同其后相邻的 DOC 一起领取（至多 runLimit 个），多领的每项各占一个背压名额，
+     * 名额不足时只领到已取得名额的部分。调用前已为第一项取得名额。
+     */
+    private synchronized int[] claimRun() {
+        int first = nextIndex;
+        if (first >= items.size()) {
+            return new int[0];
+        }
+        int end = first + 1;
+        if (isDoc(items.get(first))) {
+            while (end < items.size() && end - first < runLimit && isDoc(items.get(end)) && permits.tryAcquire()) {
+                end++;
+            }
+        }
+        nextIndex = end;
+        int[] run = new int[end - first];
+        for (int i = 0; i < run.length; i++) {
+            run[i] = first + i;
+        }
+        return run;
+    }
+
+    /**
+     * 一段相邻的 DOC：命中缓存的直接完成，正由后台预转换处理的逐个接管，其余整批交给转换器，
+     * 由同一个转换进程连续转换。
+     */
+    private void convertRun(int[] run) throws IOException {
+        List<Integer> batch = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<Integer> taken = new ArrayList<>();
+        try {
+            for (int index : run) {
+                FileItem item = items.get(index);
+                if (cache == null) {
+                    batch.add(index);
+                    keys.add(null);
+                    continue;
+                }
+                String cacheKey = cache.key(item.getPath(), "DOC", converter.cacheProfile());
+                Path cached = cache.lookup(cacheKey);
+                if (cached != null) {
+                    logger.info("命中转换缓存：" + item.getName());
+                    complete(index, cached);
+                } else if (cache.claim(cacheKey) != null) {
+                    taken.add(index);
+                } else {
+                    batch.add(index);
+                    keys.add(cacheKey);
+                }
+            }
+            if (!batch.isEmpty()) {
+                convertBatch(batch, keys);
+            }
+        } finally {
+            if (cache != null) {
+                keys.forEach(cache::release);
+            }
+        }
+        for (int index : taken) {
+            complete(index, convert(items.get(index), index));
+        }
+    }
+
+    private void convertBatch(List<Integer> batch, List<String> keys) throws IOException {
+        List<Path> inputs = new ArrayList<>();
+        for (int index : batch) {
+            inputs.add(items.get(index).getPath());
+        }
+        logger.info("批量转换 " + inputs.size() + " 个 DOC 文件：" + items.get(batch.get(0)).getName() + " 起");
+        List<DocComConverter.FileOutcome> outcomes = schedule(batch.get(0), keys.get(0),
+                () -> converter.convertEach(inputs, tempDir));
+        if (outcomes.size() != inputs.size()) {
+            throw new DocComConversionException("转换失败，输出文件数量不一致",
+                    inputs.get(0).toString(), "", "输出数量=" + outcomes.size(), -1);
+        }
+        DocComConversionException firstFailure = null;
+        for (int i = 0; i < outcomes.size(); i++) {
+            DocComConverter.FileOutcome outcome = outcomes.get(i);
+            if (outcome.failure() != null) {
+                // 按列表顺序报告第一个失败的文件；其余文件的结果照常保留
+                if (firstFailure == null) {
+                    firstFailure = outcome.failure();
+                }
+                continue;
+            }
+            FileItem item = items.get(batch.get(i));
+            logger.info("转换完成：" + item.getPath());
+            publish(keys.get(i), item, outcome.output());
+            complete(batch.get(i), outcome.output());
+        }
+        if (firstFailure != null) {
+            throw firstFailure;
+        }
+    }
+
+    private void complete(int index, Path output) {
+        FileItem item = items.get(index);
+        listener.onConverted(convertedCount.incrementAndGet(), items.size(), item.getName());
+        results.get(item).complete(output);
+    }
+
+    private void fail(int[] run, IOException e) {
+        failure = e;
+        for (int index : run) {
+            results.get(items.get(index)).completeExceptionally(e);
+        }
+    }
+
+    private Path convert(FileItem item, int index) throws IOException {
+        if (cache == null) {
+            return schedule(index, null, () -> convertDirect(item));
+        }
+        boolean pdf = item.getFileType() == FileItem.FileType.PDF;
+        String cacheKey = cache.key(item.getPath(), pdf ? "PDF" : "DOC",
+                pdf ? converter.pdfCacheProfile(item.getPath()) : converter.cacheProfile());
+        while (true) {
+            Path cached = cache.lookup(cacheKey);
+            if (cached != null) {
+                logger.info("命中转换缓存：" + item.getName());
+                return cached;
+            }
+            CompletableFuture<Void> other = cache.claim(cacheKey);
+            if (other == null) {
+                break;
+            }
+            // 后台预转换正在处理该文件：接管其结果而不是重复转换
+            logger.info("等待后台预转换完成：" + item.getName());
+            if (scheduler != null) {
+                // 对方可能还在低优先级队列中排队
+                scheduler.boost(cacheKey, ConversionScheduler.Priority.MERGE);
+            }
+            awaitOther(other);
+        }
+        try {
+            Path output = schedule(index, cacheKey, () -> convertDirect(item));
+            publish(cacheKey, item, output);
+            return output;
+        } finally {
+            cache.release(cacheKey);
+        }
+    }
+
+    private void publish(String cacheKey, FileItem item, Path output) {
+        if (cacheKey == null) {
+            return;
+        }
+        try {
+            cache.publish(cacheKey, output);
+        } catch (IOException e) {
+            logger.warn("写入转换缓存失败：" + item.getName() + "，" + e.getMessage());
+        }
+    }
+
+    /**
+     * 以合并优先级取得转换名额后执行；截止时间按列表顺序，越靠前的文件越早被写入线程需要。
+     */
+    private <T> T schedule(int index, String cacheKey, ConversionScheduler.Task<T> task) throws IOException {
+        if (scheduler == null) {
+            return task.call();
+        }
+        return scheduler.run(ConversionScheduler.Priority.MERGE, cacheKey, startMillis + index,
+                converter.parallelism(), task);
+    }
+
+    private static boolean isDoc(FileItem item) {
+        return item.getFileType() == FileItem.FileType.DOC;
+    }
+
+    private Path convertDirect(FileItem item) throws IOException {
+        if (item.getFileType() == FileItem.FileType.PDF) {
+            logger.info("开始转换 PDF：" + item.getName());
+            Path output = converter.convertPdfToDocx(item.getPath(), tempDir,
+                    progress -> listener.onStep(item.getName(), progress));
+            logger.info("PDF 转换完成：" + item.getName());
+            return output;
+        }
+        List<Path> outputs = converter.convertBatch(List.of(item.getPath()), tempDir);
+        if (outputs.size() != 1) {
+            throw new DocComConversionException("转换失败，输出文件数量不一致",
+                    item.getPath().toString(), "", "输出数量=" + outputs.size(), -1);
+        }
+        logger.info("转换完成：" + item.getPath());
+        return outputs.get(0);
+    }
+
+    private void awaitOther(CompletableFuture<Void> other) throws IOException {
+        while (true) {
+            if (cancelSignal.isCancelled()) {
+                throw new MergeService.MergeCancelledException("用户已取消合并");
+            }
+            try {
+                other.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException ignored) {
+                // 继续等待
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MergeService.MergeCancelledException("用户已取消合并");
+            } catch (ExecutionException e) {
+                return;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onConverted(int converted, int total, String name);
+
+        default void onStep(String name, PowerShellRunner.Progress progress) {
+        }
+    }
+}
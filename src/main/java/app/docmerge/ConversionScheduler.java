@@ -0,0 +1,245 @@
+package app.docmerge;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * DOC/PDF 转换的统一调度：合并、后台预转换与预览共用同一组转换名额（等于转换器的并发数），
+ * 名额空出时按优先级（合并 &gt; 预转换 &gt; 预览）分配，同一优先级内按截止时间、再按提交顺序。
+ * <p>
+ * 正在进行的 COM 转换无法中途抢占，但排队中的预览不会再占用合并需要的名额。同一输入的重复请求由
+ * {@link ConversionCache#claim(String)} 合并为一次转换；等待者调用 {@link #boost} 把排队中的原请求提升到自己的优先级，
+ * 合并不会被一个排队中的预览拖住。选中文件变化时 {@link #cancelQueued} 取消排队中的预览。
+ */
+public class ConversionScheduler {
+    private static final Comparator<Ticket> ORDER = Comparator
+            .comparing((Ticket ticket) -> ticket.priority)
+            .thenComparingLong(ticket -> ticket.deadlineMillis)
+            .thenComparingLong(ticket -> ticket.sequence);
+
+    private final Object lock = new Object();
+    private final PriorityQueue<Ticket> queue = new PriorityQueue<>(ORDER);
+    private final Map<String, Ticket> queuedByKey = new HashMap<>();
+    private final Map<Priority, Counters> counters = new EnumMap<>(Priority.class);
+    private long sequence;
+    private int running;
+    private int slots = 1;
+
+    public ConversionScheduler() {
+        for (Priority priority : Priority.values()) {
+            counters.put(priority, new Counters());
+        }
+    }
+
+    /**
+     * 排队等到名额后在调用线程执行 task，完成后归还名额。
+     *
+     * @param key            转换缓存键，用于 {@link #boost}，可为 null
+     * @param deadlineMillis 同一优先级内越小越先执行（合并按列表顺序，其它按提交时间）
+     * @param slots          当前转换器的并发数，即同时执行的转换数上限
+     * @throws CancelledException 排队期间被 {@link #cancelQueued} 取消或线程被中断
+     */
+    public <T> T run(Priority priority, String key, long deadlineMillis, int slots, Task<T> task) throws IOException {
+        acquire(priority, key, deadlineMillis, slots);
+        try {
+            return task.call();
+        } finally {
+            synchronized (lock) {
+                running--;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 把排队中、键为 key 的请求提升到 priority（已经更高或已开始执行时不变）。
+     */
+    public void boost(String key, Priority priority) {
+        if (key == null) {
+            return;
+        }
+        synchronized (lock) {
+            Ticket ticket = queuedByKey.get(key);
+            if (ticket != null && ticket.priority.compareTo(priority) > 0) {
+                queue.remove(ticket);
+                ticket.priority = priority;
+                queue.add(ticket);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 取消排队中（尚未开始）的指定优先级请求，返回取消数量；已被提升到更高优先级的请求不受影响。
+     */
+    public int cancelQueued(Priority priority) {
+        synchronized (lock) {
+            int cancelled = 0;
+            for (Ticket ticket : queue) {
+                if (ticket.priority == priority && !ticket.cancelled) {
+                    ticket.cancelled = true;
+                    cancelled++;
+                }
+            }
+            if (cancelled > 0) {
+                lock.notifyAll();
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * 各优先级的队列深度与等待时间。
+     */
+    public Snapshot snapshot() {
+        synchronized (lock) {
+            List<QueueStats> queues = new ArrayList<>();
+            for (Priority priority : Priority.values()) {
+                int depth = (int) queue.stream().filter(ticket -> ticket.priority == priority).count();
+                Counters c = counters.get(priority);
+                queues.add(new QueueStats(priority, depth, c.started, c.cancelled,
+                        c.started == 0 ? 0 : c.totalWaitMillis / c.started, c.maxWaitMillis));
+            }
+            return new Snapshot(running, slots, queues);
+        }
+    }
+
+    public String summary() {
+        return snapshot().summary();
+    }
+
+    private void acquire(Priority priority, String key, long deadlineMillis, int slots) throws CancelledException {
+        synchronized (lock) {
+            this.slots = Math.max(1, slots);
+            Ticket ticket = new Ticket(priority, key, deadlineMillis, sequence++);
+            queue.add(ticket);
+            if (key != null) {
+                queuedByKey.put(key, ticket);
+            }
+            try {
+                while (!ticket.cancelled && (running >= this.slots || queue.peek() != ticket)) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ticket.cancelled = true;
+            }
+            dequeue(ticket);
+            Counters c = counters.get(priority);
+            if (ticket.cancelled) {
+                c.cancelled++;
+                // 队首变化，唤醒其它等待者
+                lock.notifyAll();
+                throw new CancelledException("已取消排队中的" + priority.getLabel() + "转换");
+            }
+            long waited = System.currentTimeMillis() - ticket.queuedAtMillis;
+            c.started++;
+            c.totalWaitMillis += waited;
+            c.maxWaitMillis = Math.max(c.maxWaitMillis, waited);
+            running++;
+            // 名额可能不止一个，让下一个队首继续检查
+            lock.notifyAll();
+        }
+    }
+
+    private void dequeue(Ticket ticket) {
+        queue.remove(ticket);
+        if (ticket.key != null && queuedByKey.get(ticket.key) == ticket) {
+            queuedByKey.remove(ticket.key);
+        }
+    }
+
+    public enum Priority {
+        MERGE("合并"),
+        PREFETCH("预转换"),
+        PREVIEW("预览");
+
+        private final String label;
+
+        Priority(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Task<T> {
+        T call() throws IOException;
+    }
+
+    public static class CancelledException extends IOException {
+        public CancelledException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @param queued            当前排队数
+     * @param started           累计开始执行数
+     * @param cancelled         累计在排队中被取消数
+     * @param averageWaitMillis 开始执行前的平均排队时间
+     */
+    public record QueueStats(Priority priority,
+                             int queued,
+                             long started,
+                             long cancelled,
+                             long averageWaitMillis,
+                             long maxWaitMillis) {
+    }
+
+    public record Snapshot(int running, int slots, List<QueueStats> queues) {
+        public int queueDepth() {
+            return queues.stream().mapToInt(QueueStats::queued).sum();
+        }
+
+        public String summary() {
+            StringBuilder text = new StringBuilder("执行中 " + running + "/" + slots);
+            for (QueueStats stats : queues) {
+                if (stats.queued() == 0 && stats.started() == 0 && stats.cancelled() == 0) {
+                    continue;
+                }
+                text.append("；").append(stats.priority().getLabel())
+                        .append("：排队 ").append(stats.queued())
+                        .append("，已执行 ").append(stats.started())
+                        .append("，平均等待 ").append(stats.averageWaitMillis()).append(" ms")
+                        .append("，最长 ").append(stats.maxWaitMillis()).append(" ms");
+                if (stats.cancelled() > 0) {
+                    text.append("，已取消 ").append(stats.cancelled());
+                }
+            }
+            return text.toString();
+        }
+    }
+
+    private static class Counters {
+        private long started;
+        private long cancelled;
+        private long totalWaitMillis;
+        private long maxWaitMillis;
+    }
+
+    private static class Ticket {
+        private final String key;
+        private final long deadlineMillis;
+        private final long sequence;
+        private final long queuedAtMillis = System.currentTimeMillis();
+        private Priority priority;
+        private boolean cancelled;
+
+        private Ticket(Priority priority, String key, long deadlineMillis, long sequence) {
+            this.priority = priority;
+            this.key = key;
+            this.deadlineMillis = deadlineMillis;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package app.docmerge;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * 按文档估算转换超时：DOC 按文件大小 × 该引擎实测的每 KB 耗时，PDF 按页数 × 实测的每页耗时（页数未知时按大小），
+ * 乘以安全系数并加启动余量，限制在固定上下限之间。无历史数据时使用保守的默认速率。
+ * <p>
+ * 卡在对话框等无响应情况由 {@link ComWorkerSession} 的看门狗更早发现，超时只是兜底。
+ */
+public class ConversionTimeoutPolicy {
+    private static final double SAFETY_FACTOR = 4.0;
+    private static final Duration ALLOWANCE = Duration.ofSeconds(30);
+    private static final Duration DOC_MIN = Duration.ofSeconds(60);
+    private static final Duration DOC_MAX = Duration.ofMinutes(10);
+    private static final Duration PDF_MIN = Duration.ofSeconds(120);
+    private static final Duration PDF_MAX = Duration.ofMinutes(15);
+    // 实测速率的指数滑动平均权重
+    private static final double SMOOTHING = 0.3;
+
+    private double docMillisPerKb = 20.0;
+    private double pdfMillisPerPage = 3000.0;
+    private double pdfMillisPerKb = 30.0;
+    private int docSamples;
+    private int pdfSamples;
+
+    /**
+     * 计算超时；需要读取 PDF 页数时会打开文件（失败则按大小估算）。
+     */
+    public Decision decide(String kind, Path input) {
+        long kb = Math.max(1L, sizeOf(input) / 1024);
+        boolean pdf = "PDF".equals(kind);
+        int pages = pdf ? pageCount(input) : -1;
+        double predicted;
+        String basis;
+        synchronized (this) {
+            if (!pdf) {
+                predicted = kb * docMillisPerKb;
+                basis = kb + " KB × " + rate(docMillisPerKb) + " ms/KB" + source(docSamples);
+            } else if (pages > 0) {
+                predicted = pages * pdfMillisPerPage;
+                basis = pages + " 页 × " + rate(pdfMillisPerPage) + " ms/页" + source(pdfSamples);
+            } else {
+                predicted = kb * pdfMillisPerKb;
+                basis = kb + " KB × " + rate(pdfMillisPerKb) + " ms/KB" + source(pdfSamples) + "（页数未知）";
+            }
+        }
+        long raw = Math.round(predicted * SAFETY_FACTOR) + ALLOWANCE.toMillis();
+        Duration min = pdf ? PDF_MIN : DOC_MIN;
+        Duration max = pdf ? PDF_MAX : DOC_MAX;
+        long clamped = Math.max(min.toMillis(), Math.min(max.toMillis(), raw));
+        StringBuilder reason = new StringBuilder()
+                .append(basis).append(" × ").append((int) SAFETY_FACTOR)
+                .append(" + 余量 ").append(ALLOWANCE.toSeconds()).append(" 秒 = ").append(raw / 1000).append(" 秒");
+        if (clamped != raw) {
+            reason.append("，按").append(clamped == min.toMillis() ? "下限 " : "上限 ")
+                    .append(clamped / 1000).append(" 秒");
+        }
+        return new Decision(Duration.ofMillis(clamped), pages, reason.toString());
+    }
+
+    /**
+     * 记录一次成功转换的耗时，更新速率估计。
+     */
+    public synchronized void record(String kind, Path input, int pages, long elapsedMillis) {
+        long kb = Math.max(1L, sizeOf(input) / 1024);
+        if ("PDF".equals(kind)) {
+            if (pages > 0) {
+                pdfMillisPerPage = smooth(pdfMillisPerPage, (double) elapsedMillis / pages, pdfSamples);
+            }
+            pdfMillisPerKb = smooth(pdfMillisPerKb, (double) elapsedMillis / kb, pdfSamples);
+            pdfSamples++;
+        } else {
+            docMillisPerKb = smooth(docMillisPerKb, (double) elapsedMillis / kb, docSamples);
+            docSamples++;
+        }
+    }
+
+    private static double smooth(double current, double observed, int samples) {
+        // 第一个样本直接替换默认值
+        return samples == 0 ? observed : current + SMOOTHING * (observed - current);
+    }
+
+    private static String rate(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static String source(int samples) {
+        return samples == 0 ? "（默认）" : "（实测 " + samples + " 次）";
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static int pageCount(Path pdf) {
+        try (PDDocument document = Loader.loadPDF(pdf.toFile())) {
+            return document.getNumberOfPages();
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @param pages PDF 页数，未知或非 PDF 为 -1
+     */
+    public record Decision(Duration timeout, int pages, String reason) {
+    }
+}
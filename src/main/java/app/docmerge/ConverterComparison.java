@@ -0,0 +1,182 @@
+package app.docmerge;
+
+import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 内置 POI HWPF 转换与 Word/WPS（COM）转换在同一批样本上的保真度与吞吐量对比：
+ * <pre>
+ * java -cp doc-merge-app.jar app.docmerge.ConverterComparison &lt;样本目录&gt; [报告.csv]
+ * </pre>
+ * 逐个文件比较两者输出的文字量、段落、表格与图片数，并以字符频次重合度衡量文字一致性；
+ * 未检测到 Word/WPS 时只统计 HWPF。
+ */
+public final class ConverterComparison {
+    private ConverterComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法：ConverterComparison <样本目录> [报告.csv]");
+            System.exit(2);
+        }
+        List<Path> samples;
+        try (Stream<Path> paths = Files.walk(Path.of(args[0]))) {
+            samples = paths.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".doc"))
+                    .sorted(Comparator.comparing(Path::toString))
+                    .toList();
+        }
+        if (samples.isEmpty()) {
+            System.err.println("样本目录中没有 .doc 文件：" + args[0]);
+            System.exit(2);
+        }
+        PrintStream out = System.out;
+        Path workDir = Files.createTempDirectory("converter-comparison-");
+
+        HwpfDocConverter hwpf = new HwpfDocConverter();
+        Run hwpfRun = run(hwpf, samples, workDir.resolve("hwpf"));
+
+        DocComConverterSelector selector = new DocComConverterSelector();
+        DocComConverterSelector.Selection com = new DocComConverterResolver(selector)
+                .resolve(DocConverterMode.AUTO, false).selection();
+        Run comRun = com == null ? null : run(com.converter(), samples, workDir.resolve("com"));
+
+        List<String> csv = new ArrayList<>();
+        csv.add("file,hwpf_ok,hwpf_chars,hwpf_paragraphs,hwpf_tables,hwpf_pictures,"
+                + "com_ok,com_chars,com_paragraphs,com_tables,com_pictures,text_similarity,error");
+        double similaritySum = 0;
+        int compared = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            DocComConverter.FileOutcome h = hwpfRun.outcomes().get(i);
+            DocComConverter.FileOutcome c = comRun == null ? null : comRun.outcomes().get(i);
+            Metrics hm = h.output() == null ? null : Metrics.of(h.output());
+            Metrics cm = c == null || c.output() == null ? null : Metrics.of(c.output());
+            String similarity = "";
+            if (hm != null && cm != null) {
+                double value = similarity(hm.text(), cm.text());
+                similaritySum += value;
+                compared++;
+                similarity = String.format(Locale.ROOT, "%.4f", value);
+            }
+            String error = h.failure() != null ? h.failure().getMessage()
+                    : c != null && c.failure() != null ? c.failure().getMessage() : "";
+            csv.add(String.join(",", quote(samples.get(i).toString()),
+                    String.valueOf(hm != null), metricColumns(hm),
+                    String.valueOf(cm != null), metricColumns(cm),
+                    similarity, quote(error)));
+        }
+
+        out.println("样本：" + samples.size() + " 个 .doc");
+        out.println(hwpfRun.describe(hwpf.engineName()));
+        if (comRun == null) {
+            out.println("Word/WPS：未检测到，跳过对比");
+        } else {
+            out.println(comRun.describe(com.status().engineName()));
+            out.printf(Locale.ROOT, "吞吐量比（HWPF / COM）：%.1fx%n",
+                    (double) comRun.elapsedMillis() / Math.max(1, hwpfRun.elapsedMillis()));
+            if (compared > 0) {
+                out.printf(Locale.ROOT, "文字一致性（均值，%d 个文件都成功）：%.2f%%%n", compared,
+                        similaritySum / compared * 100);
+            }
+        }
+        if (args.length > 1) {
+            Files.write(Path.of(args[1]), csv, StandardCharsets.UTF_8);
+            out.println("逐文件报告：" + args[1]);
+        } else {
+            csv.forEach(out::println);
+        }
+        out.println("转换输出保留在：" + workDir);
+    }
+
+    private static Run run(DocComConverter converter, List<Path> samples, Path tempDir) throws IOException {
+        long start = System.nanoTime();
+        // 整批提交，由转换器按工作进程拆批
+        List<DocComConverter.FileOutcome> outcomes = converter.convertEach(samples, tempDir);
+        return new Run(outcomes, (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    /**
+     * 两段文字的字符频次重合度（忽略空白）：∑min / max(总数)，1 表示字符构成完全一致。
+     */
+    private static double similarity(String a, String b) {
+        Map<Integer, Integer> left = frequencies(a);
+        Map<Integer, Integer> right = frequencies(b);
+        long leftTotal = left.values().stream().mapToLong(Integer::longValue).sum();
+        long rightTotal = right.values().stream().mapToLong(Integer::longValue).sum();
+        if (leftTotal == 0 && rightTotal == 0) {
+            return 1.0;
+        }
+        long common = 0;
+        for (Map.Entry<Integer, Integer> entry : left.entrySet()) {
+            common += Math.min(entry.getValue(), right.getOrDefault(entry.getKey(), 0));
+        }
+        return (double) common / Math.max(leftTotal, rightTotal);
+    }
+
+    private static Map<Integer, Integer> frequencies(String text) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        text.codePoints().filter(cp -> !Character.isWhitespace(cp)).forEach(cp -> counts.merge(cp, 1, Integer::sum));
+        return counts;
+    }
+
+    private static String metricColumns(Metrics metrics) {
+        if (metrics == null) {
+            return ",,,";
+        }
+        return metrics.text().length() + "," + metrics.paragraphs() + "," + metrics.tables() + "," + metrics.pictures();
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private record Run(List<DocComConverter.FileOutcome> outcomes, long elapsedMillis) {
+        String describe(String engine) {
+            long ok = outcomes.stream().filter(outcome -> outcome.output() != null).count();
+            return String.format(Locale.ROOT, "%s：成功 %d/%d，耗时 %d ms，%.2f 个/秒",
+                    engine, ok, outcomes.size(), elapsedMillis, outcomes.size() * 1000.0 / Math.max(1, elapsedMillis));
+        }
+    }
+
+    private record Metrics(String text, int paragraphs, int tables, int pictures) {
+        static Metrics of(Path docx) throws IOException {
+            try (InputStream in = Files.newInputStream(docx);
+                 XWPFDocument doc = new XWPFDocument(in);
+                 XWPFWordExtractor extractor = new XWPFWordExtractor(doc)) {
+                int paragraphs = doc.getParagraphs().size();
+                for (XWPFTable table : doc.getTables()) {
+                    for (XWPFTableRow row : table.getRows()) {
+                        for (XWPFTableCell cell : row.getTableCells()) {
+                            paragraphs += cell.getParagraphs().size();
+                        }
+                    }
+                }
+                int pictures = 0;
+                for (XWPFParagraph paragraph : doc.getParagraphs()) {
+                    pictures += paragraph.getRuns().stream().mapToInt(run -> run.getEmbeddedPictures().size()).sum();
+                }
+                pictures = Math.max(pictures, doc.getAllPictures().size());
+                return new Metrics(extractor.getText(), paragraphs, doc.getTables().size(), pictures);
+            }
+        }
+    }
+}
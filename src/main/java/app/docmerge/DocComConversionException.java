@@ -7,13 +7,23 @@ public class DocComConversionException extends IOException {
     private final String stdout;
     private final String stderr;
     private final int exitCode;
+    private final boolean workerFault;
 
     public DocComConversionException(String message, String failedInput, String stdout, String stderr, int exitCode) {
+        this(message, failedInput, stdout, stderr, exitCode, false);
+    }
+
+    /**
+     * @param workerFault 故障出在转换进程（崩溃、超时、卡死、无法启动）而不是文档本身，换个进程重试可能成功
+     */
+    public DocComConversionException(String message, String failedInput, String stdout, String stderr, int exitCode,
+                                     boolean workerFault) {
         super(message);
         this.failedInput = failedInput;
         this.stdout = stdout;
         this.stderr = stderr;
         this.exitCode = exitCode;
+        this.workerFault = workerFault;
     }
 
     public String getFailedInput() {
@@ -31,4 +41,8 @@ public class DocComConversionException extends IOException {
     public int getExitCode() {
         return exitCode;
     }
+
+    public boolean isWorkerFault() {
+        return workerFault;
+    }
 }
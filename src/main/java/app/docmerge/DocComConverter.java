@@ -2,6 +2,7 @@ package app.docmerge;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 public interface DocComConverter {
@@ -11,10 +12,76 @@ public interface DocComConverter {
 
     List<Path> convertBatch(List<Path> docFiles, Path tempDir) throws IOException, DocComConversionException;
 
+    /**
+     * 同 {@link #convertBatch}，但按文件分别返回结果：某个文件失败不影响其它文件，成功的输出保留。
+     * 引擎整体不可用等无法按文件区分的错误仍直接抛出。
+     */
+    default List<FileOutcome> convertEach(List<Path> docFiles, Path tempDir) throws IOException {
+        List<FileOutcome> outcomes = new ArrayList<>();
+        for (Path docFile : docFiles) {
+            try {
+                outcomes.add(new FileOutcome(convertBatch(List.of(docFile), tempDir).get(0), null));
+            } catch (DocComConversionException e) {
+                outcomes.add(new FileOutcome(null, e));
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * 可同时进行的转换数，调用方据此决定并发提交多少个文件。
+     */
+    default int parallelism() {
+        return 1;
+    }
+
+    /**
+     * 本身已并发提交的调用方（合并流水线）一次交给 {@link #convertEach} 的相邻 .doc 数上限。
+     * 一起提交能省下逐个请求的开销时大于 1，且不超过该数的列表由同一个转换进程连续转换，不再拆分。
+     */
+    default int batchFiles() {
+        return 1;
+    }
+
+    /**
+     * 转换缓存键中的引擎部分：输出取决于引擎与保存格式时应区分。
+     */
+    default String cacheProfile() {
+        return engineName();
+    }
+
+    /**
+     * PDF 转换结果的缓存键引擎部分；PDF 交给其它引擎导入时与 .doc 的区分。
+     */
+    default String pdfCacheProfile() {
+        return cacheProfile();
+    }
+
+    /**
+     * 指定 PDF 的缓存键引擎部分；按文件选择导入方式的转换器据此区分。
+     */
+    default String pdfCacheProfile(Path pdfFile) {
+        return pdfCacheProfile();
+    }
+
+    /**
+     * 是否能转换 .doc；只导入 PDF 的引擎返回 false。
+     */
+    default boolean supportsDocConversion() {
+        return true;
+    }
+
     default boolean supportsPdfConversion() {
         return false;
     }
 
+    /**
+     * 是否能导入指定的 PDF；按文件选择导入方式时不同 PDF 的结果可能不同。
+     */
+    default boolean supportsPdfConversion(Path pdfFile) {
+        return supportsPdfConversion();
+    }
+
     default Path convertPdfToDocx(Path pdfFile, Path tempDir) throws IOException, DocComConversionException {
         throw new DocComConversionException("当前引擎不支持 PDF 转 DOCX",
                 pdfFile == null ? "" : pdfFile.toString(),
@@ -22,4 +89,18 @@ public interface DocComConverter {
                 "当前引擎不支持 PDF 转 DOCX",
                 -1);
     }
+
+    /**
+     * 同 {@link #convertPdfToDocx(Path, Path)}，支持时通过 listener 报告转换步骤/页数进度。
+     */
+    default Path convertPdfToDocx(Path pdfFile, Path tempDir, PowerShellRunner.ProgressListener listener)
+            throws IOException, DocComConversionException {
+        return convertPdfToDocx(pdfFile, tempDir);
+    }
+
+    /**
+     * 单个文件的转换结果：成功时 output 非空，失败时 failure 非空。
+     */
+    record FileOutcome(Path output, DocComConversionException failure) {
+    }
 }
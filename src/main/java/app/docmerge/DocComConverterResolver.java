@@ -1,12 +1,98 @@
 package app.docmerge;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DocComConverterResolver {
     private final DocComConverterSelector selector;
+    private final PdfClassifier pdfClassifier;
+    private volatile PdfImportMode pdfImportMode = PdfImportMode.COM;
+    private final Map<Path, PdfImportMode> pdfImportOverrides = new ConcurrentHashMap<>();
+    // 最近一次解析时 Word/WPS 能否导入 PDF，自动识别据此在重排与进程内导入之间选择
+    private volatile boolean comPdfAvailable;
 
     public DocComConverterResolver(DocComConverterSelector selector) {
+        this(selector, new PdfClassifier());
+    }
+
+    public DocComConverterResolver(DocComConverterSelector selector, PdfClassifier pdfClassifier) {
         this.selector = selector;
+        this.pdfClassifier = pdfClassifier;
+    }
+
+    public PdfClassifier pdfClassifier() {
+        return pdfClassifier;
+    }
+
+    /**
+     * PDF 的导入方式；非 {@link PdfImportMode#COM} 时 PDF 不再交给 .doc 的转换引擎。
+     */
+    public void setPdfImportMode(PdfImportMode pdfImportMode) {
+        this.pdfImportMode = pdfImportMode == null ? PdfImportMode.COM : pdfImportMode;
+    }
+
+    public PdfImportMode getPdfImportMode() {
+        return pdfImportMode;
+    }
+
+    /**
+     * 单个 PDF 的导入方式，mode 为 null 时恢复使用缺省方式。已解析的转换器随即生效。
+     */
+    public void setPdfImportOverride(Path pdfFile, PdfImportMode mode) {
+        Path key = pdfFile.toAbsolutePath().normalize();
+        if (mode == null) {
+            pdfImportOverrides.remove(key);
+        } else {
+            pdfImportOverrides.put(key, mode);
+        }
+    }
+
+    /**
+     * 单独指定的导入方式，未指定时为 null。
+     */
+    public PdfImportMode getPdfImportOverride(Path pdfFile) {
+        return pdfImportOverrides.get(pdfFile.toAbsolutePath().normalize());
+    }
+
+    public PdfImportMode pdfImportModeFor(Path pdfFile) {
+        PdfImportMode mode = getPdfImportOverride(pdfFile);
+        return mode == null ? pdfImportMode : mode;
+    }
+
+    /**
+     * 该 PDF 实际使用的导入方式：自动识别时读取 PDF 识别类型（结果按内容哈希缓存），无法读取时按图文混合处理。
+     */
+    public PdfImportMode resolvedPdfImportMode(Path pdfFile) {
+        return resolvePdfImportMode(pdfFile, comPdfAvailable);
+    }
+
+    private PdfImportMode resolvePdfImportMode(Path pdfFile, boolean comAvailable) {
+        PdfImportMode mode = pdfImportModeFor(pdfFile);
+        if (mode != PdfImportMode.AUTO) {
+            return mode;
+        }
+        try {
+            return pdfClassifier.classify(pdfFile).kind().route(comAvailable);
+        } catch (IOException e) {
+            return PdfClassifier.Kind.MIXED.route(comAvailable);
+        }
+    }
+
+    /**
+     * 文件列表中显示的自动识别结果，如“扫描件→图片”；未使用自动识别时返回 null。会读取 PDF，不要在 EDT 上调用。
+     */
+    public String describePdfRoute(Path pdfFile) {
+        if (pdfImportModeFor(pdfFile) != PdfImportMode.AUTO) {
+            return null;
+        }
+        try {
+            PdfClassifier.Kind kind = pdfClassifier.classify(pdfFile).kind();
+            return kind.getLabel() + "→" + kind.route(comPdfAvailable).getShortLabel();
+        } catch (IOException e) {
+            return "无法识别→" + PdfClassifier.Kind.MIXED.route(comPdfAvailable).getShortLabel();
+        }
     }
 
     public Resolution resolve(DocConverterMode mode, boolean forceRefresh) {
@@ -18,31 +104,77 @@ public class DocComConverterResolver {
 
         switch (mode) {
             case AUTO -> {
+                // 失败的文件先在原引擎重试，再改用另一个引擎（若可用），不中断整批
                 if (word.available()) {
-                    selection = new DocComConverterSelector.Selection(selector.wordConverter(), word);
+                    selection = new DocComConverterSelector.Selection(
+                            selector.failoverConverter(selector.wordConverter(), selector.wpsConverter()), word);
                 } else if (wps.available()) {
-                    selection = new DocComConverterSelector.Selection(selector.wpsConverter(), wps);
+                    selection = new DocComConverterSelector.Selection(
+                            selector.failoverConverter(selector.wpsConverter(), selector.wordConverter()), wps);
                 } else {
                     errorMessage = "未检测到 Word 或 WPS，当前模式为自动（Word优先）";
                 }
             }
             case WORD_ONLY -> {
                 if (word.available()) {
-                    selection = new DocComConverterSelector.Selection(selector.wordConverter(), word);
+                    selection = new DocComConverterSelector.Selection(
+                            selector.failoverConverter(selector.wordConverter(), null), word);
                 } else {
                     errorMessage = "未检测到 Word，当前模式仅 Word";
                 }
             }
             case WPS_ONLY -> {
                 if (wps.available()) {
-                    selection = new DocComConverterSelector.Selection(selector.wpsConverter(), wps);
+                    selection = new DocComConverterSelector.Selection(
+                            selector.failoverConverter(selector.wpsConverter(), null), wps);
                 } else {
                     errorMessage = "未检测到 WPS，当前模式仅 WPS";
                 }
             }
+            case DUAL -> {
+                if (word.available() && wps.available()) {
+                    DualEngineConverter dual = selector.dualConverter();
+                    selection = new DocComConverterSelector.Selection(dual,
+                            new DocComConverterSelector.EngineStatus("Word+WPS", dual.engineName(), true, "可用",
+                                    "", "", 0));
+                } else if (word.available()) {
+                    selection = new DocComConverterSelector.Selection(selector.wordConverter(), word);
+                } else if (wps.available()) {
+                    selection = new DocComConverterSelector.Selection(selector.wpsConverter(), wps);
+                } else {
+                    errorMessage = "未检测到 Word 或 WPS，当前模式为双引擎并行";
+                }
+            }
+            case HWPF -> {
+                // .doc 在进程内转换；PDF 仍需 Word/WPS，可用时交给它们
+                DocComConverter pdfConverter = null;
+                if (word.available()) {
+                    pdfConverter = selector.failoverConverter(selector.wordConverter(), selector.wpsConverter());
+                } else if (wps.available()) {
+                    pdfConverter = selector.failoverConverter(selector.wpsConverter(), selector.wordConverter());
+                }
+                HwpfDocConverter hwpf = selector.hwpfConverter(pdfConverter);
+                selection = new DocComConverterSelector.Selection(hwpf,
+                        new DocComConverterSelector.EngineStatus("内置", hwpf.engineName(), true, "可用", "", "", 0));
+            }
             default -> errorMessage = "未检测到可用的 DOC 转换引擎";
         }
-        return new Resolution(mode, summary, selection, errorMessage);
+        // PDF 按文件的导入方式路由：进程内导入不依赖 Word/WPS，.doc 引擎不可用时也能合并 PDF
+        boolean comPdf = selection != null && selection.converter().supportsPdfConversion();
+        comPdfAvailable = comPdf;
+        PdfRoutingConverter routing = new PdfRoutingConverter(selection == null ? null : selection.converter(),
+                pdfImportMode, pdfFile -> resolvePdfImportMode(pdfFile, comPdf), selector::pdfImportConverter,
+                selector.pdfChunker());
+        DocComConverterSelector.Selection pdfSelection;
+        if (selection != null) {
+            selection = new DocComConverterSelector.Selection(routing, selection.status());
+            pdfSelection = selection;
+        } else {
+            pdfSelection = new DocComConverterSelector.Selection(routing,
+                    new DocComConverterSelector.EngineStatus("内置", routing.engineName(), true, "可用",
+                            "", "", 0));
+        }
+        return new Resolution(mode, summary, selection, errorMessage, pdfImportMode, pdfSelection);
     }
 
     public DocComConverterSelector.Selection requireSelection(DocConverterMode mode, boolean forceRefresh) throws IOException {
@@ -53,12 +185,29 @@ public class DocComConverterResolver {
         return resolution.selection();
     }
 
+    /**
+     * @param selection    .doc 的转换引擎（已包含按文件的 PDF 路由），null 表示无法转换 .doc
+     * @param pdfSelection 导入 PDF 的选择，总是非 null；具体某个 PDF 能否导入用
+     *                     {@link DocComConverter#supportsPdfConversion(Path)} 判断
+     */
     public record Resolution(DocConverterMode mode,
                              DocComConverterSelector.ProbeSummary probeSummary,
                              DocComConverterSelector.Selection selection,
-                             String errorMessage) {
+                             String errorMessage,
+                             PdfImportMode pdfImportMode,
+                             DocComConverterSelector.Selection pdfSelection) {
         public String modeLabel() {
             return mode.getLabel();
         }
+
+        /**
+         * 转换这一批文件所用的选择：含 .doc 时需要 .doc 引擎，只有 PDF 时用 PDF 的选择。
+         */
+        public DocComConverterSelector.Selection selectionFor(boolean hasDoc, boolean hasPdf) {
+            if (!hasDoc) {
+                return hasPdf ? pdfSelection : selection;
+            }
+            return selection;
+        }
     }
 }
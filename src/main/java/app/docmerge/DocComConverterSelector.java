@@ -1,42 +1,185 @@
 package app.docmerge;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 public class DocComConverterSelector {
+    private static final ExecutorService PROBE_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "com-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final PowerShellRunner runner;
     private final MsWordComConverter wordConverter;
     private final WpsComConverter wpsConverter;
-    private ProbeSummary cachedSummary;
-    private long lastProbeMillis;
-    private static final long CACHE_TTL_MILLIS = 60_000L;
+    private final DualEngineConverter dualConverter;
+    private final ProbeCacheStore probeCache;
+    private final QuarantineStore quarantine;
+    private volatile PdfRasterConverter rasterConverter;
+    private volatile PdfTextConverter textConverter;
+    private volatile PdfChunker pdfChunker =
+            new PdfChunker(PdfChunker.DEFAULT_THRESHOLD_PAGES, PdfChunker.DEFAULT_CHUNK_PAGES);
+    private volatile boolean initialized;
+    private volatile UiLogger logger;
 
     public DocComConverterSelector() {
-        PowerShellRunner runner = new PowerShellRunner();
+        this(new ProbeCacheStore());
+    }
+
+    /**
+     * 构造时不启动任何进程；PowerShell 解析与 COM 探测在首次 {@link #probeAll} 时进行。
+     */
+    public DocComConverterSelector(ProbeCacheStore probeCache) {
+        this(probeCache, new QuarantineStore());
+    }
+
+    /**
+     * @param quarantine 两个引擎共用的毒文件隔离索引，可为 null（不隔离）
+     */
+    public DocComConverterSelector(ProbeCacheStore probeCache, QuarantineStore quarantine) {
+        this.runner = new PowerShellRunner();
         this.wordConverter = new MsWordComConverter(runner);
         this.wpsConverter = new WpsComConverter(runner);
+        this.dualConverter = new DualEngineConverter(wordConverter, wpsConverter);
+        this.probeCache = probeCache;
+        this.quarantine = quarantine;
+        wordConverter.setQuarantine(quarantine);
+        wpsConverter.setQuarantine(quarantine);
     }
 
     public ProbeSummary probeAll() {
         return probeAll(false);
     }
 
-    public synchronized ProbeSummary probeAll(boolean forceRefresh) {
-        if (!forceRefresh && cachedSummary != null && !isExpired()) {
-            return cachedSummary;
+    /**
+     * 探测 Word/WPS；未强制刷新时优先使用内存结果，其次使用仍有效的持久化结果，再次是注册表查询。
+     * 强制刷新会实际启动 COM 实例，可能耗时数秒，不要在 EDT 调用。
+     */
+    public ProbeSummary probeAll(boolean forceRefresh) {
+        // 无需探测时不进入同步块：强制刷新进行中也能立即返回当前状态
+        ProbeSummary current = peekSummary();
+        if (!forceRefresh && current != null) {
+            return current;
+        }
+        return probe(forceRefresh);
+    }
+
+    private synchronized ProbeSummary probe(boolean forceRefresh) {
+        if (!forceRefresh && !initialized) {
+            ProbeCacheStore.Snapshot snapshot = probeCache.load();
+            if (snapshot != null) {
+                restore(snapshot);
+            }
+        }
+        initialized = true;
+        boolean probeWord = forceRefresh || wordConverter.health().needsProbe();
+        boolean probeWps = forceRefresh || wpsConverter.health().needsProbe();
+        if (probeWord || probeWps) {
+            // 两个引擎各自启动 Office 实例，并行探测
+            CompletableFuture<DocComProbeResult> wps = probeWps
+                    ? CompletableFuture.supplyAsync(() -> wpsConverter.probe(forceRefresh), DocComConverterSelector::startProbeThread)
+                    : null;
+            if (probeWord) {
+                wordConverter.probe(forceRefresh);
+            }
+            if (wps != null) {
+                wps.join();
+            }
+            probeCache.save(new ProbeCacheStore.Snapshot(ProbeCacheStore.environmentKey(), System.currentTimeMillis(),
+                    runner.getExecutable().orElse(null), wordConverter.getLastProbe(), wpsConverter.getLastProbe()));
         }
-        EngineStatus word = probeWord();
-        EngineStatus wps = probeWps();
-        Selection selection = selectAvailable(word, wps);
-        cachedSummary = new ProbeSummary(word, wps, selection);
-        lastProbeMillis = System.currentTimeMillis();
-        return cachedSummary;
+        return currentSummary();
+    }
+
+    /**
+     * 在后台线程执行 {@link #probeAll(boolean)}。
+     */
+    public CompletableFuture<ProbeSummary> probeAllAsync(boolean forceRefresh) {
+        return CompletableFuture.supplyAsync(() -> probeAll(forceRefresh), PROBE_EXECUTOR);
+    }
+
+    /**
+     * 无需重新探测时返回当前状态，否则返回 null；不会触发探测，可在 EDT 调用。
+     */
+    public ProbeSummary peekSummary() {
+        if (!initialized || wordConverter.health().needsProbe() || wpsConverter.health().needsProbe()) {
+            return null;
+        }
+        return currentSummary();
+    }
+
+    private void restore(ProbeCacheStore.Snapshot snapshot) {
+        if (snapshot.powerShell() != null) {
+            runner.useExecutable(snapshot.powerShell());
+        }
+        wordConverter.restoreProbe(snapshot.word(), snapshot.probedAtMillis());
+        wpsConverter.restoreProbe(snapshot.wps(), snapshot.probedAtMillis());
+    }
+
+    /**
+     * 由最近探测结果与运行时健康状态组成：熔断中的引擎视为不可用，自动模式据此改用另一个引擎。
+     */
+    private ProbeSummary currentSummary() {
+        EngineStatus word = toStatus("Word", wordConverter);
+        EngineStatus wps = toStatus("WPS", wpsConverter);
+        return new ProbeSummary(word, wps, selectAvailable(word, wps));
     }
 
     public EngineStatus probeWord() {
-        DocComProbeResult result = wordConverter.probe();
-        return new EngineStatus("Word", wordConverter.engineName(), result.available(), result.message(), result.stdout(), result.stderr(), result.exitCode());
+        wordConverter.probe();
+        return toStatus("Word", wordConverter);
     }
 
     public EngineStatus probeWps() {
-        DocComProbeResult result = wpsConverter.probe();
-        return new EngineStatus("WPS", wpsConverter.engineName(), result.available(), result.message(), result.stdout(), result.stderr(), result.exitCode());
+        wpsConverter.probe();
+        return toStatus("WPS", wpsConverter);
+    }
+
+    private static EngineStatus toStatus(String label, AbstractDocComConverter converter) {
+        DocComProbeResult result = converter.health().lastProbe();
+        if (result == null) {
+            result = DocComProbeResult.unavailable(converter.engineName(), "未检测");
+        }
+        EngineHealth health = converter.health();
+        if (result.available() && !health.isUsable()) {
+            return new EngineStatus(label, converter.engineName(), false, "连续转换故障，已暂停使用（熔断中）",
+                    result.stdout(), result.stderr(), result.exitCode());
+        }
+        return new EngineStatus(label, converter.engineName(), result.available(), result.message(), result.stdout(), result.stderr(), result.exitCode());
+    }
+
+    private static void startProbeThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "com-probe-wps");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 设置每个引擎的工作进程池大小；null 或非正数使用缺省值。
+     */
+    public void setPoolSize(Integer poolSize) {
+        int size = poolSize == null || poolSize <= 0 ? ComWorkerPool.DEFAULT_SIZE : poolSize;
+        wordConverter.setPoolSize(size);
+        wpsConverter.setPoolSize(size);
+    }
+
+    public void setLogger(UiLogger logger) {
+        this.logger = logger;
+        wordConverter.setLogger(logger);
+        wpsConverter.setLogger(logger);
+        PdfChunker chunker = pdfChunker;
+        if (chunker != null) {
+            chunker.setLogger(logger);
+        }
+    }
+
+    /**
+     * 毒文件隔离索引，界面据此在合并前标记文件；未启用时为 null。
+     */
+    public QuarantineStore quarantine() {
+        return quarantine;
     }
 
     public MsWordComConverter wordConverter() {
@@ -47,6 +190,100 @@ public class DocComConverterSelector {
         return wpsConverter;
     }
 
+    /**
+     * 双引擎转换器在多次合并之间复用，保留各引擎的实测耗时。
+     */
+    public DualEngineConverter dualConverter() {
+        return dualConverter;
+    }
+
+    /**
+     * 单引擎模式使用的按文件容错转换器：失败文件在 primary 上重试，仍失败时改用 secondary（可为 null）。
+     */
+    public FailoverConverter failoverConverter(DocComConverter primary, DocComConverter secondary) {
+        return new FailoverConverter(primary, secondary, logger);
+    }
+
+    /**
+     * 进程内的 POI HWPF 转换器，不需要探测；PDF 交给 pdfConverter（可为 null，表示不支持 PDF）。
+     */
+    public HwpfDocConverter hwpfConverter(DocComConverter pdfConverter) {
+        return new HwpfDocConverter(pdfConverter);
+    }
+
+    /**
+     * 设置 PDF 渲染为图片时的 DPI、渲染线程数与单个 PDF 在途页面上限；null 或非正数使用缺省值。
+     * 线程数同时用于文字提取。正在进行的导入不受影响，下一次导入开始使用新设置。
+     */
+    public synchronized void setPdfRasterSettings(Integer dpi, Integer threads, Integer maxPagesInFlight) {
+        rasterConverter = new PdfRasterConverter(
+                dpi == null || dpi <= 0 ? PdfRasterConverter.DEFAULT_DPI : dpi,
+                threads == null ? 0 : threads,
+                maxPagesInFlight == null ? 0 : maxPagesInFlight);
+        textConverter = new PdfTextConverter(threads == null ? 0 : threads);
+    }
+
+    public PdfRasterConverter rasterConverter() {
+        PdfRasterConverter converter = rasterConverter;
+        if (converter == null) {
+            synchronized (this) {
+                if (rasterConverter == null) {
+                    rasterConverter = new PdfRasterConverter(PdfRasterConverter.DEFAULT_DPI, 0, 0);
+                }
+                converter = rasterConverter;
+            }
+        }
+        return converter;
+    }
+
+    /**
+     * 设置大 PDF 分段转换：超过 thresholdPages 页的 PDF 按 chunkPages 页一段拆分；
+     * thresholdPages 为 0 或负数时不拆分，null 使用缺省值。
+     */
+    public synchronized void setPdfChunkSettings(Integer thresholdPages, Integer chunkPages) {
+        int threshold = thresholdPages == null ? PdfChunker.DEFAULT_THRESHOLD_PAGES : thresholdPages;
+        if (threshold <= 0) {
+            pdfChunker = null;
+            return;
+        }
+        PdfChunker chunker = new PdfChunker(threshold,
+                chunkPages == null || chunkPages <= 0 ? PdfChunker.DEFAULT_CHUNK_PAGES : chunkPages);
+        chunker.setLogger(logger);
+        pdfChunker = chunker;
+    }
+
+    /**
+     * Word/WPS 导入大 PDF 时使用的分段转换，未启用时为 null。
+     */
+    public PdfChunker pdfChunker() {
+        return pdfChunker;
+    }
+
+    public PdfTextConverter textConverter() {
+        PdfTextConverter converter = textConverter;
+        if (converter == null) {
+            synchronized (this) {
+                if (textConverter == null) {
+                    textConverter = new PdfTextConverter(0);
+                }
+                converter = textConverter;
+            }
+        }
+        return converter;
+    }
+
+    /**
+     * 进程内的 PDF 导入引擎；{@link PdfImportMode#COM} 返回 null（PDF 交给 Word/WPS），
+     * {@link PdfImportMode#AUTO} 需先按文件识别为具体方式，这里同样返回 null。
+     */
+    public DocComConverter pdfImportConverter(PdfImportMode mode) {
+        return switch (mode) {
+            case AUTO, COM -> null;
+            case RASTER -> rasterConverter();
+            case TEXT -> textConverter();
+        };
+    }
+
     private Selection selectAvailable(EngineStatus word, EngineStatus wps) {
         if (word.available()) {
             return new Selection(wordConverter, word);
@@ -83,11 +320,4 @@ public class DocComConverterSelector {
             return selection.status().engineName();
         }
     }
-
-    private boolean isExpired() {
-        if (lastProbeMillis <= 0) {
-            return true;
-        }
-        return System.currentTimeMillis() - lastProbeMillis > CACHE_TTL_MILLIS;
-    }
 }
@@ -1,12 +1,29 @@
 package app.docmerge;
 
+/**
+ * @param method 得出结论的方式；从旧版探测缓存读取时可能为 null（按 COM 处理）
+ */
 public record DocComProbeResult(String engineName,
                                 boolean available,
                                 String message,
                                 String stdout,
                                 String stderr,
-                                int exitCode) {
+                                int exitCode,
+                                Method method) {
+    public DocComProbeResult(String engineName, boolean available, String message, String stdout, String stderr, int exitCode) {
+        this(engineName, available, message, stdout, stderr, exitCode, Method.COM);
+    }
+
     public static DocComProbeResult unavailable(String engineName, String message) {
-        return new DocComProbeResult(engineName, false, message, "", message, -1);
+        return new DocComProbeResult(engineName, false, message, "", message, -1, Method.NONE);
+    }
+
+    public enum Method {
+        // 环境前置条件不满足，未探测
+        NONE,
+        // 仅查询注册表
+        REGISTRY,
+        // 实际创建 COM 实例
+        COM
     }
 }
@@ -3,7 +3,9 @@ package app.docmerge;
 public enum DocConverterMode {
     AUTO("自动（Word优先）"),
     WORD_ONLY("仅 Word"),
-    WPS_ONLY("仅 WPS");
+    WPS_ONLY("仅 WPS"),
+    DUAL("双引擎并行（Word + WPS）"),
+    HWPF("内置转换（POI，无需 Office）");
 
     private final String label;
 
@@ -20,6 +22,13 @@ public enum DocConverterMode {
         return label;
     }
 
+    /**
+     * 是否需要 Word/WPS 才能转换 .doc；内置转换只在 PDF 时使用可用的 Word/WPS。
+     */
+    public boolean requiresCom() {
+        return this != HWPF;
+    }
+
     public static DocConverterMode fromConfig(String value) {
         if (value == null || value.isBlank()) {
             return AUTO;
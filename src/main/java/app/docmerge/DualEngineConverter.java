@@ -0,0 +1,204 @@
+package app.docmerge;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 双引擎并行：Word 与 WPS 同时转换，每个文件分配给预计完成最早的引擎
+ * （按各引擎实测的单文档耗时、在途数量与并发数估算）；某个引擎失败的文件自动改由另一个引擎重试。
+ */
+public class DualEngineConverter implements DocComConverter {
+    // 单文档耗时的指数滑动平均权重
+    private static final double LATENCY_SMOOTHING = 0.3;
+
+    private final List<Lane> lanes;
+
+    public DualEngineConverter(DocComConverter word, DocComConverter wps) {
+        this.lanes = List.of(new Lane(word), new Lane(wps));
+    }
+
+    @Override
+    public String engineName() {
+        return lanes.get(0).converter.engineName() + " + " + lanes.get(1).converter.engineName();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return lanes.stream().anyMatch(lane -> lane.converter.isAvailable());
+    }
+
+    @Override
+    public int parallelism() {
+        return lanes.stream().mapToInt(lane -> lane.converter.parallelism()).sum();
+    }
+
+    @Override
+    public String cacheProfile() {
+        return "dual|" + lanes.get(0).converter.cacheProfile() + "|" + lanes.get(1).converter.cacheProfile();
+    }
+
+    @Override
+    public boolean supportsPdfConversion() {
+        return lanes.stream().anyMatch(lane -> lane.converter.supportsPdfConversion());
+    }
+
+    @Override
+    public List<Path> convertBatch(List<Path> docFiles, Path tempDir) throws IOException, DocComConversionException {
+        if (docFiles == null || docFiles.isEmpty()) {
+            return List.of();
+        }
+        if (docFiles.size() == 1) {
+            return List.of(convert(docFiles.get(0), tempDir, false, null));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism(), docFiles.size()), runnable -> {
+            Thread thread = new Thread(runnable, "com-dual-convert");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Path>> futures = new ArrayList<>();
+            for (Path input : docFiles) {
+                futures.add(executor.submit(() -> convert(input, tempDir, false, null)));
+            }
+            // 按输入顺序收集结果
+            List<Path> outputs = new ArrayList<>();
+            for (Future<Path> future : futures) {
+                outputs.add(await(future));
+            }
+            return outputs;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public Path convertPdfToDocx(Path pdfFile, Path tempDir) throws IOException, DocComConversionException {
+        return convert(pdfFile, tempDir, true, null);
+    }
+
+    @Override
+    public Path convertPdfToDocx(Path pdfFile, Path tempDir, PowerShellRunner.ProgressListener listener)
+            throws IOException, DocComConversionException {
+        return convert(pdfFile, tempDir, true, listener);
+    }
+
+    /**
+     * 各引擎当前的平均单文档耗时，用于日志。
+     */
+    public String latencySummary() {
+        StringBuilder builder = new StringBuilder();
+        for (Lane lane : lanes) {
+            if (!builder.isEmpty()) {
+                builder.append("，");
+            }
+            builder.append(lane.converter.engineName()).append("：");
+            synchronized (this) {
+                builder.append(lane.latencyMillis < 0 ? "未测量" : Math.round(lane.latencyMillis) + " ms/文档")
+                        .append("（已完成 ").append(lane.completed).append("）");
+            }
+        }
+        return builder.toString();
+    }
+
+    private Path convert(Path input, Path tempDir, boolean pdf, PowerShellRunner.ProgressListener listener)
+            throws IOException {
+        List<Lane> attempted = new ArrayList<>();
+        IOException firstFailure = null;
+        while (true) {
+            Lane lane = pickLane(attempted, pdf);
+            if (lane == null) {
+                if (firstFailure == null) {
+                    throw new DocComConversionException("没有可用于该文件的转换引擎",
+                            input.toString(), "", "", -1);
+                }
+                throw firstFailure;
+            }
+            attempted.add(lane);
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                Path output = pdf
+                        ? lane.converter.convertPdfToDocx(input, tempDir, listener)
+                        : lane.converter.convertBatch(List.of(input), tempDir).get(0);
+                success = true;
+                return output;
+            } catch (IOException e) {
+                if (firstFailure == null) {
+                    firstFailure = e;
+                } else {
+                    firstFailure.addSuppressed(e);
+                }
+            } finally {
+                finish(lane, System.nanoTime() - start, success);
+            }
+        }
+    }
+
+    /**
+     * 选出预计完成时间最早的引擎：(在途数 + 1) × 平均耗时 ÷ 并发数。未测量过的引擎按已测量引擎的平均值估算。
+     */
+    private synchronized Lane pickLane(List<Lane> excluded, boolean pdf) {
+        double known = lanes.stream()
+                .filter(lane -> lane.latencyMillis >= 0)
+                .mapToDouble(lane -> lane.latencyMillis)
+                .average()
+                .orElse(1.0);
+        Lane chosen = lanes.stream()
+                .filter(lane -> !excluded.contains(lane))
+                .filter(lane -> !pdf || lane.converter.supportsPdfConversion())
+                .min(Comparator.comparingDouble(lane -> {
+                    double latency = lane.latencyMillis >= 0 ? lane.latencyMillis : known;
+                    return (lane.inFlight + 1) * latency / Math.max(1, lane.converter.parallelism());
+                }))
+                .orElse(null);
+        if (chosen != null) {
+            chosen.inFlight++;
+        }
+        return chosen;
+    }
+
+    private synchronized void finish(Lane lane, long elapsedNanos, boolean success) {
+        lane.inFlight--;
+        if (!success) {
+            return;
+        }
+        double millis = elapsedNanos / 1_000_000.0;
+        lane.latencyMillis = lane.latencyMillis < 0
+                ? millis
+                : lane.latencyMillis + LATENCY_SMOOTHING * (millis - lane.latencyMillis);
+        lane.completed++;
+    }
+
+    private Path await(Future<Path> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("转换被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("转换失败：" + cause.getMessage(), cause);
+        }
+    }
+
+    private static class Lane {
+        private final DocComConverter converter;
+        private int inFlight;
+        private double latencyMillis = -1;
+        private int completed;
+
+        private Lane(DocComConverter converter) {
+            this.converter = converter;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package app.docmerge;
+
+/**
+ * 单个转换引擎的健康状态，转换前据此判断是否可用，而不是每次重新探测（每次探测都要启动一个 Office 实例）。
+ * <p>
+ * UNKNOWN（未探测）→ 探测成功或转换成功为 HEALTHY → 出现工作进程故障（崩溃、超时、启动失败）为 DEGRADED →
+ * 连续 {@link #FAILURE_THRESHOLD} 次故障熔断为 DOWN；冷却 {@link #COOLDOWN_MILLIS} 后下一次使用先重新探测（半开），
+ * 成功则恢复 HEALTHY，失败则继续熔断。探测失败（未安装或 COM 不可用）同样为 DOWN，直到 TTL 过期或手动重新检测。
+ */
+public class EngineHealth {
+    public static final int FAILURE_THRESHOLD = 3;
+    public static final long COOLDOWN_MILLIS = 60_000L;
+
+    private final long ttlMillis;
+    private State state = State.UNKNOWN;
+    private DocComProbeResult lastProbe;
+    // 最近一次确认引擎状态（探测或转换成功）的时间
+    private long confirmedAtMillis;
+    private int consecutiveFailures;
+    private long circuitOpenedAtMillis = -1;
+    private int probeCount;
+
+    public EngineHealth(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    public synchronized void recordProbe(DocComProbeResult probe, long probedAtMillis, boolean launched) {
+        lastProbe = probe;
+        confirmedAtMillis = probedAtMillis;
+        if (launched) {
+            probeCount++;
+        }
+        if (probe.available()) {
+            state = State.HEALTHY;
+            consecutiveFailures = 0;
+            circuitOpenedAtMillis = -1;
+            return;
+        }
+        state = State.DOWN;
+        if (circuitOpenedAtMillis >= 0) {
+            // 半开探测失败：重新计时冷却
+            circuitOpenedAtMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 工作进程完成了一次请求（包括文档本身无法转换的情况）。
+     */
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        confirmedAtMillis = System.currentTimeMillis();
+        if (state == State.DEGRADED || state == State.UNKNOWN) {
+            state = State.HEALTHY;
+        }
+    }
+
+    /**
+     * 工作进程故障：崩溃、超时或无法启动。
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.DOWN) {
+            return;
+        }
+        if (consecutiveFailures >= FAILURE_THRESHOLD) {
+            state = State.DOWN;
+            circuitOpenedAtMillis = System.currentTimeMillis();
+        } else {
+            state = State.DEGRADED;
+        }
+    }
+
+    /**
+     * 是否需要（重新）探测：从未探测、熔断冷却结束或结果超过 TTL。
+     */
+    public synchronized boolean needsProbe() {
+        long now = System.currentTimeMillis();
+        return state == State.UNKNOWN
+                || (circuitOpenedAtMillis >= 0 && now - circuitOpenedAtMillis >= COOLDOWN_MILLIS)
+                || now - confirmedAtMillis > ttlMillis;
+    }
+
+    /**
+     * 当前可否提交转换：最近探测成功且未熔断。
+     */
+    public synchronized boolean isUsable() {
+        return lastProbe != null && lastProbe.available() && state != State.DOWN;
+    }
+
+    public synchronized boolean isCircuitOpen() {
+        return circuitOpenedAtMillis >= 0;
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized DocComProbeResult lastProbe() {
+        return lastProbe;
+    }
+
+    /**
+     * 实际启动探测脚本的次数（不含从缓存恢复）。
+     */
+    public synchronized int getProbeCount() {
+        return probeCount;
+    }
+
+    public enum State {
+        UNKNOWN("未检测"),
+        HEALTHY("正常"),
+        DEGRADED("降级"),
+        DOWN("不可用");
+
+        private final String label;
+
+        State(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package app.docmerge;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单引擎转换的按文件容错：失败的文件单独重试，不中断整批，已成功的输出保留。
+ * <p>
+ * 转换进程故障（崩溃、超时、卡死）在同一引擎上按退避间隔重试；文档本身转换失败或重试仍失败时，
+ * 改由备用引擎（Word ↔ WPS，若可用）转换。失败成本只与失败文件数有关。
+ */
+public class FailoverConverter implements DocComConverter {
+    private static final int SAME_ENGINE_RETRIES = 1;
+    private static final long BACKOFF_MILLIS = 2000L;
+
+    private final DocComConverter primary;
+    private final DocComConverter secondary;
+    private final UiLogger logger;
+
+    /**
+     * @param secondary 备用引擎，null 表示只在主引擎上重试
+     * @param logger    重试与切换引擎的日志，可为 null
+     */
+    public FailoverConverter(DocComConverter primary, DocComConverter secondary, UiLogger logger) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.logger = logger;
+    }
+
+    public DocComConverter primary() {
+        return primary;
+    }
+
+    @Override
+    public String engineName() {
+        return primary.engineName();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return primary.isAvailable() || (secondary != null && secondary.isAvailable());
+    }
+
+    @Override
+    public int parallelism() {
+        return primary.parallelism();
+    }
+
+    @Override
+    public int batchFiles() {
+        return primary.batchFiles();
+    }
+
+    @Override
+    public String cacheProfile() {
+        // 输出可能来自备用引擎，与单独使用主引擎的缓存条目区分
+        return secondary == null ? primary.cacheProfile() : "failover|" + primary.cacheProfile() + "|" + secondary.cacheProfile();
+    }
+
+    @Override
+    public boolean supportsPdfConversion() {
+        return primary.supportsPdfConversion() || (secondary != null && secondary.supportsPdfConversion());
+    }
+
+    @Override
+    public List<Path> convertBatch(List<Path> docFiles, Path tempDir) throws IOException, DocComConversionException {
+        List<Path> outputs = new ArrayList<>();
+        for (FileOutcome outcome : convertEach(docFiles, tempDir)) {
+            if (outcome.failure() != null) {
+                throw outcome.failure();
+            }
+            outputs.add(outcome.output());
+        }
+        return outputs;
+    }
+
+    @Override
+    public List<FileOutcome> convertEach(List<Path> docFiles, Path tempDir) throws IOException {
+        if (docFiles == null || docFiles.isEmpty()) {
+            return List.of();
+        }
+        List<FileOutcome> outcomes = new ArrayList<>(runEach(primary, docFiles, tempDir));
+        for (int attempt = 1; attempt <= SAME_ENGINE_RETRIES; attempt++) {
+            List<Integer> retry = failedIndexes(outcomes, true);
+            if (retry.isEmpty()) {
+                break;
+            }
+            log(primary.engineName() + " 转换进程故障，" + retry.size() + " 个文件 " + backoffMillis(attempt) / 1000
+                    + " 秒后重试（第 " + attempt + " 次）");
+            backoff(attempt);
+            merge(outcomes, retry, runEach(primary, select(docFiles, retry), tempDir));
+        }
+        List<Integer> failover = failedIndexes(outcomes, false);
+        if (!failover.isEmpty() && secondary != null && secondary.isAvailable()) {
+            log(primary.engineName() + " 转换失败的 " + failover.size() + " 个文件改用 " + secondary.engineName() + " 转换");
+            List<FileOutcome> retried = runEach(secondary, select(docFiles, failover), tempDir);
+            for (int i = 0; i < failover.size(); i++) {
+                FileOutcome previous = outcomes.get(failover.get(i));
+                FileOutcome current = retried.get(i);
+                if (current.failure() != null) {
+                    // 保留主引擎的失败原因，备用引擎的附加在后
+                    suppress(previous.failure(), current.failure());
+                    continue;
+                }
+                log(docFiles.get(failover.get(i)).getFileName() + " 已由 " + secondary.engineName() + " 转换成功");
+                outcomes.set(failover.get(i), current);
+            }
+        }
+        return outcomes;
+    }
+
+    @Override
+    public Path convertPdfToDocx(Path pdfFile, Path tempDir) throws IOException, DocComConversionException {
+        return convertPdfToDocx(pdfFile, tempDir, null);
+    }
+
+    @Override
+    public Path convertPdfToDocx(Path pdfFile, Path tempDir, PowerShellRunner.ProgressListener listener)
+            throws IOException, DocComConversionException {
+        DocComConversionException firstFailure = null;
+        if (primary.supportsPdfConversion()) {
+            for (int attempt = 0; attempt <= SAME_ENGINE_RETRIES; attempt++) {
+                if (attempt > 0) {
+                    log(primary.engineName() + " 转换进程故障，" + backoffMillis(attempt) / 1000 + " 秒后重试："
+                            + pdfFile.getFileName());
+                    backoff(attempt);
+                }
+                try {
+                    return primary.convertPdfToDocx(pdfFile, tempDir, listener);
+                } catch (DocComConversionException e) {
+                    if (firstFailure == null) {
+                        firstFailure = e;
+                    } else {
+                        suppress(firstFailure, e);
+                    }
+                    if (!e.isWorkerFault()) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (secondary != null && secondary.supportsPdfConversion() && secondary.isAvailable()) {
+            log(pdfFile.getFileName() + " 改用 " + secondary.engineName() + " 转换");
+            try {
+                return secondary.convertPdfToDocx(pdfFile, tempDir, listener);
+            } catch (DocComConversionException e) {
+                if (firstFailure == null) {
+                    throw e;
+                }
+                suppress(firstFailure, e);
+            }
+        }
+        if (firstFailure == null) {
+            throw new DocComConversionException("当前引擎不支持 PDF 转 DOCX",
+                    pdfFile.toString(), "", "当前引擎不支持 PDF 转 DOCX", -1);
+        }
+        throw firstFailure;
+    }
+
+    /**
+     * 引擎整体不可用（未安装、熔断）时抛出的异常无法按文件区分，视为所有文件都失败。
+     */
+    private static List<FileOutcome> runEach(DocComConverter converter, List<Path> docFiles, Path tempDir)
+            throws IOException {
+        try {
+            return converter.convertEach(docFiles, tempDir);
+        } catch (DocComConversionException e) {
+            List<FileOutcome> outcomes = new ArrayList<>();
+            for (int i = 0; i < docFiles.size(); i++) {
+                outcomes.add(new FileOutcome(null, e));
+            }
+            return outcomes;
+        }
+    }
+
+    /**
+     * @param workerFaultOnly true 时只返回转换进程故障的文件（值得在同一引擎重试）
+     */
+    private static List<Integer> failedIndexes(List<FileOutcome> outcomes, boolean workerFaultOnly) {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < outcomes.size(); i++) {
+            DocComConversionException failure = outcomes.get(i).failure();
+            if (failure != null && (!workerFaultOnly || failure.isWorkerFault())) {
+                indexes.add(i);
+            }
+        }
+        return indexes;
+    }
+
+    private static List<Path> select(List<Path> docFiles, List<Integer> indexes) {
+        List<Path> selected = new ArrayList<>();
+        for (int index : indexes) {
+            selected.add(docFiles.get(index));
+        }
+        return selected;
+    }
+
+    private static void merge(List<FileOutcome> outcomes, List<Integer> indexes, List<FileOutcome> retried) {
+        for (int i = 0; i < indexes.size(); i++) {
+            FileOutcome previous = outcomes.get(indexes.get(i));
+            FileOutcome current = retried.get(i);
+            if (current.failure() == null) {
+                outcomes.set(indexes.get(i), current);
+            } else {
+                suppress(previous.failure(), current.failure());
+            }
+        }
+    }
+
+    /**
+     * 同一个引擎级异常可能对应多个文件，避免重复或自我附加。
+     */
+    private static void suppress(Throwable target, Throwable extra) {
+        if (target == extra || List.of(target.getSuppressed()).contains(extra)) {
+            return;
+        }
+        target.addSuppressed(extra);
+    }
+
+    private static long backoffMillis(int attempt) {
+        return BACKOFF_MILLIS << (attempt - 1);
+    }
+
+    private static void backoff(int attempt) throws IOException {
+        try {
+            Thread.sleep(backoffMillis(attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("转换被中断", e);
+        }
+    }
+
+    private void log(String message) {
+        if (logger != null) {
+            logger.warn(message);
+        }
+    }
+}
@@ -48,6 +48,9 @@ public class FileItem {
     private final String sourceDir;
     private boolean checked;
     private Status status;
+    private String quarantineNote;
+    private PdfImportMode pdfImportMode;
+    private String pdfRoute;
 
     public FileItem(Path path,
                     String name,
@@ -111,6 +114,39 @@ public class FileItem {
         this.status = status;
     }
 
+    /**
+     * 隔离索引中的标记（如“已隔离：Microsoft Word 卡死/崩溃 2 次”），未隔离时为 null。
+     */
+    public String getQuarantineNote() {
+        return quarantineNote;
+    }
+
+    public void setQuarantineNote(String quarantineNote) {
+        this.quarantineNote = quarantineNote;
+    }
+
+    /**
+     * 单独为该 PDF 指定的导入方式，null 表示使用界面上的缺省方式。
+     */
+    public PdfImportMode getPdfImportMode() {
+        return pdfImportMode;
+    }
+
+    public void setPdfImportMode(PdfImportMode pdfImportMode) {
+        this.pdfImportMode = pdfImportMode;
+    }
+
+    /**
+     * 自动识别的类型与选用的导入方式（如“扫描件→图片”），未使用自动识别或尚未识别时为 null。
+     */
+    public String getPdfRoute() {
+        return pdfRoute;
+    }
+
+    public void setPdfRoute(String pdfRoute) {
+        this.pdfRoute = pdfRoute;
+    }
+
     public boolean isMissing() {
         return status == Status.MISSING;
     }
@@ -56,11 +56,12 @@ public class FileTableModel extends AbstractTableModel {
             case 1 -> rowIndex + 1;
             case 2 -> item.getName();
             case 3 -> item.getExtension();
-            case 4 -> item.getFileType().getLabel();
+            case 4 -> formatType(item);
             case 5 -> formatSize(item.getSize(), item.isMissing());
             case 6 -> formatTime(item);
             case 7 -> item.getSourceDir();
-            case 8 -> item.isMissing() ? "文件不存在" : "正常";
+            case 8 -> item.isMissing() ? "文件不存在"
+                    : item.getQuarantineNote() != null ? item.getQuarantineNote() : "正常";
             default -> "";
         };
     }
@@ -76,6 +77,20 @@ public class FileTableModel extends AbstractTableModel {
         }
     }
 
+    /**
+     * PDF 附注导入方式：自动识别的结果优先，其次是单独指定的方式，例如“PDF（扫描件→图片）”。
+     */
+    private String formatType(FileItem item) {
+        String label = item.getFileType().getLabel();
+        if (item.getPdfRoute() != null) {
+            return label + "（" + item.getPdfRoute() + "）";
+        }
+        if (item.getPdfImportMode() != null) {
+            return label + "（" + item.getPdfImportMode().getShortLabel() + "）";
+        }
+        return label;
+    }
+
     public void setItems(List<FileItem> items) {
         this.items = items;
         fireTableDataChanged();
@@ -102,6 +117,15 @@ public class FileTableModel extends AbstractTableModel {
         fireTableDataChanged();
     }
 
+    /**
+     * 行数不变、只有状态等显示内容变化时刷新，保留当前选择。
+     */
+    public void refreshRows() {
+        if (!items.isEmpty()) {
+            fireTableRowsUpdated(0, items.size() - 1);
+        }
+    }
+
     public void clear() {
         items.clear();
         fireTableDataChanged();
@@ -0,0 +1,622 @@
+package app.docmerge;
+
+import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.hwpf.HWPFDocument;
+import org.apache.poi.hwpf.OldWordFileFormatException;
+import org.apache.poi.hwpf.model.PicturesTable;
+import org.apache.poi.hwpf.usermodel.CharacterRun;
+import org.apache.poi.hwpf.usermodel.LineSpacingDescriptor;
+import org.apache.poi.hwpf.usermodel.OfficeDrawing;
+import org.apache.poi.hwpf.usermodel.OfficeDrawings;
+import org.apache.poi.hwpf.usermodel.Paragraph;
+import org.apache.poi.hwpf.usermodel.Picture;
+import org.apache.poi.hwpf.usermodel.PictureType;
+import org.apache.poi.hwpf.usermodel.Range;
+import org.apache.poi.hwpf.usermodel.Section;
+import org.apache.poi.hwpf.usermodel.Table;
+import org.apache.poi.hwpf.usermodel.TableCell;
+import org.apache.poi.hwpf.usermodel.TableRow;
+import org.apache.poi.xwpf.usermodel.BreakType;
+import org.apache.poi.xwpf.usermodel.LineSpacingRule;
+import org.apache.poi.xwpf.usermodel.ParagraphAlignment;
+import org.apache.poi.xwpf.usermodel.UnderlinePatterns;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTP;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPageMar;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPageSz;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSectPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTcPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STMerge;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 纯 Java 的 .doc → .docx 转换（POI HWPF），不依赖 Word/WPS，可在 Linux 服务器上运行，按 CPU 核数并行。
+ * <p>
+ * 转换正文的文字、段落格式（对齐、缩进、段距、行距）、字符格式（字体、字号、加粗、倾斜、下划线、删除线、
+ * 上下标、颜色、隐藏）、表格（含纵向合并单元格）、嵌入与浮动图片，以及各节的纸张与页边距；
+ * 域只保留结果文字。页眉页脚、脚注尾注、批注、文本框、自动编号与 Word 6/95 格式的文档不在转换范围内，
+ * 版式要求严格时请使用 Word/WPS 引擎。
+ * <p>
+ * PDF 转换交给构造时指定的引擎（通常是可用的 Word/WPS），未指定时不支持 PDF。
+ */
+public class HwpfDocConverter implements DocComConverter {
+    public static final String ENGINE_NAME = "POI HWPF（内置）";
+    // 转换规则变化时递增，使旧的转换缓存失效
+    private static final String PROFILE = "hwpf|1";
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final long DEFAULT_PICTURE_EMU = 2L * 914400L;
+    private static final Set<String> EAST_ASIAN_FONTS = Set.of(
+            "simsun", "nsimsun", "simhei", "kaiti", "kaiti_gb2312", "fangsong", "fangsong_gb2312", "microsoft yahei",
+            "dengxian", "mingliu", "pmingliu", "ms mincho", "ms gothic", "batang", "gulim");
+
+    private final DocComConverter pdfConverter;
+    private final int parallelism;
+
+    public HwpfDocConverter() {
+        this(null);
+    }
+
+    /**
+     * @param pdfConverter PDF 转 DOCX 使用的引擎，可为 null（不支持 PDF）
+     */
+    public HwpfDocConverter(DocComConverter pdfConverter) {
+        this.pdfConverter = pdfConverter;
+        this.parallelism = Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public String engineName() {
+        return ENGINE_NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public int parallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public String cacheProfile() {
+        return PROFILE;
+    }
+
+    @Override
+    public String pdfCacheProfile() {
+        // PDF 的输出来自委托引擎
+        return pdfConverter == null ? PROFILE : pdfConverter.pdfCacheProfile();
+    }
+
+    @Override
+    public boolean supportsPdfConversion() {
+        return pdfConverter != null && pdfConverter.supportsPdfConversion();
+    }
+
+    @Override
+    public Path convertPdfToDocx(Path pdfFile, Path tempDir) throws IOException, DocComConversionException {
+        return convertPdfToDocx(pdfFile, tempDir, null);
+    }
+
+    @Override
+    public Path convertPdfToDocx(Path pdfFile, Path tempDir, PowerShellRunner.ProgressListener listener)
+            throws IOException, DocComConversionException {
+        if (!supportsPdfConversion()) {
+            return DocComConverter.super.convertPdfToDocx(pdfFile, tempDir);
+        }
+        return pdfConverter.convertPdfToDocx(pdfFile, tempDir, listener);
+    }
+
+    @Override
+    public List<Path> convertBatch(List<Path> docFiles, Path tempDir) throws IOException, DocComConversionException {
+        List<Path> outputs = new ArrayList<>();
+        for (FileOutcome outcome : convertEach(docFiles, tempDir)) {
+            if (outcome.failure() != null) {
+                throw outcome.failure();
+            }
+            outputs.add(outcome.output());
+        }
+        return outputs;
+    }
+
+    @Override
+    public List<FileOutcome> convertEach(List<Path> docFiles, Path tempDir) throws IOException {
+        if (docFiles == null || docFiles.isEmpty()) {
+            return List.of();
+        }
+        Files.createDirectories(tempDir);
+        if (docFiles.size() == 1) {
+            return List.of(convertOne(0, docFiles.get(0), tempDir));
+        }
+        int threads = Math.min(parallelism, docFiles.size());
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "hwpf-convert-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<FileOutcome>> futures = new ArrayList<>();
+            for (int i = 0; i < docFiles.size(); i++) {
+                int index = i;
+                futures.add(executor.submit(() -> convertOne(index, docFiles.get(index), tempDir)));
+            }
+            List<FileOutcome> outcomes = new ArrayList<>();
+            for (Future<FileOutcome> future : futures) {
+                outcomes.add(future.get());
+            }
+            return outcomes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("DOC 转换被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("DOC 转换失败：" + cause, cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private FileOutcome convertOne(int index, Path input, Path tempDir) {
+        Path output = tempDir.resolve(buildOutputName(index, input));
+        try (InputStream in = Files.newInputStream(input);
+             HWPFDocument source = new HWPFDocument(in);
+             XWPFDocument target = new XWPFDocument()) {
+            new DocumentTranslator(source, target).translate();
+            try (OutputStream out = Files.newOutputStream(output)) {
+                target.write(out);
+            }
+            return new FileOutcome(output, null);
+        } catch (OldWordFileFormatException e) {
+            return failure(output, input, "不支持 Word 6/95 格式的 .doc，请改用 Word/WPS 引擎", e);
+        } catch (EncryptedDocumentException e) {
+            return failure(output, input, "文档已加密，无法转换", e);
+        } catch (IOException | RuntimeException e) {
+            return failure(output, input, "POI HWPF 无法解析文档：" + e.getMessage(), e);
+        }
+    }
+
+    private FileOutcome failure(Path output, Path input, String message, Exception cause) {
+        try {
+            Files.deleteIfExists(output);
+        } catch (IOException ignored) {
+            // 临时目录由调用方清理
+        }
+        return new FileOutcome(null, new DocComConversionException(message, input.toString(), "", cause.toString(), -1));
+    }
+
+    private String buildOutputName(int index, Path input) {
+        String name = input.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot > 0 ? name.substring(0, dot) : name;
+        return String.format(Locale.ROOT, "%03d_%s_%s.docx", index + 1, baseName, UUID.randomUUID());
+    }
+
+    /**
+     * 单个文档的转换状态（域嵌套、当前段落），只在一个线程内使用。
+     */
+    private static final class DocumentTranslator {
+        private final HWPFDocument source;
+        private final XWPFDocument target;
+        private final PicturesTable pictures;
+        private final OfficeDrawings drawings;
+        // 每层域是否处于域代码部分（0x13 与 0x14 之间），域代码不输出，只保留域结果
+        private final Deque<Boolean> fields = new ArrayDeque<>();
+
+        private DocumentTranslator(HWPFDocument source, XWPFDocument target) {
+            this.source = source;
+            this.target = target;
+            this.pictures = source.getPicturesTable();
+            this.drawings = source.getOfficeDrawingsMain();
+        }
+
+        private void translate() {
+            Range range = source.getRange();
+            int sections = range.numSections();
+            for (int s = 0; s < sections; s++) {
+                Section section = range.getSection(s);
+                translateSection(section);
+                CTSectPr sectPr;
+                if (s == sections - 1) {
+                    sectPr = target.getDocument().getBody().addNewSectPr();
+                } else {
+                    // 段落已设置过格式时沿用已有的 pPr，不能再添加第二个
+                    CTP paragraph = sectionBreakParagraph().getCTP();
+                    CTPPr pPr = paragraph.isSetPPr() ? paragraph.getPPr() : paragraph.addNewPPr();
+                    sectPr = pPr.isSetSectPr() ? pPr.getSectPr() : pPr.addNewSectPr();
+                }
+                applyPageSetup(section, sectPr);
+            }
+        }
+
+        private void translateSection(Section section) {
+            int count = section.numParagraphs();
+            int i = 0;
+            while (i < count) {
+                Paragraph paragraph = section.getParagraph(i);
+                if (paragraph.isInTable()) {
+                    Table table = section.getTable(paragraph);
+                    translateTable(table);
+                    i += Math.max(1, table.numParagraphs());
+                } else {
+                    translateParagraph(paragraph, target.createParagraph());
+                    i++;
+                }
+            }
+        }
+
+        /**
+         * 节的最后一段携带节属性；上一段是表格时补一个空段落。
+         */
+        private XWPFParagraph sectionBreakParagraph() {
+            List<XWPFParagraph> paragraphs = target.getParagraphs();
+            boolean lastIsParagraph = !target.getBodyElements().isEmpty()
+                    && target.getBodyElements().get(target.getBodyElements().size() - 1) instanceof XWPFParagraph;
+            if (lastIsParagraph && !paragraphs.isEmpty()) {
+                XWPFParagraph last = paragraphs.get(paragraphs.size() - 1);
+                if (last.getCTP().getPPr() == null || !last.getCTP().getPPr().isSetSectPr()) {
+                    return last;
+                }
+            }
+            return target.createParagraph();
+        }
+
+        private void applyPageSetup(Section section, CTSectPr sectPr) {
+            if (section.getPageWidth() > 0 && section.getPageHeight() > 0) {
+                CTPageSz size = sectPr.addNewPgSz();
+                size.setW(BigInteger.valueOf(section.getPageWidth()));
+                size.setH(BigInteger.valueOf(section.getPageHeight()));
+            }
+            CTPageMar margin = sectPr.addNewPgMar();
+            margin.setTop(BigInteger.valueOf(section.getMarginTop()));
+            margin.setBottom(BigInteger.valueOf(section.getMarginBottom()));
+            margin.setLeft(BigInteger.valueOf(section.getMarginLeft()));
+            margin.setRight(BigInteger.valueOf(section.getMarginRight()));
+        }
+
+        private void translateTable(Table table) {
+            XWPFTable xTable = target.createTable();
+            xTable.removeRow(0);
+            for (int r = 0; r < table.numRows(); r++) {
+                TableRow row = table.getRow(r);
+                XWPFTableRow xRow = xTable.insertNewTableRow(r);
+                if (row.getRowHeight() > 0) {
+                    xRow.setHeight(row.getRowHeight());
+                }
+                for (int c = 0; c < row.numCells(); c++) {
+                    TableCell cell = row.getCell(c);
+                    XWPFTableCell xCell = xRow.addNewTableCell();
+                    if (cell.getWidth() > 0) {
+                        xCell.setWidth(String.valueOf(cell.getWidth()));
+                    }
+                    if (cell.isVerticallyMerged()) {
+                        CTTcPr tcPr = xCell.getCTTc().isSetTcPr() ? xCell.getCTTc().getTcPr() : xCell.getCTTc().addNewTcPr();
+                        tcPr.addNewVMerge().setVal(cell.isFirstVerticallyMerged() ? STMerge.RESTART : STMerge.CONTINUE);
+                    }
+                    translateCell(cell, xCell);
+                }
+            }
+        }
+
+        private void translateCell(TableCell cell, XWPFTableCell xCell) {
+            // 新单元格自带一个空段落，先用它
+            XWPFParagraph next = xCell.getParagraphs().isEmpty() ? xCell.addParagraph() : xCell.getParagraphs().get(0);
+            for (int p = 0; p < cell.numParagraphs(); p++) {
+                if (next == null) {
+                    next = xCell.addParagraph();
+                }
+                // 嵌套表格按普通段落输出
+                translateParagraph(cell.getParagraph(p), next);
+                next = null;
+            }
+        }
+
+        private void translateParagraph(Paragraph paragraph, XWPFParagraph target) {
+            applyParagraphFormat(paragraph, target);
+            for (int i = 0; i < paragraph.numCharacterRuns(); i++) {
+                translateRun(paragraph.getCharacterRun(i), target);
+            }
+        }
+
+        private void applyParagraphFormat(Paragraph paragraph, XWPFParagraph target) {
+            switch (paragraph.getJustification()) {
+                case 1 -> target.setAlignment(ParagraphAlignment.CENTER);
+                case 2 -> target.setAlignment(ParagraphAlignment.RIGHT);
+                case 3 -> target.setAlignment(ParagraphAlignment.BOTH);
+                case 4 -> target.setAlignment(ParagraphAlignment.DISTRIBUTE);
+                default -> {
+                    // 左对齐为缺省值
+                }
+            }
+            if (paragraph.getIndentFromLeft() != 0) {
+                target.setIndentationLeft(paragraph.getIndentFromLeft());
+            }
+            if (paragraph.getIndentFromRight() != 0) {
+                target.setIndentationRight(paragraph.getIndentFromRight());
+            }
+            int firstLine = paragraph.getFirstLineIndent();
+            if (firstLine > 0) {
+                target.setIndentationFirstLine(firstLine);
+            } else if (firstLine < 0) {
+                target.setIndentationHanging(-firstLine);
+            }
+            if (paragraph.getSpacingBefore() > 0) {
+                target.setSpacingBefore(paragraph.getSpacingBefore());
+            }
+            if (paragraph.getSpacingAfter() > 0) {
+                target.setSpacingAfter(paragraph.getSpacingAfter());
+            }
+            applyLineSpacing(paragraph.getLineSpacing(), target);
+            if (paragraph.keepWithNext()) {
+                target.setKeepNext(true);
+            }
+            if (paragraph.pageBreakBefore()) {
+                target.setPageBreak(true);
+            }
+        }
+
+        /**
+         * LSPD：dyaLine 在低 16 位，fMultLinespace 在高 16 位；倍数行距以 240 为单倍，
+         * 固定值为负、最小值为正（单位 twips）。
+         */
+        private void applyLineSpacing(LineSpacingDescriptor spacing, XWPFParagraph target) {
+            if (spacing == null || spacing.isEmpty()) {
+                return;
+            }
+            int packed = spacing.toInt();
+            short dyaLine = (short) (packed & 0xFFFF);
+            boolean multiple = (packed >>> 16) != 0;
+            if (multiple) {
+                if (dyaLine > 0 && dyaLine != 240) {
+                    target.setSpacingBetween(dyaLine / 240.0, LineSpacingRule.AUTO);
+                }
+            } else if (dyaLine < 0) {
+                target.setSpacingBetween(-dyaLine / 20.0, LineSpacingRule.EXACT);
+            } else if (dyaLine > 0) {
+                target.setSpacingBetween(dyaLine / 20.0, LineSpacingRule.AT_LEAST);
+            }
+        }
+
+        private void translateRun(CharacterRun run, XWPFParagraph target) {
+            if (run.isMarkedDeleted()) {
+                return;
+            }
+            String text = run.text();
+            StringBuilder pending = new StringBuilder();
+            for (int i = 0; i < text.length(); i++) {
+                char ch = text.charAt(i);
+                switch (ch) {
+                    case 0x13 -> {
+                        flush(run, target, pending);
+                        fields.push(Boolean.TRUE);
+                    }
+                    case 0x14 -> {
+                        flush(run, target, pending);
+                        if (!fields.isEmpty()) {
+                            fields.pop();
+                            fields.push(Boolean.FALSE);
+                        }
+                    }
+                    case 0x15 -> {
+                        flush(run, target, pending);
+                        if (!fields.isEmpty()) {
+                            fields.pop();
+                        }
+                    }
+                    default -> {
+                        if (inFieldCode()) {
+                            continue;
+                        }
+                        switch (ch) {
+                            case 0x01, 0x08 -> {
+                                flush(run, target, pending);
+                                if (run.isSpecialCharacter()) {
+                                    translatePicture(run, ch, target);
+                                }
+                            }
+                            case 0x09 -> {
+                                flush(run, target, pending);
+                                newRun(run, target).addTab();
+                            }
+                            case 0x0B -> {
+                                flush(run, target, pending);
+                                newRun(run, target).addBreak();
+                            }
+                            case 0x0C -> {
+                                flush(run, target, pending);
+                                newRun(run, target).addBreak(BreakType.PAGE);
+                            }
+                            case 0x1E -> pending.append('‑');
+                            default -> {
+                                // 段落/单元格结束符、软连字符、脚注与批注引用等控制字符不输出
+                                if (ch >= 0x20) {
+                                    pending.append(ch);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            flush(run, target, pending);
+        }
+
+        private boolean inFieldCode() {
+            return fields.contains(Boolean.TRUE);
+        }
+
+        private void flush(CharacterRun run, XWPFParagraph target, StringBuilder pending) {
+            if (pending.length() == 0) {
+                return;
+            }
+            newRun(run, target).setText(pending.toString());
+            pending.setLength(0);
+        }
+
+        private XWPFRun newRun(CharacterRun run, XWPFParagraph target) {
+            XWPFRun xRun = target.createRun();
+            if (run.isBold()) {
+                xRun.setBold(true);
+            }
+            if (run.isItalic()) {
+                xRun.setItalic(true);
+            }
+            if (run.getUnderlineCode() != 0) {
+                xRun.setUnderline(run.getUnderlineCode() == 3 ? UnderlinePatterns.DOUBLE : UnderlinePatterns.SINGLE);
+            }
+            if (run.isStrikeThrough()) {
+                xRun.setStrikeThrough(true);
+            }
+            if (run.isDoubleStrikeThrough()) {
+                xRun.setDoubleStrikethrough(true);
+            }
+            if (run.isSmallCaps()) {
+                xRun.setSmallCaps(true);
+            }
+            if (run.isCapitalized()) {
+                xRun.setCapitalized(true);
+            }
+            if (run.isVanished()) {
+                xRun.setVanish(true);
+            }
+            switch (run.getSubSuperScriptIndex()) {
+                case 1 -> xRun.setVerticalAlignment("superscript");
+                case 2 -> xRun.setVerticalAlignment("subscript");
+                default -> {
+                    // 正常基线
+                }
+            }
+            if (run.getFontSize() > 0) {
+                // HWPF 字号单位为半磅
+                xRun.setFontSize(run.getFontSize() / 2.0);
+            }
+            String font = run.getFontName();
+            if (font != null && !font.isBlank()) {
+                xRun.setFontFamily(font, XWPFRun.FontCharRange.ascii);
+                xRun.setFontFamily(font, XWPFRun.FontCharRange.hAnsi);
+                // HWPF 不公开东亚字体，只有字体本身是中日韩字体时才用于东亚文字，避免中文落到西文字体
+                if (isEastAsianFont(font)) {
+                    xRun.setFontFamily(font, XWPFRun.FontCharRange.eastAsia);
+                }
+            }
+            String color = toHexColor(run.getIco24());
+            if (color != null) {
+                xRun.setColor(color);
+            }
+            return xRun;
+        }
+
+        private void translatePicture(CharacterRun run, char mark, XWPFParagraph target) {
+            byte[] data;
+            long widthEmu;
+            long heightEmu;
+            if (mark == 0x01 && pictures.hasPicture(run)) {
+                Picture picture = pictures.extractPicture(run, false);
+                data = picture.getContent();
+                widthEmu = scaledEmu(picture.getDxaGoal(), picture.getHorizontalScalingFactor(), picture.getWidth());
+                heightEmu = scaledEmu(picture.getDyaGoal(), picture.getVerticalScalingFactor(), picture.getHeight());
+            } else {
+                OfficeDrawing drawing = drawings == null ? null : drawings.getOfficeDrawingAt(run.getStartOffset());
+                if (drawing == null || drawing.getPictureData() == null) {
+                    return;
+                }
+                // 浮动图片按嵌入型输出在锚点位置
+                data = drawing.getPictureData();
+                widthEmu = (long) (drawing.getRectangleRight() - drawing.getRectangleLeft()) * MergeWriter.TWIP_TO_EMU;
+                heightEmu = (long) (drawing.getRectangleBottom() - drawing.getRectangleTop()) * MergeWriter.TWIP_TO_EMU;
+            }
+            if (data == null || data.length == 0) {
+                return;
+            }
+            int type = pictureType(PictureType.findMatchingType(data));
+            if (type < 0) {
+                return;
+            }
+            if (widthEmu <= 0 || heightEmu <= 0) {
+                widthEmu = DEFAULT_PICTURE_EMU;
+                heightEmu = DEFAULT_PICTURE_EMU;
+            }
+            try {
+                target.createRun().addPicture(new ByteArrayInputStream(data), type, "image",
+                        MergeWriter.safeEmu(widthEmu), MergeWriter.safeEmu(heightEmu));
+            } catch (Exception ignored) {
+                // 无法识别的图片数据跳过，不影响其余内容
+            }
+        }
+
+        /**
+         * 图片目标尺寸（twips）乘以缩放比例（千分比）；没有目标尺寸时按 96 DPI 像素计算。
+         */
+        private static long scaledEmu(int goalTwips, int scaleThousandths, int pixels) {
+            if (goalTwips > 0) {
+                int scale = scaleThousandths > 0 ? scaleThousandths : 1000;
+                return (long) goalTwips * scale / 1000 * MergeWriter.TWIP_TO_EMU;
+            }
+            return pixels > 0 ? MergeWriter.toEmuFromPixels(pixels, MergeWriter.IMAGE_DPI) : 0;
+        }
+
+        private static int pictureType(PictureType type) {
+            return switch (type) {
+                case PNG -> XWPFDocument.PICTURE_TYPE_PNG;
+                case JPEG -> XWPFDocument.PICTURE_TYPE_JPEG;
+                case GIF -> XWPFDocument.PICTURE_TYPE_GIF;
+                case BMP -> XWPFDocument.PICTURE_TYPE_BMP;
+                case TIFF -> XWPFDocument.PICTURE_TYPE_TIFF;
+                case EMF -> XWPFDocument.PICTURE_TYPE_EMF;
+                case WMF -> XWPFDocument.PICTURE_TYPE_WMF;
+                case PICT -> XWPFDocument.PICTURE_TYPE_PICT;
+                default -> -1;
+            };
+        }
+
+        /**
+         * ico24 为 0x00BBGGRR，-1 表示自动颜色。
+         */
+        private static String toHexColor(int ico24) {
+            if (ico24 == -1 || (ico24 & 0xFF000000) != 0) {
+                return null;
+            }
+            int red = ico24 & 0xFF;
+            int green = (ico24 >> 8) & 0xFF;
+            int blue = (ico24 >> 16) & 0xFF;
+            return String.format(Locale.ROOT, "%02X%02X%02X", red, green, blue);
+        }
+
+        private static boolean isEastAsianFont(String font) {
+            for (int i = 0; i < font.length(); i++) {
+                if (font.charAt(i) > 0x7F) {
+                    return true;
+                }
+            }
+            return EAST_ASIAN_FONTS.contains(font.toLowerCase(Locale.ROOT));
+        }
+    }
+}
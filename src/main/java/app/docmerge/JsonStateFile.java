@@ -0,0 +1,69 @@
+package app.docmerge;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 以 JSON 持久化的状态文件（~/.doc-merge-app 下的索引）。读取时忽略未知字段，文件不存在或损坏时返回 null；
+ * 写入先写同目录的临时文件再原子替换，写到一半退出不会留下损坏的文件。
+ */
+final class JsonStateFile<S> {
+    private final Path path;
+    private final Class<S> type;
+    private ObjectMapper mapper;
+
+    JsonStateFile(Path path, Class<S> type) {
+        this.path = path;
+        this.type = type;
+    }
+
+    synchronized S read() {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            return mapper().readValue(path.toFile(), type);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 写入失败只影响下次启动，调用方内存中的状态仍然有效，因此不抛异常。
+     */
+    synchronized void write(S state) {
+        try {
+            Files.createDirectories(path.getParent());
+            Path partial = Files.createTempFile(path.getParent(), baseName(), ".partial");
+            try {
+                mapper().writeValue(partial.toFile(), state);
+                Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+        } catch (IOException ignored) {
+            // 见方法说明
+        }
+    }
+
+    private String baseName() {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private ObjectMapper mapper() {
+        if (mapper == null) {
+            mapper = new ObjectMapper()
+                    .enable(SerializationFeature.INDENT_OUTPUT)
+                    .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        }
+        return mapper;
+    }
+}
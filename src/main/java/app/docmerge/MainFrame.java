@@ -7,8 +7,10 @@ import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JPopupMenu;
 import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
@@ -21,6 +23,7 @@ import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableColumnModel;
+import java.awt.AWTEvent;
 import java.awt.BorderLayout;
 import java.awt.CardLayout;
 import java.awt.Color;
@@ -32,6 +35,8 @@ import java.awt.Toolkit;
 import java.awt.datatransfer.StringSelection;
 import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.IOException;
@@ -46,10 +51,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 
 public class MainFrame extends JFrame {
@@ -75,6 +82,8 @@ public class MainFrame extends JFrame {
     private final JButton mergeButton = new JButton("开始合并");
     private final JButton cancelButton = new JButton("取消");
     private final JComboBox<DocConverterMode> modeCombo = new JComboBox<>(DocConverterMode.values());
+    private final JComboBox<MergeEngine> mergeEngineCombo = new JComboBox<>(MergeEngine.values());
+    private final JComboBox<PdfImportMode> pdfImportCombo = new JComboBox<>(PdfImportMode.values());
     private final JButton probeEnvButton = new JButton("检测环境");
     private final JLabel wordStatusLabel = new JLabel();
     private final JLabel wpsStatusLabel = new JLabel();
@@ -87,7 +96,9 @@ public class MainFrame extends JFrame {
     private final FileTableModel tableModel = new FileTableModel();
     private final JTable table = new JTable(tableModel);
 
-    private final PreviewService previewService = new PreviewService();
+    private final ConversionCache conversionCache = new ConversionCache();
+    private final ConversionScheduler conversionScheduler = new ConversionScheduler();
+    private final PreviewService previewService = new PreviewService(conversionCache, conversionScheduler);
     private SwingWorker<PreviewService.PreviewResult, Void> previewWorker;
     private Path previewTarget;
 
@@ -105,10 +116,13 @@ public class MainFrame extends JFrame {
     private final UiLogger logger = new UiLogger(logArea);
     private final DocComConverterSelector converterSelector = new DocComConverterSelector();
     private final DocComConverterResolver converterResolver = new DocComConverterResolver(converterSelector);
+    private final PreConversionQueue preConversionQueue =
+            new PreConversionQueue(conversionCache, conversionScheduler, this::resolvePreConversionConverter, logger);
     private ConfigStore.ConfigData configData;
     private List<FileItem> currentItems = new ArrayList<>();
     private SwingWorker<Boolean, ProgressStatus> worker;
     private DocComConverterResolver.Resolution probeResolution;
+    private boolean probeInFlight;
 
     public MainFrame() {
         super(APP_TITLE);
@@ -117,6 +131,9 @@ public class MainFrame extends JFrame {
         setLocationRelativeTo(null);
 
         applyWindowIconFromResources();
+        // 键鼠操作推迟后台预转换，避免与用户调整列表争抢资源
+        Toolkit.getDefaultToolkit().addAWTEventListener(event -> preConversionQueue.touch(),
+                AWTEvent.KEY_EVENT_MASK | AWTEvent.MOUSE_EVENT_MASK | AWTEvent.MOUSE_MOTION_EVENT_MASK);
 
         inputField.setEditable(false);
         outputField.setEditable(false);
@@ -155,8 +172,8 @@ public class MainFrame extends JFrame {
 
         bindActions();
         loadConfig();
-        refreshComProbeStatus(true);
-        logComProbeStatus();
+        sweepLeftoverProcesses();
+        startComProbe(false);
 
         addWindowListener(new WindowAdapter() {
             @Override
@@ -208,10 +225,14 @@ public class MainFrame extends JFrame {
         outputPanel.add(new JLabel("输出文件名"));
         outputNameField.setPreferredSize(new Dimension(220, 28));
         outputPanel.add(outputNameField);
+        outputPanel.add(new JLabel("合并引擎"));
+        outputPanel.add(mergeEngineCombo);
 
         JPanel docEnginePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         docEnginePanel.add(new JLabel("转换引擎"));
         docEnginePanel.add(modeCombo);
+        docEnginePanel.add(new JLabel("PDF 导入"));
+        docEnginePanel.add(pdfImportCombo);
         docEnginePanel.add(probeEnvButton);
 
         JPanel statusPanel = new JPanel();
@@ -329,11 +350,21 @@ public class MainFrame extends JFrame {
         cancelButton.addActionListener(event -> cancelMerge());
         clearLogButton.addActionListener(event -> logger.clear());
         copyLogButton.addActionListener(event -> copyLog());
-        probeEnvButton.addActionListener(event -> {
-            refreshComProbeStatus(true);
-            logComProbeStatus();
-        });
+        probeEnvButton.addActionListener(event -> startComProbe(true));
         modeCombo.addActionListener(event -> handleModeChange());
+        mergeEngineCombo.addActionListener(event -> persistState());
+        pdfImportCombo.addActionListener(event -> handlePdfImportChange());
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                maybeShowTablePopup(e);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                maybeShowTablePopup(e);
+            }
+        });
         outputNameField.addFocusListener(new FocusAdapter() {
             @Override
             public void focusLost(FocusEvent e) {
@@ -360,6 +391,18 @@ public class MainFrame extends JFrame {
         }
         DocConverterMode mode = DocConverterMode.fromConfig(configData.getDocConverterMode());
         applyModeSelection(mode);
+        mergeEngineCombo.setSelectedItem(MergeEngine.fromConfig(configData.getMergeEngine()));
+        converterSelector.setPdfRasterSettings(configData.getPdfRenderDpi(), configData.getPdfRenderThreads(),
+                configData.getPdfRenderPagesInFlight());
+        converterSelector.setPdfChunkSettings(configData.getPdfChunkThresholdPages(), configData.getPdfChunkPages());
+        PdfImportMode pdfImportMode = PdfImportMode.fromConfig(configData.getPdfImportMode());
+        converterResolver.setPdfImportMode(pdfImportMode);
+        pdfImportCombo.setSelectedItem(pdfImportMode);
+        converterSelector.setPoolSize(configData.getComPoolSize());
+        converterSelector.setLogger(logger);
+        if (configData.getConversionCacheMaxMb() != null) {
+            conversionCache.setMaxBytes(configData.getConversionCacheMaxMb() * 1024L * 1024L);
+        }
         if (configData.getWindowWidth() != null && configData.getWindowHeight() != null) {
             setSize(configData.getWindowWidth(), configData.getWindowHeight());
         }
@@ -369,6 +412,8 @@ public class MainFrame extends JFrame {
         if (!configData.getLastFileList().isEmpty()) {
             currentItems = loadFileList(configData.getLastFileList());
             refreshTable();
+            refreshQuarantineFlags(currentItems);
+            refreshPdfRoutes(currentItems);
         } else if (configData.getLastInputDir() != null) {
             refreshFiles();
         }
@@ -399,6 +444,7 @@ public class MainFrame extends JFrame {
                     if (isDocBlocked(item)) {
                         continue;
                     }
+                    applyPdfImportOverride(item, PdfImportMode.fromConfigOrNull(entry.getPdfImportMode()));
                     items.add(item);
                 } catch (IOException e) {
                     items.add(createMissingItem(entry, path));
@@ -510,19 +556,26 @@ public class MainFrame extends JFrame {
         for (FileItem item : currentItems) {
             existing.add(item.getPath().toAbsolutePath().toString());
         }
-        int added = 0;
+        List<FileItem> added = new ArrayList<>();
         for (FileItem item : items) {
             String key = item.getPath().toAbsolutePath().toString();
             if (existing.contains(key)) {
                 logger.warn("已存在，跳过：" + item.getPath());
                 continue;
             }
+            if (item.getFileType() == FileItem.FileType.PDF) {
+                // 重新扫描目录会重建条目，沿用之前为该 PDF 指定的导入方式
+                item.setPdfImportMode(converterResolver.getPdfImportOverride(item.getPath()));
+            }
             currentItems.add(item);
             existing.add(key);
-            added++;
+            added.add(item);
         }
         refreshTable();
-        return added;
+        preConversionQueue.enqueue(added);
+        refreshQuarantineFlags(added);
+        refreshPdfRoutes(added);
+        return added.size();
     }
 
     private List<FileItem> applySavedOrder(List<FileItem> scanned, List<String> savedOrder) {
@@ -583,8 +636,13 @@ public class MainFrame extends JFrame {
             showError("请选择需要移除的行");
             return;
         }
+        List<FileItem> removed = new ArrayList<>();
+        for (int row : rows) {
+            removed.add(tableModel.getItemAt(row));
+        }
         tableModel.removeRows(rows);
         currentItems = tableModel.getItems();
+        preConversionQueue.cancel(removed);
         persistState();
         logger.info("已移除选中项：" + rows.length + " 行");
     }
@@ -596,6 +654,7 @@ public class MainFrame extends JFrame {
         }
         tableModel.clear();
         currentItems = tableModel.getItems();
+        preConversionQueue.cancelAll();
         persistState();
         logger.info("列表已清空");
         showPreviewEmpty();
@@ -624,6 +683,8 @@ public class MainFrame extends JFrame {
         configData.setLastFileList(serializeItems());
         configData.setPerDirOrder(buildPerDirOrder());
         configData.setDocConverterMode(getSelectedMode().name());
+        configData.setMergeEngine(getSelectedMergeEngine().name());
+        configData.setPdfImportMode(getSelectedPdfImportMode().name());
         configData.setWindowWidth(getWidth());
         configData.setWindowHeight(getHeight());
         configData.setDividerLocation(mainSplitPane.getDividerLocation());
@@ -653,6 +714,7 @@ public class MainFrame extends JFrame {
             entry.setSize(item.getSize());
             entry.setLastModified(item.getLastModified() == null ? null : item.getLastModified().toMillis());
             entry.setSourceDir(item.getSourceDir());
+            entry.setPdfImportMode(item.getPdfImportMode() == null ? null : item.getPdfImportMode().name());
             entries.add(entry);
         }
         return entries;
@@ -694,10 +756,21 @@ public class MainFrame extends JFrame {
                 toMerge.add(item);
             }
         }
-        refreshComProbeStatus(false);
+        refreshComProbeStatus();
         boolean hasDoc = toMerge.stream().anyMatch(this::isDocItem);
         boolean hasPdf = toMerge.stream().anyMatch(item -> item.getFileType() == FileItem.FileType.PDF);
-        if ((hasDoc || hasPdf) && !isDocConversionAvailable()) {
+        // 内置转换处理 .doc、进程内导入 PDF 都不需要等待 Word/WPS 检测
+        // 自动识别需要知道 Word/WPS 是否可用才能确定路线
+        boolean needsProbe = toMerge.stream().anyMatch(item -> item.getFileType() == FileItem.FileType.PDF
+                && converterResolver.pdfImportModeFor(item.getPath()) != PdfImportMode.RASTER
+                && converterResolver.pdfImportModeFor(item.getPath()) != PdfImportMode.TEXT)
+                || (hasDoc && getSelectedMode().requiresCom());
+        if (needsProbe && converterSelector.peekSummary() == null) {
+            showError("正在检测 Word/WPS 转换环境，请稍后再开始合并");
+            return;
+        }
+        // 内置转换总是可用，不必在事件线程上解析探测结果
+        if (hasDoc && getSelectedMode().requiresCom() && !isDocConversionAvailable()) {
             DocComConverterResolver.Resolution resolution = resolveProbe(false);
             String message = resolution.errorMessage() == null
                     ? "当前环境无法进行 DOC/PDF 完美转换。请移除相关文件后重试。"
@@ -707,10 +780,26 @@ public class MainFrame extends JFrame {
             return;
         }
         if (hasPdf) {
-            DocComConverterResolver.Resolution resolution = resolveProbe(false);
-            DocComConverterSelector.Selection selection = resolution.selection();
-            if (selection != null && !selection.converter().supportsPdfConversion()) {
-                String message = "当前引擎不支持 PDF 转 DOCX：" + selection.status().engineName();
+            // 只有进程内导入时不解析探测结果：解析会同步等待 Word/WPS 探测，在事件线程上会卡住界面
+            DocComConverterResolver.Resolution resolution = needsProbe ? resolveProbe(false) : null;
+            DocComConverterSelector.Selection selection = resolution == null
+                    ? null
+                    : resolution.selectionFor(hasDoc, true);
+            for (FileItem item : toMerge) {
+                PdfImportMode pdfMode = converterResolver.pdfImportModeFor(item.getPath());
+                // 自动识别只会选用当前可用的方式；此处不读取 PDF，识别在合并线程进行
+                if (item.getFileType() != FileItem.FileType.PDF || pdfMode == PdfImportMode.AUTO) {
+                    continue;
+                }
+                DocComConverter pdfConverter = pdfMode == PdfImportMode.COM
+                        ? (selection == null ? null : selection.converter())
+                        : converterSelector.pdfImportConverter(pdfMode);
+                if (pdfConverter != null && pdfConverter.supportsPdfConversion(item.getPath())) {
+                    continue;
+                }
+                String message = pdfMode == PdfImportMode.COM && resolution != null && resolution.errorMessage() != null
+                        ? resolution.errorMessage() + "，无法以“" + pdfMode.getLabel() + "”导入：" + item.getName()
+                        : "PDF 导入方式“" + pdfMode.getLabel() + "”当前不可用：" + item.getName();
                 showError(message);
                 logger.warn(message);
                 return;
@@ -728,15 +817,42 @@ public class MainFrame extends JFrame {
         progressBar.setString("正在准备合并");
         statusLabel.setText("开始合并");
 
-        MergeService service = new MergeService();
+        for (FileItem item : toMerge) {
+            if (item.getQuarantineNote() != null) {
+                logger.warn(item.getName() + " " + item.getQuarantineNote() + "，该引擎将直接跳过，改用其它引擎（若可用）");
+            }
+        }
+        MergeService service = createMergeService();
         DocConverterMode mode = getSelectedMode();
+        // 合并接管预转换：已完成的结果走缓存，正在转换的由合并等待，未开始的交给合并
+        preConversionQueue.pause();
+        MergeEngine engine = getSelectedMergeEngine();
         worker = new SwingWorker<Boolean, ProgressStatus>() {
+            private ProgressStatus mergeStatus;
+            private ProgressStatus conversionStatus;
+            private ProgressStatus stepStatus;
+
             @Override
             protected Boolean doInBackground() {
+                MergeService.ProgressCallback progress = new MergeService.ProgressCallback() {
+                    @Override
+                    public void onProgress(int current, int total, String name) {
+                        publish(new ProgressStatus(current, total, name, false, null));
+                    }
+
+                    @Override
+                    public void onConversionProgress(int converted, int total, String name) {
+                        publish(new ProgressStatus(converted, total, name, true, null));
+                    }
+
+                    @Override
+                    public void onConversionStep(String name, PowerShellRunner.Progress step) {
+                        publish(new ProgressStatus(step.current(), step.total(), name, true, describeStep(step)));
+                    }
+                };
                 try {
-                    service.merge(new ArrayList<>(toMerge), outputDir, outputName, mode, converterResolver, logger,
-                            (current, total, name) -> publish(new ProgressStatus(current, total, name)),
-                            this::isCancelled);
+                    service.merge(new ArrayList<>(toMerge), outputDir, outputName, mode, converterResolver, engine, logger,
+                            progress, this::isCancelled);
                     return true;
                 } catch (MergeService.MergeCancelledException e) {
                     logger.warn("合并已取消：" + e.getMessage());
@@ -750,19 +866,47 @@ public class MainFrame extends JFrame {
 
             @Override
             protected void process(List<ProgressStatus> chunks) {
-                if (!chunks.isEmpty()) {
-                    ProgressStatus status = chunks.get(chunks.size() - 1);
+                for (ProgressStatus status : chunks) {
+                    if (status.detail() != null) {
+                        stepStatus = status;
+                    } else if (status.conversion()) {
+                        conversionStatus = status;
+                        if (stepStatus != null && stepStatus.name().equals(status.name())) {
+                            stepStatus = null;
+                        }
+                    } else {
+                        mergeStatus = status;
+                    }
+                }
+                StringBuilder message = new StringBuilder();
+                if (mergeStatus != null) {
                     progressBar.setIndeterminate(false);
-                    progressBar.setMaximum(status.total());
-                    progressBar.setValue(status.current());
-                    String message = "正在处理 " + status.current() + "/" + status.total() + "：" + status.name();
-                    progressBar.setString(message);
-                    statusLabel.setText(message);
+                    progressBar.setMaximum(mergeStatus.total());
+                    progressBar.setValue(mergeStatus.current());
+                    message.append("正在处理 ").append(mergeStatus.current()).append("/").append(mergeStatus.total())
+                            .append("：").append(mergeStatus.name());
+                }
+                if (conversionStatus != null && conversionStatus.total() > 0) {
+                    if (!message.isEmpty()) {
+                        message.append("，");
+                    }
+                    message.append("已转换 ").append(conversionStatus.current()).append("/").append(conversionStatus.total());
+                }
+                if (stepStatus != null) {
+                    message.append("（").append(stepStatus.name()).append("：").append(stepStatus.detail()).append("）");
+                }
+                if (!message.isEmpty()) {
+                    progressBar.setString(message.toString());
+                    statusLabel.setText(message.toString());
                 }
             }
 
             @Override
             protected void done() {
+                preConversionQueue.resume();
+                // 合并期间的工作进程故障可能改变了引擎健康状态与隔离索引
+                refreshComProbeStatus();
+                refreshQuarantineFlags(currentItems);
                 progressBar.setIndeterminate(false);
                 progressBar.setValue(0);
                 mergeButton.setEnabled(true);
@@ -793,6 +937,16 @@ public class MainFrame extends JFrame {
         worker.execute();
     }
 
+    private MergeService createMergeService() {
+        // 两项各自生效：只配置预读窗口时使用默认线程数
+        Integer configuredThreads = configData.getPrepareThreads();
+        int threads = configuredThreads == null || configuredThreads <= 0
+                ? MergeService.DEFAULT_PREPARE_THREADS : configuredThreads;
+        Integer lookAhead = configData.getPrepareLookAhead();
+        return new MergeService(threads, lookAhead == null || lookAhead <= 0 ? threads * 4 : lookAhead,
+                conversionCache, conversionScheduler);
+    }
+
     private String normalizeOutputName() {
         String text = outputNameField.getText();
         if (text == null || text.trim().isBlank()) {
@@ -894,16 +1048,124 @@ public class MainFrame extends JFrame {
         return item.getFileType() == FileItem.FileType.DOC;
     }
 
-    private void refreshComProbeStatus(boolean forceRefresh) {
-        DocComConverterResolver.Resolution resolution = resolveProbe(forceRefresh);
+    /**
+     * 在后台清理上次异常退出时残留的 Office/PowerShell 进程，避免阻塞启动。
+     */
+    private void sweepLeftoverProcesses() {
+        CompletableFuture.supplyAsync(ChildProcessTracker.global()::sweepLeftovers).whenComplete((killed, error) -> {
+            if (killed != null && killed > 0) {
+                SwingUtilities.invokeLater(() -> logger.warn("已清理上次运行残留的转换进程 " + killed + " 个"));
+            }
+        });
+    }
+
+    /**
+     * 在后台查询隔离索引（计算哈希需读取文件内容），在状态列标记已隔离的 DOC/PDF。
+     */
+    private void refreshQuarantineFlags(List<FileItem> items) {
+        QuarantineStore quarantine = converterSelector.quarantine();
+        List<FileItem> targets = items.stream()
+                .filter(item -> !item.isMissing()
+                        && (isDocItem(item) || item.getFileType() == FileItem.FileType.PDF))
+                .toList();
+        if (quarantine == null || targets.isEmpty()) {
+            return;
+        }
+        CompletableFuture.supplyAsync(() -> {
+            Map<FileItem, String> notes = new IdentityHashMap<>();
+            for (FileItem item : targets) {
+                try {
+                    notes.put(item, QuarantineStore.describe(quarantine.lookup(item.getPath())));
+                } catch (IOException ignored) {
+                    // 文件无法读取时不标记，合并时会报告
+                }
+            }
+            return notes;
+        }).thenAccept(notes -> SwingUtilities.invokeLater(() -> {
+            notes.forEach(FileItem::setQuarantineNote);
+            tableModel.refreshRows();
+        }));
+    }
+
+    /**
+     * 在后台识别使用自动识别方式的 PDF（需读取文件内容，结果按内容哈希缓存），在类型列显示选用的导入方式。
+     */
+    private void refreshPdfRoutes(List<FileItem> items) {
+        List<FileItem> targets = items.stream()
+                .filter(item -> !item.isMissing() && item.getFileType() == FileItem.FileType.PDF)
+                .toList();
+        if (targets.isEmpty()) {
+            return;
+        }
+        CompletableFuture.supplyAsync(() -> {
+            Map<FileItem, String> routes = new IdentityHashMap<>();
+            for (FileItem item : targets) {
+                routes.put(item, converterResolver.describePdfRoute(item.getPath()));
+            }
+            return routes;
+        }).thenAccept(routes -> SwingUtilities.invokeLater(() -> {
+            routes.forEach(FileItem::setPdfRoute);
+            tableModel.refreshRows();
+        }));
+    }
+
+    /**
+     * 在后台探测 Word/WPS（优先使用持久化的探测结果），完成前界面显示“检测中”；forceRefresh 时忽略缓存重新探测。
+     */
+    private void startComProbe(boolean forceRefresh) {
+        if (probeInFlight && !forceRefresh) {
+            return;
+        }
+        probeInFlight = true;
+        probeEnvButton.setEnabled(false);
+        if (forceRefresh || converterSelector.peekSummary() == null) {
+            wordStatusLabel.setText("Word： 检测中");
+            wpsStatusLabel.setText("WPS： 检测中");
+            modeStatusLabel.setText("当前模式： " + getSelectedMode().getLabel() + "（检测中）");
+        }
+        long start = System.nanoTime();
+        converterSelector.probeAllAsync(forceRefresh).whenComplete((summary, error) -> SwingUtilities.invokeLater(() -> {
+            probeInFlight = false;
+            probeEnvButton.setEnabled(true);
+            if (error != null) {
+                logger.error("Word/WPS 环境检测失败", error);
+                return;
+            }
+            logger.info("Word/WPS 环境检测完成，用时 " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            refreshComProbeStatus();
+            logComProbeStatus();
+            // Word/WPS 是否可用会改变自动识别的路线
+            refreshPdfRoutes(currentItems);
+            if (probeResolution != null && probeResolution.selection() == null
+                    && currentItems.stream().anyMatch(this::isDocItem)) {
+                logger.warn("当前环境无法进行 .doc 转换，列表中的 .doc 文件将无法合并");
+            }
+        }));
+    }
+
+    /**
+     * 用已有探测结果刷新状态栏；尚无结果时显示“检测中”并在后台探测，不阻塞 EDT。
+     */
+    private void refreshComProbeStatus() {
+        DocComConverterResolver.Resolution resolution = currentResolution();
+        if (resolution == null) {
+            return;
+        }
         DocComConverterSelector.ProbeSummary summary = resolution.probeSummary();
-        String wordStatus = summary.word().available() ? "可用" : "不可用";
-        String wpsStatus = summary.wps().available() ? "可用" : "不可用";
+        String wordStatus = engineStatusText(summary.word(), converterSelector.wordConverter().health());
+        String wpsStatus = engineStatusText(summary.wps(), converterSelector.wpsConverter().health());
         wordStatusLabel.setText("Word： " + wordStatus);
         wpsStatusLabel.setText("WPS： " + wpsStatus);
         modeStatusLabel.setText("当前模式： " + resolution.modeLabel());
     }
 
+    private static String engineStatusText(DocComConverterSelector.EngineStatus status, EngineHealth health) {
+        if (!status.available()) {
+            return health.isCircuitOpen() ? "不可用（熔断中）" : "不可用";
+        }
+        return health.state() == EngineHealth.State.DEGRADED ? "可用（降级）" : "可用";
+    }
+
     private void logComProbeStatus() {
         if (probeResolution == null) {
             return;
@@ -914,9 +1176,23 @@ public class MainFrame extends JFrame {
         logger.info("DOC 转换模式：" + probeResolution.modeLabel());
     }
 
+    /**
+     * 检测尚未完成时视为可用，开始合并前会再次确认。
+     */
     private boolean isDocConversionAvailable() {
-        DocComConverterResolver.Resolution resolution = resolveProbe(false);
-        return resolution.selection() != null;
+        DocComConverterResolver.Resolution resolution = currentResolution();
+        return resolution == null || resolution.selection() != null;
+    }
+
+    /**
+     * 返回基于已有探测结果的解析；尚无结果时启动后台探测并返回 null。
+     */
+    private DocComConverterResolver.Resolution currentResolution() {
+        if (converterSelector.peekSummary() == null) {
+            startComProbe(false);
+            return null;
+        }
+        return resolveProbe(false);
     }
 
     private void logProbeFailure(DocComConverterResolver.Resolution resolution) {
@@ -938,11 +1214,98 @@ public class MainFrame extends JFrame {
         return probeResolution;
     }
 
+    /**
+     * 后台预转换线程调用，不访问 Swing 组件。
+     */
+    private DocComConverter resolvePreConversionConverter() {
+        ConfigStore.ConfigData data = configData;
+        DocConverterMode mode = DocConverterMode.fromConfig(data == null ? null : data.getDocConverterMode());
+        DocComConverterResolver.Resolution resolution = converterResolver.resolve(mode, false);
+        // .doc 引擎不可用时仍可预转换 PDF（进程内导入）
+        DocComConverterSelector.Selection selection = resolution.selection() != null
+                ? resolution.selection()
+                : resolution.pdfSelection();
+        return selection == null ? null : selection.converter();
+    }
+
     private DocConverterMode getSelectedMode() {
         DocConverterMode selected = (DocConverterMode) modeCombo.getSelectedItem();
         return selected == null ? DocConverterMode.AUTO : selected;
     }
 
+    private PdfImportMode getSelectedPdfImportMode() {
+        PdfImportMode selected = (PdfImportMode) pdfImportCombo.getSelectedItem();
+        return selected == null ? PdfImportMode.COM : selected;
+    }
+
+    private void handlePdfImportChange() {
+        converterResolver.setPdfImportMode(getSelectedPdfImportMode());
+        persistState();
+        refreshPdfRoutes(currentItems);
+    }
+
+    private void applyPdfImportOverride(FileItem item, PdfImportMode mode) {
+        if (item.getFileType() != FileItem.FileType.PDF) {
+            return;
+        }
+        item.setPdfImportMode(mode);
+        converterResolver.setPdfImportOverride(item.getPath(), mode);
+    }
+
+    /**
+     * 文件列表右键菜单：为选中的 PDF 单独指定导入方式。
+     */
+    private void maybeShowTablePopup(MouseEvent e) {
+        if (!e.isPopupTrigger()) {
+            return;
+        }
+        int row = table.rowAtPoint(e.getPoint());
+        if (row >= 0 && !table.isRowSelected(row)) {
+            table.setRowSelectionInterval(row, row);
+        }
+        List<FileItem> pdfItems = new ArrayList<>();
+        for (int selected : table.getSelectedRows()) {
+            FileItem item = tableModel.getItemAt(selected);
+            if (item.getFileType() == FileItem.FileType.PDF) {
+                pdfItems.add(item);
+            }
+        }
+        if (pdfItems.isEmpty()) {
+            return;
+        }
+        JPopupMenu menu = new JPopupMenu();
+        JMenuItem title = new JMenuItem("PDF 导入方式（" + pdfItems.size() + " 个文件）");
+        title.setEnabled(false);
+        menu.add(title);
+        JMenuItem followDefault = new JMenuItem("使用缺省方式（" + getSelectedPdfImportMode().getLabel() + "）");
+        followDefault.addActionListener(event -> setPdfImportMode(pdfItems, null));
+        menu.add(followDefault);
+        for (PdfImportMode mode : PdfImportMode.values()) {
+            JMenuItem option = new JMenuItem(mode.getLabel());
+            option.addActionListener(event -> setPdfImportMode(pdfItems, mode));
+            menu.add(option);
+        }
+        menu.show(table, e.getX(), e.getY());
+    }
+
+    private void setPdfImportMode(List<FileItem> pdfItems, PdfImportMode mode) {
+        for (FileItem item : pdfItems) {
+            applyPdfImportOverride(item, mode);
+        }
+        tableModel.refreshRows();
+        persistState();
+        refreshPdfRoutes(pdfItems);
+        // 导入方式不同，缓存键也不同：按新的方式重新预转换
+        preConversionQueue.enqueue(pdfItems);
+        logger.info("已将 " + pdfItems.size() + " 个 PDF 的导入方式设为："
+                + (mode == null ? "缺省（" + getSelectedPdfImportMode().getLabel() + "）" : mode.getLabel()));
+    }
+
+    private MergeEngine getSelectedMergeEngine() {
+        MergeEngine selected = (MergeEngine) mergeEngineCombo.getSelectedItem();
+        return selected == null ? MergeEngine.ALT_CHUNK : selected;
+    }
+
     private void applyModeSelection(DocConverterMode mode) {
         modeCombo.setSelectedItem(mode);
     }
@@ -950,12 +1313,14 @@ public class MainFrame extends JFrame {
     private void handleModeChange() {
         configData.setDocConverterMode(getSelectedMode().name());
         persistState();
-        refreshComProbeStatus(false);
+        refreshComProbeStatus();
+        refreshPdfRoutes(currentItems);
     }
 
     private void loadPreviewForSelection() {
         int row = table.getSelectedRow();
         if (row < 0 || row >= tableModel.getRowCount()) {
+            conversionScheduler.cancelQueued(ConversionScheduler.Priority.PREVIEW);
             showPreviewEmpty();
             return;
         }
@@ -967,6 +1332,8 @@ public class MainFrame extends JFrame {
         if (previewWorker != null && !previewWorker.isDone()) {
             previewWorker.cancel(true);
         }
+        // 选中项已变化：排队中的旧预览转换不再需要，正在进行的转换完成后照常写入缓存
+        conversionScheduler.cancelQueued(ConversionScheduler.Priority.PREVIEW);
         previewTarget = item.getPath();
         showPreviewLoading(item);
         previewWorker = new SwingWorker<>() {
@@ -1043,10 +1410,23 @@ public class MainFrame extends JFrame {
         return "<html>" + text.replace("\n", "<br>") + "</html>";
     }
 
-    private record ProgressStatus(int current, int total, String name) {
+    private static String describeStep(PowerShellRunner.Progress step) {
+        String text = switch (step.unit()) {
+            case "page" -> "第 " + step.current() + "/" + step.total() + " 页";
+            case "step" -> "步骤 " + step.current() + "/" + step.total();
+            default -> step.unit() + " " + step.current() + "/" + step.total();
+        };
+        return step.message().isEmpty() ? text : text + " " + step.message();
+    }
+
+    /**
+     * detail 非空表示单个文件内部的转换步骤进度。
+     */
+    private record ProgressStatus(int current, int total, String name, boolean conversion, String detail) {
     }
 
     private static class MissingAwareRenderer extends DefaultTableCellRenderer {
+        private static final Color QUARANTINED_FOREGROUND = new Color(0xC0, 0x50, 0x00);
         private final FileTableModel model;
 
         public MissingAwareRenderer(FileTableModel model) {
@@ -1060,6 +1440,8 @@ public class MainFrame extends JFrame {
                 FileItem item = model.getItemAt(row);
                 if (item.isMissing()) {
                     comp.setForeground(Color.GRAY);
+                } else if (item.getQuarantineNote() != null && !isSelected) {
+                    comp.setForeground(QUARANTINED_FOREGROUND);
                 } else {
                     comp.setForeground(isSelected ? table.getSelectionForeground() : table.getForeground());
                 }
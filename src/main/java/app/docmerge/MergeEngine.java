@@ -0,0 +1,44 @@
+package app.docmerge;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public enum MergeEngine {
+    ALT_CHUNK("altChunk（内存）"),
+    STREAMING("altChunk（流式，低内存）"),
+    NATIVE("正文级合并（打开无需转换）");
+
+    private final String label;
+
+    MergeEngine(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    public MergeWriter createWriter(Path target) throws IOException {
+        return switch (this) {
+            case ALT_CHUNK -> new AltChunkMergeWriter(target);
+            case STREAMING -> new StreamingDocxWriter(target);
+            case NATIVE -> new NativeMergeWriter(target);
+        };
+    }
+
+    public static MergeEngine fromConfig(String value) {
+        if (value == null || value.isBlank()) {
+            return ALT_CHUNK;
+        }
+        try {
+            return MergeEngine.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            return ALT_CHUNK;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package app.docmerge;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * altChunk 与正文级合并在同一批 DOCX 上的对比：
+ * <pre>
+ * java -cp doc-merge-app.jar app.docmerge.MergeEngineComparison &lt;样本目录&gt; [重复次数]
+ * </pre>
+ * 按文件名顺序把样本目录中的 .docx 分别用各合并引擎合并，统计合并耗时、输出大小，
+ * 以及重新打开并解析输出（POI 读取全部正文文字）的耗时。altChunk 输出的正文只有嵌入引用，
+ * 打开时要由 Word 逐个转换，解析到的文字量与剩余 altChunk 数可以直观看出两者的差别。
+ */
+public final class MergeEngineComparison {
+    private static final List<MergeEngine> ENGINES = List.of(MergeEngine.ALT_CHUNK, MergeEngine.NATIVE);
+
+    private MergeEngineComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法：MergeEngineComparison <样本目录> [重复次数]");
+            System.exit(2);
+        }
+        List<Path> samples;
+        try (Stream<Path> paths = Files.walk(Path.of(args[0]))) {
+            samples = paths.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".docx"))
+                    .sorted(Comparator.comparing(Path::toString))
+                    .toList();
+        }
+        if (samples.isEmpty()) {
+            System.err.println("样本目录中没有 .docx 文件：" + args[0]);
+            System.exit(2);
+        }
+        int repeats = args.length > 1 ? Math.max(1, Integer.parseInt(args[1])) : 3;
+        PrintStream out = System.out;
+        Path workDir = Files.createTempDirectory("merge-engine-comparison-");
+
+        out.println("样本：" + samples.size() + " 个 .docx，每个引擎重复 " + repeats + " 次（取中位数）");
+        for (MergeEngine engine : ENGINES) {
+            Path output = workDir.resolve(engine.name().toLowerCase(Locale.ROOT) + ".docx");
+            long[] mergeMillis = new long[repeats];
+            long[] reopenMillis = new long[repeats];
+            Parsed parsed = null;
+            for (int i = 0; i < repeats; i++) {
+                long start = System.nanoTime();
+                merge(engine, samples, output);
+                mergeMillis[i] = (System.nanoTime() - start) / 1_000_000L;
+                start = System.nanoTime();
+                parsed = Parsed.of(output);
+                reopenMillis[i] = (System.nanoTime() - start) / 1_000_000L;
+            }
+            out.printf(Locale.ROOT, "%s：合并 %d ms，输出 %.1f KB，重新打开解析 %d ms，正文文字 %d 字，段落 %d，剩余 altChunk %d%n",
+                    engine.getLabel(), median(mergeMillis), Files.size(output) / 1024.0, median(reopenMillis),
+                    parsed.chars(), parsed.paragraphs(), parsed.altChunks());
+        }
+        out.println("合并输出保留在：" + workDir);
+    }
+
+    private static void merge(MergeEngine engine, List<Path> samples, Path output) throws IOException {
+        try (MergeWriter writer = engine.createWriter(output)) {
+            for (int i = 0; i < samples.size(); i++) {
+                if (i > 0) {
+                    writer.addPageBreak();
+                }
+                writer.appendDocx(samples.get(i));
+            }
+            writer.finish();
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private record Parsed(int chars, int paragraphs, int altChunks) {
+        static Parsed of(Path docx) throws IOException {
+            int chars;
+            int paragraphs;
+            try (InputStream in = Files.newInputStream(docx);
+                 XWPFDocument doc = new XWPFDocument(in);
+                 XWPFWordExtractor extractor = new XWPFWordExtractor(doc)) {
+                chars = extractor.getText().length();
+                paragraphs = doc.getParagraphs().size();
+            }
+            int altChunks = 0;
+            try (OPCPackage pkg = OPCPackage.open(docx.toFile(), PackageAccess.READ)) {
+                for (PackagePart part : pkg.getParts()) {
+                    if (!part.isRelationshipPart()) {
+                        altChunks += part.getRelationshipsByType(AltChunkMergeWriter.ALT_CHUNK_REL).size();
+                    }
+                }
+            } catch (InvalidFormatException e) {
+                throw new IOException("无法读取合并输出：" + docx, e);
+            }
+            return new Parsed(chars, paragraphs, altChunks);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package app.docmerge;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+
+import javax.swing.JTextArea;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * 合并输入准备（预读、解析与写入重叠）的吞吐量测试：
+ * <pre>
+ * java -cp doc-merge-app.jar app.docmerge.MergePrepareBenchmark [文件数，默认 500] [准备线程数]
+ * </pre>
+ * 生成一批带标题、正文段落与表格的 DOCX，分别以单线程无预读（准备与写入串行）和多线程预读合并，
+ * 两种方式交替各跑 {@link #ROUNDS} 轮取中位数，对每个合并引擎输出耗时与加速比。
+ * 准备阶段占用独立的 CPU 核，单核机器上不会有加速。
+ */
+public final class MergePrepareBenchmark {
+    private static final List<MergeEngine> ENGINES = List.of(MergeEngine.NATIVE, MergeEngine.ALT_CHUNK);
+    private static final int ROUNDS = 3;
+
+    private MergePrepareBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Math.max(1, Integer.parseInt(args[0])) : 500;
+        int threads = args.length > 1 ? Math.max(1, Integer.parseInt(args[1]))
+                : Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        PrintStream out = System.out;
+        Path workDir = Files.createTempDirectory("merge-prepare-benchmark-");
+        Path inputDir = Files.createDirectories(workDir.resolve("input"));
+        FileScanner scanner = new FileScanner();
+        List<FileItem> items = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Path path = inputDir.resolve(String.format(Locale.ROOT, "sample_%04d.docx", i));
+            writeSample(path, i);
+            Optional<FileItem> item = scanner.createFileItem(path, true);
+            item.ifPresent(items::add);
+        }
+        out.println("样本：" + items.size() + " 个 DOCX，位于 " + inputDir);
+
+        UiLogger logger = new UiLogger(new JTextArea());
+        for (MergeEngine engine : ENGINES) {
+            // 先跑一遍预热 JIT 与 XMLBeans 类型加载，不计入结果
+            merge(new MergeService(1, 1, null, null), items.subList(0, Math.min(20, items.size())),
+                    workDir, engine, logger);
+            long[] serialRuns = new long[ROUNDS];
+            long[] parallelRuns = new long[ROUNDS];
+            for (int round = 0; round < ROUNDS; round++) {
+                serialRuns[round] = merge(new MergeService(1, 1, null, null), items, workDir, engine, logger);
+                parallelRuns[round] = merge(new MergeService(threads, threads * 4, null, null),
+                        items, workDir, engine, logger);
+            }
+            long serial = median(serialRuns);
+            long parallel = median(parallelRuns);
+            out.printf(Locale.ROOT, "%s：串行准备 %d ms，并行准备（%d 线程，预读 %d）%d ms，加速 %.2fx%n",
+                    engine.getLabel(), serial, threads, threads * 4, parallel, (double) serial / Math.max(1, parallel));
+        }
+        out.println("合并输出保留在：" + workDir);
+        System.exit(0);
+    }
+
+    private static long merge(MergeService service, List<FileItem> items, Path workDir, MergeEngine engine,
+                              UiLogger logger) throws IOException {
+        long start = System.nanoTime();
+        service.merge(items, workDir, engine.name().toLowerCase(Locale.ROOT) + ".docx", DocConverterMode.AUTO,
+                null, engine, logger, (current, total, name) -> {
+                }, () -> false);
+        return (System.nanoTime() - start) / 1_000_000L;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static void writeSample(Path path, int index) throws IOException {
+        try (XWPFDocument doc = new XWPFDocument();
+             OutputStream out = Files.newOutputStream(path)) {
+            XWPFParagraph title = doc.createParagraph();
+            title.createRun().setText("第 " + index + " 份文档");
+            title.getRuns().get(0).setBold(true);
+            title.getRuns().get(0).setFontSize(18);
+            for (int p = 0; p < 40; p++) {
+                XWPFParagraph paragraph = doc.createParagraph();
+                paragraph.createRun().setText("第 " + (p + 1) + " 段：合并前在准备线程中读入并解析来源文档，"
+                        + "写入线程只负责把内容追加到输出文档，二者在时间上重叠。");
+            }
+            XWPFTable table = doc.createTable(8, 4);
+            for (int r = 0; r < 8; r++) {
+                for (int c = 0; c < 4; c++) {
+                    table.getRow(r).getCell(c).setText("R" + r + "C" + c);
+                }
+            }
+            doc.write(out);
+        }
+    }
+}
@@ -1,46 +1,63 @@
 package app.docmerge;
 
-import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
-import org.apache.poi.openxml4j.opc.PackagePart;
-import org.apache.poi.openxml4j.opc.PackagePartName;
-import org.apache.poi.openxml4j.opc.PackagingURIHelper;
-import org.apache.poi.openxml4j.opc.TargetMode;
-import org.apache.poi.util.Units;
-import org.apache.poi.xwpf.usermodel.BreakType;
-import org.apache.poi.xwpf.usermodel.ParagraphAlignment;
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
-import org.apache.poi.xwpf.usermodel.XWPFParagraph;
-import org.apache.poi.xwpf.usermodel.XWPFRun;
-import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTAltChunk;
-import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPageMar;
-import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPageSz;
-import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSectPr;
-
 import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.Callable;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 
 public class MergeService {
-    private static final String ALT_CHUNK_REL = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/aFChunk";
-    private static final int IMAGE_DPI = 96;
-    private static final long TWIP_TO_EMU = 635L;
+    static final int DEFAULT_PREPARE_THREADS =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    // 已转换但尚未写入的 DOC/PDF 上限，避免转换远超合并进度导致临时文件堆积
+    private static final int CONVERSION_LOOK_AHEAD = 4;
+
+    private final int prepareThreads;
+    private final int lookAhead;
+    private final ConversionCache conversionCache;
+    private final ConversionScheduler scheduler;
+
+    public MergeService() {
+        this(null, null);
+    }
+
+    public MergeService(ConversionCache conversionCache, ConversionScheduler scheduler) {
+        this(DEFAULT_PREPARE_THREADS, DEFAULT_PREPARE_THREADS * 4, conversionCache, scheduler);
+    }
+
+    /**
+     * @param prepareThreads 输入准备线程数
+     * @param lookAhead      预读窗口：最多提前准备的项数，限制同时在内存中的准备结果
+     * @param conversionCache DOC/PDF 转换结果缓存，可为 null（不使用缓存）
+     * @param scheduler       与预览、预转换共用的转换调度器，可为 null（不排队）
+     */
+    public MergeService(int prepareThreads, int lookAhead, ConversionCache conversionCache,
+                        ConversionScheduler scheduler) {
+        this.prepareThreads = Math.max(1, prepareThreads);
+        this.lookAhead = Math.max(1, lookAhead);
+        this.conversionCache = conversionCache;
+        this.scheduler = scheduler;
+    }
+
     public void merge(List<FileItem> items,
                       Path outputDir,
                       String outputName,
                       DocConverterMode mode,
                       DocComConverterResolver resolver,
+                      MergeEngine engine,
                       UiLogger logger,
                       ProgressCallback callback,
                       CancelSignal cancelSignal) throws IOException {
@@ -58,109 +75,126 @@ public class MergeService {
         Path tempFile = outputDir.resolve(fileName + ".tmp");
         Files.deleteIfExists(tempFile);
         Path tempDir = null;
-        Map<Path, Path> convertedMap = new HashMap<>();
-        Map<Path, Path> convertedPdfMap = new HashMap<>();
+        ConversionPipeline pipeline = null;
+        DocComConverter converter = null;
         int totalUnits = Math.max(items.size(), 1);
         long startTime = System.currentTimeMillis();
-        DocComConverterSelector.Selection selection = null;
+        logger.info("合并引擎：" + engine.getLabel());
+        ProgressTracker tracker = new ProgressTracker(totalUnits, callback);
 
         try {
-            List<FileItem> docItems = items.stream()
-                    .filter(item -> item.getFileType() == FileItem.FileType.DOC)
+            List<FileItem> convertItems = items.stream()
+                    .filter(item -> item.getFileType() == FileItem.FileType.DOC
+                            || item.getFileType() == FileItem.FileType.PDF)
                     .toList();
-            List<FileItem> pdfItems = items.stream()
-                    .filter(item -> item.getFileType() == FileItem.FileType.PDF)
-                    .toList();
-            if (!docItems.isEmpty() || !pdfItems.isEmpty()) {
+            if (!convertItems.isEmpty()) {
                 logger.info("DOC/PDF 转换模式：" + mode.getLabel());
                 DocComConverterResolver.Resolution resolution = resolver.resolve(mode, false);
-                selection = resolution.selection();
+                boolean hasDoc = convertItems.stream()
+                        .anyMatch(item -> item.getFileType() == FileItem.FileType.DOC);
+                boolean hasPdf = convertItems.stream()
+                        .anyMatch(item -> item.getFileType() == FileItem.FileType.PDF);
+                if (hasPdf) {
+                    logger.info("PDF 导入方式：" + resolution.pdfImportMode().getLabel());
+                    for (FileItem item : convertItems) {
+                        if (item.getFileType() != FileItem.FileType.PDF) {
+                            continue;
+                        }
+                        PdfImportMode requested = resolver.pdfImportModeFor(item.getPath());
+                        if (requested == PdfImportMode.AUTO) {
+                            String route = resolver.describePdfRoute(item.getPath());
+                            logger.info("  " + item.getName() + "：自动识别 " + route);
+                        } else if (resolver.getPdfImportOverride(item.getPath()) != null) {
+                            logger.info("  " + item.getName() + "：" + requested.getLabel());
+                        }
+                    }
+                }
+                DocComConverterSelector.Selection selection = resolution.selectionFor(hasDoc, hasPdf);
                 if (selection == null) {
                     logProbeFailure(logger, resolution.probeSummary());
                     throw new IOException(resolution.errorMessage() == null
                             ? "检测到 .doc 或 PDF 文件，但当前模式不可用，已阻止合并。"
                             : resolution.errorMessage());
                 }
-                if (!pdfItems.isEmpty() && !selection.converter().supportsPdfConversion()) {
-                    throw new IOException("当前引擎不支持 PDF 转 DOCX：" + selection.status().engineName());
+                for (FileItem item : convertItems) {
+                    if (item.getFileType() == FileItem.FileType.PDF
+                            && !selection.converter().supportsPdfConversion(item.getPath())) {
+                        throw new IOException("PDF 导入方式“" + resolver.pdfImportModeFor(item.getPath()).getLabel()
+                                + "”当前不可用：" + item.getName());
+                    }
                 }
                 logger.info("选择引擎：" + selection.status().engineName());
+                converter = selection.converter();
                 tempDir = Files.createTempDirectory("doc-merge-com-");
                 if (cancelSignal.isCancelled()) {
                     throw new MergeCancelledException("用户已取消合并");
                 }
-                if (!docItems.isEmpty()) {
-                    List<Path> inputs = docItems.stream().map(FileItem::getPath).toList();
-                    logger.info("开始批量转换 .doc 文件，共 " + inputs.size() + " 个");
-                    List<Path> outputs = selection.converter().convertBatch(inputs, tempDir);
-                    if (outputs.size() != inputs.size()) {
-                        throw new DocComConversionException("转换失败，输出文件数量不一致",
-                                inputs.get(0).toString(), "", "输出数量=" + outputs.size(), -1);
-                    }
-                    for (int i = 0; i < inputs.size(); i++) {
-                        convertedMap.put(inputs.get(i), outputs.get(i));
-                        logger.info("转换完成：" + inputs.get(i));
-                    }
-                }
-                if (cancelSignal.isCancelled()) {
-                    throw new MergeCancelledException("用户已取消合并");
-                }
+                logger.info("开始流水线转换 DOC/PDF 文件，共 " + convertItems.size()
+                        + " 个，最多提前 " + CONVERSION_LOOK_AHEAD + " 个");
+                pipeline = new ConversionPipeline(convertItems, selection.converter(), conversionCache, scheduler,
+                        tempDir, CONVERSION_LOOK_AHEAD, logger, tracker, cancelSignal);
+                callback.onConversionProgress(0, convertItems.size(), "");
+                pipeline.start();
             }
-            try (XWPFDocument document = new XWPFDocument()) {
-                AtomicInteger index = new AtomicInteger();
-                ProgressTracker tracker = new ProgressTracker(totalUnits, callback);
+            logger.info("输入准备：并行线程 " + prepareThreads + "，预读窗口 " + lookAhead);
+            try (MergeWriter writer = engine.createWriter(tempFile);
+                 OrderedPrefetcher<PreparedItem> prefetcher = new OrderedPrefetcher<>(
+                         prepareTasks(items, writer, logger), prepareThreads, lookAhead, "merge-prepare")) {
                 for (int i = 0; i < items.size(); i++) {
                     if (cancelSignal.isCancelled()) {
                         throw new MergeCancelledException("用户已取消合并");
                     }
-                    FileItem item = items.get(i);
+                    if (pipeline != null) {
+                        pipeline.checkFailure();
+                    }
+                    PreparedItem prepared = prefetcher.next(cancelSignal);
+                    FileItem item = prepared.item();
                     logger.info("开始处理：" + item.getName() + "，类型：" + item.getFileType().getLabel());
                     switch (item.getFileType()) {
                         case DOCX -> {
-                            appendDocx(document, item.getPath(), index.incrementAndGet());
-                            tracker.step(item.getName());
-                            if (i < items.size() - 1) {
-                                addPageBreak(document);
-                            }
-                        }
-                        case DOC -> {
-                            Path converted = convertedMap.get(item.getPath());
-                            if (converted == null) {
-                                throw new IOException("未找到 .doc 转换结果：" + item.getPath());
+                            try (MergeWriter.StagedDocx staged = prepared.staged()) {
+                                writer.appendDocx(staged);
                             }
-                            appendDocx(document, converted, index.incrementAndGet());
                             tracker.step(item.getName());
                             if (i < items.size() - 1) {
-                                addPageBreak(document);
+                                writer.addPageBreak();
                             }
                         }
                         case IMAGE -> {
-                            appendImageToDocx(document, item.getPath(), logger, tracker::step);
+                            appendImageToDocx(writer, prepared, logger, tracker::step);
                         }
-                        case PDF -> {
-                            if (selection == null) {
-                                throw new IOException("未选择 PDF 转换引擎：" + item.getPath());
+                        case DOC, PDF -> {
+                            if (pipeline == null) {
+                                throw new IOException("未选择 DOC/PDF 转换引擎：" + item.getPath());
                             }
-                            Path converted = convertedPdfMap.get(item.getPath());
-                            if (converted == null) {
-                                logger.info("开始转换 PDF：" + item.getName());
-                                converted = selection.converter().convertPdfToDocx(item.getPath(), tempDir);
-                                convertedPdfMap.put(item.getPath(), converted);
-                                logger.info("PDF 转换完成：" + item.getName());
-                            }
-                            appendDocx(document, converted, index.incrementAndGet());
+                            Path converted = pipeline.await(item);
+                            validateDocx(converted);
+                            writer.appendDocx(converted);
+                            pipeline.release(item);
                             tracker.step(item.getName());
                             if (i < items.size() - 1) {
-                                addPageBreak(document);
+                                writer.addPageBreak();
                             }
                         }
                     }
                 }
-                try (OutputStream out = Files.newOutputStream(tempFile)) {
-                    document.write(out);
-                }
+                writer.finish();
             }
             Files.move(tempFile, outputFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (converter != null && conversionCache != null) {
+                logger.info("转换缓存：" + conversionCache.summary());
+            }
+            if (converter != null && scheduler != null) {
+                logger.info("转换调度：" + scheduler.summary());
+            }
+            DocComConverter docConverter = converter instanceof PdfRoutingConverter routing
+                    ? routing.docConverter() : converter;
+            if (docConverter instanceof DualEngineConverter dual) {
+                logger.info("双引擎单文档耗时：" + dual.latencySummary());
+            }
+            if (converter != null) {
+                logger.info("转换子进程：" + ChildProcessTracker.global().sample().summary());
+            }
             long cost = System.currentTimeMillis() - startTime;
             logger.info("合并完成，耗时 " + cost + " ms，输出文件：" + outputFile);
         } catch (DocComConversionException e) {
@@ -174,140 +208,123 @@ public class MergeService {
             Files.deleteIfExists(tempFile);
             throw e;
         } finally {
-            cleanupTempDir(tempDir);
-        }
-    }
-
-    private void appendDocx(XWPFDocument document, Path docxPath, int index) throws IOException {
-        try (InputStream in = Files.newInputStream(docxPath)) {
-            PackagePartName partName = PackagingURIHelper.createPartName("/word/altChunk" + index + ".docx");
-            PackagePart part = document.getPackage().createPart(partName, "application/vnd.openxmlformats-officedocument.wordprocessingml.document.main");
-            try (OutputStream partOut = part.getOutputStream()) {
-                in.transferTo(partOut);
+            if (pipeline != null) {
+                pipeline.close();
             }
-            String relId = document.getPackagePart().addRelationship(partName, TargetMode.INTERNAL, ALT_CHUNK_REL).getId();
-            CTAltChunk chunk = document.getDocument().getBody().addNewAltChunk();
-            chunk.setId(relId);
-        } catch (InvalidFormatException e) {
-            throw new IOException("插入 altChunk 失败：" + docxPath.getFileName(), e);
+            TempFiles.deleteTree(tempDir);
         }
     }
 
-    private void appendImageToDocx(XWPFDocument document,
-                                   Path imagePath,
+    private void appendImageToDocx(MergeWriter writer,
+                                   PreparedItem prepared,
                                    UiLogger logger,
                                    ProgressStepCallback stepCallback) throws IOException {
-        BufferedImage image;
+        Path imagePath = prepared.source();
         try {
-            image = ImageIO.read(imagePath.toFile());
+            writer.appendImage(imagePath, prepared.widthPx(), prepared.heightPx());
         } catch (IOException e) {
-            logger.error("读取图片失败：" + imagePath, e);
-            throw e;
-        }
-        if (image == null) {
-            IOException e = new IOException("无法识别的图片格式：" + imagePath);
-            logger.error("读取图片失败：" + imagePath, e);
-            throw e;
-        }
-
-        long widthEmu = toEmuFromPixels(image.getWidth(), IMAGE_DPI);
-        long heightEmu = toEmuFromPixels(image.getHeight(), IMAGE_DPI);
-        long maxWidthEmu = resolveUsablePageWidthEmu(document);
-        if (widthEmu > maxWidthEmu) {
-            double scale = (double) maxWidthEmu / (double) widthEmu;
-            widthEmu = Math.round(widthEmu * scale);
-            heightEmu = Math.round(heightEmu * scale);
-        }
-
-        XWPFParagraph imagePara = document.createParagraph();
-        imagePara.setAlignment(ParagraphAlignment.CENTER);
-        XWPFRun run = imagePara.createRun();
-        try (InputStream in = Files.newInputStream(imagePath)) {
-            run.addPicture(in, pictureType(imagePath), "",
-                    safeEmu(widthEmu), safeEmu(heightEmu));
-        } catch (Exception e) {
             logger.error("插入图片失败：" + imagePath, e);
-            throw new IOException("插入图片失败：" + imagePath.getFileName(), e);
+            throw e;
         }
-        addPageBreak(document);
+        writer.addPageBreak();
         stepCallback.step(imagePath.getFileName().toString());
         logger.info("图片插入完成：" + imagePath.getFileName());
     }
 
-    private void addPageBreak(XWPFDocument document) {
-        XWPFParagraph para = document.createParagraph();
-        para.createRun().addBreak(BreakType.PAGE);
-    }
-
-    private int pictureType(Path imagePath) throws IOException {
-        String lower = imagePath.getFileName().toString().toLowerCase(Locale.ROOT);
-        if (lower.endsWith(".png")) {
-            return XWPFDocument.PICTURE_TYPE_PNG;
-        }
-        if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
-            return XWPFDocument.PICTURE_TYPE_JPEG;
-        }
-        if (lower.endsWith(".bmp")) {
-            return XWPFDocument.PICTURE_TYPE_BMP;
+    private List<Callable<PreparedItem>> prepareTasks(List<FileItem> items, MergeWriter writer, UiLogger logger) {
+        List<Callable<PreparedItem>> tasks = new ArrayList<>();
+        for (FileItem item : items) {
+            tasks.add(() -> prepare(item, writer, logger));
         }
-        if (lower.endsWith(".gif")) {
-            return XWPFDocument.PICTURE_TYPE_GIF;
-        }
-        throw new IOException("不支持的图片格式：" + imagePath.getFileName());
+        return tasks;
     }
 
-    private long resolveUsablePageWidthEmu(XWPFDocument document) {
-        CTSectPr sectPr = document.getDocument().getBody().getSectPr();
-        long pageWidthTwips = 12240L;
-        long marginLeftTwips = 1440L;
-        long marginRightTwips = 1440L;
-        if (sectPr != null) {
-            if (sectPr.isSetPgSz()) {
-                CTPageSz pageSz = sectPr.getPgSz();
-                Object widthValue = pageSz.getW();
-                if (widthValue instanceof Number number) {
-                    pageWidthTwips = number.longValue();
-                }
+    /**
+     * 在准备线程中执行：DOCX 校验并由写入器预先读入、解析（正文级合并在此完成 XML 解析），图片读取尺寸。
+     * 不触碰输出文档。
+     */
+    private PreparedItem prepare(FileItem item, MergeWriter writer, UiLogger logger) throws IOException {
+        return switch (item.getFileType()) {
+            case DOCX -> {
+                validateDocx(item.getPath());
+                yield new PreparedItem(item, item.getPath(), writer.stageDocx(item.getPath()), 0, 0);
             }
-            if (sectPr.isSetPgMar()) {
-                CTPageMar pageMar = sectPr.getPgMar();
-                Object leftValue = pageMar.getLeft();
-                if (leftValue instanceof Number number) {
-                    marginLeftTwips = number.longValue();
-                }
-                Object rightValue = pageMar.getRight();
-                if (rightValue instanceof Number number) {
-                    marginRightTwips = number.longValue();
+            case IMAGE -> {
+                int[] size;
+                try {
+                    size = readImageSize(item.getPath());
+                } catch (IOException e) {
+                    logger.error("读取图片失败：" + item.getPath(), e);
+                    throw e;
                 }
+                yield new PreparedItem(item, item.getPath(), null, size[0], size[1]);
             }
-        }
-        long widthTwips = Math.max(1, pageWidthTwips - marginLeftTwips - marginRightTwips);
-        return widthTwips * TWIP_TO_EMU;
+            // DOC/PDF 由转换流水线产出，轮到该项时在写入线程中等待
+            case DOC, PDF -> new PreparedItem(item, null, null, 0, 0);
+        };
     }
 
-    private long toEmuFromPixels(int pixels, int dpi) {
-        double inches = (double) pixels / (double) dpi;
-        double points = inches * 72.0;
-        return Math.round(Units.toEMU(points));
+    /**
+     * 只读取 ZIP 中央目录，提前发现损坏或伪装成 .docx 的文件。
+     */
+    private void validateDocx(Path path) throws IOException {
+        try (ZipFile zip = new ZipFile(path.toFile())) {
+            if (zip.getEntry("[Content_Types].xml") == null) {
+                throw new IOException("不是有效的 DOCX 文件（缺少 [Content_Types].xml）：" + path.getFileName());
+            }
+        } catch (ZipException e) {
+            throw new IOException("不是有效的 DOCX 文件：" + path.getFileName(), e);
+        }
     }
 
-    private int safeEmu(long emu) {
-        if (emu > Integer.MAX_VALUE) {
-            return Integer.MAX_VALUE;
-        }
-        if (emu < 0) {
-            return 0;
+    /**
+     * 只读取图片头部获取宽高，不解码像素，避免大图占用堆内存。
+     */
+    private int[] readImageSize(Path imagePath) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(imagePath.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("无法识别的图片格式：" + imagePath);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
         }
-        return (int) emu;
     }
 
     private String defaultOutputName() {
         return "合并结果_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".docx";
     }
 
+    private record PreparedItem(FileItem item, Path source, MergeWriter.StagedDocx staged, int widthPx, int heightPx)
+            implements Closeable {
+        @Override
+        public void close() throws IOException {
+            if (staged != null) {
+                staged.close();
+            }
+        }
+    }
+
     @FunctionalInterface
     public interface ProgressCallback {
         void onProgress(int current, int total, String name);
+
+        /**
+         * DOC/PDF 转换进度（来自转换线程），与合并进度独立。
+         */
+        default void onConversionProgress(int converted, int total, String name) {
+        }
+
+        /**
+         * 单个文件转换过程中的步骤/页数进度（引擎支持时才有，来自转换线程）。
+         */
+        default void onConversionStep(String name, PowerShellRunner.Progress progress) {
+        }
     }
 
     public interface CancelSignal {
@@ -325,26 +342,10 @@ public class MergeService {
         }
     }
 
-    private void cleanupTempDir(Path tempDir) {
-        if (tempDir == null) {
-            return;
-        }
-        try {
-            Files.walk(tempDir)
-                    .sorted((a, b) -> b.getNameCount() - a.getNameCount())
-                    .forEach(path -> {
-                        try {
-                            Files.deleteIfExists(path);
-                        } catch (IOException ignored) {
-                            // ignore
-                        }
-                    });
-        } catch (IOException ignored) {
-            // ignore
-        }
-    }
-
-    private static class ProgressTracker {
+    /**
+     * 合并进度与转换进度分别计数：step 由写入线程调用，onConverted/onStep 由转换线程调用。
+     */
+    private static class ProgressTracker implements ConversionPipeline.ProgressListener {
         private final int total;
         private final ProgressCallback callback;
         private int current;
@@ -355,10 +356,20 @@ public class MergeService {
             this.current = 0;
         }
 
-        private void step(String name) {
+        private synchronized void step(String name) {
             current += 1;
             callback.onProgress(current, total, name);
         }
+
+        @Override
+        public synchronized void onConverted(int converted, int total, String name) {
+            callback.onConversionProgress(converted, total, name);
+        }
+
+        @Override
+        public synchronized void onStep(String name, PowerShellRunner.Progress progress) {
+            callback.onConversionStep(name, progress);
+        }
     }
 
     private void logProbeFailure(UiLogger logger, DocComConverterSelector.ProbeSummary probeSummary) {
@@ -0,0 +1,101 @@
+package app.docmerge;
+
+import org.apache.poi.util.Units;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * 合并输出写入器：MergeService 按列表顺序调用，负责把 DOCX / 图片追加到目标文档。
+ */
+public interface MergeWriter extends Closeable {
+    int IMAGE_DPI = 96;
+    long TWIP_TO_EMU = 635L;
+    // 默认 Letter 页宽 12240 twips，左右边距各 1440 twips（与 new XWPFDocument() 一致）
+    long DEFAULT_USABLE_WIDTH_TWIPS = 12240L - 1440L - 1440L;
+
+    void appendDocx(Path docxPath) throws IOException;
+
+    /**
+     * 在准备线程中调用（可与其它准备任务并发，不触碰输出文档）：提前读入、解析 DOCX，
+     * 写入线程再用 {@link #appendDocx(StagedDocx)} 追加。默认不做预处理。
+     */
+    default StagedDocx stageDocx(Path docxPath) throws IOException {
+        return new StagedDocx(docxPath, null, null);
+    }
+
+    default void appendDocx(StagedDocx staged) throws IOException {
+        appendDocx(staged.path());
+    }
+
+    void appendImage(Path imagePath, int widthPx, int heightPx) throws IOException;
+
+    void addPageBreak() throws IOException;
+
+    /**
+     * 写出完整文档到构造时指定的目标文件（通常是 .tmp 文件，由调用方负责原子替换）。
+     */
+    void finish() throws IOException;
+
+    static long toEmuFromPixels(int pixels, int dpi) {
+        double inches = (double) pixels / (double) dpi;
+        double points = inches * 72.0;
+        return Math.round(Units.toEMU(points));
+    }
+
+    static int safeEmu(long emu) {
+        if (emu > Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        if (emu < 0) {
+            return 0;
+        }
+        return (int) emu;
+    }
+
+    /**
+     * 按可用页宽等比缩放，返回 {宽, 高}（EMU）。
+     */
+    static long[] fitImageExtent(int widthPx, int heightPx, long maxWidthEmu) {
+        long widthEmu = toEmuFromPixels(widthPx, IMAGE_DPI);
+        long heightEmu = toEmuFromPixels(heightPx, IMAGE_DPI);
+        if (widthEmu > maxWidthEmu) {
+            double scale = (double) maxWidthEmu / (double) widthEmu;
+            widthEmu = Math.round(widthEmu * scale);
+            heightEmu = Math.round(heightEmu * scale);
+        }
+        return new long[]{widthEmu, heightEmu};
+    }
+
+    static String imageExtension(Path imagePath) throws IOException {
+        String lower = imagePath.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".png")) {
+            return "png";
+        }
+        if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
+            return "jpeg";
+        }
+        if (lower.endsWith(".bmp")) {
+            return "bmp";
+        }
+        if (lower.endsWith(".gif")) {
+            return "gif";
+        }
+        throw new IOException("不支持的图片格式：" + imagePath.getFileName());
+    }
+
+    /**
+     * 准备阶段读入的 DOCX：content 为文件内容，document 为已解析的文档（正文级合并时），均可为 null。
+     */
+    record StagedDocx(Path path, byte[] content, XWPFDocument document) implements Closeable {
+        @Override
+        public void close() throws IOException {
+            if (document != null) {
+                document.close();
+            }
+        }
+    }
+}
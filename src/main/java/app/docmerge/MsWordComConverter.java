@@ -22,4 +22,9 @@ public class MsWordComConverter extends AbstractDocComConverter {
     protected int[] saveFormatPriority() {
         return new int[]{FORMAT_DOCX_WORD, FORMAT_DOCX_ALT};
     }
+
+    @Override
+    protected String officeProcessName() {
+        return "WINWORD";
+    }
 }
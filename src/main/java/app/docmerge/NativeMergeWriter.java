@@ -0,0 +1,601 @@
+package app.docmerge;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackagePartName;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.openxml4j.opc.TargetMode;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTAbstractNum;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBody;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTHdrFtrRef;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTNum;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTNumbering;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTP;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSectPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTStyle;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTStyles;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.NumberingDocument;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STHdrFtr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STSectionMark;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STStyleType;
+
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 正文级合并：把每个 DOCX 的段落、表格、样式、编号、页眉页脚和媒体直接导入目标正文，
+ * 输出为普通 WordprocessingML，Word 打开时无需逐个转换 altChunk。
+ * <ul>
+ *   <li>样式按 styleId 去重：定义相同则复用，冲突则重命名并改写引用；</li>
+ *   <li>编号定义（abstractNum）按内容去重，编号实例（num）每个来源独立，保证各文档编号各自从头开始；</li>
+ *   <li>关系（图片、超链接、页眉页脚、嵌入对象等）复制到目标包并重映射 r:id；</li>
+ *   <li>每个来源保留自己的节属性（纸张、边距、页眉页脚），以分节符代替分页符。</li>
+ * </ul>
+ * 含脚注、尾注或批注引用的文档无法安全合并，回退为 altChunk 嵌入。
+ * 后续文档与首个文档的 docDefaults 不同时，以首个文档为准。
+ */
+public class NativeMergeWriter extends AltChunkMergeWriter {
+    private static final String NS_W = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final String NS_R = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String REL_HEADER = NS_R + "/header";
+    private static final String REL_FOOTER = NS_R + "/footer";
+    private static final String HEADER_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.wordprocessingml.header+xml";
+    private static final String FOOTER_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.wordprocessingml.footer+xml";
+    private static final String XPATH_NS = "declare namespace w='" + NS_W + "' ";
+
+    private static final Set<String> STYLE_REF_ELEMENTS = Set.of(
+            "pStyle", "rStyle", "tblStyle", "basedOn", "next", "link", "numStyleLink", "styleLink");
+    // 这些部件由样式/编号合并单独处理，或属于文档级设置，不随正文复制
+    private static final Set<String> SKIPPED_REL_TYPES = Set.of(
+            "styles", "numbering", "settings", "webSettings", "fontTable", "theme", "customXml",
+            "glossaryDocument", "stylesWithEffects", "footnotes", "endnotes", "comments",
+            "people", "commentsExtended", "commentsIds", "commentsExtensible");
+
+    private final CTStyles styles = CTStyles.Factory.newInstance();
+    private final Map<String, CTStyle> stylesById = new HashMap<>();
+    private final CTNumbering numbering = CTNumbering.Factory.newInstance();
+    private final Map<String, BigInteger> abstractNumByContent = new HashMap<>();
+    private BigInteger nextAbstractNumId = BigInteger.ZERO;
+    private BigInteger nextNumId = BigInteger.ONE;
+    private int sourceIndex;
+    private CTSectPr pendingSectPr;
+    private boolean headerImported;
+    private boolean footerImported;
+    private String blankHeaderRelId;
+    private String blankFooterRelId;
+
+    public NativeMergeWriter(Path target) {
+        super(target);
+    }
+
+    @Override
+    public void appendDocx(Path docxPath) throws IOException {
+        try (StagedDocx staged = stageDocx(docxPath)) {
+            appendDocx(staged);
+        }
+    }
+
+    /**
+     * 读入并解析来源文档：解析是正文级合并中最耗时的一步，放在准备线程中并行完成。
+     * 解析结果只属于这一次追加，写入时会被就地改写。
+     */
+    @Override
+    public StagedDocx stageDocx(Path docxPath) throws IOException {
+        byte[] content = Files.readAllBytes(docxPath);
+        return new StagedDocx(docxPath, content, new XWPFDocument(new ByteArrayInputStream(content)));
+    }
+
+    @Override
+    public void appendDocx(StagedDocx staged) throws IOException {
+        if (staged.document() == null) {
+            appendDocx(staged.path());
+            return;
+        }
+        flushPendingSection();
+        Path docxPath = staged.path();
+        XWPFDocument source = staged.document();
+        try {
+            CTBody body = source.getDocument().getBody();
+            if (body == null) {
+                return;
+            }
+            if (requiresAltChunk(body)) {
+                super.appendDocx(staged);
+                return;
+            }
+            sourceIndex++;
+            CTNumbering sourceNumbering = readNumbering(source);
+            Map<String, String> numMap = reserveNumIds(sourceNumbering);
+            List<CTStyle> newStyles = new ArrayList<>();
+            Map<String, String> styleMap = planStyles(source, numMap, newStyles);
+            importNumbering(sourceNumbering, styleMap, numMap);
+            addStyles(newStyles, styleMap, numMap);
+
+            PartCopier copier = new PartCopier(styleMap, numMap);
+            Map<String, String> relMap = importRelationships(source.getPackagePart(), copier);
+            remapReferences(body, relMap, styleMap, numMap);
+            applyDefaultParagraphStyle(body, renamedDefaultStyle(source, styleMap));
+
+            CTSectPr lastSection = CTSectPr.Factory.newInstance();
+            if (body.isSetSectPr()) {
+                lastSection = (CTSectPr) body.getSectPr().copy();
+                body.unsetSectPr();
+            }
+            prepareFirstSection(body, lastSection);
+            copyBodyContent(body);
+            pendingSectPr = lastSection;
+        } catch (XmlException | InvalidFormatException e) {
+            throw new IOException("正文级合并失败：" + docxPath.getFileName(), e);
+        }
+    }
+
+    @Override
+    public void appendImage(Path imagePath, int widthPx, int heightPx) throws IOException {
+        flushPendingSection();
+        super.appendImage(imagePath, widthPx, heightPx);
+    }
+
+    @Override
+    public void addPageBreak() {
+        // 分节符（下一页）本身就会换页，不再额外插入分页符
+        if (flushPendingSection()) {
+            return;
+        }
+        super.addPageBreak();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (pendingSectPr != null) {
+            document.getDocument().getBody().setSectPr(pendingSectPr);
+            pendingSectPr = null;
+        }
+        if (styles.sizeOfStyleArray() > 0 || styles.isSetDocDefaults()) {
+            document.createStyles().setStyles(styles);
+        }
+        if (numbering.sizeOfNumArray() > 0) {
+            document.createNumbering().setNumbering(numbering);
+        }
+        super.finish();
+    }
+
+    private boolean requiresAltChunk(CTBody body) {
+        XmlObject[] refs = body.selectPath(XPATH_NS
+                + ".//w:footnoteReference | .//w:endnoteReference | .//w:commentReference | .//w:commentRangeStart");
+        return refs.length > 0;
+    }
+
+    /**
+     * 样式去重：同 styleId 的已有样式（已改写为目标包中的引用）与来源样式按同一组样式/编号映射改写后的内容比较，
+     * 相同则复用，否则重命名。重命名会改变其它样式的 basedOn/link 引用，因此反复比较直到没有新的重命名。
+     */
+    private Map<String, String> planStyles(XWPFDocument source, Map<String, String> numMap, List<CTStyle> newStyles)
+            throws IOException, XmlException {
+        Map<String, String> styleMap = new HashMap<>();
+        if (source.getStyles() == null) {
+            return styleMap;
+        }
+        CTStyles sourceStyles = source.getStyle();
+        if (!styles.isSetDocDefaults() && sourceStyles.isSetDocDefaults()) {
+            styles.setDocDefaults(sourceStyles.getDocDefaults());
+        }
+        if (!styles.isSetLatentStyles() && sourceStyles.isSetLatentStyles()) {
+            styles.setLatentStyles(sourceStyles.getLatentStyles());
+        }
+        List<CTStyle> candidates = new ArrayList<>();
+        for (CTStyle style : sourceStyles.getStyleArray()) {
+            String id = style.getStyleId();
+            if (id == null) {
+                continue;
+            }
+            styleMap.put(id, id);
+            if (stylesById.containsKey(id)) {
+                candidates.add(style);
+            }
+        }
+        Set<String> renamed = new HashSet<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (CTStyle style : candidates) {
+                String id = style.getStyleId();
+                if (renamed.contains(id)) {
+                    continue;
+                }
+                CTStyle normalized = (CTStyle) style.copy();
+                remapReferences(normalized, null, styleMap, numMap);
+                if (!stylesById.get(id).xmlText().equals(normalized.xmlText())) {
+                    styleMap.put(id, uniqueStyleId(id, styleMap));
+                    renamed.add(id);
+                    changed = true;
+                }
+            }
+        }
+        for (CTStyle style : sourceStyles.getStyleArray()) {
+            String id = style.getStyleId();
+            if (id != null && (!stylesById.containsKey(id) || renamed.contains(id))) {
+                newStyles.add(style);
+            }
+        }
+        return styleMap;
+    }
+
+    private void addStyles(List<CTStyle> newStyles, Map<String, String> styleMap, Map<String, String> numMap) {
+        for (CTStyle style : newStyles) {
+            String sourceId = style.getStyleId();
+            String targetId = styleMap.get(sourceId);
+            CTStyle copy = styles.addNewStyle();
+            copy.set(style);
+            if (!targetId.equals(sourceId)) {
+                copy.setStyleId(targetId);
+                if (copy.isSetDefault()) {
+                    copy.unsetDefault();
+                }
+                if (copy.isSetName()) {
+                    copy.getName().setVal(copy.getName().getVal() + " (" + sourceIndex + ")");
+                }
+            }
+            remapReferences(copy, null, styleMap, numMap);
+            stylesById.put(targetId, copy);
+        }
+    }
+
+    private String uniqueStyleId(String id, Map<String, String> styleMap) {
+        String candidate = id + "_" + sourceIndex;
+        int counter = 1;
+        while (stylesById.containsKey(candidate) || styleMap.containsKey(candidate)
+                || styleMap.containsValue(candidate)) {
+            candidate = id + "_" + sourceIndex + "_" + counter++;
+        }
+        return candidate;
+    }
+
+    /**
+     * 来源文档的默认段落样式被重命名时，无显式样式的段落需要显式指向重命名后的样式，
+     * 否则会继承首个文档的默认样式。
+     */
+    private String renamedDefaultStyle(XWPFDocument source, Map<String, String> styleMap) throws IOException, XmlException {
+        if (source.getStyles() == null) {
+            return null;
+        }
+        for (CTStyle style : source.getStyle().getStyleArray()) {
+            if (style.isSetDefault() && isTrue(String.valueOf(style.getDefault()))
+                    && style.getType() == STStyleType.PARAGRAPH) {
+                String mapped = styleMap.get(style.getStyleId());
+                return mapped == null || mapped.equals(style.getStyleId()) ? null : mapped;
+            }
+        }
+        return null;
+    }
+
+    private void applyDefaultParagraphStyle(CTBody body, String styleId) {
+        if (styleId == null) {
+            return;
+        }
+        for (XmlObject object : body.selectPath(XPATH_NS + ".//w:p")) {
+            if (object instanceof CTP paragraph) {
+                CTPPr pPr = paragraph.isSetPPr() ? paragraph.getPPr() : paragraph.addNewPPr();
+                if (!pPr.isSetPStyle()) {
+                    pPr.addNewPStyle().setVal(styleId);
+                }
+            }
+        }
+    }
+
+    private CTNumbering readNumbering(XWPFDocument source) throws IOException, XmlException {
+        if (source.getNumbering() == null) {
+            return null;
+        }
+        try (InputStream in = source.getNumbering().getPackagePart().getInputStream()) {
+            return NumberingDocument.Factory.parse(in).getNumbering();
+        }
+    }
+
+    /**
+     * 编号实例（num）每个来源独立编号，先分配目标 numId，样式比较与改写都使用这份映射。
+     */
+    private Map<String, String> reserveNumIds(CTNumbering sourceNumbering) {
+        Map<String, String> numMap = new HashMap<>();
+        if (sourceNumbering == null) {
+            return numMap;
+        }
+        Set<BigInteger> abstractIds = new HashSet<>();
+        for (CTAbstractNum abstractNum : sourceNumbering.getAbstractNumArray()) {
+            abstractIds.add(abstractNum.getAbstractNumId());
+        }
+        for (CTNum num : sourceNumbering.getNumArray()) {
+            if (num.getAbstractNumId() == null || !abstractIds.contains(num.getAbstractNumId().getVal())) {
+                continue;
+            }
+            numMap.put(num.getNumId().toString(), nextNumId.toString());
+            nextNumId = nextNumId.add(BigInteger.ONE);
+        }
+        return numMap;
+    }
+
+    private void importNumbering(CTNumbering sourceNumbering, Map<String, String> styleMap, Map<String, String> numMap) {
+        if (sourceNumbering == null) {
+            return;
+        }
+        Map<BigInteger, BigInteger> abstractMap = new HashMap<>();
+        for (CTAbstractNum abstractNum : sourceNumbering.getAbstractNumArray()) {
+            CTAbstractNum copy = (CTAbstractNum) abstractNum.copy();
+            remapReferences(copy, null, styleMap, null);
+            BigInteger sourceId = copy.getAbstractNumId();
+            String key = contentKey(copy);
+            BigInteger targetId = abstractNumByContent.get(key);
+            if (targetId == null) {
+                targetId = nextAbstractNumId;
+                nextAbstractNumId = nextAbstractNumId.add(BigInteger.ONE);
+                copy.setAbstractNumId(targetId);
+                numbering.addNewAbstractNum().set(copy);
+                abstractNumByContent.put(key, targetId);
+            }
+            abstractMap.put(sourceId, targetId);
+        }
+        for (CTNum num : sourceNumbering.getNumArray()) {
+            String targetNumId = numMap.get(num.getNumId().toString());
+            if (targetNumId == null) {
+                continue;
+            }
+            CTNum copy = numbering.addNewNum();
+            copy.set(num);
+            copy.setNumId(new BigInteger(targetNumId));
+            copy.getAbstractNumId().setVal(abstractMap.get(num.getAbstractNumId().getVal()));
+        }
+    }
+
+    /**
+     * 去重键：忽略 abstractNumId 与 nsid/tmpl 这类每次保存都会变化的标识。
+     */
+    private String contentKey(CTAbstractNum abstractNum) {
+        CTAbstractNum normalized = (CTAbstractNum) abstractNum.copy();
+        normalized.setAbstractNumId(BigInteger.ZERO);
+        if (normalized.isSetNsid()) {
+            normalized.unsetNsid();
+        }
+        if (normalized.isSetTmpl()) {
+            normalized.unsetTmpl();
+        }
+        return normalized.xmlText();
+    }
+
+    private Map<String, String> importRelationships(PackagePart sourcePart, PartCopier copier) throws InvalidFormatException, IOException {
+        Map<String, String> relMap = new HashMap<>();
+        PackagePart targetPart = document.getPackagePart();
+        for (PackageRelationship rel : sourcePart.getRelationships()) {
+            String type = rel.getRelationshipType();
+            if (SKIPPED_REL_TYPES.contains(type.substring(type.lastIndexOf('/') + 1))) {
+                continue;
+            }
+            String newId;
+            if (rel.getTargetMode() == TargetMode.EXTERNAL) {
+                newId = targetPart.addExternalRelationship(rel.getTargetURI().toString(), type).getId();
+            } else {
+                PackagePart related = sourcePart.getRelatedPart(rel);
+                if (related == null) {
+                    continue;
+                }
+                PackagePart copied = copier.copy(related);
+                newId = targetPart.addRelationship(copied.getPartName(), TargetMode.INTERNAL, type).getId();
+            }
+            if (REL_HEADER.equals(type)) {
+                headerImported = true;
+            } else if (REL_FOOTER.equals(type)) {
+                footerImported = true;
+            }
+            relMap.put(rel.getId(), newId);
+        }
+        return relMap;
+    }
+
+    /**
+     * 改写 r:id、样式引用与编号引用。
+     */
+    private void remapReferences(XmlObject root,
+                                 Map<String, String> relMap,
+                                 Map<String, String> styleMap,
+                                 Map<String, String> numMap) {
+        try (XmlCursor cursor = root.newCursor(); XmlCursor end = root.newCursor()) {
+            end.toEndToken();
+            while (cursor.comparePosition(end) < 0 && !cursor.toNextToken().isNone()) {
+                if (!cursor.isAttr()) {
+                    continue;
+                }
+                QName name = cursor.getName();
+                String value = cursor.getTextValue();
+                String replacement = null;
+                if (relMap != null && NS_R.equals(name.getNamespaceURI())) {
+                    replacement = relMap.get(value);
+                } else if (NS_W.equals(name.getNamespaceURI()) && "val".equals(name.getLocalPart())) {
+                    cursor.push();
+                    cursor.toParent();
+                    String parent = cursor.getName().getLocalPart();
+                    cursor.pop();
+                    if (styleMap != null && STYLE_REF_ELEMENTS.contains(parent)) {
+                        replacement = styleMap.get(value);
+                    } else if (numMap != null && "numId".equals(parent)) {
+                        replacement = numMap.get(value);
+                    }
+                }
+                if (replacement != null && !replacement.equals(value)) {
+                    cursor.setTextValue(replacement);
+                }
+            }
+        }
+    }
+
+    /**
+     * 来源首节：保证以新页开始；若前面的文档带有页眉页脚而本节没有，显式指向空白页眉页脚，避免继承。
+     */
+    private void prepareFirstSection(CTBody body, CTSectPr lastSection) throws InvalidFormatException, IOException {
+        CTSectPr first = lastSection;
+        XmlObject[] sections = body.selectPath(XPATH_NS + "$this/w:p/w:pPr/w:sectPr");
+        if (sections.length > 0 && sections[0] instanceof CTSectPr sectPr) {
+            first = sectPr;
+        }
+        if (first.isSetType() && first.getType().getVal() != STSectionMark.ODD_PAGE
+                && first.getType().getVal() != STSectionMark.EVEN_PAGE) {
+            first.getType().setVal(STSectionMark.NEXT_PAGE);
+        }
+        if (headerImported && !hasDefaultReference(first.getHeaderReferenceList())) {
+            CTHdrFtrRef ref = first.addNewHeaderReference();
+            ref.setType(STHdrFtr.DEFAULT);
+            ref.setId(blankHeaderRelId());
+        }
+        if (footerImported && !hasDefaultReference(first.getFooterReferenceList())) {
+            CTHdrFtrRef ref = first.addNewFooterReference();
+            ref.setType(STHdrFtr.DEFAULT);
+            ref.setId(blankFooterRelId());
+        }
+    }
+
+    private boolean hasDefaultReference(List<CTHdrFtrRef> refs) {
+        for (CTHdrFtrRef ref : refs) {
+            if (ref.getType() == null || ref.getType() == STHdrFtr.DEFAULT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String blankHeaderRelId() throws InvalidFormatException, IOException {
+        if (blankHeaderRelId == null) {
+            blankHeaderRelId = createBlankPart("/word/header_blank.xml", HEADER_CONTENT_TYPE, REL_HEADER, "hdr");
+        }
+        return blankHeaderRelId;
+    }
+
+    private String blankFooterRelId() throws InvalidFormatException, IOException {
+        if (blankFooterRelId == null) {
+            blankFooterRelId = createBlankPart("/word/footer_blank.xml", FOOTER_CONTENT_TYPE, REL_FOOTER, "ftr");
+        }
+        return blankFooterRelId;
+    }
+
+    private String createBlankPart(String name, String contentType, String relType, String rootElement)
+            throws InvalidFormatException, IOException {
+        PackagePartName partName = uniquePartName(PackagingURIHelper.createPartName(name), 0);
+        PackagePart part = document.getPackage().createPart(partName, contentType);
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<w:" + rootElement + " xmlns:w=\"" + NS_W + "\"><w:p/></w:" + rootElement + ">";
+        try (OutputStream out = part.getOutputStream()) {
+            out.write(xml.getBytes(StandardCharsets.UTF_8));
+        }
+        return document.getPackagePart().addRelationship(partName, TargetMode.INTERNAL, relType).getId();
+    }
+
+    private void copyBodyContent(CTBody body) {
+        try (XmlCursor source = body.newCursor(); XmlCursor target = document.getDocument().getBody().newCursor()) {
+            target.toEndToken();
+            if (!source.toFirstChild()) {
+                return;
+            }
+            do {
+                source.copyXml(target);
+            } while (source.toNextSibling());
+        }
+    }
+
+    /**
+     * 把上一个来源的末节属性落为分节符段落。返回是否插入了分节符。
+     */
+    private boolean flushPendingSection() {
+        if (pendingSectPr == null) {
+            return false;
+        }
+        CTP paragraph = document.getDocument().getBody().addNewP();
+        paragraph.addNewPPr().setSectPr(pendingSectPr);
+        pendingSectPr = null;
+        return true;
+    }
+
+    private PackagePartName uniquePartName(PackagePartName sourceName, int index) throws InvalidFormatException {
+        OPCPackage pkg = document.getPackage();
+        String name = sourceName.getName();
+        int slash = name.lastIndexOf('/');
+        String dir = name.substring(0, slash + 1);
+        String file = name.substring(slash + 1);
+        PackagePartName candidate = index <= 0 && !pkg.containPart(sourceName)
+                ? sourceName
+                : PackagingURIHelper.createPartName(dir + "m" + index + "_" + file);
+        int counter = 1;
+        while (pkg.containPart(candidate)) {
+            candidate = PackagingURIHelper.createPartName(dir + "m" + index + "_" + counter++ + "_" + file);
+        }
+        return candidate;
+    }
+
+    private static boolean isTrue(String value) {
+        return "1".equals(value) || "true".equalsIgnoreCase(value) || "on".equalsIgnoreCase(value);
+    }
+
+    /**
+     * 递归复制部件及其下级关系；下级关系保留原 Id，因此部件内容无需改写 r:id。
+     */
+    private final class PartCopier {
+        private final Map<String, String> styleMap;
+        private final Map<String, String> numMap;
+        private final Map<PackagePartName, PackagePart> copied = new HashMap<>();
+
+        private PartCopier(Map<String, String> styleMap, Map<String, String> numMap) {
+            this.styleMap = styleMap;
+            this.numMap = numMap;
+        }
+
+        private PackagePart copy(PackagePart source) throws InvalidFormatException, IOException {
+            PackagePart existing = copied.get(source.getPartName());
+            if (existing != null) {
+                return existing;
+            }
+            PackagePartName name = uniquePartName(source.getPartName(), sourceIndex);
+            PackagePart target = document.getPackage().createPart(name, source.getContentType());
+            copied.put(source.getPartName(), target);
+            String contentType = source.getContentType();
+            try (InputStream in = source.getInputStream(); OutputStream out = target.getOutputStream()) {
+                if (HEADER_CONTENT_TYPE.equals(contentType) || FOOTER_CONTENT_TYPE.equals(contentType)) {
+                    XmlObject xml = XmlObject.Factory.parse(in);
+                    remapReferences(xml, null, styleMap, numMap);
+                    xml.save(out);
+                } else {
+                    in.transferTo(out);
+                }
+            } catch (XmlException e) {
+                throw new IOException("复制页眉页脚失败：" + source.getPartName().getName(), e);
+            }
+            for (PackageRelationship rel : source.getRelationships()) {
+                if (rel.getTargetMode() == TargetMode.EXTERNAL) {
+                    target.addExternalRelationship(rel.getTargetURI().toString(), rel.getRelationshipType(), rel.getId());
+                    continue;
+                }
+                PackagePart related = source.getRelatedPart(rel);
+                if (related == null) {
+                    continue;
+                }
+                PackagePart child = copy(related);
+                target.addRelationship(child.getPartName(), TargetMode.INTERNAL, rel.getRelationshipType(), rel.getId());
+            }
+            return target;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package app.docmerge;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 有界预取：在线程池中提前准备后续最多 window 项，调用方（唯一的写入线程）按列表顺序逐个取出。
+ * <p>
+ * 取出的项由调用方负责关闭；关闭预取器时，已准备好但尚未取出的项（包括关闭之后才准备完的）
+ * 若实现了 {@link AutoCloseable} 则由预取器关闭，避免取消或失败时泄漏已解析的文档与临时文件。
+ */
+public class OrderedPrefetcher<T> implements AutoCloseable {
+    private static final long POLL_MILLIS = 200L;
+
+    private final List<? extends Callable<T>> tasks;
+    private final ExecutorService executor;
+    private final int window;
+    private final ArrayDeque<Future<T>> inFlight = new ArrayDeque<>();
+    // 已准备好、尚未被 next 取出的项；按对象身份记录
+    private final Set<T> unclaimed = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int submitted;
+    private boolean closed;
+
+    public OrderedPrefetcher(List<? extends Callable<T>> tasks, int threads, int window, String threadName) {
+        this.tasks = tasks;
+        this.window = Math.max(1, window);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, threadName + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 取出下一项；等待期间轮询取消信号。
+     */
+    public T next(MergeService.CancelSignal cancelSignal) throws IOException {
+        fill();
+        Future<T> future = inFlight.poll();
+        if (future == null) {
+            throw new IllegalStateException("没有更多待准备的项");
+        }
+        while (true) {
+            if (cancelSignal.isCancelled()) {
+                throw new MergeService.MergeCancelledException("用户已取消合并");
+            }
+            try {
+                T value = future.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                synchronized (unclaimed) {
+                    unclaimed.remove(value);
+                }
+                fill();
+                return value;
+            } catch (TimeoutException ignored) {
+                // 继续等待
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MergeService.MergeCancelledException("用户已取消合并");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException io) {
+                    throw io;
+                }
+                throw new IOException("准备输入失败：" + cause.getMessage(), cause);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        synchronized (unclaimed) {
+            closed = true;
+            unclaimed.forEach(OrderedPrefetcher::discard);
+            unclaimed.clear();
+        }
+    }
+
+    private void fill() {
+        while (inFlight.size() < window && submitted < tasks.size()) {
+            Callable<T> task = tasks.get(submitted++);
+            inFlight.add(executor.submit(() -> prepare(task)));
+        }
+    }
+
+    private T prepare(Callable<T> task) throws Exception {
+        T value = task.call();
+        synchronized (unclaimed) {
+            if (closed) {
+                // 预取器已关闭，不会再有人取出这一项
+                discard(value);
+                return null;
+            }
+            unclaimed.add(value);
+        }
+        return value;
+    }
+
+    private static void discard(Object value) {
+        if (value instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ignored) {
+                // 清理失败不影响关闭
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package app.docmerge;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.Splitter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 大 PDF 分段转换：页数超过阈值的 PDF 用 PDFBox {@link Splitter} 按固定页数拆成若干段，
+ * 各段以引擎的并发数同时转换（每段按自己的页数估算超时），再按页序以正文级合并拼成一个 DOCX。
+ * <p>
+ * 某段因转换进程故障（崩溃、超时）失败时只重试该段（至多 {@link #MAX_ATTEMPTS} 次），已完成的段保留；
+ * 一段超时不再使整个 PDF 作废。文档本身的错误重试也不会成功，直接失败；{@link FailoverConverter} 自己会退避重试
+ * 并切换引擎，分段不再叠加重试。
+ */
+public class PdfChunker {
+    public static final int DEFAULT_THRESHOLD_PAGES = 100;
+    public static final int DEFAULT_CHUNK_PAGES = 40;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final int thresholdPages;
+    private final int chunkPages;
+    private volatile UiLogger logger;
+
+    /**
+     * @param thresholdPages 超过该页数才拆分
+     * @param chunkPages     每段页数
+     */
+    public PdfChunker(int thresholdPages, int chunkPages) {
+        this.thresholdPages = Math.max(1, thresholdPages);
+        this.chunkPages = Math.max(1, chunkPages);
+    }
+
+    public void setLogger(UiLogger logger) {
+        this.logger = logger;
+    }
+
+    public int thresholdPages() {
+        return thresholdPages;
+    }
+
+    public int chunkPages() {
+        return chunkPages;
+    }
+
+    /**
+     * 页数超过阈值时拆分转换，否则直接交给 engine；PDFBox 无法解析时不拆分，也直接交给 engine
+     * （Word 能打开的 PDF 不一定能被 PDFBox 解析）。
+     */
+    public Path convert(DocComConverter engine, Path pdfFile, Path tempDir, PowerShellRunner.ProgressListener listener)
+            throws IOException, DocComConversionException {
+        int pages = countPages(pdfFile);
+        if (pages < 0) {
+            info(pdfFile.getFileName() + " 无法由 PDFBox 读取页数，不拆分，整体转换");
+        }
+        if (pages <= thresholdPages) {
+            return engine.convertPdfToDocx(pdfFile, tempDir, listener);
+        }
+        Files.createDirectories(tempDir);
+        Path chunkDir = Files.createTempDirectory(tempDir, "chunks-");
+        try {
+            List<Path> chunks = split(pdfFile, chunkDir);
+            info(pdfFile.getFileName() + " 共 " + pages + " 页，拆分为 " + chunks.size() + " 段（每段 "
+                    + chunkPages + " 页），并发 " + Math.min(chunks.size(), Math.max(1, engine.parallelism())));
+            List<Path> outputs = convertChunks(engine, pdfFile, chunks, pages, chunkDir, listener);
+            Path output = tempDir.resolve(buildOutputName(pdfFile));
+            boolean success = false;
+            try (MergeWriter writer = MergeEngine.NATIVE.createWriter(output)) {
+                for (int i = 0; i < outputs.size(); i++) {
+                    if (i > 0) {
+                        // 段与段之间是原 PDF 的页边界
+                        writer.addPageBreak();
+                    }
+                    writer.appendDocx(outputs.get(i));
+                }
+                writer.finish();
+                success = true;
+            } finally {
+                if (!success) {
+                    Files.deleteIfExists(output);
+                }
+            }
+            return output;
+        } finally {
+            TempFiles.deleteTree(chunkDir);
+        }
+    }
+
+    /**
+     * @return 页数，PDFBox 无法解析时返回 -1
+     */
+    private int countPages(Path pdfFile) {
+        try (PDDocument document = Loader.loadPDF(pdfFile.toFile(),
+                MemoryUsageSetting.setupTempFileOnly().streamCache)) {
+            return document.getNumberOfPages();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private List<Path> split(Path pdfFile, Path chunkDir) throws IOException {
+        List<Path> chunks = new ArrayList<>();
+        try (PDDocument document = Loader.loadPDF(pdfFile.toFile(),
+                MemoryUsageSetting.setupTempFileOnly().streamCache)) {
+            Splitter splitter = new Splitter();
+            splitter.setSplitAtPage(chunkPages);
+            splitter.setStreamCacheCreateFunction(MemoryUsageSetting.setupTempFileOnly().streamCache);
+            List<PDDocument> parts = splitter.split(document);
+            try {
+                for (int i = 0; i < parts.size(); i++) {
+                    String name = baseName(pdfFile) + String.format(Locale.ROOT, "_part%03d.pdf", i + 1);
+                    Path chunk = chunkDir.resolve(name);
+                    parts.get(i).save(chunk.toFile());
+                    chunks.add(chunk);
+                }
+            } finally {
+                for (PDDocument part : parts) {
+                    part.close();
+                }
+            }
+        }
+        return chunks;
+    }
+
+    private List<Path> convertChunks(DocComConverter engine,
+                                     Path pdfFile,
+                                     List<Path> chunks,
+                                     int pages,
+                                     Path chunkDir,
+                                     PowerShellRunner.ProgressListener listener)
+            throws IOException, DocComConversionException {
+        int threads = Math.min(chunks.size(), Math.max(1, engine.parallelism()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "pdf-chunk-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger donePages = new AtomicInteger();
+        List<Future<Path>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < chunks.size(); i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    Path output = convertChunk(engine, pdfFile, chunks.get(index), index, chunks.size(), chunkDir);
+                    int chunkSize = Math.min(chunkPages, pages - index * chunkPages);
+                    int done = donePages.addAndGet(chunkSize);
+                    if (listener != null) {
+                        listener.onProgress(new PowerShellRunner.Progress("page", done, pages,
+                                "第 " + (index + 1) + "/" + chunks.size() + " 段"));
+                    }
+                    return output;
+                }));
+            }
+            List<Path> outputs = new ArrayList<>();
+            for (Future<Path> future : futures) {
+                outputs.add(future.get());
+            }
+            return outputs;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("PDF 分段转换被中断：" + pdfFile.getFileName(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DocComConversionException conversion) {
+                throw conversion;
+            }
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("PDF 分段转换失败：" + pdfFile.getFileName(), cause);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 转换单个分段，转换进程故障时只重试这一段。
+     */
+    private Path convertChunk(DocComConverter engine, Path pdfFile, Path chunk, int index, int total, Path chunkDir)
+            throws IOException, DocComConversionException {
+        String label = pdfFile.getFileName() + " 第 " + (index + 1) + "/" + total + " 段";
+        int maxAttempts = engine instanceof FailoverConverter ? 1 : MAX_ATTEMPTS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return engine.convertPdfToDocx(chunk, chunkDir);
+            } catch (DocComConversionException e) {
+                if (!e.isWorkerFault() || attempt >= maxAttempts || Thread.currentThread().isInterrupted()) {
+                    throw new DocComConversionException(label + " 转换失败（已尝试 " + attempt + " 次）："
+                            + e.getMessage(), pdfFile.toString(), e.getStdout(), e.getStderr(), e.getExitCode(),
+                            e.isWorkerFault());
+                }
+                warn(label + " 转换失败，单独重试（第 " + (attempt + 1) + " 次）：" + e.getMessage());
+            }
+        }
+    }
+
+    private void info(String message) {
+        UiLogger current = logger;
+        if (current != null) {
+            current.info(message);
+        }
+    }
+
+    private void warn(String message) {
+        UiLogger current = logger;
+        if (current != null) {
+            current.warn(message);
+        }
+    }
+
+    private static String baseName(Path input) {
+        String name = input.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private String buildOutputName(Path input) {
+        return String.format(Locale.ROOT, "%s_%s.docx", baseName(input), UUID.randomUUID());
+    }
+}
@@ -0,0 +1,312 @@
+package app.docmerge;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.state.RenderingMode;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.Vector;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 扫描件/原生 PDF 快速识别（结果缓存于 ~/.doc-merge-app/pdf-classification.json，按内容哈希）。
+ * <p>
+ * 均匀抽取至多 {@link #SAMPLE_PAGES} 页，只解释内容流不渲染：统计可见文字字形数、图片在页面上的覆盖比例与字体数。
+ * 大图铺满页面且几乎没有可见文字的页视为扫描页（OCR 产生的隐藏文字层不计入），没有字体的页只要图片占到一定比例
+ * 也视为扫描页，可见文字充足的页视为文字页；
+ * 文字页为主且图片覆盖不多的是文字版，其余（扫描页与文字页混杂、文字压在大图上）为图文混合。
+ * 识别结果用于 {@link PdfImportMode#AUTO}：扫描件渲染为图片，原生 PDF 交给 Word 重排或提取文字。
+ */
+public class PdfClassifier {
+    public static final int SAMPLE_PAGES = 5;
+    // 图片覆盖页面达到该比例且可见字形少于 SCANNED_MAX_GLYPHS 时视为扫描页
+    private static final double SCANNED_MIN_COVERAGE = 0.6;
+    private static final int SCANNED_MAX_GLYPHS = 40;
+    // 没有字体资源也没有可见文字的页只可能是图片，覆盖达到该比例即视为扫描页（带大片白边或只扫了半页的原件）
+    private static final double FONTLESS_SCANNED_MIN_COVERAGE = 0.25;
+    private static final int TEXT_MIN_GLYPHS = 80;
+    private static final int MAX_ENTRIES = 2000;
+
+    public enum Kind {
+        SCANNED("扫描件"),
+        DIGITAL("文字版"),
+        MIXED("图文混合");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * 该类 PDF 的导入方式：扫描件重排没有收益，直接渲染；原生 PDF 优先 Word 重排，没有 Word 时提取文字；
+         * 图文混合在没有 Word 时渲染为图片以保留图片。
+         *
+         * @param comAvailable 当前是否有支持 PDF 的 Word/WPS 引擎
+         */
+        public PdfImportMode route(boolean comAvailable) {
+            return switch (this) {
+                case SCANNED -> PdfImportMode.RASTER;
+                case DIGITAL -> comAvailable ? PdfImportMode.COM : PdfImportMode.TEXT;
+                case MIXED -> comAvailable ? PdfImportMode.COM : PdfImportMode.RASTER;
+            };
+        }
+    }
+
+    private final JsonStateFile<State> store;
+    private Map<String, Classification> entries;
+
+    public PdfClassifier() {
+        this(Path.of(System.getProperty("user.home"), ".doc-merge-app", "pdf-classification.json"));
+    }
+
+    public PdfClassifier(Path storePath) {
+        this.store = new JsonStateFile<>(storePath, State.class);
+    }
+
+    /**
+     * 识别 PDF 类型；相同内容的文件直接返回缓存结果。
+     */
+    public Classification classify(Path pdfFile) throws IOException {
+        String hash = ContentHashMemo.shared().hash(pdfFile);
+        synchronized (this) {
+            Classification cached = entries().get(hash);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Classification result = analyze(pdfFile);
+        synchronized (this) {
+            entries().put(hash, result);
+            if (entries.size() > MAX_ENTRIES) {
+                entries.entrySet().stream()
+                        .min(Comparator.comparingLong(entry -> entry.getValue().classifiedAtMillis()))
+                        .map(Map.Entry::getKey)
+                        .ifPresent(entries::remove);
+            }
+            persist();
+        }
+        return result;
+    }
+
+    private Classification analyze(Path pdfFile) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdfFile.toFile(),
+                MemoryUsageSetting.setupTempFileOnly().streamCache)) {
+            int pages = document.getNumberOfPages();
+            int samples = Math.min(SAMPLE_PAGES, pages);
+            int scannedPages = 0;
+            int textPages = 0;
+            long glyphs = 0;
+            double coverage = 0;
+            int fonts = 0;
+            for (int i = 0; i < samples; i++) {
+                // 均匀分布在首页到末页之间
+                int index = samples == 1 ? 0 : (int) Math.round((double) i * (pages - 1) / (samples - 1));
+                PDPage page = document.getPage(index);
+                PageStats stats = new PageStats(page);
+                stats.processPage(page);
+                double pageCoverage = stats.coverage();
+                int pageFonts = fontCount(page.getResources());
+                if (isScannedPage(pageCoverage, stats.visibleGlyphs, pageFonts)) {
+                    scannedPages++;
+                } else if (stats.visibleGlyphs >= TEXT_MIN_GLYPHS) {
+                    textPages++;
+                }
+                glyphs += stats.visibleGlyphs;
+                coverage += pageCoverage;
+                fonts = Math.max(fonts, pageFonts);
+            }
+            Kind kind;
+            if (samples > 0 && scannedPages * 5 >= samples * 4) {
+                kind = Kind.SCANNED;
+            } else if (samples > 0 && scannedPages == 0 && textPages * 2 >= samples
+                    && coverage / samples < SCANNED_MIN_COVERAGE) {
+                kind = Kind.DIGITAL;
+            } else {
+                kind = Kind.MIXED;
+            }
+            return new Classification(kind, pages, samples,
+                    samples == 0 ? 0 : coverage / samples,
+                    samples == 0 ? 0 : (int) (glyphs / samples),
+                    fonts, System.currentTimeMillis());
+        }
+    }
+
+    private static boolean isScannedPage(double coverage, int visibleGlyphs, int fonts) {
+        if (coverage >= SCANNED_MIN_COVERAGE && visibleGlyphs < SCANNED_MAX_GLYPHS) {
+            return true;
+        }
+        // 表单 XObject 中的文字不在页面字体资源里，但会计入可见字形，因此同时要求没有可见文字
+        return fonts == 0 && visibleGlyphs == 0 && coverage >= FONTLESS_SCANNED_MIN_COVERAGE;
+    }
+
+    private static int fontCount(PDResources resources) {
+        if (resources == null) {
+            return 0;
+        }
+        int count = 0;
+        for (COSName ignored : resources.getFontNames()) {
+            count++;
+        }
+        return count;
+    }
+
+    private synchronized Map<String, Classification> entries() {
+        if (entries == null) {
+            entries = new LinkedHashMap<>();
+            // 文件不存在或损坏时从空索引开始
+            State state = store.read();
+            if (state != null && state.entries() != null) {
+                state.entries().forEach((hash, entry) -> {
+                    if (entry != null && entry.kind() != null) {
+                        entries.put(hash, entry);
+                    }
+                });
+            }
+        }
+        return entries;
+    }
+
+    private void persist() {
+        store.write(new State(entries));
+    }
+
+    /**
+     * @param pages          总页数
+     * @param sampledPages   抽样页数
+     * @param imageCoverage  抽样页上图片覆盖页面的平均比例（0～1）
+     * @param glyphsPerPage  抽样页平均可见字形数
+     * @param fonts          抽样页中单页字体资源数的最大值
+     */
+    public record Classification(Kind kind,
+                                 int pages,
+                                 int sampledPages,
+                                 double imageCoverage,
+                                 int glyphsPerPage,
+                                 int fonts,
+                                 long classifiedAtMillis) {
+    }
+
+    public record State(Map<String, Classification> entries) {
+    }
+
+    /**
+     * 只统计不绘制：字形在文字渲染模式可见时计数，图片按当前变换矩阵求出在页面上的外接矩形面积。
+     */
+    private static final class PageStats extends PDFGraphicsStreamEngine {
+        private final Rectangle2D pageBox;
+        private final Point2D.Float currentPoint = new Point2D.Float();
+        private int visibleGlyphs;
+        private double imageArea;
+
+        private PageStats(PDPage page) {
+            super(page);
+            PDRectangle box = page.getCropBox();
+            this.pageBox = new Rectangle2D.Float(box.getLowerLeftX(), box.getLowerLeftY(),
+                    box.getWidth(), box.getHeight());
+        }
+
+        private double coverage() {
+            double area = pageBox.getWidth() * pageBox.getHeight();
+            return area <= 0 ? 0 : Math.min(1.0, imageArea / area);
+        }
+
+        @Override
+        protected void showGlyph(Matrix textRenderingMatrix, PDFont font, int code, Vector displacement) {
+            RenderingMode mode = getGraphicsState().getTextState().getRenderingMode();
+            if (mode != RenderingMode.NEITHER && mode != RenderingMode.NEITHER_CLIP) {
+                visibleGlyphs++;
+            }
+        }
+
+        @Override
+        public void drawImage(PDImage pdImage) {
+            // 图片绘制在单位正方形上，由当前变换矩阵映射到页面
+            Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+            Rectangle2D bounds = null;
+            float[][] corners = {{0, 0}, {1, 0}, {0, 1}, {1, 1}};
+            for (float[] corner : corners) {
+                Point2D.Float point = ctm.transformPoint(corner[0], corner[1]);
+                if (bounds == null) {
+                    bounds = new Rectangle2D.Float(point.x, point.y, 0, 0);
+                } else {
+                    bounds.add(point);
+                }
+            }
+            Rectangle2D visible = bounds.createIntersection(pageBox);
+            if (!visible.isEmpty()) {
+                imageArea += visible.getWidth() * visible.getHeight();
+            }
+        }
+
+        @Override
+        public void appendRectangle(Point2D p0, Point2D p1, Point2D p2, Point2D p3) {
+        }
+
+        @Override
+        public void clip(int windingRule) {
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            currentPoint.setLocation(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            currentPoint.setLocation(x, y);
+        }
+
+        @Override
+        public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            currentPoint.setLocation(x3, y3);
+        }
+
+        @Override
+        public Point2D getCurrentPoint() {
+            return currentPoint;
+        }
+
+        @Override
+        public void closePath() {
+        }
+
+        @Override
+        public void endPath() {
+        }
+
+        @Override
+        public void strokePath() {
+        }
+
+        @Override
+        public void fillPath(int windingRule) {
+        }
+
+        @Override
+        public void fillAndStrokePath(int windingRule) {
+        }
+
+        @Override
+        public void shadingFill(COSName shadingName) {
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package app.docmerge;
+
+/**
+ * PDF 转为 DOCX 的方式，与 .doc 的转换模式分开选择。
+ */
+public enum PdfImportMode {
+    COM("Word 重排（可编辑）"),
+    RASTER("渲染为图片（PDFBox，无需 Office）"),
+    TEXT("提取文字（PDFBox，可编辑，无需 Office）"),
+    AUTO("自动识别（扫描件渲染为图片，其余重排或提取文字）");
+
+    private final String label;
+
+    PdfImportMode(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * 文件列表“类型”列中的简称。
+     */
+    public String getShortLabel() {
+        return switch (this) {
+            case COM -> "Word 重排";
+            case RASTER -> "图片";
+            case TEXT -> "提取文字";
+            case AUTO -> "自动";
+        };
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    /**
+     * 文件条目上保存的导入方式，未指定或无法识别时为 null（使用缺省方式）。
+     */
+    public static PdfImportMode fromConfigOrNull(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return PdfImportMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    public static PdfImportMode fromConfig(String value) {
+        if (value == null || value.isBlank()) {
+            return COM;
+        }
+        try {
+            return PdfImportMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            return COM;
+        }
+    }
+}
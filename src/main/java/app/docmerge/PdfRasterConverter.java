@@ -0,0 +1,293 @@
+package app.docmerge;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内的 PDF 导入：PDFBox 按配置的 DPI 把每页渲染为图片，每页一张、等比铺满版心宽度并单独占一页，
+ * 不经过 Word 的重排，也不需要 Word/WPS。输出不可编辑，适合扫描件或只需保留版式的 PDF。
+ * <p>
+ * 页面由共享的渲染线程池并行渲染：每个渲染线程各自打开一份 PDF（PDDocument 不能跨线程共用，
+ * 解析缓存落在临时文件而不是堆上），按页码顺序领取页面；已渲染但尚未写入的页面数不超过
+ * {@code maxPagesInFlight}，内存占用与总页数无关。输出由 {@link StreamingDocxWriter} 按页序流式写出。
+ */
+public class PdfRasterConverter implements DocComConverter {
+    public static final String ENGINE_NAME = "PDFBox 渲染（图片）";
+    public static final int DEFAULT_DPI = 150;
+    public static final int MIN_DPI = 72;
+    public static final int MAX_DPI = 600;
+    private static final float JPEG_QUALITY = 0.85f;
+    // 同时导入的 PDF 数；每个 PDF 内部再按页并行
+    private static final int CONCURRENT_DOCUMENTS = 2;
+    // 默认 Letter 版心 6.5 x 9 英寸，高度留少量余量，避免整页图片被挤到下一页
+    private static final long USABLE_WIDTH_EMU = MergeWriter.DEFAULT_USABLE_WIDTH_TWIPS * MergeWriter.TWIP_TO_EMU;
+    private static final long USABLE_HEIGHT_EMU = Math.round((15840L - 1440L - 1440L) * MergeWriter.TWIP_TO_EMU * 0.98);
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final int dpi;
+    private final int workers;
+    private final int maxPagesInFlight;
+    private final ExecutorService renderPool;
+
+    /**
+     * @param dpi              渲染分辨率，限制在 {@link #MIN_DPI}～{@link #MAX_DPI}
+     * @param workers          渲染线程数，非正数时取 CPU 核数
+     * @param maxPagesInFlight 单个 PDF 已渲染未写入的页面上限，非正数时取渲染线程数的 2 倍
+     */
+    public PdfRasterConverter(int dpi, int workers, int maxPagesInFlight) {
+        this.dpi = Math.max(MIN_DPI, Math.min(MAX_DPI, dpi));
+        this.workers = workers > 0 ? workers : Math.max(1, Runtime.getRuntime().availableProcessors());
+        this.maxPagesInFlight = maxPagesInFlight > 0 ? Math.max(1, maxPagesInFlight) : this.workers * 2;
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(this.workers, this.workers, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "pdf-render-" + THREAD_COUNTER.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // 空闲时释放渲染线程，替换设置后旧实例不会长期占用线程
+        pool.allowCoreThreadTimeOut(true);
+        this.renderPool = pool;
+    }
+
+    @Override
+    public String engineName() {
+        return ENGINE_NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public int parallelism() {
+        return CONCURRENT_DOCUMENTS;
+    }
+
+    @Override
+    public String cacheProfile() {
+        return "raster|" + dpi + "|jpeg";
+    }
+
+    @Override
+    public boolean supportsDocConversion() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsPdfConversion() {
+        return true;
+    }
+
+    public int dpi() {
+        return dpi;
+    }
+
+    @Override
+    public List<Path> convertBatch(List<Path> docFiles, Path tempDir) throws IOException, DocComConversionException {
+        String input = docFiles == null || docFiles.isEmpty() ? "" : docFiles.get(0).toString();
+        throw new DocComConversionException(ENGINE_NAME + " 只能导入 PDF，不能转换 .doc", input, "", "", -1);
+    }
+
+    @Override
+    public Path convertPdfToDocx(Path pdfFile, Path tempDir) throws IOException, DocComConversionException {
+        return convertPdfToDocx(pdfFile, tempDir, null);
+    }
+
+    @Override
+    public Path convertPdfToDocx(Path pdfFile, Path tempDir, PowerShellRunner.ProgressListener listener)
+            throws IOException, DocComConversionException {
+        Files.createDirectories(tempDir);
+        int pages;
+        try (PDDocument document = load(pdfFile)) {
+            pages = document.getNumberOfPages();
+        } catch (InvalidPasswordException e) {
+            throw failure(pdfFile, "PDF 已加密，无法渲染", e);
+        } catch (IOException e) {
+            throw failure(pdfFile, "PDFBox 无法解析 PDF：" + e.getMessage(), e);
+        }
+        if (pages == 0) {
+            throw new DocComConversionException("PDF 没有页面", pdfFile.toString(), "", "", -1);
+        }
+        Path pageDir = Files.createTempDirectory(tempDir, "pages-");
+        Path output = tempDir.resolve(buildOutputName(pdfFile));
+        RenderJob job = new RenderJob(pdfFile, pageDir, pages);
+        boolean success = false;
+        try {
+            for (int i = 0; i < Math.min(workers, pages); i++) {
+                renderPool.execute(job::work);
+            }
+            try (StreamingDocxWriter writer = new StreamingDocxWriter(output)) {
+                for (int i = 0; i < pages; i++) {
+                    RenderedPage page = job.await(i);
+                    long[] extent = fitPage(page.widthPx(), page.heightPx());
+                    writer.appendPageImage(page.path(), extent[0], extent[1], i > 0);
+                    Files.deleteIfExists(page.path());
+                    job.written();
+                    if (listener != null) {
+                        listener.onProgress(new PowerShellRunner.Progress("page", i + 1, pages, ""));
+                    }
+                }
+                writer.finish();
+            }
+            success = true;
+            return output;
+        } finally {
+            job.cancel();
+            if (!success) {
+                Files.deleteIfExists(output);
+            }
+            TempFiles.deleteTree(pageDir);
+        }
+    }
+
+    private PDDocument load(Path pdfFile) throws IOException {
+        return Loader.loadPDF(pdfFile.toFile(), MemoryUsageSetting.setupTempFileOnly().streamCache);
+    }
+
+    /**
+     * 等比缩放到版心宽度；页面较长（如 A4 纵向）时改为按版心高度缩放，保证一页一图。
+     */
+    private static long[] fitPage(int widthPx, int heightPx) {
+        double scale = Math.min((double) USABLE_WIDTH_EMU / widthPx, (double) USABLE_HEIGHT_EMU / heightPx);
+        return new long[]{Math.round(widthPx * scale), Math.round(heightPx * scale)};
+    }
+
+    private RenderedPage render(PDFRenderer renderer, int index, Path pageDir) throws IOException {
+        BufferedImage image = renderer.renderImageWithDPI(index, dpi, ImageType.RGB);
+        Path file = pageDir.resolve(String.format(Locale.ROOT, "page-%05d.jpg", index + 1));
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return new RenderedPage(file, image.getWidth(), image.getHeight());
+    }
+
+    private DocComConversionException failure(Path pdfFile, String message, Throwable cause) {
+        return new DocComConversionException(message, pdfFile.toString(), "", String.valueOf(cause), -1);
+    }
+
+    private String buildOutputName(Path input) {
+        String name = input.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot > 0 ? name.substring(0, dot) : name;
+        return String.format(Locale.ROOT, "%s_%s.docx", baseName, UUID.randomUUID());
+    }
+
+    private record RenderedPage(Path path, int widthPx, int heightPx) {
+    }
+
+    /**
+     * 一个 PDF 的渲染状态。渲染线程先取得名额再按顺序领取页码，因此写入线程等待的页面
+     * 要么已被领取（持有名额，必然完成），要么之前的页面都已写入并归还名额，不会互相等待。
+     */
+    private final class RenderJob {
+        private final Path pdfFile;
+        private final Path pageDir;
+        private final int pages;
+        private final AtomicInteger nextPage = new AtomicInteger();
+        private final Semaphore inFlight = new Semaphore(maxPagesInFlight);
+        private final List<CompletableFuture<RenderedPage>> results;
+        private volatile boolean cancelled;
+
+        private RenderJob(Path pdfFile, Path pageDir, int pages) {
+            this.pdfFile = pdfFile;
+            this.pageDir = pageDir;
+            this.pages = pages;
+            this.results = new ArrayList<>(pages);
+            for (int i = 0; i < pages; i++) {
+                results.add(new CompletableFuture<>());
+            }
+        }
+
+        private void work() {
+            try (PDDocument document = load(pdfFile)) {
+                PDFRenderer renderer = new PDFRenderer(document);
+                while (!cancelled) {
+                    inFlight.acquire();
+                    int index = nextPage.getAndIncrement();
+                    if (index >= pages || cancelled) {
+                        inFlight.release();
+                        return;
+                    }
+                    try {
+                        results.get(index).complete(render(renderer, index, pageDir));
+                    } catch (IOException | RuntimeException e) {
+                        results.get(index).completeExceptionally(e);
+                        cancel();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                // 打开失败时其它线程多半也会失败，让写入线程立即得到错误
+                failRemaining(e);
+            }
+        }
+
+        private RenderedPage await(int index) throws IOException {
+            try {
+                return results.get(index).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                throw new IOException("PDF 渲染被中断：" + pdfFile.getFileName(), e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw failure(pdfFile, "PDF 第 " + (index + 1) + " 页渲染失败：" + cause.getMessage(), cause);
+            }
+        }
+
+        /**
+         * 写入线程写完一页后归还名额。
+         */
+        private void written() {
+            inFlight.release();
+        }
+
+        private void failRemaining(Throwable error) {
+            for (CompletableFuture<RenderedPage> result : results) {
+                result.completeExceptionally(error);
+            }
+            cancel();
+        }
+
+        private void cancel() {
+            cancelled = true;
+            // 唤醒等待名额的渲染线程，让它们退出
+            inFlight.release(maxPagesInFlight);
+        }
+    }
+}
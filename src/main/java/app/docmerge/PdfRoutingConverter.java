@@ -0,0 +1,183 @@
+package app.docmerge;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * .doc 与 PDF 分别交给不同引擎：.doc 使用转换模式选出的引擎，PDF 按文件的导入方式（未单独指定时用缺省方式，
+ * 自动识别时按识别结果）选择引擎，{@link PdfImportMode#COM} 交给 .doc 的引擎。
+ * 合并流水线、预转换与预览只面对一个转换器，无需区分。
+ */
+public class PdfRoutingConverter implements DocComConverter {
+    private final DocComConverter docConverter;
+    private final PdfImportMode defaultMode;
+    private final Function<Path, PdfImportMode> modes;
+    private final Function<PdfImportMode, DocComConverter> importers;
+    private final PdfChunker chunker;
+
+    /**
+     * @param docConverter .doc 转换引擎，可为 null（当前环境无法转换 .doc，只能以进程内方式导入 PDF）
+     * @param defaultMode  未单独指定时的 PDF 导入方式
+     * @param modes        单个 PDF 实际使用的导入方式（已解析自动识别），返回 null 表示使用缺省方式
+     * @param importers    导入方式对应的进程内引擎，{@link PdfImportMode#COM} 返回 null
+     * @param chunker      Word 重排时大 PDF 的分段转换，可为 null（不拆分）；进程内引擎本身按页并行，不拆分
+     */
+    public PdfRoutingConverter(DocComConverter docConverter,
+                               PdfImportMode defaultMode,
+                               Function<Path, PdfImportMode> modes,
+                               Function<PdfImportMode, DocComConverter> importers,
+                               PdfChunker chunker) {
+        this.docConverter = docConverter;
+        this.defaultMode = defaultMode == null ? PdfImportMode.COM : defaultMode;
+        this.modes = modes;
+        this.importers = importers;
+        this.chunker = chunker;
+    }
+
+    public DocComConverter docConverter() {
+        return docConverter;
+    }
+
+    public PdfImportMode importModeFor(Path pdfFile) {
+        PdfImportMode mode = pdfFile == null ? null : modes.apply(pdfFile);
+        return mode == null ? defaultMode : mode;
+    }
+
+    /**
+     * 导入该 PDF 的引擎，null 表示无法导入（Word 重排但 .doc 引擎不可用）。
+     */
+    public DocComConverter pdfConverterFor(Path pdfFile) {
+        return converterFor(importModeFor(pdfFile));
+    }
+
+    private DocComConverter converterFor(PdfImportMode mode) {
+        DocComConverter importer = importers.apply(mode);
+        return importer != null ? importer : docConverter;
+    }
+
+    /**
+     * 不针对具体文件时代表缺省方式的引擎；自动识别时取 .doc 引擎（能导入 PDF 时）或渲染为图片。
+     */
+    private DocComConverter defaultConverter() {
+        if (defaultMode == PdfImportMode.AUTO) {
+            return docConverter != null && docConverter.supportsPdfConversion()
+                    ? docConverter : importers.apply(PdfImportMode.RASTER);
+        }
+        return converterFor(defaultMode);
+    }
+
+    @Override
+    public String engineName() {
+        if (defaultMode == PdfImportMode.AUTO) {
+            return docConverter == null ? "PDF 自动识别" : docConverter.engineName() + " + PDF 自动识别";
+        }
+        DocComConverter pdfConverter = defaultConverter();
+        if (docConverter == null) {
+            return pdfConverter == null ? "无" : pdfConverter.engineName();
+        }
+        return pdfConverter == null || pdfConverter == docConverter
+                ? docConverter.engineName()
+                : docConverter.engineName() + " + " + pdfConverter.engineName();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        DocComConverter pdfConverter = defaultConverter();
+        return (docConverter != null && docConverter.isAvailable())
+                || (pdfConverter != null && pdfConverter.isAvailable());
+    }
+
+    @Override
+    public int parallelism() {
+        DocComConverter pdfConverter = defaultConverter();
+        return Math.max(docConverter == null ? 1 : docConverter.parallelism(),
+                pdfConverter == null ? 1 : pdfConverter.parallelism());
+    }
+
+    @Override
+    public int batchFiles() {
+        return docConverter == null ? 1 : docConverter.batchFiles();
+    }
+
+    @Override
+    public String cacheProfile() {
+        if (docConverter != null) {
+            return docConverter.cacheProfile();
+        }
+        DocComConverter pdfConverter = defaultConverter();
+        return pdfConverter == null ? engineName() : pdfConverter.cacheProfile();
+    }
+
+    @Override
+    public String pdfCacheProfile() {
+        DocComConverter pdfConverter = defaultConverter();
+        return pdfConverter == null ? cacheProfile() : pdfConverter.pdfCacheProfile();
+    }
+
+    @Override
+    public String pdfCacheProfile(Path pdfFile) {
+        DocComConverter pdfConverter = pdfConverterFor(pdfFile);
+        return pdfConverter == null ? cacheProfile() : pdfConverter.pdfCacheProfile(pdfFile);
+    }
+
+    @Override
+    public boolean supportsDocConversion() {
+        return docConverter != null && docConverter.supportsDocConversion();
+    }
+
+    @Override
+    public boolean supportsPdfConversion() {
+        DocComConverter pdfConverter = defaultConverter();
+        return pdfConverter != null && pdfConverter.supportsPdfConversion();
+    }
+
+    @Override
+    public boolean supportsPdfConversion(Path pdfFile) {
+        DocComConverter pdfConverter = pdfConverterFor(pdfFile);
+        return pdfConverter != null && pdfConverter.supportsPdfConversion(pdfFile);
+    }
+
+    @Override
+    public List<Path> convertBatch(List<Path> docFiles, Path tempDir) throws IOException, DocComConversionException {
+        return requireDocConverter(docFiles).convertBatch(docFiles, tempDir);
+    }
+
+    @Override
+    public List<FileOutcome> convertEach(List<Path> docFiles, Path tempDir) throws IOException {
+        return requireDocConverter(docFiles).convertEach(docFiles, tempDir);
+    }
+
+    @Override
+    public Path convertPdfToDocx(Path pdfFile, Path tempDir) throws IOException, DocComConversionException {
+        return convertPdfToDocx(pdfFile, tempDir, null);
+    }
+
+    @Override
+    public Path convertPdfToDocx(Path pdfFile, Path tempDir, PowerShellRunner.ProgressListener listener)
+            throws IOException, DocComConversionException {
+        DocComConverter pdfConverter = requirePdfConverter(pdfFile);
+        if (chunker != null && importModeFor(pdfFile) == PdfImportMode.COM) {
+            return chunker.convert(pdfConverter, pdfFile, tempDir, listener);
+        }
+        return pdfConverter.convertPdfToDocx(pdfFile, tempDir, listener);
+    }
+
+    private DocComConverter requireDocConverter(List<Path> docFiles) throws DocComConversionException {
+        if (docConverter == null) {
+            String input = docFiles == null || docFiles.isEmpty() ? "" : docFiles.get(0).toString();
+            throw new DocComConversionException("未检测到可用的 DOC 转换引擎", input, "", "", -1);
+        }
+        return docConverter;
+    }
+
+    private DocComConverter requirePdfConverter(Path pdfFile) throws DocComConversionException {
+        DocComConverter pdfConverter = pdfConverterFor(pdfFile);
+        if (pdfConverter == null || !pdfConverter.supportsPdfConversion(pdfFile)) {
+            throw new DocComConversionException("PDF 导入方式“" + importModeFor(pdfFile).getLabel() + "”当前不可用",
+                    pdfFile == null ? "" : pdfFile.toString(), "", "", -1);
+        }
+        return pdfConverter;
+    }
+}
@@ -0,0 +1,422 @@
+package app.docmerge;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPPr;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内的 PDF 文字导入：用 {@link PDFTextStripper} 按位置提取文字层，依据其段落判断重建段落，
+ * 按字号识别标题（写入大纲级别），直接写出可编辑的 DOCX 段落，不需要 Word/WPS，也不保留版式与图片。
+ * 适合只需要文字的原生 PDF；没有文字层的扫描件会报错，应改用渲染为图片。
+ * <p>
+ * 页面按固定页数分段并行提取（每段各自打开一份 PDF，解析缓存使用临时文件），再按页序拼接；
+ * 跨页断开的句子在拼接时接回同一段落。
+ */
+public class PdfTextConverter implements DocComConverter {
+    public static final String ENGINE_NAME = "PDFBox 文字提取";
+    // 转换规则变化时递增，使旧的转换缓存失效
+    private static final String PROFILE = "pdftext|1";
+    private static final int PAGES_PER_RANGE = 16;
+    private static final int CONCURRENT_DOCUMENTS = 2;
+    // 字号相对正文的倍数达到这些值时视为 1/2/3 级标题
+    private static final double HEADING1_RATIO = 1.6;
+    private static final double HEADING2_RATIO = 1.3;
+    private static final double HEADING3_RATIO = 1.12;
+    private static final int MAX_HEADING_LENGTH = 80;
+    private static final String SENTENCE_END = "。.!?！？:：;；…”」』)）";
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final int workers;
+    private final ExecutorService extractPool;
+
+    /**
+     * @param workers 提取线程数，非正数时取 CPU 核数
+     */
+    public PdfTextConverter(int workers) {
+        this.workers = workers > 0 ? workers : Math.max(1, Runtime.getRuntime().availableProcessors());
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(this.workers, this.workers, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "pdf-text-" + THREAD_COUNTER.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.extractPool = pool;
+    }
+
+    @Override
+    public String engineName() {
+        return ENGINE_NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public int parallelism() {
+        return CONCURRENT_DOCUMENTS;
+    }
+
+    @Override
+    public String cacheProfile() {
+        return PROFILE;
+    }
+
+    @Override
+    public boolean supportsDocConversion() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsPdfConversion() {
+        return true;
+    }
+
+    @Override
+    public List<Path> convertBatch(List<Path> docFiles, Path tempDir) throws IOException, DocComConversionException {
+        String input = docFiles == null || docFiles.isEmpty() ? "" : docFiles.get(0).toString();
+        throw new DocComConversionException(ENGINE_NAME + " 只能导入 PDF，不能转换 .doc", input, "", "", -1);
+    }
+
+    @Override
+    public Path convertPdfToDocx(Path pdfFile, Path tempDir) throws IOException, DocComConversionException {
+        return convertPdfToDocx(pdfFile, tempDir, null);
+    }
+
+    @Override
+    public Path convertPdfToDocx(Path pdfFile, Path tempDir, PowerShellRunner.ProgressListener listener)
+            throws IOException, DocComConversionException {
+        Files.createDirectories(tempDir);
+        int pages;
+        try (PDDocument document = load(pdfFile)) {
+            pages = document.getNumberOfPages();
+        } catch (InvalidPasswordException e) {
+            throw failure(pdfFile, "PDF 已加密，无法提取文字", e);
+        } catch (IOException e) {
+            throw failure(pdfFile, "PDFBox 无法解析 PDF：" + e.getMessage(), e);
+        }
+        if (pages == 0) {
+            throw new DocComConversionException("PDF 没有页面", pdfFile.toString(), "", "", -1);
+        }
+        List<Future<List<Block>>> ranges = new ArrayList<>();
+        for (int start = 1; start <= pages; start += PAGES_PER_RANGE) {
+            int first = start;
+            int last = Math.min(pages, start + PAGES_PER_RANGE - 1);
+            ranges.add(extractPool.submit(() -> extract(pdfFile, first, last)));
+        }
+        List<Block> blocks = new ArrayList<>();
+        try {
+            for (int i = 0; i < ranges.size(); i++) {
+                appendJoined(blocks, ranges.get(i).get());
+                if (listener != null) {
+                    int done = Math.min(pages, (i + 1) * PAGES_PER_RANGE);
+                    listener.onProgress(new PowerShellRunner.Progress("page", done, pages, ""));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("PDF 文字提取被中断：" + pdfFile.getFileName(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw failure(pdfFile, "PDF 文字提取失败：" + cause.getMessage(), cause);
+        } finally {
+            ranges.forEach(range -> range.cancel(true));
+        }
+        if (blocks.stream().allMatch(block -> block.text().isBlank())) {
+            throw new DocComConversionException("PDF 没有文字层（可能是扫描件），请改用“渲染为图片”或 Word 重排",
+                    pdfFile.toString(), "", "", -1);
+        }
+        Path output = tempDir.resolve(buildOutputName(pdfFile));
+        try (XWPFDocument target = new XWPFDocument()) {
+            write(blocks, target);
+            try (OutputStream out = Files.newOutputStream(output)) {
+                target.write(out);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(output);
+            throw failure(pdfFile, "写出 DOCX 失败：" + e.getMessage(), e);
+        }
+        return output;
+    }
+
+    private PDDocument load(Path pdfFile) throws IOException {
+        return Loader.loadPDF(pdfFile.toFile(), MemoryUsageSetting.setupTempFileOnly().streamCache);
+    }
+
+    private List<Block> extract(Path pdfFile, int firstPage, int lastPage) throws IOException {
+        try (PDDocument document = load(pdfFile)) {
+            BlockCollector collector = new BlockCollector();
+            collector.setSortByPosition(true);
+            collector.setStartPage(firstPage);
+            collector.setEndPage(lastPage);
+            collector.writeText(document, Writer.nullWriter());
+            return collector.blocks;
+        }
+    }
+
+    /**
+     * 新的一段接在上一段之后；上一段在页尾未结束句子且字号相同时视为跨页断开，接回同一段。
+     */
+    private static void appendJoined(List<Block> blocks, List<Block> range) {
+        for (Block block : range) {
+            if (!blocks.isEmpty()) {
+                Block previous = blocks.get(blocks.size() - 1);
+                String text = previous.text().strip();
+                if (previous.page() != block.page()
+                        && !text.isEmpty()
+                        && SENTENCE_END.indexOf(text.charAt(text.length() - 1)) < 0
+                        && Math.abs(previous.fontSize() - block.fontSize()) < 0.5f) {
+                    blocks.set(blocks.size() - 1, new Block(joinLines(previous.text(), block.text()),
+                            previous.fontSize(), previous.bold() && block.bold(), block.page()));
+                    continue;
+                }
+            }
+            blocks.add(block);
+        }
+    }
+
+    private void write(List<Block> blocks, XWPFDocument target) {
+        float bodySize = bodyFontSize(blocks);
+        for (Block block : blocks) {
+            String text = block.text().strip();
+            if (text.isEmpty()) {
+                continue;
+            }
+            XWPFParagraph paragraph = target.createParagraph();
+            int level = headingLevel(block, text, bodySize);
+            if (level > 0) {
+                // 大纲级别使标题出现在导航窗格与目录中
+                CTPPr pPr = paragraph.getCTP().isSetPPr() ? paragraph.getCTP().getPPr() : paragraph.getCTP().addNewPPr();
+                pPr.addNewOutlineLvl().setVal(BigInteger.valueOf(level - 1L));
+                paragraph.setKeepNext(true);
+            }
+            XWPFRun run = paragraph.createRun();
+            run.setText(text);
+            if (block.fontSize() > 0) {
+                // DOCX 字号以半磅为单位
+                run.setFontSize(Math.round(block.fontSize() * 2) / 2.0);
+            }
+            if (block.bold() || level > 0) {
+                run.setBold(true);
+            }
+        }
+    }
+
+    private static int headingLevel(Block block, String text, float bodySize) {
+        if (bodySize <= 0 || text.length() > MAX_HEADING_LENGTH) {
+            return 0;
+        }
+        double ratio = block.fontSize() / bodySize;
+        if (ratio >= HEADING1_RATIO) {
+            return 1;
+        }
+        if (ratio >= HEADING2_RATIO) {
+            return 2;
+        }
+        if (ratio >= HEADING3_RATIO) {
+            return 3;
+        }
+        return 0;
+    }
+
+    /**
+     * 正文字号：按字符数加权的字号中位数。
+     */
+    private static float bodyFontSize(List<Block> blocks) {
+        List<Block> sized = blocks.stream()
+                .filter(block -> block.fontSize() > 0 && !block.text().isBlank())
+                .sorted(Comparator.comparingDouble(Block::fontSize))
+                .toList();
+        long total = sized.stream().mapToLong(block -> block.text().length()).sum();
+        long seen = 0;
+        for (Block block : sized) {
+            seen += block.text().length();
+            if (seen * 2 >= total) {
+                return block.fontSize();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 行与行拼接：中日韩文字之间不加空格，西文行尾连字符去掉后直接相连，其余以空格分隔。
+     */
+    private static String joinLines(String left, String right) {
+        if (left.isEmpty()) {
+            return right;
+        }
+        if (right.isEmpty()) {
+            return left;
+        }
+        char last = left.charAt(left.length() - 1);
+        char first = right.charAt(0);
+        if (last == '-' && left.length() > 1 && Character.isLetter(left.charAt(left.length() - 2))
+                && Character.isLowerCase(first)) {
+            return left.substring(0, left.length() - 1) + right;
+        }
+        if (isCjk(last) || isCjk(first) || Character.isWhitespace(last)) {
+            return left + right;
+        }
+        return left + " " + right;
+    }
+
+    private static boolean isCjk(char ch) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(ch);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL
+                || (ch >= 0x3000 && ch <= 0x303F)
+                || (ch >= 0xFF00 && ch <= 0xFFEF);
+    }
+
+    private DocComConversionException failure(Path pdfFile, String message, Throwable cause) {
+        return new DocComConversionException(message, pdfFile.toString(), "", String.valueOf(cause), -1);
+    }
+
+    private String buildOutputName(Path input) {
+        String name = input.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot > 0 ? name.substring(0, dot) : name;
+        return String.format(Locale.ROOT, "%s_%s.docx", baseName, UUID.randomUUID());
+    }
+
+    /**
+     * @param fontSize 按字符数占比最多的字号（磅）
+     * @param bold     一半以上的字符为粗体
+     * @param page     段落结束所在页（从 1 开始）
+     */
+    private record Block(String text, float fontSize, boolean bold, int page) {
+    }
+
+    /**
+     * 把 PDFTextStripper 的段落、行与词回调收集为段落，统计每段的主要字号与粗细。
+     */
+    private static final class BlockCollector extends PDFTextStripper {
+        private final List<Block> blocks = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+        private final StringBuilder line = new StringBuilder();
+        private final Map<Float, Integer> sizeChars = new HashMap<>();
+        private int boldChars;
+        private int totalChars;
+        private boolean open;
+
+        private BlockCollector() throws IOException {
+            super();
+        }
+
+        @Override
+        protected void writeParagraphStart() {
+            finishBlock();
+            open = true;
+        }
+
+        @Override
+        protected void writeParagraphEnd() {
+            finishBlock();
+        }
+
+        @Override
+        protected void writePageEnd() {
+            finishBlock();
+        }
+
+        @Override
+        protected void writeString(String value, List<TextPosition> positions) {
+            open = true;
+            line.append(value);
+            for (TextPosition position : positions) {
+                int chars = Math.max(1, position.getUnicode() == null ? 1 : position.getUnicode().length());
+                float size = Math.round(position.getFontSizeInPt() * 2) / 2f;
+                sizeChars.merge(size, chars, Integer::sum);
+                totalChars += chars;
+                if (isBold(position.getFont())) {
+                    boldChars += chars;
+                }
+            }
+        }
+
+        @Override
+        protected void writeWordSeparator() {
+            line.append(' ');
+        }
+
+        @Override
+        protected void writeLineSeparator() {
+            finishLine();
+        }
+
+        private void finishLine() {
+            String value = line.toString().strip();
+            line.setLength(0);
+            if (!value.isEmpty()) {
+                String joined = joinLines(text.toString(), value);
+                text.setLength(0);
+                text.append(joined);
+            }
+        }
+
+        private void finishBlock() {
+            finishLine();
+            if (open && text.length() > 0) {
+                float size = sizeChars.entrySet().stream()
+                        .max(Map.Entry.comparingByValue())
+                        .map(Map.Entry::getKey)
+                        .orElse(0f);
+                blocks.add(new Block(text.toString(), size, boldChars * 2 > totalChars, getCurrentPageNo()));
+            }
+            text.setLength(0);
+            sizeChars.clear();
+            boldChars = 0;
+            totalChars = 0;
+            open = false;
+        }
+
+        private static boolean isBold(PDFont font) {
+            if (font == null) {
+                return false;
+            }
+            String name = font.getName();
+            if (name != null) {
+                String lower = name.toLowerCase(Locale.ROOT);
+                if (lower.contains("bold") || lower.contains("heavy") || lower.contains("black")) {
+                    return true;
+                }
+            }
+            PDFontDescriptor descriptor = font.getFontDescriptor();
+            return descriptor != null && (descriptor.isForceBold() || descriptor.getFontWeight() >= 600);
+        }
+    }
+}
@@ -1,93 +1,264 @@
 // PowerShellRunner.java
 package app.docmerge;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class PowerShellRunner {
-    private final Optional<String> executable;
+    private static final int MAX_CAPTURE_CHARS = 64 * 1024;
+    private static final long PUMP_JOIN_MILLIS = 5000L;
+    private static final String PROGRESS_PREFIX = "##progress";
+    private static final Pattern PROGRESS_PATTERN =
+            Pattern.compile("##progress\\s+([A-Za-z]+)=(\\d+)/(\\d+)(?:\\s+(.*))?");
+    private static final String PID_PREFIX = "##pid ";
+
+    // 首次使用时才解析（需要拉起 powershell/pwsh 各一次），避免阻塞启动
+    private Optional<String> executable;
+    private final ScriptStore scriptStore;
 
     public PowerShellRunner() {
-        this.executable = resolveExecutable();
+        this(new ScriptStore());
     }
 
-    public Optional<String> getExecutable() {
-        return executable;
+    public PowerShellRunner(ScriptStore scriptStore) {
+        this.scriptStore = scriptStore;
     }
 
-    public Result runScript(String script, Duration timeout) throws PowerShellExecutionException {
-        if (executable.isEmpty()) {
-            throw new PowerShellExecutionException("未检测到 PowerShell", new Result(-1, "", "未检测到 PowerShell"));
+    public synchronized Optional<String> getExecutable() {
+        if (executable == null) {
+            executable = resolveExecutable();
         }
+        return executable;
+    }
 
-        Path scriptFile = null;
-        Process process = null;
+    /**
+     * 使用已知的可执行文件（例如来自探测缓存），跳过解析。
+     */
+    public synchronized void useExecutable(String knownExecutable) {
+        executable = Optional.of(knownExecutable);
+    }
 
+    /**
+     * 执行脚本模板，arguments 为 {@code -参数名 值} 形式的参数列表，见 {@link #runScriptAsync}。
+     */
+    public Result runScript(String name, String script, List<String> arguments, Duration timeout)
+            throws PowerShellExecutionException {
+        CompletableFuture<Result> future = runScriptAsync(name, script, arguments, timeout, null);
         try {
-            scriptFile = Files.createTempFile("doc-merge-com-", ".ps1");
-
-            // 关键：powershell.exe(5.1) 读取 UTF-8 无 BOM 容易按 ANSI 解析，中文路径/中文字符串会直接炸
-            writeUtf8Bom(scriptFile, script);
-
-            List<String> command = new ArrayList<>();
-            command.add(executable.get());
-            command.add("-NoLogo");
-            command.add("-NoProfile");
-            command.add("-NonInteractive");
-            command.add("-ExecutionPolicy");
-            command.add("Bypass");
-            command.add("-STA");
-            command.add("-File");
-            command.add(scriptFile.toString());
-
-            ProcessBuilder builder = new ProcessBuilder(command);
-            process = builder.start();
-
-            boolean finished = process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS);
-            if (!finished) {
-                process.destroyForcibly();
-                throw new PowerShellExecutionException("PowerShell 执行超时", new Result(-1, "", "PowerShell 执行超时"));
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new PowerShellExecutionException("PowerShell 执行被中断",
+                    new Result(-1, "", "PowerShell 执行被中断"));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PowerShellExecutionException failure) {
+                throw failure;
             }
+            throw new PowerShellExecutionException("PowerShell 执行失败：" + e.getCause().getMessage(),
+                    new Result(-1, "", String.valueOf(e.getCause().getMessage())));
+        }
+    }
 
-            String stdout = readStream(process.getInputStream());
-            String stderr = readStream(process.getErrorStream());
-            int exitCode = process.exitValue();
+    /**
+     * 异步执行脚本模板：模板按内容哈希缓存在 {@link ScriptStore} 中（同一版本只写一次），以 {@code -File} 调用并传入参数。
+     * 执行过程见 {@link #runCommandAsync(List, Duration, ProgressListener)}。
+     */
+    public CompletableFuture<Result> runScriptAsync(String name, String script, List<String> arguments,
+                                                    Duration timeout, ProgressListener listener) {
+        if (getExecutable().isEmpty()) {
+            return CompletableFuture.failedFuture(new PowerShellExecutionException("未检测到 PowerShell",
+                    new Result(-1, "", "未检测到 PowerShell")));
+        }
+        List<String> command;
+        try {
+            command = buildCommand(scriptStore.install(name, script), arguments);
+        } catch (IOException | IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new PowerShellExecutionException(
+                    "PowerShell 执行失败：" + e.getMessage(), new Result(-1, "", e.getMessage())));
+        }
+        return runCommandAsync(command, timeout, listener);
+    }
 
-            Result result = new Result(exitCode, stdout, stderr);
-            if (exitCode != 0) {
-                throw new PowerShellExecutionException("PowerShell 执行失败", result);
-            }
-            return result;
+    /**
+     * 异步执行命令：stdout/stderr 各由独立线程边产生边读取，避免输出写满管道缓冲后进程阻塞到超时；
+     * 捕获内容只保留尾部 {@link #MAX_CAPTURE_CHARS} 个字符。
+     * stdout 中形如 {@code ##progress page=12/80 说明} 的行解析为 {@link Progress} 回调给 listener，不计入输出。
+     * 非零退出码以 {@link PowerShellExecutionException} 失败；超时或取消返回的 Future 会结束整个进程树。
+     * 进程树由 {@link ChildProcessTracker} 跟踪，{@code ##pid 进程号} 行报告的进程（COM 启动的 Office）随之一起结束。
+     */
+    public static CompletableFuture<Result> runCommandAsync(List<String> command,
+                                                            Duration timeout,
+                                                            ProgressListener listener) {
+        return runCommandAsync(command, timeout, listener, StandardCharsets.UTF_8);
+    }
 
+    /**
+     * 同上，按指定字符集解码输出（系统命令通常使用控制台代码页）。
+     */
+    public static CompletableFuture<Result> runCommandAsync(List<String> command,
+                                                            Duration timeout,
+                                                            ProgressListener listener,
+                                                            Charset charset) {
+        Process process;
+        try {
+            process = new ProcessBuilder(command).start();
         } catch (IOException e) {
-            throw new PowerShellExecutionException("PowerShell 执行失败：" + e.getMessage(),
-                    new Result(-1, "", e.getMessage()));
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new PowerShellExecutionException("PowerShell 执行被中断",
-                    new Result(-1, "", "PowerShell 执行被中断"));
-        } finally {
-            if (scriptFile != null) {
-                try {
-                    Files.deleteIfExists(scriptFile);
-                } catch (IOException ignored) {
-                    // ignore
-                }
+            return CompletableFuture.failedFuture(new PowerShellExecutionException(
+                    "PowerShell 执行失败：" + e.getMessage(), new Result(-1, "", e.getMessage())));
+        }
+        ChildProcessTracker tracker = ChildProcessTracker.global();
+        tracker.track(process.toHandle());
+        try {
+            // 脚本不读取 stdin，立即关闭以免等待输入
+            process.getOutputStream().close();
+        } catch (IOException ignored) {
+            // ignore
+        }
+        TailBuffer stdout = new TailBuffer(MAX_CAPTURE_CHARS);
+        TailBuffer stderr = new TailBuffer(MAX_CAPTURE_CHARS);
+        Thread outPump = startPump(process.getInputStream(), charset, line -> {
+            long pid = parseTrackedPid(line);
+            if (pid > 0) {
+                tracker.attach(process.toHandle(), pid);
+                return;
             }
-            if (process != null) {
-                process.destroy();
+            Progress progress = parseProgress(line);
+            if (progress == null) {
+                stdout.appendLine(line);
+                return;
             }
+            tracker.refresh(process.toHandle());
+            if (listener != null) {
+                listener.onProgress(progress);
+            }
+        }, "powershell-out");
+        Thread errPump = startPump(process.getErrorStream(), charset, stderr::appendLine, "powershell-err");
+
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        process.onExit().thenRun(() -> {
+            joinQuietly(outPump);
+            joinQuietly(errPump);
+            Result result = new Result(process.exitValue(), stdout.toString(), stderr.toString());
+            if (result.exitCode() != 0) {
+                future.completeExceptionally(new PowerShellExecutionException("PowerShell 执行失败", result));
+            } else {
+                future.complete(result);
+            }
+        });
+        CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (!future.isDone()) {
+                future.completeExceptionally(new PowerShellExecutionException("PowerShell 执行超时",
+                        new Result(-1, stdout.toString(), "PowerShell 执行超时" + System.lineSeparator() + stderr)));
+            }
+        });
+        // 超时、取消时立即结束进程树；正常结束后残留的 Office 等待宽限期后结束
+        future.whenComplete((result, error) -> {
+            if (process.isAlive()) {
+                tracker.reap(process.toHandle());
+            } else {
+                tracker.release(process.toHandle());
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 解析进程报告行 {@code ##pid 进程号}，不是该行时返回 -1。
+     */
+    public static long parseTrackedPid(String line) {
+        if (line == null || !line.startsWith(PID_PREFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(line.substring(PID_PREFIX.length()).strip());
+        } catch (NumberFormatException e) {
+            return -1;
         }
     }
 
+    /**
+     * 解析进度行 {@code ##progress 单位=当前/总数 [说明]}，不是进度行时返回 null。
+     */
+    public static Progress parseProgress(String line) {
+        if (line == null || !line.startsWith(PROGRESS_PREFIX)) {
+            return null;
+        }
+        Matcher matcher = PROGRESS_PATTERN.matcher(line.strip());
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            return new Progress(matcher.group(1),
+                    Integer.parseInt(matcher.group(2)),
+                    Integer.parseInt(matcher.group(3)),
+                    matcher.group(4) == null ? "" : matcher.group(4).strip());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 启动常驻脚本进程，stdin/stdout 由调用方驱动；脚本模板的缓存与参数同 {@link #runScriptAsync}。
+     */
+    public Process startScript(String name, String script, List<String> arguments) throws IOException {
+        if (getExecutable().isEmpty()) {
+            throw new IOException("未检测到 PowerShell");
+        }
+        try {
+            return new ProcessBuilder(buildCommand(scriptStore.install(name, script), arguments)).start();
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 参数逐个作为独立的命令行参数传递（Windows 上由 CreateProcessW 以 Unicode 传给 PowerShell，中文路径不经过代码页转换）。
+     * 含双引号、换行或 NUL 的参数无法在 Windows 命令行中无歧义地表示，直接拒绝；文件路径等数据应走 stdin。
+     */
+    private List<String> buildCommand(Path scriptFile, List<String> arguments) {
+        List<String> command = new ArrayList<>();
+        command.add(getExecutable().orElseThrow());
+        command.add("-NoLogo");
+        command.add("-NoProfile");
+        command.add("-NonInteractive");
+        command.add("-ExecutionPolicy");
+        command.add("Bypass");
+        command.add("-STA");
+        command.add("-File");
+        command.add(checkArgument(scriptFile.toString()));
+        for (String argument : arguments) {
+            command.add(checkArgument(argument));
+        }
+        return command;
+    }
+
+    private static String checkArgument(String argument) {
+        if (argument.isEmpty() || argument.chars().anyMatch(c -> c == '"' || c == '\n' || c == '\r' || c == 0)) {
+            throw new IllegalArgumentException("无法作为命令行参数传递：" + argument);
+        }
+        // 以反斜杠结尾且含空格的参数被加引号后，结尾的 \" 会被解析为转义的引号
+        if (argument.endsWith("\\") && argument.chars().anyMatch(Character::isWhitespace)) {
+            throw new IllegalArgumentException("参数不能以反斜杠结尾：" + argument);
+        }
+        return argument;
+    }
+
     private Optional<String> resolveExecutable() {
         // COM 自动化优先用 Windows PowerShell（powershell.exe），其次 pwsh
         List<String> candidates = List.of("powershell", "pwsh");
@@ -108,25 +279,75 @@ public class PowerShellRunner {
         return Optional.empty();
     }
 
-    private static void writeUtf8Bom(Path file, String content) throws IOException {
-        byte[] bom = new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
-        byte[] body = content.getBytes(StandardCharsets.UTF_8);
-        byte[] all = new byte[bom.length + body.length];
-        System.arraycopy(bom, 0, all, 0, bom.length);
-        System.arraycopy(body, 0, all, bom.length, body.length);
-        Files.write(file, all);
+    private static Thread startPump(InputStream stream, Charset charset, Consumer<String> sink, String threadName) {
+        Thread thread = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, charset))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        sink.accept(line);
+                    } catch (RuntimeException ignored) {
+                        // 回调异常不能中断读取，否则管道写满后进程会阻塞
+                    }
+                }
+            } catch (IOException ignored) {
+                // 进程结束
+            }
+        }, threadName);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
     }
 
-    private String readStream(InputStream stream) throws IOException {
-        if (stream == null) {
-            return "";
+    private static void joinQuietly(Thread thread) {
+        try {
+            // 子进程可能继承管道句柄，不无限等待
+            thread.join(PUMP_JOIN_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
     }
 
     public record Result(int exitCode, String stdout, String stderr) {
     }
 
+    /**
+     * 脚本输出的结构化进度，例如 {@code ##progress page=12/80} -> unit=page, current=12, total=80。
+     */
+    public record Progress(String unit, int current, int total, String message) {
+    }
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(Progress progress);
+    }
+
+    /**
+     * 只保留最后 maxChars 个字符的输出缓冲，长时间运行的脚本输出再多也不会占满内存。
+     */
+    public static final class TailBuffer {
+        private final int maxChars;
+        private final StringBuilder buffer = new StringBuilder();
+        private boolean truncated;
+
+        public TailBuffer(int maxChars) {
+            this.maxChars = maxChars;
+        }
+
+        public synchronized void appendLine(String line) {
+            buffer.append(line).append(System.lineSeparator());
+            if (buffer.length() > maxChars) {
+                buffer.delete(0, buffer.length() - maxChars);
+                truncated = true;
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            return truncated ? "...（前部输出已截断）" + System.lineSeparator() + buffer : buffer.toString();
+        }
+    }
+
     public static class PowerShellExecutionException extends IOException {
         private final Result result;
 
@@ -0,0 +1,174 @@
+package app.docmerge;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 后台预转换：DOC/PDF 一加入列表就排队，在用户空闲时以低优先级逐个转换并写入 {@link ConversionCache}。
+ * <p>
+ * 每次只转换一个文件，两次之间间隔 {@link #THROTTLE_MILLIS}，且仅在最近 {@link #IDLE_MILLIS} 内无键鼠操作时开始。
+ * 合并开始时 {@link #pause()}：未开始的文件交由合并自行转换，已完成的结果通过缓存命中直接复用，
+ * 正在转换的文件由合并通过 {@link ConversionCache#claim(String)} 等待接管。
+ * 转换以预转换优先级经 {@link ConversionScheduler} 排队，名额空出时让位于合并。
+ */
+public class PreConversionQueue implements AutoCloseable {
+    private static final long IDLE_MILLIS = 1500L;
+    private static final long THROTTLE_MILLIS = 1000L;
+
+    private final ConversionCache cache;
+    private final ConversionScheduler scheduler;
+    private final Supplier<DocComConverter> converterSupplier;
+    private final UiLogger logger;
+    private final Map<Path, FileItem> pending = new LinkedHashMap<>();
+    private final Thread worker;
+    private volatile long lastActivityMillis = System.currentTimeMillis();
+    private boolean paused;
+    private boolean closed;
+
+    /**
+     * @param converterSupplier 取当前模式下的转换器；返回 null 表示暂不可用，队列中的文件被丢弃
+     */
+    public PreConversionQueue(ConversionCache cache, ConversionScheduler scheduler,
+                              Supplier<DocComConverter> converterSupplier, UiLogger logger) {
+        this.cache = cache;
+        this.scheduler = scheduler;
+        this.converterSupplier = converterSupplier;
+        this.logger = logger;
+        this.worker = new Thread(this::run, "doc-preconvert");
+        this.worker.setDaemon(true);
+        this.worker.setPriority(Thread.MIN_PRIORITY);
+        this.worker.start();
+    }
+
+    public synchronized void enqueue(List<FileItem> items) {
+        for (FileItem item : items) {
+            if ((item.getFileType() == FileItem.FileType.DOC || item.getFileType() == FileItem.FileType.PDF)
+                    && item.getStatus() == FileItem.Status.OK) {
+                pending.putIfAbsent(item.getPath().toAbsolutePath(), item);
+            }
+        }
+        notifyAll();
+    }
+
+    /**
+     * 取消尚未开始的转换；正在进行的转换无法中途停止，完成后照常写入缓存。
+     */
+    public synchronized void cancel(Collection<FileItem> items) {
+        for (FileItem item : items) {
+            pending.remove(item.getPath().toAbsolutePath());
+        }
+    }
+
+    public synchronized void cancelAll() {
+        pending.clear();
+    }
+
+    /**
+     * 记录用户操作，用于空闲检测。
+     */
+    public void touch() {
+        lastActivityMillis = System.currentTimeMillis();
+    }
+
+    public synchronized void pause() {
+        paused = true;
+    }
+
+    public synchronized void resume() {
+        paused = false;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        pending.clear();
+        notifyAll();
+    }
+
+    private void run() {
+        while (true) {
+            FileItem next;
+            synchronized (this) {
+                try {
+                    while (!closed && (paused || pending.isEmpty())) {
+                        wait();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    long idleFor = System.currentTimeMillis() - lastActivityMillis;
+                    if (idleFor < IDLE_MILLIS) {
+                        wait(IDLE_MILLIS - idleFor);
+                        continue;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Iterator<FileItem> iterator = pending.values().iterator();
+                next = iterator.next();
+                iterator.remove();
+            }
+            convert(next);
+            try {
+                Thread.sleep(THROTTLE_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void convert(FileItem item) {
+        DocComConverter converter;
+        try {
+            converter = converterSupplier.get();
+        } catch (RuntimeException e) {
+            return;
+        }
+        boolean pdf = item.getFileType() == FileItem.FileType.PDF;
+        if (converter == null
+                || (pdf ? !converter.supportsPdfConversion(item.getPath()) : !converter.supportsDocConversion())
+                || !Files.isRegularFile(item.getPath())) {
+            return;
+        }
+        String key;
+        try {
+            key = cache.key(item.getPath(), pdf ? "PDF" : "DOC",
+                    pdf ? converter.pdfCacheProfile(item.getPath()) : converter.cacheProfile());
+        } catch (IOException e) {
+            return;
+        }
+        if (cache.contains(key)) {
+            return;
+        }
+        CompletableFuture<Void> other = cache.claim(key);
+        if (other != null) {
+            return;
+        }
+        Path tempDir = null;
+        try {
+            Path dir = Files.createTempDirectory("doc-merge-preconvert-");
+            tempDir = dir;
+            Path output = scheduler.run(ConversionScheduler.Priority.PREFETCH, key, System.currentTimeMillis(),
+                    converter.parallelism(), () -> pdf
+                            ? converter.convertPdfToDocx(item.getPath(), dir)
+                            : converter.convertBatch(List.of(item.getPath()), dir).get(0));
+            cache.publish(key, output);
+            logger.info("后台预转换完成：" + item.getName());
+        } catch (IOException | RuntimeException e) {
+            // 合并时会重新转换并报告详细错误
+            logger.warn("后台预转换失败：" + item.getName() + "，" + e.getMessage());
+        } finally {
+            cache.release(key);
+            TempFiles.deleteTree(tempDir);
+        }
+    }
+}
@@ -18,17 +18,26 @@ import java.nio.file.attribute.FileTime;
 import java.text.DecimalFormat;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 public class PreviewService {
     public static final int MAX_TEXT_LENGTH = 20_000;
     public static final int MAX_IMAGE_DIMENSION = 480;
     private static final int MAX_PREVIEW_CACHE = 50;
-    private static final int MAX_CONVERT_CACHE = 50;
     private static final DecimalFormat SIZE_FORMAT = new DecimalFormat("#,##0.##");
 
     private final Map<PreviewKey, PreviewResult> previewCache = new LruCache<>(MAX_PREVIEW_CACHE, null);
-    private final Map<PreviewKey, Path> docxCache = new LruCache<>(MAX_CONVERT_CACHE, this::deleteQuietly);
-    private final Map<PreviewKey, Path> pdfDocxCache = new LruCache<>(MAX_CONVERT_CACHE, this::deleteQuietly);
+    private final ConversionCache conversionCache;
+    private final ConversionScheduler scheduler;
+
+    /**
+     * @param scheduler .doc 预览转换以最低优先级排队，不占用合并需要的转换名额
+     */
+    public PreviewService(ConversionCache conversionCache, ConversionScheduler scheduler) {
+        this.conversionCache = conversionCache;
+        this.scheduler = scheduler;
+    }
 
     public PreviewResult loadPreview(FileItem item,
                                      DocConverterMode mode,
@@ -78,25 +87,61 @@ public class PreviewService {
                                          DocConverterMode mode,
                                          DocComConverterResolver resolver,
                                          UiLogger logger) throws IOException {
-        Path converted = docxCache.get(key);
-        if (converted == null || !Files.exists(converted)) {
-            DocComConverterSelector.Selection selection = resolver.resolve(mode, false).selection();
-            if (selection == null) {
-                return PreviewResult.error("当前环境无法预览 .doc，请选择 Word/WPS 转换引擎");
+        DocComConverterSelector.Selection selection = resolver.resolve(mode, false).selection();
+        if (selection == null) {
+            return PreviewResult.error("当前环境无法预览 .doc，请选择 Word/WPS 转换引擎");
+        }
+        DocComConverter converter = selection.converter();
+        String cacheKey = conversionCache.key(item.getPath(), "DOC", converter.cacheProfile());
+        Path converted = conversionCache.lookup(cacheKey);
+        while (converted == null) {
+            CompletableFuture<Void> other = conversionCache.claim(cacheKey);
+            if (other == null) {
+                break;
             }
+            // 合并或后台预转换正在转换同一文件：等待其结果，不重复转换
+            awaitOther(other);
+            converted = conversionCache.lookup(cacheKey);
+        }
+        if (converted == null) {
             Path tempDir = Files.createTempDirectory("doc-preview-");
-            var outputs = selection.converter().convertBatch(java.util.List.of(item.getPath()), tempDir);
-            if (outputs.isEmpty()) {
-                return PreviewResult.error("DOC 转换失败，无法预览：" + item.getName());
+            try {
+                var outputs = scheduler.run(ConversionScheduler.Priority.PREVIEW, cacheKey, System.currentTimeMillis(),
+                        converter.parallelism(), () -> converter.convertBatch(java.util.List.of(item.getPath()), tempDir));
+                if (outputs.isEmpty()) {
+                    return PreviewResult.error("DOC 转换失败，无法预览：" + item.getName());
+                }
+                try {
+                    conversionCache.publish(cacheKey, outputs.get(0));
+                } catch (IOException e) {
+                    logger.warn("写入转换缓存失败：" + item.getName() + "，" + e.getMessage());
+                }
+                logger.info("预览转换完成：" + item.getName());
+                String text = extractDocxText(outputs.get(0));
+                return PreviewResult.text(text, "文件名：" + item.getName() + "\n类型：DOC（已转为 DOCX 预览）");
+            } finally {
+                conversionCache.release(cacheKey);
+                TempFiles.deleteTree(tempDir);
             }
-            converted = outputs.get(0);
-            docxCache.put(key, converted);
-            logger.info("预览转换完成：" + item.getName());
         }
         String text = extractDocxText(converted);
         return PreviewResult.text(text, "文件名：" + item.getName() + "\n类型：DOC（已转为 DOCX 预览）");
     }
 
+    /**
+     * 预览线程被取消（选中其它文件）时中断等待。
+     */
+    private void awaitOther(CompletableFuture<Void> other) throws IOException {
+        try {
+            other.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConversionScheduler.CancelledException("预览已取消");
+        } catch (ExecutionException ignored) {
+            // 对方失败时由本次预览重新转换
+        }
+    }
+
     private PreviewResult loadPdfPreview(FileItem item, PreviewKey key) throws IOException {
         try (PDDocument doc = Loader.loadPDF(item.getPath().toFile())) {
             int pages = doc.getNumberOfPages();
@@ -108,22 +153,6 @@ public class PreviewService {
         }
     }
 
-    public Path cachePdfConversion(FileItem item, Path converted) {
-        if (item == null || converted == null) {
-            return converted;
-        }
-        PreviewKey key = PreviewKey.fromItem(item);
-        pdfDocxCache.put(key, converted);
-        return converted;
-    }
-
-    public Path getCachedPdfConversion(FileItem item) {
-        if (item == null) {
-            return null;
-        }
-        return pdfDocxCache.get(PreviewKey.fromItem(item));
-    }
-
     private String extractDocxText(Path path) throws IOException {
         try (XWPFDocument doc = new XWPFDocument(Files.newInputStream(path));
              XWPFWordExtractor extractor = new XWPFWordExtractor(doc)) {
@@ -178,17 +207,6 @@ public class PreviewService {
         return SIZE_FORMAT.format(value) + " " + unit;
     }
 
-    private void deleteQuietly(Path path) {
-        if (path == null) {
-            return;
-        }
-        try {
-            Files.deleteIfExists(path);
-        } catch (IOException ignored) {
-            // ignore
-        }
-    }
-
     public record PreviewResult(PreviewType type, BufferedImage image, String text, String meta) {
         public static PreviewResult image(BufferedImage image, String meta) {
             return new PreviewResult(PreviewType.IMAGE, image, "", meta);
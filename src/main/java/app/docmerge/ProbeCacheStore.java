@@ -0,0 +1,124 @@
+package app.docmerge;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * PowerShell 路径与 Word/WPS 探测结果的持久化缓存（~/.doc-merge-app/probe-cache.json）。
+ * <p>
+ * 超过 TTL 或运行环境（系统版本、PATH、Office 安装目录等）变化后失效，启动时无需再次拉起 PowerShell 与 Office。
+ */
+public class ProbeCacheStore {
+    public static final long DEFAULT_TTL_MILLIS = 12L * 60 * 60 * 1000;
+
+    private final Path cachePath;
+    private final long ttlMillis;
+    private ObjectMapper mapper;
+
+    public ProbeCacheStore() {
+        this(Path.of(System.getProperty("user.home"), ".doc-merge-app", "probe-cache.json"), DEFAULT_TTL_MILLIS);
+    }
+
+    public ProbeCacheStore(Path cachePath, long ttlMillis) {
+        this.cachePath = cachePath;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * 读取仍然有效的快照；不存在、过期、环境已变化或文件损坏时返回 null。
+     */
+    public synchronized Snapshot load() {
+        if (!Files.isRegularFile(cachePath)) {
+            return null;
+        }
+        try {
+            Snapshot snapshot = mapper().readValue(cachePath.toFile(), Snapshot.class);
+            if (snapshot.word() == null || snapshot.wps() == null
+                    || !environmentKey().equals(snapshot.environmentKey())) {
+                return null;
+            }
+            long age = System.currentTimeMillis() - snapshot.probedAtMillis();
+            return age >= 0 && age <= ttlMillis ? snapshot : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public synchronized void save(Snapshot snapshot) {
+        try {
+            Files.createDirectories(cachePath.getParent());
+            mapper().writeValue(cachePath.toFile(), snapshot);
+        } catch (IOException ignored) {
+            // 缓存写入失败时下次启动重新探测
+        }
+    }
+
+    private ObjectMapper mapper() {
+        // 延迟创建：构造发生在 EDT 上，读写只在后台探测线程进行
+        if (mapper == null) {
+            mapper = new ObjectMapper()
+                    .enable(SerializationFeature.INDENT_OUTPUT)
+                    .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        }
+        return mapper;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * 影响探测结果的环境特征摘要：系统版本、用户、PATH 与 Office 常见安装目录。
+     */
+    public static String environmentKey() {
+        StringBuilder key = new StringBuilder();
+        key.append(System.getProperty("os.name")).append('|')
+                .append(System.getProperty("os.version")).append('|')
+                .append(System.getProperty("os.arch")).append('|')
+                .append(System.getProperty("user.name")).append('|')
+                .append(System.getenv("PATH"));
+        for (String variable : new String[] {"ProgramFiles", "ProgramFiles(x86)", "LOCALAPPDATA"}) {
+            String dir = System.getenv(variable);
+            key.append('|').append(variable).append('=').append(dir);
+            if (dir != null) {
+                // 安装或卸载 Office/WPS 会改变这些目录的修改时间
+                for (String product : new String[] {"Microsoft Office", "Kingsoft"}) {
+                    key.append('|').append(product).append('=').append(lastModified(Path.of(dir, product)));
+                }
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.isDirectory(path) ? Files.getLastModifiedTime(path).toMillis() : 0L;
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * @param powerShell 探测时使用的 PowerShell 可执行文件，null 表示未找到
+     */
+    public record Snapshot(String environmentKey,
+                           long probedAtMillis,
+                           String powerShell,
+                           DocComProbeResult word,
+                           DocComProbeResult wps) {
+    }
+}
@@ -0,0 +1,180 @@
+package app.docmerge;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 毒文件隔离索引（~/.doc-merge-app/quarantine.json）：按内容哈希记录文档在各引擎上导致工作进程卡死或崩溃的次数、
+ * 耗时与最近一次错误。
+ * <p>
+ * 同一文档在某个引擎上累计 {@link #POISON_THRESHOLD} 次故障即视为该引擎的毒文件，之后转换时直接跳过（交给另一个引擎），
+ * 不再每次等满超时并拖垮 Office 会话。文档本身的转换错误不计入；在该引擎上转换成功即解除；
+ * 最近一次故障超过 {@link #EXPIRE_MILLIS} 的记录过期（Office 更新后可能已恢复）。
+ */
+public class QuarantineStore {
+    public static final int POISON_THRESHOLD = 2;
+    public static final long EXPIRE_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+    private final JsonStateFile<State> store;
+    private Map<String, Entry> entries;
+
+    public QuarantineStore() {
+        this(Path.of(System.getProperty("user.home"), ".doc-merge-app", "quarantine.json"));
+    }
+
+    public QuarantineStore(Path storePath) {
+        this.store = new JsonStateFile<>(storePath, State.class);
+    }
+
+    /**
+     * 文档内容哈希（需读取整个文件，文件未变化时复用上次结果）。
+     */
+    public String hash(Path input) throws IOException {
+        return ContentHashMemo.shared().hash(input);
+    }
+
+    /**
+     * 文档在该引擎上的隔离记录；未达到阈值或已过期时返回 null。
+     */
+    public synchronized EngineRecord poisoned(String hash, String engine) {
+        Entry entry = entries().get(hash);
+        EngineRecord record = entry == null ? null : entry.engines().get(engine);
+        return record != null && isPoison(record) ? record : null;
+    }
+
+    /**
+     * 文档被隔离的全部引擎（引擎名 -> 记录），供界面在合并前标记；没有时返回空表。
+     */
+    public Map<String, EngineRecord> lookup(Path input) throws IOException {
+        String hash = hash(input);
+        synchronized (this) {
+            Entry entry = entries().get(hash);
+            Map<String, EngineRecord> result = new LinkedHashMap<>();
+            if (entry != null) {
+                entry.engines().forEach((engine, record) -> {
+                    if (isPoison(record)) {
+                        result.put(engine, record);
+                    }
+                });
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 记录一次工作进程故障（卡死、超时或崩溃）。
+     *
+     * @param durationMillis 本次故障耗费的时间（超时即为超时时长）
+     * @return 记录后是否达到隔离阈值
+     */
+    public synchronized boolean recordFailure(String hash, String fileName, String engine, long durationMillis,
+                                              String error) {
+        Entry entry = entries().get(hash);
+        Map<String, EngineRecord> engines = entry == null ? new LinkedHashMap<>() : new LinkedHashMap<>(entry.engines());
+        EngineRecord previous = engines.get(engine);
+        if (previous != null && isExpired(previous)) {
+            previous = null;
+        }
+        EngineRecord record = new EngineRecord(
+                previous == null ? 1 : previous.failures() + 1,
+                Math.max(0, durationMillis),
+                (previous == null ? 0 : previous.totalDurationMillis()) + Math.max(0, durationMillis),
+                System.currentTimeMillis(),
+                error);
+        engines.put(engine, record);
+        entries.put(hash, new Entry(fileName, engines));
+        persist();
+        return isPoison(record);
+    }
+
+    /**
+     * 该引擎成功转换了文档：清除其故障记录。
+     */
+    public synchronized void recordSuccess(String hash, String engine) {
+        Entry entry = entries().get(hash);
+        if (entry == null || !entry.engines().containsKey(engine)) {
+            return;
+        }
+        Map<String, EngineRecord> engines = new LinkedHashMap<>(entry.engines());
+        engines.remove(engine);
+        if (engines.isEmpty()) {
+            entries.remove(hash);
+        } else {
+            entries.put(hash, new Entry(entry.fileName(), engines));
+        }
+        persist();
+    }
+
+    /**
+     * 界面状态列的文字，例如“已隔离：Microsoft Word 卡死/崩溃 2 次”；poisoned 为空时返回 null。
+     */
+    public static String describe(Map<String, EngineRecord> poisoned) {
+        if (poisoned == null || poisoned.isEmpty()) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder("已隔离：");
+        boolean first = true;
+        for (Map.Entry<String, EngineRecord> engine : poisoned.entrySet()) {
+            if (!first) {
+                text.append("，");
+            }
+            first = false;
+            text.append(engine.getKey()).append(" 卡死/崩溃 ").append(engine.getValue().failures()).append(" 次");
+        }
+        return text.toString();
+    }
+
+    private static boolean isPoison(EngineRecord record) {
+        return record.failures() >= POISON_THRESHOLD && !isExpired(record);
+    }
+
+    private static boolean isExpired(EngineRecord record) {
+        return System.currentTimeMillis() - record.lastFailedAtMillis() > EXPIRE_MILLIS;
+    }
+
+    private Map<String, Entry> entries() {
+        if (entries == null) {
+            entries = new HashMap<>();
+            // 文件不存在或损坏时从空索引开始
+            State state = store.read();
+            if (state != null && state.entries() != null) {
+                state.entries().forEach((hash, entry) -> {
+                    if (entry != null && entry.engines() != null
+                            && entry.engines().values().stream().anyMatch(record -> !isExpired(record))) {
+                        entries.put(hash, entry);
+                    }
+                });
+            }
+        }
+        return entries;
+    }
+
+    private void persist() {
+        store.write(new State(entries));
+    }
+
+    /**
+     * @param fileName 最近一次故障时的文件名，仅供人工查看
+     * @param engines  引擎名 -> 该引擎上的故障记录
+     */
+    public record Entry(String fileName, Map<String, EngineRecord> engines) {
+    }
+
+    /**
+     * @param failures            未过期的累计故障次数
+     * @param lastDurationMillis  最近一次故障耗费的时间
+     * @param totalDurationMillis 累计耗费的时间
+     */
+    public record EngineRecord(int failures,
+                               long lastDurationMillis,
+                               long totalDurationMillis,
+                               long lastFailedAtMillis,
+                               String lastError) {
+    }
+
+    public record State(Map<String, Entry> entries) {
+    }
+}
@@ -0,0 +1,95 @@
+package app.docmerge;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 固定的 PowerShell 脚本模板落盘在 ~/.doc-merge-app/scripts，文件名带内容哈希（name-哈希.ps1）。
+ * <p>
+ * 同一版本只写一次，之后的探测与工作进程直接以 {@code -File 脚本 -参数 值} 调用，不再每次生成临时文件；
+ * 模板变化后写入新文件并清理同名旧版本。文件带 UTF-8 BOM，否则 powershell.exe(5.1) 会按 ANSI 解析中文。
+ */
+public class ScriptStore {
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final Path directory;
+    // 内容哈希 -> 已确认存在的脚本文件，避免每次调用都访问磁盘
+    private final Map<String, Path> installed = new ConcurrentHashMap<>();
+
+    public ScriptStore() {
+        this(Path.of(System.getProperty("user.home"), ".doc-merge-app", "scripts"));
+    }
+
+    public ScriptStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * 返回脚本文件路径，首次使用（或文件被删除）时写入。
+     */
+    public Path install(String name, String script) throws IOException {
+        byte[] body = script.getBytes(StandardCharsets.UTF_8);
+        String key = name + "-" + hash(body);
+        Path cached = installed.get(key);
+        if (cached != null && Files.isRegularFile(cached)) {
+            return cached;
+        }
+        synchronized (this) {
+            Path target = directory.resolve(key + ".ps1");
+            if (!Files.isRegularFile(target) || Files.size(target) != UTF8_BOM.length + body.length) {
+                Files.createDirectories(directory);
+                byte[] all = new byte[UTF8_BOM.length + body.length];
+                System.arraycopy(UTF8_BOM, 0, all, 0, UTF8_BOM.length);
+                System.arraycopy(body, 0, all, UTF8_BOM.length, body.length);
+                // 先写临时文件再改名，并发启动的其它实例不会读到半个脚本
+                Path partial = Files.createTempFile(directory, key, ".partial");
+                try {
+                    Files.write(partial, all);
+                    Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(partial);
+                }
+                removeOldVersions(name, target);
+            }
+            installed.put(key, target);
+            return target;
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private void removeOldVersions(String name, Path current) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, name + "-*.ps1")) {
+            for (Path old : stream) {
+                if (!old.equals(current)) {
+                    try {
+                        Files.deleteIfExists(old);
+                    } catch (IOException ignored) {
+                        // 仍被其它实例使用时保留
+                    }
+                }
+            }
+        } catch (IOException ignored) {
+            // 清理失败不影响使用
+        }
+    }
+
+    private static String hash(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body), 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package app.docmerge;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 流式模式：直接以 ZIP 流写出 .docx，不在内存中持有整个输出包。
+ * <p>
+ * altChunk 与图片按顺序从磁盘管道复制进 ZIP 条目；document.xml 与其关系文件由 StAX 写到临时文件，
+ * 在 {@link #finish()} 时再追加到 ZIP 末尾，因此堆占用与输入数量、大小无关。
+ * 生成的包结构与 {@link AltChunkMergeWriter}（POI）一致。
+ */
+public final class StreamingDocxWriter implements MergeWriter {
+    private static final String NS_W = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final String NS_R = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String NS_WP = "http://schemas.openxmlformats.org/drawingml/2006/wordprocessingDrawing";
+    private static final String NS_A = "http://schemas.openxmlformats.org/drawingml/2006/main";
+    private static final String NS_PIC = "http://schemas.openxmlformats.org/drawingml/2006/picture";
+    private static final String NS_PKG_RELS = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String NS_CONTENT_TYPES = "http://schemas.openxmlformats.org/package/2006/content-types";
+    private static final String REL_IMAGE = NS_R + "/image";
+    private static final String REL_SETTINGS = NS_R + "/settings";
+
+    private static final XMLOutputFactory XML_OUTPUT = XMLOutputFactory.newInstance();
+
+    private final Path workDir;
+    private final ZipOutputStream zip;
+    private final Path bodyFile;
+    private final OutputStream bodyStream;
+    private final XMLStreamWriter body;
+    private final Path relsFile;
+    private final OutputStream relsStream;
+    private final XMLStreamWriter rels;
+    private int relCounter;
+    private int chunkIndex;
+    private int imageIndex;
+    private boolean finished;
+
+    public StreamingDocxWriter(Path target) throws IOException {
+        this.workDir = Files.createTempDirectory("doc-merge-stream-");
+        this.bodyFile = workDir.resolve("document.xml");
+        this.relsFile = workDir.resolve("document.xml.rels");
+        // 任一步失败都要关闭已打开的流并删除临时目录，因此流先放在局部变量里
+        ZipOutputStream zipStream = null;
+        OutputStream bodyOut = null;
+        OutputStream relsOut = null;
+        try {
+            zipStream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(target)));
+            bodyOut = new BufferedOutputStream(Files.newOutputStream(bodyFile));
+            relsOut = new BufferedOutputStream(Files.newOutputStream(relsFile));
+            this.zip = zipStream;
+            this.bodyStream = bodyOut;
+            this.relsStream = relsOut;
+            this.body = XML_OUTPUT.createXMLStreamWriter(bodyOut, "UTF-8");
+            this.rels = XML_OUTPUT.createXMLStreamWriter(relsOut, "UTF-8");
+            writePackageHeader();
+            startBody();
+            startRelationships();
+        } catch (XMLStreamException e) {
+            release(zipStream, bodyOut, relsOut);
+            throw new IOException("初始化流式写出失败：" + e.getMessage(), e);
+        } catch (IOException | RuntimeException e) {
+            release(zipStream, bodyOut, relsOut);
+            throw e;
+        }
+    }
+
+    @Override
+    public void appendDocx(Path docxPath) throws IOException {
+        chunkIndex++;
+        String entryName = "altChunk" + chunkIndex + ".docx";
+        copyIntoEntry("word/" + entryName, docxPath);
+        try {
+            String relId = addRelationship(entryName, AltChunkMergeWriter.ALT_CHUNK_REL);
+            body.writeEmptyElement("w", "altChunk", NS_W);
+            body.writeAttribute("r", NS_R, "id", relId);
+        } catch (XMLStreamException e) {
+            throw new IOException("插入 altChunk 失败：" + docxPath.getFileName(), e);
+        }
+    }
+
+    @Override
+    public void appendImage(Path imagePath, int widthPx, int heightPx) throws IOException {
+        long[] extent = MergeWriter.fitImageExtent(widthPx, heightPx, DEFAULT_USABLE_WIDTH_TWIPS * TWIP_TO_EMU);
+        writeImageParagraph(imagePath, extent[0], extent[1], false, false);
+    }
+
+    /**
+     * 按给定尺寸（EMU）插入整页图片：段前后间距为 0，newPage 时从新页开始（不额外插入分页段落，避免整页图片后出现空白页）。
+     */
+    public void appendPageImage(Path imagePath, long widthEmu, long heightEmu, boolean newPage) throws IOException {
+        writeImageParagraph(imagePath, widthEmu, heightEmu, true, newPage);
+    }
+
+    private void writeImageParagraph(Path imagePath, long widthEmu, long heightEmu, boolean pageImage,
+                                     boolean newPage) throws IOException {
+        String extension = MergeWriter.imageExtension(imagePath);
+        String cx = String.valueOf(MergeWriter.safeEmu(widthEmu));
+        String cy = String.valueOf(MergeWriter.safeEmu(heightEmu));
+        imageIndex++;
+        String entryName = "media/image" + imageIndex + "." + extension;
+        copyIntoEntry("word/" + entryName, imagePath);
+        try {
+            String relId = addRelationship(entryName, REL_IMAGE);
+            String drawingId = String.valueOf(imageIndex);
+            body.writeStartElement("w", "p", NS_W);
+            body.writeStartElement("w", "pPr", NS_W);
+            if (pageImage) {
+                if (newPage) {
+                    body.writeEmptyElement("w", "pageBreakBefore", NS_W);
+                }
+                body.writeEmptyElement("w", "spacing", NS_W);
+                body.writeAttribute("w", NS_W, "before", "0");
+                body.writeAttribute("w", NS_W, "after", "0");
+                body.writeAttribute("w", NS_W, "line", "240");
+                body.writeAttribute("w", NS_W, "lineRule", "auto");
+            }
+            body.writeEmptyElement("w", "jc", NS_W);
+            body.writeAttribute("w", NS_W, "val", "center");
+            body.writeEndElement();
+            body.writeStartElement("w", "r", NS_W);
+            body.writeStartElement("w", "drawing", NS_W);
+            body.writeStartElement("wp", "inline", NS_WP);
+            body.writeAttribute("distT", "0");
+            body.writeAttribute("distR", "0");
+            body.writeAttribute("distB", "0");
+            body.writeAttribute("distL", "0");
+            body.writeEmptyElement("wp", "extent", NS_WP);
+            body.writeAttribute("cx", cx);
+            body.writeAttribute("cy", cy);
+            body.writeEmptyElement("wp", "docPr", NS_WP);
+            body.writeAttribute("id", drawingId);
+            body.writeAttribute("name", "Drawing " + drawingId);
+            body.writeAttribute("descr", "");
+            body.writeStartElement("a", "graphic", NS_A);
+            body.writeStartElement("a", "graphicData", NS_A);
+            body.writeAttribute("uri", NS_PIC);
+            body.writeStartElement("pic", "pic", NS_PIC);
+            body.writeStartElement("pic", "nvPicPr", NS_PIC);
+            body.writeEmptyElement("pic", "cNvPr", NS_PIC);
+            body.writeAttribute("id", drawingId);
+            body.writeAttribute("name", "Picture " + drawingId);
+            body.writeAttribute("descr", "");
+            body.writeStartElement("pic", "cNvPicPr", NS_PIC);
+            body.writeEmptyElement("a", "picLocks", NS_A);
+            body.writeAttribute("noChangeAspect", "true");
+            body.writeEndElement();
+            body.writeEndElement();
+            body.writeStartElement("pic", "blipFill", NS_PIC);
+            body.writeEmptyElement("a", "blip", NS_A);
+            body.writeAttribute("r", NS_R, "embed", relId);
+            body.writeStartElement("a", "stretch", NS_A);
+            body.writeEmptyElement("a", "fillRect", NS_A);
+            body.writeEndElement();
+            body.writeEndElement();
+            body.writeStartElement("pic", "spPr", NS_PIC);
+            body.writeStartElement("a", "xfrm", NS_A);
+            body.writeEmptyElement("a", "off", NS_A);
+            body.writeAttribute("x", "0");
+            body.writeAttribute("y", "0");
+            body.writeEmptyElement("a", "ext", NS_A);
+            body.writeAttribute("cx", cx);
+            body.writeAttribute("cy", cy);
+            body.writeEndElement();
+            body.writeStartElement("a", "prstGeom", NS_A);
+            body.writeAttribute("prst", "rect");
+            body.writeEmptyElement("a", "avLst", NS_A);
+            body.writeEndElement();
+            body.writeEndElement();
+            body.writeEndElement();
+            body.writeEndElement();
+            body.writeEndElement();
+            body.writeEndElement();
+            body.writeEndElement();
+            body.writeEndElement();
+            body.writeEndElement();
+        } catch (XMLStreamException e) {
+            throw new IOException("插入图片失败：" + imagePath.getFileName(), e);
+        }
+    }
+
+    @Override
+    public void addPageBreak() throws IOException {
+        try {
+            body.writeStartElement("w", "p", NS_W);
+            body.writeStartElement("w", "r", NS_W);
+            body.writeEmptyElement("w", "br", NS_W);
+            body.writeAttribute("w", NS_W, "type", "page");
+            body.writeEndElement();
+            body.writeEndElement();
+        } catch (XMLStreamException e) {
+            throw new IOException("插入分页符失败", e);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        try {
+            body.writeEndElement();
+            body.writeEndElement();
+            body.writeEndDocument();
+            body.close();
+            rels.writeEndElement();
+            rels.writeEndDocument();
+            rels.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("写出 document.xml 失败：" + e.getMessage(), e);
+        }
+        bodyStream.close();
+        relsStream.close();
+        copyIntoEntry("word/document.xml", bodyFile);
+        copyIntoEntry("word/_rels/document.xml.rels", relsFile);
+        zip.finish();
+        zip.close();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        release(finished ? null : zip, bodyStream, relsStream);
+    }
+
+    /**
+     * 关闭给定的流（可为 null）并删除临时文件与目录；构造失败时也用它清理。
+     */
+    private void release(OutputStream zipStream, OutputStream bodyOut, OutputStream relsOut) {
+        closeQuietly(bodyOut);
+        closeQuietly(relsOut);
+        closeQuietly(zipStream);
+        deleteQuietly(bodyFile);
+        deleteQuietly(relsFile);
+        deleteQuietly(workDir);
+    }
+
+    private void writePackageHeader() throws IOException, XMLStreamException {
+        XMLStreamWriter xml = startXmlEntry("[Content_Types].xml");
+        xml.writeStartElement("Types");
+        xml.writeDefaultNamespace(NS_CONTENT_TYPES);
+        writeDefaultType(xml, "docx", AltChunkMergeWriter.DOCX_MAIN_CONTENT_TYPE);
+        writeDefaultType(xml, "png", "image/png");
+        writeDefaultType(xml, "jpeg", "image/jpeg");
+        writeDefaultType(xml, "bmp", "image/bmp");
+        writeDefaultType(xml, "gif", "image/gif");
+        writeDefaultType(xml, "rels", "application/vnd.openxmlformats-package.relationships+xml");
+        writeDefaultType(xml, "xml", "application/xml");
+        writeOverrideType(xml, "/docProps/app.xml", "application/vnd.openxmlformats-officedocument.extended-properties+xml");
+        writeOverrideType(xml, "/docProps/core.xml", "application/vnd.openxmlformats-package.core-properties+xml");
+        writeOverrideType(xml, "/word/document.xml", "application/vnd.openxmlformats-officedocument.wordprocessingml.document.main+xml");
+        writeOverrideType(xml, "/word/settings.xml", "application/vnd.openxmlformats-officedocument.wordprocessingml.settings+xml");
+        xml.writeEndElement();
+        endXmlEntry(xml);
+
+        xml = startXmlEntry("_rels/.rels");
+        xml.writeStartElement("Relationships");
+        xml.writeDefaultNamespace(NS_PKG_RELS);
+        writeRelationship(xml, "rId1", "word/document.xml", NS_R + "/officeDocument");
+        writeRelationship(xml, "rId2", "docProps/app.xml", NS_R + "/extended-properties");
+        writeRelationship(xml, "rId3", "docProps/core.xml", "http://schemas.openxmlformats.org/package/2006/relationships/metadata/core-properties");
+        xml.writeEndElement();
+        endXmlEntry(xml);
+
+        xml = startXmlEntry("docProps/app.xml");
+        xml.writeStartElement("Properties");
+        xml.writeDefaultNamespace("http://schemas.openxmlformats.org/officeDocument/2006/extended-properties");
+        xml.writeStartElement("Application");
+        xml.writeCharacters("Apache POI");
+        xml.writeEndElement();
+        xml.writeEndElement();
+        endXmlEntry(xml);
+
+        xml = startXmlEntry("docProps/core.xml");
+        xml.setPrefix("cp", "http://schemas.openxmlformats.org/package/2006/metadata/core-properties");
+        xml.writeStartElement("cp", "coreProperties", "http://schemas.openxmlformats.org/package/2006/metadata/core-properties");
+        xml.writeNamespace("cp", "http://schemas.openxmlformats.org/package/2006/metadata/core-properties");
+        xml.writeNamespace("dc", "http://purl.org/dc/elements/1.1/");
+        xml.writeNamespace("dcterms", "http://purl.org/dc/terms/");
+        xml.writeNamespace("xsi", "http://www.w3.org/2001/XMLSchema-instance");
+        xml.writeStartElement("dcterms", "created", "http://purl.org/dc/terms/");
+        xml.writeAttribute("xsi", "http://www.w3.org/2001/XMLSchema-instance", "type", "dcterms:W3CDTF");
+        xml.writeCharacters(Instant.now().truncatedTo(ChronoUnit.SECONDS).toString());
+        xml.writeEndElement();
+        xml.writeStartElement("dc", "creator", "http://purl.org/dc/elements/1.1/");
+        xml.writeCharacters("Apache POI");
+        xml.writeEndElement();
+        xml.writeEndElement();
+        endXmlEntry(xml);
+
+        xml = startXmlEntry("word/settings.xml");
+        xml.writeEmptyElement("w", "settings", NS_W);
+        xml.writeNamespace("w", NS_W);
+        endXmlEntry(xml);
+    }
+
+    private void startBody() throws XMLStreamException {
+        body.writeStartDocument("UTF-8", "1.0");
+        body.writeStartElement("w", "document", NS_W);
+        body.writeNamespace("w", NS_W);
+        body.writeNamespace("r", NS_R);
+        body.writeNamespace("wp", NS_WP);
+        body.writeNamespace("a", NS_A);
+        body.writeNamespace("pic", NS_PIC);
+        body.writeStartElement("w", "body", NS_W);
+    }
+
+    private void startRelationships() throws XMLStreamException {
+        rels.writeStartDocument("UTF-8", "1.0");
+        rels.writeStartElement("Relationships");
+        rels.writeDefaultNamespace(NS_PKG_RELS);
+        addRelationship("settings.xml", REL_SETTINGS);
+    }
+
+    private String addRelationship(String target, String type) throws XMLStreamException {
+        relCounter++;
+        String relId = "rId" + relCounter;
+        writeRelationship(rels, relId, target, type);
+        return relId;
+    }
+
+    private void writeRelationship(XMLStreamWriter xml, String id, String target, String type) throws XMLStreamException {
+        xml.writeEmptyElement("Relationship");
+        xml.writeAttribute("Id", id);
+        xml.writeAttribute("Target", target);
+        xml.writeAttribute("Type", type);
+    }
+
+    private void writeDefaultType(XMLStreamWriter xml, String extension, String contentType) throws XMLStreamException {
+        xml.writeEmptyElement("Default");
+        xml.writeAttribute("ContentType", contentType);
+        xml.writeAttribute("Extension", extension);
+    }
+
+    private void writeOverrideType(XMLStreamWriter xml, String partName, String contentType) throws XMLStreamException {
+        xml.writeEmptyElement("Override");
+        xml.writeAttribute("ContentType", contentType);
+        xml.writeAttribute("PartName", partName);
+    }
+
+    private XMLStreamWriter startXmlEntry(String name) throws IOException, XMLStreamException {
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        zip.putNextEntry(new ZipEntry(name));
+        // StAX 关闭时不能连带关闭 ZIP 流
+        XMLStreamWriter xml = XML_OUTPUT.createXMLStreamWriter(new FilterOutputStream(zip) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        }, StandardCharsets.UTF_8.name());
+        xml.writeStartDocument("UTF-8", "1.0");
+        return xml;
+    }
+
+    private void endXmlEntry(XMLStreamWriter xml) throws IOException, XMLStreamException {
+        xml.writeEndDocument();
+        xml.flush();
+        xml.close();
+        zip.closeEntry();
+    }
+
+    private void copyIntoEntry(String name, Path source) throws IOException {
+        // altChunk 与图片本身已是压缩格式，快速压缩即可
+        zip.setLevel(name.endsWith(".xml") || name.endsWith(".rels") ? Deflater.DEFAULT_COMPRESSION : Deflater.BEST_SPEED);
+        zip.putNextEntry(new ZipEntry(name));
+        Files.copy(source, zip);
+        zip.closeEntry();
+    }
+
+    private static void closeQuietly(OutputStream stream) {
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException | RuntimeException ignored) {
+            // ignore
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // ignore
+        }
+    }
+}
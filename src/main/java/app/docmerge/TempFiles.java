@@ -0,0 +1,36 @@
+package app.docmerge;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * 临时文件清理。
+ */
+final class TempFiles {
+    private TempFiles() {
+    }
+
+    /**
+     * 删除目录及其全部内容（先删深层文件再删目录）；失败的条目跳过，不抛异常。dir 为 null 或不存在时什么都不做。
+     */
+    static void deleteTree(Path dir) {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.comparingInt(Path::getNameCount).reversed())
+                    .forEach(path -> {
+                        try {
+                            Files.deleteIfExists(path);
+                        } catch (IOException ignored) {
+                            // ignore
+                        }
+                    });
+        } catch (IOException ignored) {
+            // ignore
+        }
+    }
+}
@@ -37,4 +37,9 @@ public class WpsComConverter extends AbstractDocComConverter {
                 "WPS 不支持 PDF 转 DOCX",
                 -1);
     }
+
+    @Override
+    protected String officeProcessName() {
+        return "wps";
+    }
 }
@@ -0,0 +1,166 @@
+package app.docmerge;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ChildProcessTracker}：用 sh 启动带后台 sleep 的进程树，另起一个 sleep 代替 COM 服务启动的 Office
+ * 并附加到根进程，验证 reap 结束整棵树与附加进程、release 的宽限期（根进程正常退出后残留的子进程与 Office
+ * 在宽限期后才被结束，全部已退出时立即移除），以及 sweepLeftovers 按进程号与启动时间匹配上次运行的记录
+ * （启动时间不符或记录属于仍在运行的实例时不结束）。
+ */
+@DisabledOnOs(value = OS.WINDOWS, disabledReason = "用 sh 与 sleep 构造进程树")
+class ChildProcessTrackerTest {
+    // 与 ChildProcessTracker.EXIT_GRACE_MILLIS 一致
+    private static final long EXIT_GRACE_MILLIS = 5000L;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path workDir;
+
+    private Path stateFile;
+    private ChildProcessTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        stateFile = workDir.resolve("child-processes.json");
+        tracker = new ChildProcessTracker(stateFile, ChildProcessTracker.defaultRssReader());
+    }
+
+    @Test
+    void reapKillsTreeAndAttachedProcesses() throws Exception {
+        ProcessHandle root = spawn("sh", "-c", "sleep 600 & sleep 600 & wait");
+        Thread.sleep(300);
+        tracker.track(root);
+        List<ProcessHandle> children = root.descendants().toList();
+        assertEquals(3, tracker.stats().liveProcesses(), "track 记录根进程与子进程树：" + tracker.stats().summary());
+        ProcessHandle office = spawn("sleep", "600");
+        tracker.attach(root, office.pid());
+        assertEquals(4, tracker.stats().liveProcesses(), "attach 把树外进程归属到根进程：" + tracker.stats().summary());
+        ChildProcessTracker.State state = mapper.readValue(stateFile.toFile(), ChildProcessTracker.State.class);
+        assertEquals(ProcessHandle.current().pid(), state.ownerPid(), "状态文件记录本程序");
+        assertTrue(state.processes().stream().anyMatch(entry -> entry.pid() == office.pid()
+                && entry.startMillis() == startMillis(office)), "状态文件记录附加进程的启动时间：" + state);
+
+        tracker.reap(root);
+        assertEquals(2, children.size(), "子进程 " + children.size() + " 个");
+        assertTrue(exits(root, 2), "reap 结束根进程");
+        assertTrue(exits(office, 2), "reap 结束附加进程");
+        for (ProcessHandle child : children) {
+            assertTrue(exits(child, 2), "reap 结束子进程：" + child);
+        }
+        assertEquals(4, tracker.stats().reaped(), "reap 计入已清理数：" + tracker.stats().summary());
+        assertEquals(0, tracker.stats().liveProcesses(), "reap 后不再跟踪：" + tracker.stats().summary());
+    }
+
+    @Test
+    void releaseKillsLeftoversAfterGrace() throws Exception {
+        // 根进程正常退出，但留下脱离进程树的后台 sleep 与附加的 Office
+        ProcessHandle finished = spawn("sh", "-c", "sleep 600 & sleep 1");
+        Thread.sleep(300);
+        tracker.track(finished);
+        List<ProcessHandle> orphans = finished.descendants()
+                .filter(handle -> handle.info().commandLine().orElse("").contains("600")).toList();
+        ProcessHandle lingering = spawn("sleep", "600");
+        tracker.attach(finished, lingering.pid());
+        finished.onExit().get(10, TimeUnit.SECONDS);
+        long released = System.nanoTime();
+        tracker.release(finished);
+        Thread.sleep(EXIT_GRACE_MILLIS / 2);
+        assertEquals(1, orphans.size(), "残留后台 sleep：" + orphans);
+        assertTrue(orphans.get(0).isAlive() && lingering.isAlive(), "宽限期内残留进程保持运行");
+        assertTrue(exits(lingering, 10), "宽限期后附加进程被结束");
+        assertTrue(exits(orphans.get(0), 2), "宽限期后残留子进程被结束");
+        long waited = (System.nanoTime() - released) / 1_000_000L;
+        assertTrue(waited >= EXIT_GRACE_MILLIS, "宽限期后才结束：" + waited + " ms");
+    }
+
+    @Test
+    void releaseRemovesExitedTreeImmediately() throws Exception {
+        // 全部已退出时立即移除并写入状态文件，不等宽限期
+        ProcessHandle clean = spawn("sh", "-c", "exit 0");
+        tracker.track(clean);
+        clean.onExit().get(10, TimeUnit.SECONDS);
+        Files.deleteIfExists(stateFile);
+        tracker.release(clean);
+        assertTrue(Files.isRegularFile(stateFile), "release 写入状态文件");
+        assertTrue(mapper.readValue(stateFile.toFile(), ChildProcessTracker.State.class).processes().isEmpty(),
+                "全部已退出时 release 立即移除");
+    }
+
+    @Test
+    void sweepMatchesPidAndStartTime() throws Exception {
+        // 上次运行的记录：记录者已退出，一个条目启动时间匹配，一个不匹配（模拟进程号被其它程序复用）
+        ProcessHandle leftover = spawn("sleep", "600");
+        ProcessHandle reused = spawn("sleep", "600");
+        try {
+            ProcessHandle deadOwner = spawn("true");
+            deadOwner.onExit().get(10, TimeUnit.SECONDS);
+            Path sweepState = workDir.resolve("sweep.json");
+            mapper.writeValue(sweepState.toFile(), new ChildProcessTracker.State(deadOwner.pid(), 1L, List.of(
+                    new ChildProcessTracker.Entry(leftover.pid(), startMillis(leftover), "sleep"),
+                    new ChildProcessTracker.Entry(reused.pid(), startMillis(reused) + 12_345L, "sleep"))));
+            ChildProcessTracker restarted = new ChildProcessTracker(sweepState, ChildProcessTracker.defaultRssReader());
+            assertEquals(1, restarted.sweepLeftovers(), "sweepLeftovers 结束启动时间匹配的残留进程");
+            assertTrue(exits(leftover, 2), "sweepLeftovers 结束启动时间匹配的残留进程");
+            assertTrue(reused.isAlive(), "启动时间不匹配的进程不被结束");
+            assertEquals(0, restarted.sweepLeftovers(), "sweepLeftovers 只执行一次");
+
+            // 记录属于仍在运行的实例（这里用本进程代替）时不能清理
+            Path liveState = workDir.resolve("live-owner.json");
+            mapper.writeValue(liveState.toFile(), new ChildProcessTracker.State(ProcessHandle.current().pid(),
+                    startMillis(ProcessHandle.current()), List.of(
+                    new ChildProcessTracker.Entry(reused.pid(), startMillis(reused), "sleep"))));
+            ChildProcessTracker other = new ChildProcessTracker(liveState, ChildProcessTracker.defaultRssReader());
+            assertEquals(0, other.sweepLeftovers(), "记录属于运行中的实例时不清理");
+            assertTrue(reused.isAlive(), "记录属于运行中的实例时不清理");
+        } finally {
+            leftover.destroyForcibly();
+            reused.destroyForcibly();
+        }
+    }
+
+    private static ProcessHandle spawn(String... command) throws IOException {
+        return new ProcessBuilder(command)
+                .redirectInput(ProcessBuilder.Redirect.from(Path.of("/dev/null").toFile()))
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start().toHandle();
+    }
+
+    private static long startMillis(ProcessHandle handle) {
+        return handle.info().startInstant().map(Instant::toEpochMilli).orElse(-1L);
+    }
+
+    /**
+     * 结束信号是异步送达的，给进程最多 seconds 秒退出。
+     */
+    private static boolean exits(ProcessHandle handle, int seconds) {
+        try {
+            handle.onExit().get(seconds, TimeUnit.SECONDS);
+            return true;
+        } catch (TimeoutException | ExecutionException e) {
+            return !handle.isAlive();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return !handle.isAlive();
+        }
+    }
+}
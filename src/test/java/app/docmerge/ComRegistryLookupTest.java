@@ -0,0 +1,174 @@
+package app.docmerge;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ComRegistryLookup}：以返回固定 {@code reg query} 输出的 {@link ComRegistryLookup.CommandRunner}
+ * 代替 reg.exe，在任意系统上验证默认值解析（中英文系统的“(默认)”/“(Default)”行）、LocalServer32 命令行解析
+ * （引号、参数、%环境变量%）以及 64 位视图缺失时回退到 32 位视图。
+ */
+class ComRegistryLookupTest {
+    private static final String WORD_CLSID = "{000209FF-0000-0000-C000-000000000046}";
+    private static final String WPS_CLSID = "{000209FF-0000-4B30-A977-D214852036FF}";
+
+    // LocalServer32 指向真实存在的文件才算已注册
+    @TempDir
+    Path officeDir;
+
+    private Path word;
+    private Path wps;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        word = Files.createFile(officeDir.resolve("WINWORD.EXE"));
+        wps = Files.createFile(officeDir.resolve("wps.exe"));
+    }
+
+    @Test
+    void parsesDefaultValue() {
+        assertEquals(WORD_CLSID, ComRegistryLookup.parseDefaultValue(
+                defaultValue("HKEY_CLASSES_ROOT\\Word.Application\\CLSID", "(默认)", "REG_SZ", WORD_CLSID)),
+                "中文系统 (默认) 行");
+        assertEquals(WORD_CLSID, ComRegistryLookup.parseDefaultValue(
+                defaultValue("HKEY_CLASSES_ROOT\\Word.Application\\CLSID", "(Default)", "REG_SZ", WORD_CLSID)),
+                "英文系统 (Default) 行");
+        assertEquals("%ProgramFiles%\\Kingsoft\\wps.exe /Automation", ComRegistryLookup.parseDefaultValue(
+                defaultValue("HKEY_CLASSES_ROOT\\CLSID\\" + WPS_CLSID + "\\LocalServer32", "(默认)", "REG_EXPAND_SZ",
+                        "%ProgramFiles%\\Kingsoft\\wps.exe /Automation")), "REG_EXPAND_SZ 值");
+        assertNull(ComRegistryLookup.parseDefaultValue(defaultValue("HKEY_CLASSES_ROOT\\X", "(默认)", "REG_SZ", "")),
+                "空默认值返回 null");
+        assertNull(ComRegistryLookup.parseDefaultValue("\r\nHKEY_CLASSES_ROOT\\X\r\n\r\n"), "无值行返回 null");
+        assertNull(ComRegistryLookup.parseDefaultValue(null));
+    }
+
+    @Test
+    void parsesServerExecutable() {
+        assertEquals(Path.of("C:\\Program Files\\Microsoft Office\\root\\Office16\\WINWORD.EXE"),
+                ComRegistryLookup.parseServerExecutable(
+                        "\"C:\\Program Files\\Microsoft Office\\root\\Office16\\WINWORD.EXE\" /Automation"),
+                "带引号与参数的 LocalServer32");
+        assertEquals(Path.of("C:\\Program Files (x86)\\Microsoft Office\\Office14\\WINWORD.EXE"),
+                ComRegistryLookup.parseServerExecutable(
+                        "C:\\Program Files (x86)\\Microsoft Office\\Office14\\WINWORD.EXE /Automation"),
+                "不带引号、路径含空格的 LocalServer32");
+        assertEquals(Path.of("C:\\Tools\\server"), ComRegistryLookup.parseServerExecutable("C:\\Tools\\server -Embedding"),
+                "不带 .exe 时取第一个空格之前");
+        String home = System.getenv("HOME") != null ? "HOME" : "USERPROFILE";
+        assertEquals(Path.of(System.getenv(home), "wps.exe"), ComRegistryLookup.parseServerExecutable(
+                "\"%" + home + "%" + File.separator + "wps.exe\" /Automation"), "%环境变量% 展开");
+        assertEquals(Path.of("%DOC_MERGE_UNDEFINED%\\wps.exe"),
+                ComRegistryLookup.parseServerExecutable("%DOC_MERGE_UNDEFINED%\\wps.exe /Automation"),
+                "未定义的 %环境变量% 保留原样");
+    }
+
+    @Test
+    void registeredIn64BitView() {
+        CannedReg reg = new CannedReg()
+                .value("HKCR\\Word.Application\\CLSID", false, "(默认)", "REG_SZ", WORD_CLSID)
+                .value("HKCR\\CLSID\\" + WORD_CLSID + "\\LocalServer32", false, "(默认)", "REG_SZ",
+                        "\"" + word + "\" /Automation");
+        ComRegistryLookup.Registration registered = new ComRegistryLookup(reg).lookup("Word.Application");
+        assertEquals(ComRegistryLookup.Status.REGISTERED, registered.status(), "64 位视图已注册：" + registered);
+        assertEquals(word.toString(), registered.server());
+        assertEquals(WORD_CLSID, registered.clsid());
+        assertTrue(reg.commands.stream().noneMatch(c -> c.contains("/reg:32")),
+                "64 位视图命中时不查询 32 位视图：" + reg.commands);
+    }
+
+    @Test
+    void fallsBackTo32BitView() {
+        CannedReg reg = new CannedReg()
+                .value("HKCR\\KWPS.Application\\CLSID", false, "(Default)", "REG_SZ", WPS_CLSID)
+                .value("HKCR\\CLSID\\" + WPS_CLSID + "\\LocalServer32", true, "(Default)", "REG_SZ", wps + " /Automation");
+        ComRegistryLookup.Registration fallback = new ComRegistryLookup(reg).lookup("KWPS.Application");
+        assertEquals(ComRegistryLookup.Status.REGISTERED, fallback.status(), "64 位视图缺失时回退到 32 位视图：" + fallback);
+        assertEquals(wps.toString(), fallback.server());
+        assertTrue(reg.commands.contains(List.of("reg", "query", "HKCR\\CLSID\\" + WPS_CLSID + "\\LocalServer32",
+                "/ve", "/reg:32")), "查询 32 位视图：" + reg.commands);
+    }
+
+    @Test
+    void missingProgIdOrClsid() {
+        assertEquals(ComRegistryLookup.Status.NOT_REGISTERED,
+                new ComRegistryLookup(new CannedReg()).lookup("Word.Application").status(), "ProgID 不存在");
+        CannedReg reg = new CannedReg().value("HKCR\\Word.Application\\CLSID", false, "(默认)", "REG_SZ", "(数值未设置)");
+        assertEquals(ComRegistryLookup.Status.NOT_REGISTERED, new ComRegistryLookup(reg).lookup("Word.Application").status(),
+                "CLSID 不是 GUID 视为未注册");
+    }
+
+    @Test
+    void missingServer() {
+        CannedReg reg = new CannedReg().value("HKCR\\Word.Application\\CLSID", false, "(默认)", "REG_SZ", WORD_CLSID);
+        ComRegistryLookup.Registration noServer = new ComRegistryLookup(reg).lookup("Word.Application");
+        assertEquals(ComRegistryLookup.Status.SERVER_MISSING, noServer.status(), "两个视图都没有 LocalServer32");
+        assertEquals(3, reg.commands.size(), "两个视图都没有 LocalServer32：" + reg.commands);
+
+        reg = new CannedReg()
+                .value("HKCR\\Word.Application\\CLSID", false, "(默认)", "REG_SZ", WORD_CLSID)
+                .value("HKCR\\CLSID\\" + WORD_CLSID + "\\LocalServer32", false, "(默认)", "REG_SZ",
+                        "\"" + officeDir.resolve("uninstalled").resolve("WINWORD.EXE") + "\" /Automation");
+        assertEquals(ComRegistryLookup.Status.SERVER_MISSING, new ComRegistryLookup(reg).lookup("Word.Application").status(),
+                "服务程序文件不存在");
+    }
+
+    @Test
+    void unknownWhenRegFails() {
+        ComRegistryLookup failing = new ComRegistryLookup(command -> {
+            throw new IOException("reg 不存在");
+        });
+        assertEquals(ComRegistryLookup.Status.UNKNOWN, failing.lookup("Word.Application").status(),
+                "reg 无法执行时返回 UNKNOWN");
+    }
+
+    /**
+     * reg query 的输出格式：空行、键名、值行（四个空格缩进，字段间以四个空格分隔）、空行。
+     */
+    private static String defaultValue(String key, String name, String type, String data) {
+        return "\r\n" + key + "\r\n    " + name + "    " + type + "    " + data + "\r\n\r\n";
+    }
+
+    /**
+     * 按键与视图返回预设输出，未预设的键模拟 reg 的“找不到指定的注册表项”（退出码 1）；记录收到的命令。
+     */
+    private static final class CannedReg implements ComRegistryLookup.CommandRunner {
+        private final Map<List<String>, String> outputs = new HashMap<>();
+        private final List<List<String>> commands = new ArrayList<>();
+
+        CannedReg value(String key, boolean view32, String name, String type, String data) {
+            outputs.put(command(key, view32), defaultValue(key.replace("HKCR\\", "HKEY_CLASSES_ROOT\\"), name, type, data));
+            return this;
+        }
+
+        @Override
+        public PowerShellRunner.Result run(List<String> command) {
+            commands.add(List.copyOf(command));
+            String output = outputs.get(command);
+            return output == null
+                    ? new PowerShellRunner.Result(1, "", "错误: 系统找不到指定的注册表项或值。")
+                    : new PowerShellRunner.Result(0, output, "");
+        }
+
+        private static List<String> command(String key, boolean view32) {
+            List<String> command = new ArrayList<>(List.of("reg", "query", key, "/ve"));
+            if (view32) {
+                command.add("/reg:32");
+            }
+            return command;
+        }
+    }
+}
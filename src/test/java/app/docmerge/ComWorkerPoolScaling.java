@@ -0,0 +1,99 @@
+package app.docmerge;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 工作进程池 1→N 实例的吞吐量伸缩测量，使用替身工作进程 standin/com-worker.sh 模拟引擎（不需要 Windows/Office）。
+ * 属于测试代码，不打进应用 Jar；先 {@code mvn test-compile}，再以主类与测试类目录及依赖为类路径运行：
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;依赖&gt; app.docmerge.ComWorkerPoolScaling [文档数，默认 48]
+ *      [最大实例数，默认 4] [单文档耗时秒，默认 0.2] [启动耗时秒，默认 1]
+ * </pre>
+ * 每种池大小先让所有实例完成启动（启动耗时单独统计），再由与实例数相同的调用线程并发提交全部文档，
+ * 输出吞吐量、相对单实例的加速比与并行效率。模拟转换只占墙钟时间不占 CPU，
+ * 结果反映池本身的调度与进程通信开销；真实 Office 下的伸缩还受 CPU 与内存限制（见 {@link ComWorkerPool#capacityLimit()}）。
+ */
+public final class ComWorkerPoolScaling {
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private ComWorkerPoolScaling() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int documents = args.length > 0 ? Math.max(1, Integer.parseInt(args[0])) : 48;
+        int maxInstances = args.length > 1 ? Math.max(1, Integer.parseInt(args[1])) : 4;
+        String convertSeconds = args.length > 2 ? args[2] : "0.2";
+        String startupSeconds = args.length > 3 ? args[3] : "1";
+        PrintStream out = System.out;
+        Path workDir = Files.createTempDirectory("com-worker-pool-scaling-");
+        Path script = StandInScripts.install("com-worker.sh", workDir);
+        ComWorkerSession.ProcessLauncher launcher = () -> {
+            ProcessBuilder builder = new ProcessBuilder("sh", script.toString());
+            builder.environment().put("STANDIN_CONVERT_SECONDS", convertSeconds);
+            builder.environment().put("STANDIN_STARTUP_SECONDS", startupSeconds);
+            return builder.start();
+        };
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 1; i <= documents; i++) {
+            Path input = workDir.resolve(String.format(Locale.ROOT, "doc_%03d.doc", i));
+            Files.writeString(input, "模拟文档 " + i, StandardCharsets.UTF_8);
+            inputs.add(input);
+        }
+
+        out.printf(Locale.ROOT, "模拟引擎：%d 个文档，单文档 %s 秒，启动 %s 秒，本机 %d 核（容量上限 %d，测量时不限制）%n",
+                documents, convertSeconds, startupSeconds, Runtime.getRuntime().availableProcessors(),
+                ComWorkerPool.capacityLimit());
+        out.println("实例数\t启动(ms)\t转换(ms)\t文档/秒\t加速比\t并行效率");
+        double baseline = 0;
+        for (int instances = 1; instances <= maxInstances; instances++) {
+            Path outputDir = Files.createDirectories(workDir.resolve("out-" + instances));
+            try (ComWorkerPool pool = new ComWorkerPool("模拟", launcher, instances, null, false)) {
+                ExecutorService callers = Executors.newFixedThreadPool(instances);
+                try {
+                    long start = System.nanoTime();
+                    run(pool, callers, inputs.subList(0, Math.min(instances, inputs.size())), outputDir, "warm-");
+                    long startupMillis = (System.nanoTime() - start) / 1_000_000L;
+                    start = System.nanoTime();
+                    run(pool, callers, inputs, outputDir, "");
+                    long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000L);
+                    double throughput = documents * 1000.0 / elapsedMillis;
+                    if (instances == 1) {
+                        baseline = throughput;
+                    }
+                    double speedup = throughput / baseline;
+                    out.printf(Locale.ROOT, "%d\t%d\t%d\t%.2f\t%.2fx\t%.0f%%%n", instances, startupMillis,
+                            elapsedMillis, throughput, speedup, speedup / instances * 100);
+                } finally {
+                    callers.shutdownNow();
+                }
+            }
+        }
+        out.println("工作目录：" + workDir);
+        System.exit(0);
+    }
+
+    private static void run(ComWorkerPool pool, ExecutorService callers, List<Path> inputs, Path outputDir,
+                            String prefix) throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (Path input : inputs) {
+            Path output = outputDir.resolve(prefix + input.getFileName() + "x");
+            futures.add(callers.submit(() -> {
+                pool.convert("DOC", input, output, TIMEOUT);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+}
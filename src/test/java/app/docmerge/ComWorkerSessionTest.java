@@ -0,0 +1,187 @@
+package app.docmerge;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 常驻转换进程会话：用替身工作进程 standin/com-worker.sh（sh 脚本，按同一行协议应答）代替 PowerShell + Office，
+ * 验证 READY/OK/ERR、进度转发、批量请求、崩溃重启、超时、按文档数回收与空闲关闭。
+ */
+@DisabledOnOs(value = OS.WINDOWS, disabledReason = "替身工作进程是 sh 脚本")
+class ComWorkerSessionTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @TempDir
+    Path workDir;
+
+    private ChildProcessTracker tracker;
+    private final AtomicInteger launches = new AtomicInteger();
+    private ComWorkerSession.ProcessLauncher launcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path script = StandInScripts.install("com-worker.sh", workDir);
+        tracker = new ChildProcessTracker(workDir.resolve("child-processes.json"), ChildProcessTracker.defaultRssReader());
+        launcher = () -> {
+            launches.incrementAndGet();
+            return new ProcessBuilder("sh", script.toString()).start();
+        };
+    }
+
+    @Test
+    void convertsAfterReadyAndForwardsProgress() throws IOException {
+        try (ComWorkerSession session = session(50, Duration.ofMinutes(5))) {
+            List<PowerShellRunner.Progress> progress = new ArrayList<>();
+            Path output = workDir.resolve("ok.docx");
+            session.convert("DOC", input("ok.doc"), output, TIMEOUT, progress::add);
+            assertTrue(Files.isRegularFile(output), "READY 后转换成功（OK）");
+            assertTrue(session.getOfficePid() > 0, "READY 报告的 Office 进程号被记录");
+            assertEquals(2, progress.size(), "##progress 转发给监听器：" + progress);
+            assertEquals(2, progress.get(1).current(), "##progress 转发给监听器：" + progress);
+            assertTrue(session.ping(TIMEOUT), "PING 健康检查");
+        }
+    }
+
+    @Test
+    void documentErrorKeepsWorker() throws IOException {
+        try (ComWorkerSession session = session(50, Duration.ofMinutes(5))) {
+            session.convert("DOC", input("ok.doc"), workDir.resolve("ok.docx"), TIMEOUT);
+            long officePid = session.getOfficePid();
+            DocComConversionException err = assertThrows(DocComConversionException.class, () ->
+                    session.convert("DOC", input("fail.doc"), workDir.resolve("fail.docx"), TIMEOUT));
+            assertFalse(err.isWorkerFault(), "ERR 作为文档失败抛出：" + err);
+            assertTrue(err.getMessage().contains("文档损坏"), "ERR 作为文档失败抛出：" + err);
+            assertEquals(1, launches.get(), "ERR 不重启工作进程");
+            assertEquals(officePid, session.getOfficePid(), "ERR 不重启工作进程");
+        }
+    }
+
+    @Test
+    void crashRestartsWorkerAndRetries() throws IOException {
+        try (ComWorkerSession session = session(50, Duration.ofMinutes(5))) {
+            session.convert("DOC", input("ok.doc"), workDir.resolve("ok.docx"), TIMEOUT);
+            long officePid = session.getOfficePid();
+            Path output = workDir.resolve("crash-once.docx");
+            session.convert("DOC", input("crash-once.doc"), output, TIMEOUT);
+            assertTrue(Files.isRegularFile(output), "崩溃后自动重启并重试成功");
+            assertEquals(1, session.getRestartCount(), "崩溃后重启一次");
+            assertFalse(isAlive(officePid), "崩溃进程附加的 Office 被结束：" + officePid);
+
+            DocComConversionException crash = assertThrows(DocComConversionException.class, () ->
+                    session.convert("DOC", input("crash.doc"), workDir.resolve("crash.docx"), TIMEOUT));
+            assertTrue(crash.isWorkerFault(), "连续崩溃按进程故障抛出：" + crash);
+        }
+    }
+
+    @Test
+    void timeoutKillsWorker() throws IOException {
+        try (ComWorkerSession session = session(50, Duration.ofMinutes(5))) {
+            DocComConversionException timeout = assertThrows(DocComConversionException.class, () ->
+                    session.convert("DOC", input("hang.doc"), workDir.resolve("hang.docx"), Duration.ofSeconds(2)));
+            assertTrue(timeout.isWorkerFault(), "超时按进程故障抛出：" + timeout);
+            assertFalse(session.isRunning(), "超时后结束进程");
+        }
+    }
+
+    @Test
+    void batchReportsEachFile() throws IOException {
+        try (ComWorkerSession session = session(50, Duration.ofMinutes(5))) {
+            List<ComWorkerSession.BatchItem> batch = List.of(
+                    new ComWorkerSession.BatchItem(input("b1.doc"), workDir.resolve("b1.docx"), TIMEOUT),
+                    new ComWorkerSession.BatchItem(input("b2-fail.doc"), workDir.resolve("b2.docx"), TIMEOUT),
+                    new ComWorkerSession.BatchItem(input("b3.doc"), workDir.resolve("b3.docx"), TIMEOUT));
+            List<ComWorkerSession.BatchOutcome> outcomes = session.convertBatch("DOC", batch);
+            assertEquals(3, outcomes.size(), "批量请求逐个回报：" + outcomes);
+            assertNull(outcomes.get(0).failure(), "批量请求逐个回报：" + outcomes);
+            assertNotNull(outcomes.get(1).failure(), "失败文件单独回报：" + outcomes);
+            assertNull(outcomes.get(2).failure(), "失败不影响后续文件：" + outcomes);
+            assertTrue(Files.isRegularFile(workDir.resolve("b3.docx")), "失败不影响后续文件");
+        }
+    }
+
+    @Test
+    void recyclesAfterMaxDocuments() throws IOException {
+        try (ComWorkerSession session = session(2, Duration.ofMinutes(5))) {
+            for (int i = 1; i <= 5; i++) {
+                session.convert("DOC", input("r" + i + ".doc"), workDir.resolve("r" + i + ".docx"), TIMEOUT);
+            }
+            assertEquals(3, launches.get(), "每 2 个文档回收一次工作进程（5 个文档）");
+            assertEquals(0, session.getRestartCount(), "回收不计为重启");
+        }
+    }
+
+    @Test
+    void closesWhenIdleAndRestartsOnDemand() throws Exception {
+        ComWorkerSession idle = session(50, Duration.ofSeconds(1));
+        try {
+            idle.convert("DOC", input("idle.doc"), workDir.resolve("idle.docx"), TIMEOUT);
+            long idleOffice = idle.getOfficePid();
+            assertTrue(idle.isRunning(), "转换后工作进程保持运行");
+            Thread.sleep(2500);
+            assertFalse(idle.isRunning(), "空闲超时后自动关闭");
+            assertFalse(isAlive(idleOffice), "正常关闭时 Office 随之退出：" + idleOffice);
+            idle.convert("DOC", input("idle2.doc"), workDir.resolve("idle2.docx"), TIMEOUT);
+            assertTrue(idle.isRunning(), "空闲关闭后按需重新启动");
+            assertEquals(2, launches.get(), "空闲关闭后按需重新启动");
+        } finally {
+            idle.close();
+        }
+        assertFalse(idle.isRunning(), "close 后工作进程退出");
+    }
+
+    private ComWorkerSession session(int maxDocuments, Duration idleTimeout) {
+        return new ComWorkerSession("替身", launcher, maxDocuments, idleTimeout, tracker);
+    }
+
+    private Path input(String name) throws IOException {
+        Path path = workDir.resolve(name);
+        if (!Files.exists(path)) {
+            Files.writeString(path, "替身输入 " + name, StandardCharsets.UTF_8);
+        }
+        return path;
+    }
+
+    /**
+     * 结束信号是异步送达的，给进程最多 2 秒退出。
+     */
+    private static boolean isAlive(long pid) {
+        Optional<ProcessHandle> handle = ProcessHandle.of(pid);
+        if (handle.isEmpty()) {
+            return false;
+        }
+        try {
+            handle.get().onExit().get(2, TimeUnit.SECONDS);
+            return false;
+        } catch (TimeoutException e) {
+            return true;
+        } catch (ExecutionException e) {
+            return handle.get().isAlive();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return handle.get().isAlive();
+        }
+    }
+}
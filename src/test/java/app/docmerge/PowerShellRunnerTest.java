@@ -0,0 +1,157 @@
+package app.docmerge;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link PowerShellRunner#runCommandAsync}：以替身脚本 standin/powershell-output.sh 代替 PowerShell 脚本，
+ * 验证输出边产生边读取（远超管道缓冲也不阻塞）、只保留尾部输出、##progress 与 ##pid 行的解析、
+ * 非零退出码与超时结束进程树。
+ */
+class PowerShellRunnerTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final int CAPTURE_CHARS = 64 * 1024;
+
+    @TempDir
+    Path workDir;
+
+    private Path script;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        script = StandInScripts.install("powershell-output.sh", workDir);
+    }
+
+    @Test
+    @DisabledOnOs(value = OS.WINDOWS, disabledReason = "替身脚本是 sh 脚本")
+    void floodKeepsOnlyTail() throws Exception {
+        // 每行约 120 字节，20000 行 ≈ 2.4 MB，stdout/stderr 各自远超 64 KB 的管道缓冲
+        long start = System.nanoTime();
+        PowerShellRunner.Result flood = PowerShellRunner.runCommandAsync(
+                List.of("sh", script.toString(), "flood", "20000"), TIMEOUT, null).get();
+        long floodMillis = (System.nanoTime() - start) / 1_000_000L;
+        assertEquals(0, flood.exitCode(), "大量 stdout/stderr 交替输出正常结束");
+        assertTrue(floodMillis < 20_000, "大量 stdout/stderr 交替输出不阻塞：" + floodMillis + " ms");
+        assertTrue(flood.stdout().length() <= CAPTURE_CHARS + 64 && flood.stdout().strip().endsWith("LAST"),
+                "stdout 只保留尾部：" + flood.stdout().length());
+        assertTrue(flood.stdout().startsWith("...（前部输出已截断）"), "stdout 截断时带提示");
+        assertTrue(flood.stderr().length() <= CAPTURE_CHARS + 64 && flood.stderr().strip().endsWith("LAST")
+                && !flood.stderr().contains("err 000000"), "stderr 只保留尾部：" + flood.stderr().length());
+    }
+
+    @Test
+    @DisabledOnOs(value = OS.WINDOWS, disabledReason = "替身脚本是 sh 脚本")
+    void parsesProgressAndTrackedPids() throws Exception {
+        List<PowerShellRunner.Progress> progress = Collections.synchronizedList(new ArrayList<>());
+        PowerShellRunner.Result result = PowerShellRunner.runCommandAsync(
+                List.of("sh", script.toString(), "progress"), TIMEOUT, progress::add).get();
+        assertEquals(3, progress.size(), "##progress 行解析并回调：" + progress);
+        assertEquals(new PowerShellRunner.Progress("page", 1, 3, ""), progress.get(0));
+        assertEquals(new PowerShellRunner.Progress("page", 2, 3, "第二页"), progress.get(1));
+        assertEquals(3, progress.get(2).current());
+        assertFalse(result.stdout().contains("page=1/3"), "进度行不计入输出：" + result.stdout());
+        assertTrue(result.stdout().contains("##progress page=x/3"), "格式错误的进度行保留：" + result.stdout());
+        assertTrue(result.stdout().contains("打开文档") && result.stdout().contains("保存完成"),
+                "其它输出保留：" + result.stdout());
+        assertFalse(result.stdout().contains("##pid"), "##pid 行不计入输出");
+        long office = officePid(result);
+        assertTrue(office > 0 && exits(office, 10), "##pid 报告的进程在宽限期后被结束：" + office);
+    }
+
+    @Test
+    void parsesProgressLines() {
+        assertEquals(new PowerShellRunner.Progress("sheet", 4, 10, "汇总 表"),
+                PowerShellRunner.parseProgress("##progress sheet=4/10 汇总 表"), "parseProgress 识别说明文字");
+        assertNull(PowerShellRunner.parseProgress("progress page=1/2"), "parseProgress 拒绝非进度行");
+        assertNull(PowerShellRunner.parseProgress("##progress page=1"), "parseProgress 拒绝非进度行");
+        assertNull(PowerShellRunner.parseProgress(null), "parseProgress 拒绝 null");
+    }
+
+    @Test
+    void parsesTrackedPid() {
+        assertEquals(4242, PowerShellRunner.parseTrackedPid("##pid 4242"));
+        assertEquals(-1, PowerShellRunner.parseTrackedPid("##pid abc"));
+        assertEquals(-1, PowerShellRunner.parseTrackedPid("pid 1"));
+    }
+
+    @Test
+    @DisabledOnOs(value = OS.WINDOWS, disabledReason = "替身脚本是 sh 脚本")
+    void nonZeroExitFails() {
+        ExecutionException e = assertThrows(ExecutionException.class, () ->
+                PowerShellRunner.runCommandAsync(List.of("sh", script.toString(), "fail"), TIMEOUT, null).get(),
+                "非零退出码以异常结束");
+        PowerShellRunner.PowerShellExecutionException failure =
+                assertInstanceOf(PowerShellRunner.PowerShellExecutionException.class, e.getCause());
+        assertEquals(5, failure.getResult().exitCode(), "异常带退出码");
+        assertTrue(failure.getResult().stderr().contains("无法打开文档"), "异常带 stderr");
+    }
+
+    @Test
+    @DisabledOnOs(value = OS.WINDOWS, disabledReason = "替身脚本是 sh 脚本")
+    void timeoutKillsProcessTree() throws Exception {
+        CompletableFuture<PowerShellRunner.Result> hang = PowerShellRunner.runCommandAsync(
+                List.of("sh", script.toString(), "hang"), Duration.ofSeconds(1), null);
+        Thread.sleep(300);
+        List<ProcessHandle> tree = new ArrayList<>();
+        // 替身脚本本身与它启动的 sleep
+        ProcessHandle.current().descendants()
+                .filter(handle -> handle.info().commandLine().orElse("").contains("sleep 600")
+                        || handle.info().commandLine().orElse("").contains("powershell-output.sh hang"))
+                .forEach(tree::add);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> hang.get(10, TimeUnit.SECONDS),
+                "超时以异常结束");
+        assertInstanceOf(PowerShellRunner.PowerShellExecutionException.class, e.getCause(), "超时以异常结束");
+        assertTrue(e.getCause().getMessage().contains("超时"), "超时以异常结束：" + e.getCause());
+        assertTrue(tree.size() >= 2, "进程树包含脚本与 sleep：" + tree);
+        for (ProcessHandle handle : tree) {
+            assertTrue(exits(handle.pid(), 5), "超时后进程树被结束：" + handle);
+        }
+    }
+
+    private static long officePid(PowerShellRunner.Result result) {
+        for (String line : result.stdout().split("\\R")) {
+            if (line.startsWith("office ")) {
+                return Long.parseLong(line.substring(7).strip());
+            }
+        }
+        return -1;
+    }
+
+    private static boolean exits(long pid, int seconds) {
+        Optional<ProcessHandle> handle = ProcessHandle.of(pid);
+        if (handle.isEmpty()) {
+            return true;
+        }
+        try {
+            handle.get().onExit().get(seconds, TimeUnit.SECONDS);
+            return true;
+        } catch (TimeoutException | ExecutionException e) {
+            return !handle.get().isAlive();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return !handle.get().isAlive();
+        }
+    }
+}
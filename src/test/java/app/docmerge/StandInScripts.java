@@ -0,0 +1,29 @@
+package app.docmerge;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 把测试类路径上 standin/ 下的替身脚本释放到临时目录，供不依赖 Windows/Office 的测试使用。
+ */
+final class StandInScripts {
+    private StandInScripts() {
+    }
+
+    /**
+     * 把替身脚本 app/docmerge/standin/&lt;name&gt; 复制到 dir，返回脚本路径。
+     */
+    static Path install(String name, Path dir) throws IOException {
+        try (InputStream in = StandInScripts.class.getResourceAsStream("standin/" + name)) {
+            if (in == null) {
+                throw new IOException("类路径上缺少替身脚本：standin/" + name);
+            }
+            Path target = dir.resolve(name);
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            return target;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+#!/bin/sh
+# ComWorkerSession 的替身工作进程：按同一行协议应答，不需要 Windows/Office，供 ComWorkerSessionTest 与 ComWorkerPoolScaling 使用。
+#
+# 启动时在后台启动一个 sleep 代替 Office 进程，以 READY<TAB>进程号 报告，会话会把它附加到进程树。
+# 输入文件名决定处理结果：
+#   含 fail        回复 ERR（文档本身的失败）
+#   含 crash-once  第一次处理时直接退出（以 输入.crashed 标记），重启后正常完成
+#   含 crash       每次都直接退出
+#   含 hang        不应答（用于超时）
+#   其它           报告两行 ##progress，把输入复制为输出，回复 OK
+# QUIT 时先结束“Office”再退出，模拟正常关闭。
+# 环境变量 STANDIN_STARTUP_SECONDS / STANDIN_CONVERT_SECONDS 模拟 Office 启动与单个文档转换的耗时（秒，可为小数）。
+
+tab=$(printf '\t')
+if [ -n "$STANDIN_STARTUP_SECONDS" ]; then
+    sleep "$STANDIN_STARTUP_SECONDS"
+fi
+# 不继承标准输入输出，否则工作进程退出后管道仍被占用，会话收不到 EOF
+sleep 600 </dev/null >/dev/null 2>&1 &
+office=$!
+printf 'READY\t%s\n' "$office"
+
+# 处理一个文件，结果放在 result（OK 或 ERR<TAB>原因）
+handle() {
+    case "$1" in
+        *fail*)
+            result="ERR${tab}文档损坏：$1"
+            return
+            ;;
+        *crash-once*)
+            if [ ! -e "$1.crashed" ]; then
+                : > "$1.crashed"
+                exit 3
+            fi
+            ;;
+        *crash*)
+            exit 3
+            ;;
+        *hang*)
+            sleep 600
+            ;;
+    esac
+    printf '##progress page=1/2 正在转换\n'
+    if [ -n "$STANDIN_CONVERT_SECONDS" ]; then
+        sleep "$STANDIN_CONVERT_SECONDS"
+    fi
+    if cp "$1" "$2"; then
+        printf '##progress page=2/2 正在保存\n'
+        result="OK"
+    else
+        result="ERR${tab}无法写入：$2"
+    fi
+}
+
+while IFS="$tab" read -r command first second; do
+    case "$command" in
+        PING)
+            printf 'PONG\n'
+            ;;
+        QUIT)
+            kill "$office" 2>/dev/null
+            exit 0
+            ;;
+        DOC|PDF)
+            handle "$first" "$second"
+            printf '%s\n' "$result"
+            ;;
+        BATCH)
+            index=0
+            while [ "$index" -lt "$second" ]; do
+                IFS="$tab" read -r input output || exit 4
+                handle "$input" "$output"
+                printf 'FILE\t%s\t%s\n' "$index" "$result"
+                index=$((index + 1))
+            done
+            ;;
+        *)
+            printf '未知请求：%s\n' "$command" >&2
+            ;;
+    esac
+done
+kill "$office" 2>/dev/null
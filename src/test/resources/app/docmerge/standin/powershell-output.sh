@@ -0,0 +1,43 @@
+#!/bin/sh
+# PowerShellRunner.runCommandAsync 的替身脚本：模拟转换脚本的各种输出方式，不需要 PowerShell，供 PowerShellRunnerTest 使用。
+#
+#   flood 行数   stdout 与 stderr 交替各写出大量行（远超管道缓冲），最后一行为 LAST
+#   progress     普通输出中夹杂 ##progress 行、一条格式错误的进度行，并以 ##pid 报告一个后台 sleep（代替 Office），
+#                同时以普通行 office 进程号 输出，供自检核对
+#   fail         写 stderr 后以退出码 5 结束
+#   hang         后台启动 sleep 后不退出（用于超时，整个进程树应被结束）
+
+line='0123456789abcdefghijklmnopqrstuvwxyz0123456789abcdefghijklmnopqrstuvwxyz0123456789abcdefghijklmnopqrstuvwxyz'
+
+case "$1" in
+    flood)
+        i=0
+        while [ "$i" -lt "$2" ]; do
+            printf 'out %06d %s\n' "$i" "$line"
+            printf 'err %06d %s\n' "$i" "$line" >&2
+            i=$((i + 1))
+        done
+        printf 'LAST\n'
+        printf 'LAST\n' >&2
+        ;;
+    progress)
+        sleep 600 </dev/null >/dev/null 2>&1 &
+        printf '##pid %s\n' "$!"
+        printf 'office %s\n' "$!"
+        printf '打开文档\n'
+        printf '##progress page=1/3\n'
+        printf '##progress page=2/3 第二页\n'
+        printf '##progress page=x/3\n'
+        printf '##progress page=3/3 完成\n'
+        printf '保存完成\n'
+        ;;
+    fail)
+        printf '无法打开文档\n' >&2
+        exit 5
+        ;;
+    hang)
+        sleep 600 &
+        printf 'started\n'
+        wait
+        ;;
+esac